@@ -415,6 +415,8 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 		addToEnableGroup("cg", getcgtrim_clinit_widget(), "trim-clinit");
 		addToEnableGroup("cg", getcgtypes_for_invoke_widget(), "types-for-invoke");
 		addToEnableGroup("cg", getcgresolve_all_abstract_invokes_widget(), "resolve-all-abstract-invokes");
+		addToEnableGroup("cg", getcgprecompute_vtables_widget(), "precompute-vtables");
+		addToEnableGroup("cg", getcgfreeze_widget(), "freeze");
 		getcgenabled_widget().getButton().addSelectionListener(this);
 		getcgsafe_forname_widget().getButton().addSelectionListener(this);
 		getcgsafe_newinstance_widget().getButton().addSelectionListener(this);
@@ -424,11 +426,14 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 		getcgtrim_clinit_widget().getButton().addSelectionListener(this);
 		getcgtypes_for_invoke_widget().getButton().addSelectionListener(this);
 		getcgresolve_all_abstract_invokes_widget().getButton().addSelectionListener(this);
+		getcgprecompute_vtables_widget().getButton().addSelectionListener(this);
+		getcgfreeze_widget().getButton().addSelectionListener(this);
 
 		makeNewEnableGroup("cg", "cg.cha");
 		addToEnableGroup("cg", "cg.cha", getcgcg_chaenabled_widget(), "enabled");
 		addToEnableGroup("cg", "cg.cha", getcgcg_chaverbose_widget(), "verbose");
 		addToEnableGroup("cg", "cg.cha", getcgcg_chaapponly_widget(), "apponly");
+		addToEnableGroup("cg", "cg.cha", getcgcg_chathreads_widget(), "threads");
 		getcgcg_chaenabled_widget().getButton().addSelectionListener(this);
 		getcgcg_chaverbose_widget().getButton().addSelectionListener(this);
 		getcgcg_chaapponly_widget().getButton().addSelectionListener(this);
@@ -1168,6 +1173,12 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 		if (boolRes != defBoolRes) {
 			getConfig().put(getInput_Optionsdrop_bodies_after_load_widget().getAlias(), new Boolean(boolRes));
 		}
+		boolRes = getInput_Optionsintern_values_widget().getButton().getSelection();
+		defBoolRes = false;
+
+		if (boolRes != defBoolRes) {
+			getConfig().put(getInput_Optionsintern_values_widget().getAlias(), new Boolean(boolRes));
+		}
 		stringRes = getInput_Optionssoot_classpath_widget().getText().getText();
 		defStringRes = "";
 
@@ -1204,12 +1215,30 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 		if ((!(stringRes.equals(defStringRes))) && (stringRes != null) && (stringRes.length() != 0)) {
 			getConfig().put(getInput_Optionsandroid_api_version_widget().getAlias(), stringRes);
 		}
+		stringRes = getInput_Optionsresolver_threads_widget().getText().getText();
+		defStringRes = "";
+
+		if ((!(stringRes.equals(defStringRes))) && (stringRes != null) && (stringRes.length() != 0)) {
+			getConfig().put(getInput_Optionsresolver_threads_widget().getAlias(), stringRes);
+		}
+		stringRes = getInput_Optionsbody_cache_dir_widget().getText().getText();
+		defStringRes = "";
+
+		if ((!(stringRes.equals(defStringRes))) && (stringRes != null) && (stringRes.length() != 0)) {
+			getConfig().put(getInput_Optionsbody_cache_dir_widget().getAlias(), stringRes);
+		}
 		stringRes = getInput_Optionsmain_class_widget().getText().getText();
 		defStringRes = "";
 
 		if ((!(stringRes.equals(defStringRes))) && (stringRes != null) && (stringRes.length() != 0)) {
 			getConfig().put(getInput_Optionsmain_class_widget().getAlias(), stringRes);
 		}
+		stringRes = getInput_Optionsbody_budget_widget().getText().getText();
+		defStringRes = "";
+
+		if ((!(stringRes.equals(defStringRes))) && (stringRes != null) && (stringRes.length() != 0)) {
+			getConfig().put(getInput_Optionsbody_budget_widget().getAlias(), stringRes);
+		}
 		stringRes = getInput_Optionssrc_prec_widget().getSelectedAlias();
 		defStringRes = "c class";
 
@@ -1767,6 +1796,18 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 		if (boolRes != defBoolRes) {
 			getConfig().put(getcgresolve_all_abstract_invokes_widget().getAlias(), new Boolean(boolRes));
 		}
+		boolRes = getcgprecompute_vtables_widget().getButton().getSelection();
+		defBoolRes = false;
+
+		if (boolRes != defBoolRes) {
+			getConfig().put(getcgprecompute_vtables_widget().getAlias(), new Boolean(boolRes));
+		}
+		boolRes = getcgfreeze_widget().getButton().getSelection();
+		defBoolRes = false;
+
+		if (boolRes != defBoolRes) {
+			getConfig().put(getcgfreeze_widget().getAlias(), new Boolean(boolRes));
+		}
 		stringRes = getcgjdkver_widget().getText().getText();
 		defStringRes = "3";
 
@@ -1809,6 +1850,12 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 		if (boolRes != defBoolRes) {
 			getConfig().put(getcgcg_chaapponly_widget().getAlias(), new Boolean(boolRes));
 		}
+		stringRes = getcgcg_chathreads_widget().getText().getText();
+		defStringRes = "1";
+
+		if ((!(stringRes.equals(defStringRes))) && (stringRes != null) && (stringRes.length() != 0)) {
+			getConfig().put(getcgcg_chathreads_widget().getAlias(), stringRes);
+		}
 		boolRes = getcgcg_sparkenabled_widget().getButton().getSelection();
 		defBoolRes = false;
 
@@ -4743,6 +4790,16 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 		return Input_Optionsdrop_bodies_after_load_widget;
 	}	
 	
+	private BooleanOptionWidget Input_Optionsintern_values_widget;
+	
+	private void setInput_Optionsintern_values_widget(BooleanOptionWidget widget) {
+		Input_Optionsintern_values_widget = widget;
+	}
+	
+	public BooleanOptionWidget getInput_Optionsintern_values_widget() {
+		return Input_Optionsintern_values_widget;
+	}	
+	
 
 	private ListOptionWidget Input_Optionsprocess_dir_widget;
 	
@@ -4816,6 +4873,30 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 	
 	
 	
+	private StringOptionWidget Input_Optionsresolver_threads_widget;
+	
+	private void setInput_Optionsresolver_threads_widget(StringOptionWidget widget) {
+		Input_Optionsresolver_threads_widget = widget;
+	}
+	
+	public StringOptionWidget getInput_Optionsresolver_threads_widget() {
+		return Input_Optionsresolver_threads_widget;
+	}
+	
+	
+	
+	private StringOptionWidget Input_Optionsbody_cache_dir_widget;
+	
+	private void setInput_Optionsbody_cache_dir_widget(StringOptionWidget widget) {
+		Input_Optionsbody_cache_dir_widget = widget;
+	}
+	
+	public StringOptionWidget getInput_Optionsbody_cache_dir_widget() {
+		return Input_Optionsbody_cache_dir_widget;
+	}
+	
+	
+	
 	private StringOptionWidget Input_Optionsmain_class_widget;
 	
 	private void setInput_Optionsmain_class_widget(StringOptionWidget widget) {
@@ -4828,6 +4909,18 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 	
 	
 	
+	private StringOptionWidget Input_Optionsbody_budget_widget;
+	
+	private void setInput_Optionsbody_budget_widget(StringOptionWidget widget) {
+		Input_Optionsbody_budget_widget = widget;
+	}
+	
+	public StringOptionWidget getInput_Optionsbody_budget_widget() {
+		return Input_Optionsbody_budget_widget;
+	}
+	
+	
+	
 	private MultiOptionWidget Input_Optionssrc_prec_widget;
 	
 	private void setInput_Optionssrc_prec_widget(MultiOptionWidget widget) {
@@ -5779,6 +5872,26 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 		return cgresolve_all_abstract_invokes_widget;
 	}	
 	
+	private BooleanOptionWidget cgprecompute_vtables_widget;
+	
+	private void setcgprecompute_vtables_widget(BooleanOptionWidget widget) {
+		cgprecompute_vtables_widget = widget;
+	}
+	
+	public BooleanOptionWidget getcgprecompute_vtables_widget() {
+		return cgprecompute_vtables_widget;
+	}	
+	
+	private BooleanOptionWidget cgfreeze_widget;
+	
+	private void setcgfreeze_widget(BooleanOptionWidget widget) {
+		cgfreeze_widget = widget;
+	}
+	
+	public BooleanOptionWidget getcgfreeze_widget() {
+		return cgfreeze_widget;
+	}	
+	
 	
 	private StringOptionWidget cgjdkver_widget;
 	
@@ -5857,6 +5970,18 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 		return cgcg_chaapponly_widget;
 	}	
 	
+	
+	private StringOptionWidget cgcg_chathreads_widget;
+	
+	private void setcgcg_chathreads_widget(StringOptionWidget widget) {
+		cgcg_chathreads_widget = widget;
+	}
+	
+	public StringOptionWidget getcgcg_chathreads_widget() {
+		return cgcg_chathreads_widget;
+	}
+	
+	
 	private BooleanOptionWidget cgcg_sparkenabled_widget;
 	
 	private void setcgcg_sparkenabled_widget(BooleanOptionWidget widget) {
@@ -8743,6 +8868,17 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 
 		setInput_Optionsdrop_bodies_after_load_widget(new BooleanOptionWidget(editGroupInput_Options, SWT.NONE, new OptionData("Drop method source after loading bodies", "", "","drop-bodies-after-load", "\nEach method is associated with a method source for loading its \nbody. When this option is disabled, a reference to this source \nis kept around even after the body has already been loaded. This \nis a waste of memory for most use cases. When this option is \nenabled, the reference is dropped, allowing for garbage \ncollection of the method source. On the other hand, if the body \nis ever released, it cannot easily be recovered (i.e., loaded \nagain) easily.", defaultBool)));
 
+		defKey = ""+" "+""+" "+"intern-values";
+		defKey = defKey.trim();
+
+		if (isInDefList(defKey)) {
+			defaultBool = getBoolDef(defKey);	
+		} else {
+			defaultBool = false;
+		}
+
+		setInput_Optionsintern_values_widget(new BooleanOptionWidget(editGroupInput_Options, SWT.NONE, new OptionData("Intern values", "", "","intern-values", "\nWhen this option is enabled, equal string, class and numeric \nconstants and equal references to static fields are represented \nby a single object that all bodies share, which reduces the \nmemory needed for large Scenes. The values are held in a weak \ntable and are collected once no body uses them anymore. Code \nthat locates a value in a body by its identity has to compare \nvalue boxes instead, as the same value may occur several times.", defaultBool)));
+
 		data = new OptionData [] {
 		
 				new OptionData("Class File",
@@ -8855,6 +8991,30 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 		setInput_Optionsandroid_api_version_widget(new StringOptionWidget(editGroupInput_Options, SWT.NONE, new OptionData("Force specific Android API version",  "", "","android-api-version", "\nUse VERSION as the Android API version that Soot should use when \nprocessing APK or DEX files. When combined with the \n'android-jars' option, this value will take precedence over the \nAPI version specified in the app's manifest file. When combined \nwith the 'force-android-jar' option, the JAR file will be the \none from the 'force-android-jar' option, but the API version \nused for parsing will be the explicitly given one.", defaultString)));
 		
 
+		defKey = ""+" "+""+" "+"resolver-threads";
+		defKey = defKey.trim();
+
+		if (isInDefList(defKey)) {
+			defaultString = getStringDef(defKey);	
+		} else {
+			defaultString = "";
+		}
+
+		setInput_Optionsresolver_threads_widget(new StringOptionWidget(editGroupInput_Options, SWT.NONE, new OptionData("Resolver threads",  "", "","resolver-threads", "\nUse NUM threads to read and parse the class files of the classes \nthat are waiting to be resolved, ahead of the resolver. The \nclasses are still added to the Scene one at a time and in the \nsame order as without this option, so the result does not depend \non the number of threads. A value of 0 uses one thread per \navailable processor. By default, or with a value of 1, all \nclasses are read and parsed by the resolver itself. Only class \nfiles are parsed ahead of time, other sources are resolved as \nusual.", defaultString)));
+		
+
+		defKey = ""+" "+""+" "+"body-cache-dir";
+		defKey = defKey.trim();
+
+		if (isInDefList(defKey)) {
+			defaultString = getStringDef(defKey);	
+		} else {
+			defaultString = "";
+		}
+
+		setInput_Optionsbody_cache_dir_widget(new StringOptionWidget(editGroupInput_Options, SWT.NONE, new OptionData("Body cache directory",  "", "","body-cache-dir", "\nStore the Jimple bodies that Soot creates from class files in \nDIR after the jb pack has been applied to them, and load them \nfrom there instead of converting the bytecode again in later \nruns. Cached bodies are keyed by the contents of the class file, \nthe options of the jb pack and the soot classpath, so that \nchanging any of them makes Soot convert the bytecode again. The \ncache is not used if line numbers or bytecode offsets are to be \nkept, as these tags are not stored.", defaultString)));
+		
+
 		defKey = ""+" "+""+" "+"main-class";
 		defKey = defKey.trim();
 
@@ -8867,6 +9027,18 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 		setInput_Optionsmain_class_widget(new StringOptionWidget(editGroupInput_Options, SWT.NONE, new OptionData("Main Class",  "", "","main-class", "\nBy default, the first class encountered with a main method is \ntreated as the main class (entry point) in whole-program \nanalysis. This option overrides this default.", defaultString)));
 		
 
+		defKey = ""+" "+""+" "+"body-budget";
+		defKey = defKey.trim();
+
+		if (isInDefList(defKey)) {
+			defaultString = getStringDef(defKey);	
+		} else {
+			defaultString = "";
+		}
+
+		setInput_Optionsbody_budget_widget(new StringOptionWidget(editGroupInput_Options, SWT.NONE, new OptionData("Body budget",  "", "","body-budget", "\nBound the number of units held in Jimple bodies that have not \nbeen modified since they were loaded. When loading a body \nexceeds this budget, the least recently used unmodified bodies \nare evicted: each is kept as compressed Jimple text and parsed \nagain when it is accessed. The units and locals of a reloaded \nbody are new objects, so bodies that carry tags, bodies of \nmethods that are reachable in the call graph of the Scene and \nbodies that have been pinned through soot.BodyStore are never \nevicted. By default, all bodies are kept.", defaultString)));
+		
+
 
 		return editGroupInput_Options;
 	}
@@ -11127,6 +11299,28 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 
 		setcgresolve_all_abstract_invokes_widget(new BooleanOptionWidget(editGroupcg, SWT.NONE, new OptionData("Resolve Abstract Classes with No Children", "p phase-option", "cg","resolve-all-abstract-invokes", "\nNormally, if a method is invoked on a class that is abstract and \nsaid class does not have any children in the Scene, the method \ninvoke will not be resolved to any concrete methods even if the \nabstract class or its parent classes contain a concrete \ndeclaration of the method. This is because without any \nnon-abstract children it is impossible to tell if the resolution \nis correct (since any child may override any non-private method \nin any of its parent classes). However, sometimes it is \nnecessary to resolve methods in such situations (e.g. when \nanalyzing libraries or incomplete code). This forces all methods \ninvoked on abstract classes to be resolved if there exists a \nparent class with a concrete definition of the method even if \nthere are no non-abstract children of the abstract class.", defaultBool)));
 
+		defKey = "p phase-option"+" "+"cg"+" "+"precompute-vtables";
+		defKey = defKey.trim();
+
+		if (isInDefList(defKey)) {
+			defaultBool = getBoolDef(defKey);	
+		} else {
+			defaultBool = false;
+		}
+
+		setcgprecompute_vtables_widget(new BooleanOptionWidget(editGroupcg, SWT.NONE, new OptionData("Precompute Virtual Dispatch", "p phase-option", "cg","precompute-vtables", "\nFills the cache of virtual dispatch targets for every non-static \nmethod that a concrete class of the Scene declares or inherits \nbefore the call graph is built. The classes are processed in \nparallel. This pays off for CHA on large programs with \nall-reachable set, and when several analyses resolve calls on \nthe same Scene.", defaultBool)));
+
+		defKey = "p phase-option"+" "+"cg"+" "+"freeze";
+		defKey = defKey.trim();
+
+		if (isInDefList(defKey)) {
+			defaultBool = getBoolDef(defKey);	
+		} else {
+			defaultBool = false;
+		}
+
+		setcgfreeze_widget(new BooleanOptionWidget(editGroupcg, SWT.NONE, new OptionData("Freeze Call Graph", "p phase-option", "cg","freeze", "\nReplaces the call graph by an immutable copy once it has been \nbuilt. The copy numbers the source methods, call sites and \ntarget methods and keeps the edges of each in a contiguous range \nof an array. This index needs about a quarter of the memory of \nthe hash set, hash maps and queue of the mutable call graph and \nis faster to traverse. The edges themselves are moved to the \ncopy and need as much memory as before. Later phases that add or \nremove call edges fail on a frozen call graph.", defaultBool)));
+
 		data = new OptionData [] {
 		
 				new OptionData("Disabled",
@@ -11254,6 +11448,18 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 
 		setcgcg_chaapponly_widget(new BooleanOptionWidget(editGroupcgcg_cha, SWT.NONE, new OptionData("AppOnly", "p phase-option", "cg.cha","apponly", "\nSetting this option to true causes Soot to only consider \napplication classes when building the callgraph. The resulting \ncallgraph will be inherently unsound. Still, this option can \nmake sense if performance optimization and memory reduction are \nyour primary goal.", defaultBool)));
 
+		defKey = "p phase-option"+" "+"cg.cha"+" "+"threads";
+		defKey = defKey.trim();
+
+		if (isInDefList(defKey)) {
+			defaultString = getStringDef(defKey);	
+		} else {
+			defaultString = "1";
+		}
+
+		setcgcg_chathreads_widget(new StringOptionWidget(editGroupcgcg_cha, SWT.NONE, new OptionData("Threads",  "p phase-option", "cg.cha","threads", "\nSets the number of threads that build the bodies of newly \nreachable methods while the call graph is constructed. Methods \nthat become reachable together are loaded in parallel, but their \nedges are still added in the order of a single thread, so the \ncall graph does not depend on this option. A value of 0 uses one \nthread per processor. The default, 1, builds all bodies on the \ncalling thread.", defaultString)));
+		
+
 
 		return editGroupcgcg_cha;
 	}
@@ -0,0 +1,9 @@
+// class version 48.0 (48)
+// access flags 0x601
+public abstract interface soot/asm/backend/targets/ExceptionMethods {
+
+  // compiled from: ExceptionMethods.java
+
+  // access flags 0x401
+  public abstract foo()V throws java/lang/NullPointerException 
+}
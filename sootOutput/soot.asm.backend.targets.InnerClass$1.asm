@@ -0,0 +1,23 @@
+// class version 45.3 (196653)
+// access flags 0x20
+class soot/asm/backend/targets/InnerClass$1 implements soot/asm/backend/targets/Measurable {
+
+  // compiled from: InnerClass.java
+  OUTERCLASS soot/asm/backend/targets/InnerClass doInner ()V
+  // access flags 0x0
+  INNERCLASS soot/asm/backend/targets/InnerClass$1 null null
+
+  // access flags 0x1010
+  final synthetic Lsoot/asm/backend/targets/InnerClass; this$0
+
+  // access flags 0x0
+  <init>(Lsoot/asm/backend/targets/InnerClass;)V
+    ALOAD 0
+    ALOAD 1
+    PUTFIELD soot/asm/backend/targets/InnerClass$1.this$0 : Lsoot/asm/backend/targets/InnerClass;
+    ALOAD 0
+    INVOKESPECIAL java/lang/Object.<init> ()V
+    RETURN
+    MAXSTACK = 0
+    MAXLOCALS = 0
+}
@@ -0,0 +1,28 @@
+// class version 45.3 (196653)
+// access flags 0x21
+public class soot/asm/backend/targets/LineNumbers {
+
+  // compiled from: LineNumbers.java
+
+  // access flags 0x1
+  public <init>()V
+   L0
+    LINENUMBER 25 L0
+    ALOAD 0
+   L1
+    LINENUMBER 25 L1
+    INVOKESPECIAL java/lang/Object.<init> ()V
+   L2
+    LINENUMBER 25 L2
+    RETURN
+    MAXSTACK = 0
+    MAXLOCALS = 0
+
+  // access flags 0x9
+  public static main([Ljava/lang/String;)V
+   L0
+    LINENUMBER 28 L0
+    RETURN
+    MAXSTACK = 0
+    MAXLOCALS = 0
+}
@@ -0,0 +1,43 @@
+// class version 49.0 (49)
+// access flags 0x2601
+public abstract @interface soot/asm/backend/targets/MyTestAnnotation implements java/lang/annotation/Annotation {
+
+  // compiled from: MyTestAnnotation.java
+
+  @Ljava/lang/annotation/Retention;(value=Ljava/lang/annotation/RetentionPolicy;.RUNTIME)
+
+  // access flags 0x401
+  public abstract bVal()B
+
+  // access flags 0x401
+  public abstract dVal()D
+
+  // access flags 0x401
+  public abstract fVal()F
+
+  // access flags 0x401
+  public abstract iAVal()[I
+
+  // access flags 0x401
+  public abstract iVal()I
+
+  // access flags 0x401
+  public abstract lVal()J
+
+  // access flags 0x401
+  // signature ()Ljava/lang/Class<Lsoot/asm/backend/targets/AnnotatedClass;>;
+  // declaration: java.lang.Class<soot.asm.backend.targets.AnnotatedClass> rVal()
+  public abstract rVal()Ljava/lang/Class;
+
+  // access flags 0x401
+  public abstract sAVal()[Ljava/lang/String;
+
+  // access flags 0x401
+  public abstract sVal()S
+
+  // access flags 0x401
+  public abstract strVal()Ljava/lang/String;
+
+  // access flags 0x401
+  public abstract zVal()Z
+}
@@ -270,6 +270,11 @@ public class AntTask extends MatchingTask {
             if(arg) addArg("-full-resolver");
         }
   
+        public void setbody_cache_dir(String arg) {
+            addArg("-body-cache-dir");
+            addArg(arg);
+        }
+  
         public void setallow_phantom_refs(boolean arg) {
             if(arg) addArg("-allow-phantom-refs");
         }
@@ -303,6 +308,10 @@ public class AntTask extends MatchingTask {
             if(arg) addArg("-drop-bodies-after-load");
         }
   
+        public void setintern_values(boolean arg) {
+            if(arg) addArg("-intern-values");
+        }
+  
         public void setoutput_dir(String arg) {
             addArg("-output-dir");
             addArg(arg);
@@ -1336,6 +1345,18 @@ public class AntTask extends MatchingTask {
             addArg("resolve-all-abstract-invokes:"+(arg?"true":"false"));
           }
       
+          public void setprecompute_vtables(boolean arg) {
+            addArg("-p");
+            addArg("cg");
+            addArg("precompute-vtables:"+(arg?"true":"false"));
+          }
+      
+          public void setfreeze(boolean arg) {
+            addArg("-p");
+            addArg("cg");
+            addArg("freeze:"+(arg?"true":"false"));
+          }
+      
           public void setlibrary(String arg) {
             addArg("-p");
             addArg("cg");
@@ -1387,6 +1408,12 @@ public class AntTask extends MatchingTask {
             addArg("apponly:"+(arg?"true":"false"));
           }
       
+          public void setthreads(String arg) {
+            addArg("-p");
+            addArg("cg.cha");
+            addArg("threads:"+arg);
+          }
+      
         }
     
         public Object createp_cg_spark() {
@@ -183,6 +183,40 @@ public class CGOptions {
         return soot.PhaseOptions.getBoolean(options, "resolve-all-abstract-invokes");
     }
 
+    /**
+     * Precompute Virtual Dispatch --
+     * Resolves the virtual calls of all concrete classes in parallel 
+     * before the call graph is built..
+     *
+     * Fills the cache of virtual dispatch targets for every non-static 
+     * method that a concrete class of the Scene declares or inherits 
+     * before the call graph is built. The classes are processed in 
+     * parallel. This pays off for CHA on large programs with 
+     * all-reachable set, and when several analyses resolve calls on 
+     * the same Scene.
+     */
+    public boolean precompute_vtables() {
+        return soot.PhaseOptions.getBoolean(options, "precompute-vtables");
+    }
+
+    /**
+     * Freeze Call Graph --
+     * Replaces the call graph by a compact immutable copy after it has 
+     * been built..
+     *
+     * Replaces the call graph by an immutable copy once it has been 
+     * built. The copy numbers the source methods, call sites and 
+     * target methods and keeps the edges of each in a contiguous range 
+     * of an array. This index needs about a quarter of the memory of 
+     * the hash set, hash maps and queue of the mutable call graph and 
+     * is faster to traverse. The edges themselves are moved to the 
+     * copy and need as much memory as before. Later phases that add or 
+     * remove call edges fail on a frozen call graph.
+     */
+    public boolean freeze() {
+        return soot.PhaseOptions.getBoolean(options, "freeze");
+    }
+
     /**
      * JDK version --
      * JDK version for native methods.
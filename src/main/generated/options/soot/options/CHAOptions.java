@@ -69,4 +69,20 @@ public class CHAOptions {
         return soot.PhaseOptions.getBoolean(options, "apponly");
     }
 
+    /**
+     * Threads --
+     * Number of threads that build the bodies of reachable methods.
+     *
+     * Sets the number of threads that build the bodies of newly 
+     * reachable methods while the call graph is constructed. Methods 
+     * that become reachable together are loaded in parallel, but their 
+     * edges are still added in the order of a single thread, so the 
+     * call graph does not depend on this option. A value of 0 uses one 
+     * thread per processor. The default, 1, builds all bodies on the 
+     * calling thread.
+     */
+    public int threads() {
+        return soot.PhaseOptions.getInt(options, "threads");
+    }
+
 }
@@ -423,6 +423,38 @@ public class Options extends OptionsBase {
                     || option.equals("full-resolver")
             )
                 full_resolver = true;
+            else if (false
+                || option.equals("resolver-threads")
+            ) {
+                if (!hasMoreOptions()) {
+                    G.v().out.println("No value given for option -" + option);
+                    return false;
+                }
+
+                String value = nextOption();
+                if(resolver_threads == -1)
+                    resolver_threads = Integer.valueOf(value);
+                else {
+                    G.v().out.println("Duplicate values " + resolver_threads + " and " + value + " for option -" + option);
+                    return false;
+                }
+            }
+            else if (false
+                    || option.equals("body-cache-dir")
+            ) {
+                if (!hasMoreOptions()) {
+                    G.v().out.println("No value given for option -" + option);
+                    return false;
+                }
+
+                String value = nextOption();
+                if (body_cache_dir.isEmpty())
+                    body_cache_dir = value;
+                else {
+                    G.v().out.println("Duplicate values " + body_cache_dir + " and " + value + " for option -" + option);
+                    return false;
+                }
+            }
             else if (false
                     || option.equals("allow-phantom-refs")
             )
@@ -467,6 +499,26 @@ public class Options extends OptionsBase {
                     || option.equals("no-drop-bodies-after-load")
             )
                 drop_bodies_after_load = false;
+            else if (false
+                || option.equals("body-budget")
+            ) {
+                if (!hasMoreOptions()) {
+                    G.v().out.println("No value given for option -" + option);
+                    return false;
+                }
+
+                String value = nextOption();
+                if(body_budget == -1)
+                    body_budget = Integer.valueOf(value);
+                else {
+                    G.v().out.println("Duplicate values " + body_budget + " and " + value + " for option -" + option);
+                    return false;
+                }
+            }
+            else if (false
+                    || option.equals("intern-values")
+            )
+                intern_values = true;
             else if (false
                     || option.equals("d")
                     || option.equals("output-dir")
@@ -1448,6 +1500,14 @@ public class Options extends OptionsBase {
     private boolean full_resolver = false;
     public void set_full_resolver(boolean setting) { full_resolver = setting; }
 
+    public int resolver_threads() { return resolver_threads; }
+    public void set_resolver_threads(int setting) { resolver_threads = setting; }
+    private int resolver_threads = -1;
+
+    public String body_cache_dir() { return body_cache_dir; }
+    public void set_body_cache_dir(String setting) { body_cache_dir = setting; }
+    private String body_cache_dir = "";
+
     public boolean allow_phantom_refs() { return allow_phantom_refs; }
     private boolean allow_phantom_refs = false;
     public void set_allow_phantom_refs(boolean setting) { allow_phantom_refs = setting; }
@@ -1480,6 +1540,14 @@ public class Options extends OptionsBase {
     private boolean drop_bodies_after_load = true;
     public void set_drop_bodies_after_load(boolean setting) { drop_bodies_after_load = setting; }
 
+    public int body_budget() { return body_budget; }
+    public void set_body_budget(int setting) { body_budget = setting; }
+    private int body_budget = -1;
+
+    public boolean intern_values() { return intern_values; }
+    private boolean intern_values = false;
+    public void set_intern_values(boolean setting) { intern_values = setting; }
+
     public String output_dir() { return output_dir; }
     public void set_output_dir(String setting) { output_dir = setting; }
     private String output_dir = "";
@@ -1694,6 +1762,7 @@ public class Options extends OptionsBase {
                     + padVal("apk", "Favour APK files as Soot source")
                     + padVal("apk-class-jimple apk-c-j", "Favour APK files as Soot source, disregard Java files")
                 + padOpt("-full-resolver", "Force transitive resolving of referenced classes")
+                + padOpt("-body-cache-dir ARG", "Cache Jimple bodies of class files in ARG")
                 + padOpt("-allow-phantom-refs", "Allow unresolved classes; may cause errors")
                 + padOpt("-allow-phantom-elms", "Allow phantom methods and fields in non-phantom classes")
                 + padOpt("-no-bodies-for-excluded", "Do not load bodies for excluded classes")
@@ -1702,6 +1771,7 @@ public class Options extends OptionsBase {
                 + padOpt("-polyglot", "Use Java 1.4 Polyglot frontend instead of JastAdd")
                 + padOpt("-permissive-resolving", "Use alternative sources when classes cannot be found using the normal resolving strategy")
                 + padOpt("-drop-bodies-after-load", "Drop the method source after it has served its purpose of loading the method body")
+                + padOpt("-intern-values", "Share equal constants and static field references between bodies")
                 + "\nOutput Options:\n"
                 + padOpt("-d ARG -output-dir ARG", "Store output files in ARG")
                 + padOpt("-f ARG -output-format ARG", "Set output format for Soot")
@@ -2149,7 +2219,9 @@ public class Options extends OptionsBase {
                     + padOpt("reflection-log", "Uses a reflection log to resolve reflective calls.")
                     + padOpt("guards (ignore)", "Describes how to guard the program from unsound assumptions.")
                     + padOpt("types-for-invoke (false)", "Uses reaching types inferred by the pointer analysis to resolve reflective calls.")
-                    + padOpt("resolve-all-abstract-invokes (false)", "Causes methods invoked on abstract classes to be resolved even if there are no non-abstract children of the classes in the Scene.");
+                    + padOpt("resolve-all-abstract-invokes (false)", "Causes methods invoked on abstract classes to be resolved even if there are no non-abstract children of the classes in the Scene.")
+                    + padOpt("precompute-vtables (false)", "Resolves the virtual calls of all concrete classes in parallel before the call graph is built.")
+                    + padOpt("freeze (false)", "Replaces the call graph by a compact immutable copy after it has been built.");
 
         if (phaseName.equals("cg.cha"))
             return "Phase " + phaseName + ":\n"
@@ -2157,7 +2229,8 @@ public class Options extends OptionsBase {
                     + "\n\nRecognized options (with default values):\n"
                     + padOpt("enabled (true)", "")
                     + padOpt("verbose (false)", "Print statistics about the resulting call graph")
-                    + padOpt("apponly (false)", "Consider only application classes");
+                    + padOpt("apponly (false)", "Consider only application classes")
+                    + padOpt("threads (1)", "Number of threads that build the bodies of reachable methods");
 
         if (phaseName.equals("cg.spark"))
             return "Phase " + phaseName + ":\n"
@@ -3064,14 +3137,17 @@ public class Options extends OptionsBase {
                     "reflection-log",
                     "guards",
                     "types-for-invoke",
-                    "resolve-all-abstract-invokes"
+                    "resolve-all-abstract-invokes",
+                    "precompute-vtables",
+                    "freeze"
             );
 
         if (phaseName.equals("cg.cha"))
             return String.join(" ", 
                     "enabled",
                     "verbose",
-                    "apponly"
+                    "apponly",
+                    "threads"
             );
 
         if (phaseName.equals("cg.spark"))
@@ -3776,13 +3852,16 @@ public class Options extends OptionsBase {
                     + "trim-clinit:true "
                     + "guards:ignore "
                     + "types-for-invoke:false "
-                    + "resolve-all-abstract-invokes:false ";
+                    + "resolve-all-abstract-invokes:false "
+                    + "precompute-vtables:false "
+                    + "freeze:false ";
 
         if (phaseName.equals("cg.cha"))
             return ""
                     + "enabled:true "
                     + "verbose:false "
-                    + "apponly:false ";
+                    + "apponly:false "
+                    + "threads:1 ";
 
         if (phaseName.equals("cg.spark"))
             return ""
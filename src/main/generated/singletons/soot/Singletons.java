@@ -370,6 +370,48 @@ public class Singletons {
     	instance_soot_baf_Baf = null;
     }
 
+    private soot.BodyStore instance_soot_BodyStore;
+    public soot.BodyStore soot_BodyStore() {
+        if (instance_soot_BodyStore == null) {
+	       	synchronized (this) {
+		        if (instance_soot_BodyStore == null)
+	        		instance_soot_BodyStore = new soot.BodyStore(g);
+	       	}
+       	}
+        return instance_soot_BodyStore;
+    }
+    protected void release_soot_BodyStore() {
+    	instance_soot_BodyStore = null;
+    }
+
+    private soot.ValueBoxOwners instance_soot_ValueBoxOwners;
+    public soot.ValueBoxOwners soot_ValueBoxOwners() {
+        if (instance_soot_ValueBoxOwners == null) {
+	       	synchronized (this) {
+		        if (instance_soot_ValueBoxOwners == null)
+	        		instance_soot_ValueBoxOwners = new soot.ValueBoxOwners(g);
+	       	}
+       	}
+        return instance_soot_ValueBoxOwners;
+    }
+    protected void release_soot_ValueBoxOwners() {
+    	instance_soot_ValueBoxOwners = null;
+    }
+
+    private soot.jimple.ValueInterner instance_soot_jimple_ValueInterner;
+    public soot.jimple.ValueInterner soot_jimple_ValueInterner() {
+        if (instance_soot_jimple_ValueInterner == null) {
+	       	synchronized (this) {
+		        if (instance_soot_jimple_ValueInterner == null)
+	        		instance_soot_jimple_ValueInterner = new soot.jimple.ValueInterner(g);
+	       	}
+       	}
+        return instance_soot_jimple_ValueInterner;
+    }
+    protected void release_soot_jimple_ValueInterner() {
+    	instance_soot_jimple_ValueInterner = null;
+    }
+
     private soot.BooleanType instance_soot_BooleanType;
     public soot.BooleanType soot_BooleanType() {
         if (instance_soot_BooleanType == null) {
@@ -832,6 +874,20 @@ public class Singletons {
     	instance_soot_jimple_Jimple = null;
     }
 
+    private soot.jimple.JimpleBodyCache instance_soot_jimple_JimpleBodyCache;
+    public soot.jimple.JimpleBodyCache soot_jimple_JimpleBodyCache() {
+        if (instance_soot_jimple_JimpleBodyCache == null) {
+	       	synchronized (this) {
+		        if (instance_soot_jimple_JimpleBodyCache == null)
+	        		instance_soot_jimple_JimpleBodyCache = new soot.jimple.JimpleBodyCache(g);
+	       	}
+       	}
+        return instance_soot_jimple_JimpleBodyCache;
+    }
+    protected void release_soot_jimple_JimpleBodyCache() {
+    	instance_soot_jimple_JimpleBodyCache = null;
+    }
+
     private soot.dava.toolkits.base.finders.LabeledBlockFinder instance_soot_dava_toolkits_base_finders_LabeledBlockFinder;
     public soot.dava.toolkits.base.finders.LabeledBlockFinder soot_dava_toolkits_base_finders_LabeledBlockFinder() {
         if (instance_soot_dava_toolkits_base_finders_LabeledBlockFinder == null) {
@@ -0,0 +1,295 @@
+package experiments;
+
+import soot.PackManager;
+import soot.Unit;
+import soot.jimple.toolkits.ide.icfg.JimpleBasedInterproceduralCFG;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Runs the change/diff experiment loop of {@link ICFGTest} on a given benchmark and records how long each phase takes:
+ * loading the classes, building the call graph, extracting the ICFG and, per change iteration, changing the program,
+ * generating the facts, diffing and writing them. The results are written as CSV and/or JSON, one row per phase,
+ * iteration and repetition.
+ * <p>
+ * Typically run through the benchmark profile, e.g.
+ * <pre>
+ * mvn -Pbenchmark compile exec:exec -Dbenchmark.args="--jar minijavac.jar --main Main --jdk /path/to/jre/lib/rt.jar"
+ * </pre>
+ * Run without arguments to list all options.
+ */
+public class Benchmark {
+
+    private static final String USAGE = String.join("\n",
+            "Usage: Benchmark --jar <path>... --main <class> --jdk <path> [options]",
+            "  --jar <path>          benchmark jar or class folder, can be given several times",
+            "  --main <class>        main class of the benchmark",
+            "  --jdk <path>          JDK library, either rt.jar or a folder whose jars are all used",
+            "  --name <name>         name of the benchmark in the results (default: the first jar's file name)",
+            "  --output <folder>     folder for the facts and the results (default: benchmark-results)",
+            "  --iterations <n>      number of change iterations per repetition (default: 100)",
+            "  --warmup <n>          number of unrecorded repetitions (default: 1)",
+            "  --repetitions <n>     number of recorded repetitions (default: 5)",
+            "  --incremental <bool>  update the facts incrementally instead of re-extracting them (default: true)",
+            "  --parallelism <n>     number of threads for ICFG and fact extraction (default: available processors)",
+            "  --facts <format>      tsv or binary (default: tsv)",
+            "  --results <formats>   comma-separated list of csv and json (default: csv,json)");
+
+    private final List<String> jars = new ArrayList<>();
+    private String mainClass;
+    private String jdk;
+    private String name;
+    private File output = new File("benchmark-results");
+    private int iterations = 100;
+    private int warmup = 1;
+    private int repetitions = 5;
+    private boolean incremental = true;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private FactFiles.Format factFormat = FactFiles.Format.TSV;
+    private Set<String> resultFormats = new LinkedHashSet<>(Arrays.asList("csv", "json"));
+
+    private final List<Measurement> measurements = new ArrayList<>();
+
+    public static void main(final String[] args) throws IOException {
+        final Benchmark benchmark;
+        try {
+            benchmark = parse(args);
+        } catch (final IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+            return;
+        }
+        benchmark.run();
+    }
+
+    private static Benchmark parse(final String[] args) {
+        final Benchmark benchmark = new Benchmark();
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            final String value = args[i + 1];
+            switch (args[i]) {
+                case "--jar":
+                    benchmark.jars.add(value);
+                    break;
+                case "--main":
+                    benchmark.mainClass = value;
+                    break;
+                case "--jdk":
+                    benchmark.jdk = value;
+                    break;
+                case "--name":
+                    benchmark.name = value;
+                    break;
+                case "--output":
+                    benchmark.output = new File(value);
+                    break;
+                case "--iterations":
+                    benchmark.iterations = Integer.parseInt(value);
+                    break;
+                case "--warmup":
+                    benchmark.warmup = Integer.parseInt(value);
+                    break;
+                case "--repetitions":
+                    benchmark.repetitions = Integer.parseInt(value);
+                    break;
+                case "--incremental":
+                    benchmark.incremental = Boolean.parseBoolean(value);
+                    break;
+                case "--parallelism":
+                    benchmark.parallelism = Integer.parseInt(value);
+                    break;
+                case "--facts":
+                    benchmark.factFormat = FactFiles.Format.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "--results":
+                    benchmark.resultFormats = new LinkedHashSet<>(Arrays.asList(value.toLowerCase(Locale.ROOT).split(",")));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (benchmark.jars.isEmpty() || benchmark.mainClass == null || benchmark.jdk == null) {
+            throw new IllegalArgumentException("--jar, --main and --jdk are required");
+        }
+        if (benchmark.name == null) {
+            benchmark.name = new File(benchmark.jars.get(0)).getName().replaceFirst("\\.jar$", "");
+        }
+        return benchmark;
+    }
+
+    public void run() throws IOException {
+        final String classpath = classpath();
+        this.output.mkdirs();
+        for (int repetition = -this.warmup; repetition < this.repetitions; repetition++) {
+            final int recorded = this.measurements.size();
+            runOnce(classpath, repetition);
+            if (repetition < 0) {
+                // warm-up runs are not recorded
+                this.measurements.subList(recorded, this.measurements.size()).clear();
+                System.out.println("Warm-up " + (repetition + this.warmup + 1) + "/" + this.warmup + " done");
+            } else {
+                long total = 0;
+                for (final Measurement measurement : this.measurements.subList(recorded, this.measurements.size())) {
+                    total += measurement.nanos;
+                }
+                System.out.printf(Locale.ROOT, "Repetition %d/%d took %.1f ms%n", repetition + 1, this.repetitions, total / 1e6);
+            }
+        }
+        if (this.resultFormats.contains("csv")) {
+            writeCsv(new File(this.output, this.name + ".csv"));
+        }
+        if (this.resultFormats.contains("json")) {
+            writeJson(new File(this.output, this.name + ".json"));
+        }
+    }
+
+    private void runOnce(final String classpath, final int repetition) {
+        System.gc();
+        // every repetition makes the same sequence of changes
+        ProgramChanger.RANDOM.setSeed(ProgramChanger.SEED);
+        final File factFolder = new File(this.output, "facts");
+
+        time(repetition, 0, "load", () -> ICFGTest.configureSoot(classpath, this.mainClass));
+        time(repetition, 0, "callgraph", () -> PackManager.v().getPack("cg").apply());
+        final ICFG icfg = time(repetition, 0, "icfg",
+                () -> new ICFGExtractor(new JimpleBasedInterproceduralCFG(), this.parallelism).getICFG());
+        final EntityIds ids = new EntityIds(icfg::getMethodOf, false);
+
+        if (this.incremental) {
+            final Facts facts = new Facts(icfg, ids, this.parallelism, new Database.SymbolTable(), true);
+            final Set<Unit> changedUnits = new LinkedHashSet<>();
+            final ProgramChanger.RewriteListener listener = (unit, oldValue, newValue) -> changedUnits.add(unit);
+
+            final Database database = time(repetition, 0, "facts", facts::asDatabase);
+            final Map<String, Database.RelationDiff> initial = time(repetition, 0, "diff", () -> Database.computeDiff(null, database));
+            time(repetition, 0, "write", () -> Database.writeToFile(initial, new File(factFolder, "0"), this.factFormat));
+            for (int iteration = 1; iteration <= this.iterations; iteration++) {
+                if (!time(repetition, iteration, "change", () -> ProgramChanger.tryRewrite(icfg, listener))) {
+                    break;
+                }
+                // the incremental update yields the diff directly, so there is no separate diff phase
+                final Map<String, Database.RelationDiff> diff = time(repetition, iteration, "facts", () -> facts.update(changedUnits));
+                changedUnits.clear();
+                time(repetition, iteration, "write", () -> Database.writeToFile(diff, new File(factFolder, "current"), this.factFormat));
+            }
+        } else {
+            final Database.SymbolTable symbols = new Database.SymbolTable();
+            Database oldDatabase = null;
+            for (int iteration = 0; iteration <= this.iterations; iteration++) {
+                if (iteration > 0 && !time(repetition, iteration, "change", () -> ProgramChanger.tryRewrite(icfg))) {
+                    break;
+                }
+                final Database newDatabase = time(repetition, iteration, "facts", () -> new Facts(icfg, ids, this.parallelism, symbols).asDatabase());
+                final Database previous = oldDatabase;
+                final Map<String, Database.RelationDiff> diff = time(repetition, iteration, "diff", () -> Database.computeDiff(previous, newDatabase));
+                final String folder = iteration == 0 ? "0" : "current";
+                time(repetition, iteration, "write", () -> Database.writeToFile(diff, new File(factFolder, folder), this.factFormat));
+                oldDatabase = newDatabase;
+            }
+        }
+    }
+
+    private String classpath() {
+        final List<String> entries = new ArrayList<>(this.jars);
+        final File jdkFile = new File(this.jdk);
+        if (jdkFile.isDirectory()) {
+            final File[] libraries = jdkFile.listFiles((folder, file) -> file.endsWith(".jar"));
+            if (libraries != null) {
+                Arrays.sort(libraries);
+                for (final File library : libraries) {
+                    entries.add(library.getPath());
+                }
+            }
+        } else {
+            entries.add(jdkFile.getPath());
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    private void time(final int repetition, final int iteration, final String phase, final Runnable action) {
+        time(repetition, iteration, phase, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private <T> T time(final int repetition, final int iteration, final String phase, final Supplier<T> action) {
+        final long start = System.nanoTime();
+        final T result = action.get();
+        this.measurements.add(new Measurement(repetition, iteration, phase, System.nanoTime() - start));
+        return result;
+    }
+
+    private void writeCsv(final File file) throws IOException {
+        try (final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.write("benchmark,incremental,parallelism,repetition,iteration,phase,nanos\n");
+            for (final Measurement measurement : this.measurements) {
+                writer.write(this.name + "," + this.incremental + "," + this.parallelism + "," + measurement.repetition + ","
+                        + measurement.iteration + "," + measurement.phase + "," + measurement.nanos + "\n");
+            }
+        }
+    }
+
+    private void writeJson(final File file) throws IOException {
+        try (final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.write("{\n");
+            writer.write("  \"benchmark\": " + quote(this.name) + ",\n");
+            writer.write("  \"mainClass\": " + quote(this.mainClass) + ",\n");
+            writer.write("  \"jars\": [");
+            for (int i = 0; i < this.jars.size(); i++) {
+                writer.write((i > 0 ? ", " : "") + quote(this.jars.get(i)));
+            }
+            writer.write("],\n");
+            writer.write("  \"jdk\": " + quote(this.jdk) + ",\n");
+            writer.write("  \"incremental\": " + this.incremental + ",\n");
+            writer.write("  \"parallelism\": " + this.parallelism + ",\n");
+            writer.write("  \"iterations\": " + this.iterations + ",\n");
+            writer.write("  \"warmup\": " + this.warmup + ",\n");
+            writer.write("  \"repetitions\": " + this.repetitions + ",\n");
+            writer.write("  \"measurements\": [\n");
+            for (int i = 0; i < this.measurements.size(); i++) {
+                final Measurement measurement = this.measurements.get(i);
+                writer.write("    {\"repetition\": " + measurement.repetition + ", \"iteration\": " + measurement.iteration
+                        + ", \"phase\": " + quote(measurement.phase) + ", \"nanos\": " + measurement.nanos + "}"
+                        + (i < this.measurements.size() - 1 ? ",\n" : "\n"));
+            }
+            writer.write("  ]\n");
+            writer.write("}\n");
+        }
+    }
+
+    private static String quote(final String value) {
+        final StringBuilder builder = new StringBuilder("\"");
+        for (final char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private static final class Measurement {
+        private final int repetition;
+        private final int iteration;
+        private final String phase;
+        private final long nanos;
+
+        private Measurement(final int repetition, final int iteration, final String phase, final long nanos) {
+            this.repetition = repetition;
+            this.iteration = iteration;
+            this.phase = phase;
+            this.nanos = nanos;
+        }
+    }
+
+}
@@ -0,0 +1,279 @@
+package experiments;
+
+import java.util.Arrays;
+
+/**
+ * A duplicate-free set of fixed-arity rows of primitive ints, stored column by column. Rows are deduplicated through an
+ * open-addressing hash index over row numbers, so no per-row objects are allocated at all. The rows can be brought into
+ * lexicographic order with {@link #sort()}, which allows diffing two sets with a single linear merge.
+ */
+public class ColumnarTupleSet {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int arity;
+    private int[][] columns;
+    private int size;
+    // slots hold row + 1, 0 marks a free slot
+    private int[] index;
+    private int mask;
+    private boolean sorted;
+
+    public ColumnarTupleSet(final int arity) {
+        if (arity < 1) {
+            throw new IllegalArgumentException("Rows need at least one column");
+        }
+        this.arity = arity;
+        this.columns = new int[arity][INITIAL_CAPACITY];
+        this.index = new int[2 * INITIAL_CAPACITY];
+        this.mask = this.index.length - 1;
+        this.sorted = true;
+    }
+
+    public int arity() {
+        return this.arity;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public int get(final int row, final int column) {
+        return this.columns[column][row];
+    }
+
+    public boolean contains(final int[] values) {
+        return findSlot(values) >= 0;
+    }
+
+    public boolean add(final int[] values) {
+        checkArity(values);
+        final int slot = findSlot(values);
+        if (slot >= 0) {
+            return false;
+        }
+        final int row = this.size;
+        if (row == this.columns[0].length) {
+            growColumns();
+        }
+        for (int column = 0; column < this.arity; column++) {
+            this.columns[column][row] = values[column];
+        }
+        this.size++;
+        // appending in order keeps the rows sorted
+        this.sorted = this.sorted && (row == 0 || compare(row - 1, this, row) < 0);
+        if (2 * this.size > this.index.length) {
+            rehash(2 * this.index.length);
+        } else {
+            this.index[-slot - 1] = row + 1;
+        }
+        return true;
+    }
+
+    /**
+     * Copies the given row of another set with the same arity into this set.
+     */
+    public boolean add(final ColumnarTupleSet other, final int otherRow) {
+        return add(other.row(otherRow));
+    }
+
+    public void addAll(final ColumnarTupleSet other) {
+        for (int row = 0; row < other.size; row++) {
+            add(other, row);
+        }
+    }
+
+    public boolean remove(final int[] values) {
+        checkArity(values);
+        final int slot = findSlot(values);
+        if (slot < 0) {
+            return false;
+        }
+        final int row = this.index[slot] - 1;
+        deleteSlot(slot);
+        final int last = this.size - 1;
+        if (row != last) {
+            // move the last row into the gap and re-point its slot
+            int lastSlot = hash(last) & this.mask;
+            while (this.index[lastSlot] != last + 1) {
+                lastSlot = (lastSlot + 1) & this.mask;
+            }
+            for (int column = 0; column < this.arity; column++) {
+                this.columns[column][row] = this.columns[column][last];
+            }
+            this.index[lastSlot] = row + 1;
+            this.sorted = false;
+        }
+        this.size--;
+        return true;
+    }
+
+    public int[] row(final int row) {
+        final int[] values = new int[this.arity];
+        for (int column = 0; column < this.arity; column++) {
+            values[column] = this.columns[column][row];
+        }
+        return values;
+    }
+
+    /**
+     * Reorders the rows lexicographically. This is a no-op if the rows are already sorted, e.g. because they were
+     * appended in order.
+     */
+    public void sort() {
+        if (this.sorted) {
+            return;
+        }
+        int[] order = new int[this.size];
+        for (int i = 0; i < this.size; i++) {
+            order[i] = i;
+        }
+        int[] buffer = new int[this.size];
+        // bottom-up merge sort of the row permutation
+        for (int width = 1; width < this.size; width *= 2) {
+            for (int low = 0; low < this.size; low += 2 * width) {
+                final int middle = Math.min(low + width, this.size);
+                final int high = Math.min(low + 2 * width, this.size);
+                int left = low;
+                int right = middle;
+                int target = low;
+                while (left < middle && right < high) {
+                    buffer[target++] = compare(order[left], this, order[right]) <= 0 ? order[left++] : order[right++];
+                }
+                while (left < middle) {
+                    buffer[target++] = order[left++];
+                }
+                while (right < high) {
+                    buffer[target++] = order[right++];
+                }
+            }
+            final int[] tmp = order;
+            order = buffer;
+            buffer = tmp;
+        }
+        for (int column = 0; column < this.arity; column++) {
+            final int[] permuted = new int[this.columns[column].length];
+            for (int i = 0; i < this.size; i++) {
+                permuted[i] = this.columns[column][order[i]];
+            }
+            this.columns[column] = permuted;
+        }
+        this.sorted = true;
+        rehash(this.index.length);
+    }
+
+    /**
+     * Compares a row of this set with a row of another set lexicographically.
+     */
+    public int compare(final int row, final ColumnarTupleSet other, final int otherRow) {
+        for (int column = 0; column < this.arity; column++) {
+            final int result = Integer.compare(this.columns[column][row], other.columns[column][otherRow]);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    private void checkArity(final int[] values) {
+        if (values.length != this.arity) {
+            throw new IllegalArgumentException("Expected " + this.arity + " values but got " + values.length);
+        }
+    }
+
+    private void growColumns() {
+        final int capacity = 2 * this.columns[0].length;
+        for (int column = 0; column < this.arity; column++) {
+            this.columns[column] = Arrays.copyOf(this.columns[column], capacity);
+        }
+    }
+
+    /**
+     * @return the slot of the given row if it is present, or -(free slot + 1) if it is not
+     */
+    private int findSlot(final int[] values) {
+        int slot = hash(values) & this.mask;
+        while (true) {
+            final int entry = this.index[slot];
+            if (entry == 0) {
+                return -slot - 1;
+            }
+            if (rowEquals(entry - 1, values)) {
+                return slot;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+    }
+
+    private void deleteSlot(int free) {
+        // backward shift deletion keeps the probe sequences of linear probing intact
+        int slot = free;
+        while (true) {
+            slot = (slot + 1) & this.mask;
+            final int entry = this.index[slot];
+            if (entry == 0) {
+                break;
+            }
+            final int home = hash(entry - 1) & this.mask;
+            final boolean movable = free <= slot ? (home <= free || home > slot) : (home <= free && home > slot);
+            if (movable) {
+                this.index[free] = entry;
+                free = slot;
+            }
+        }
+        this.index[free] = 0;
+    }
+
+    private void rehash(final int capacity) {
+        this.index = new int[capacity];
+        this.mask = capacity - 1;
+        for (int row = 0; row < this.size; row++) {
+            int slot = hash(row) & this.mask;
+            while (this.index[slot] != 0) {
+                slot = (slot + 1) & this.mask;
+            }
+            this.index[slot] = row + 1;
+        }
+    }
+
+    private boolean rowEquals(final int row, final int[] values) {
+        for (int column = 0; column < this.arity; column++) {
+            if (this.columns[column][row] != values[column]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int hash(final int[] values) {
+        int hash = 1;
+        for (final int value : values) {
+            hash = 31 * hash + value;
+        }
+        return mix(hash);
+    }
+
+    private int hash(final int row) {
+        int hash = 1;
+        for (int column = 0; column < this.arity; column++) {
+            hash = 31 * hash + this.columns[column][row];
+        }
+        return mix(hash);
+    }
+
+    private static int mix(final int hash) {
+        // murmur3 finalizer, the low bits select the slot
+        int h = hash;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+}
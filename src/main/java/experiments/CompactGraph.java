@@ -0,0 +1,163 @@
+package experiments;
+
+import java.util.*;
+
+/**
+ * An immutable directed graph in compressed sparse row form. Nodes are numbered densely in the order in which they were
+ * given, and the edges are stored twice, once grouped by source (forward index) and once grouped by target (reverse
+ * index), each as an offset array plus a flat array of neighbour ids. Parallel edges are dropped, the remaining edges
+ * of a node keep the order in which they were given.
+ *
+ * @param <N> the node type, nodes are compared by identity
+ */
+public class CompactGraph<N> {
+
+    private final List<N> nodes;
+    private final Map<N, Integer> ids;
+    private final int[] targetOffsets;
+    private final int[] targets;
+    private final int[] sourceOffsets;
+    private final int[] sources;
+
+    /**
+     * @param nodes       the nodes, the position of a node is its id
+     * @param edgeSources the source id of each edge
+     * @param edgeTargets the target id of each edge
+     * @param edgeCount   the number of edges, i.e. the used prefix of the two edge arrays
+     */
+    public CompactGraph(final List<N> nodes, final int[] edgeSources, final int[] edgeTargets, final int edgeCount) {
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+        this.ids = new IdentityHashMap<>(nodes.size());
+        for (final N node : this.nodes) {
+            if (this.ids.put(node, this.ids.size()) != null) {
+                throw new IllegalArgumentException("Duplicate node " + node);
+            }
+        }
+        final int[][] forward = group(nodes.size(), edgeSources, edgeTargets, edgeCount);
+        this.targetOffsets = forward[0];
+        this.targets = forward[1];
+        // the reverse index is derived from the deduplicated forward index
+        final int[] forwardSources = new int[this.targets.length];
+        for (int node = 0; node < nodes.size(); node++) {
+            Arrays.fill(forwardSources, this.targetOffsets[node], this.targetOffsets[node + 1], node);
+        }
+        final int[][] reverse = group(nodes.size(), this.targets, forwardSources, this.targets.length);
+        this.sourceOffsets = reverse[0];
+        this.sources = reverse[1];
+    }
+
+    public int nodeCount() {
+        return this.nodes.size();
+    }
+
+    public int edgeCount() {
+        return this.targets.length;
+    }
+
+    public List<N> getNodes() {
+        return this.nodes;
+    }
+
+    public N node(final int id) {
+        return this.nodes.get(id);
+    }
+
+    /**
+     * @return the id of the given node, or -1 if it is not part of the graph
+     */
+    public int id(final N node) {
+        final Integer id = this.ids.get(node);
+        return id == null ? -1 : id;
+    }
+
+    public int outDegree(final int id) {
+        return this.targetOffsets[id + 1] - this.targetOffsets[id];
+    }
+
+    /**
+     * @return the id of the index-th target of the given node
+     */
+    public int target(final int id, final int index) {
+        return this.targets[this.targetOffsets[id] + index];
+    }
+
+    public int inDegree(final int id) {
+        return this.sourceOffsets[id + 1] - this.sourceOffsets[id];
+    }
+
+    /**
+     * @return the id of the index-th source of the given node
+     */
+    public int source(final int id, final int index) {
+        return this.sources[this.sourceOffsets[id] + index];
+    }
+
+    public List<N> getTargets(final N node) {
+        return neighbours(id(node), this.targetOffsets, this.targets);
+    }
+
+    public List<N> getSources(final N node) {
+        return neighbours(id(node), this.sourceOffsets, this.sources);
+    }
+
+    private List<N> neighbours(final int id, final int[] offsets, final int[] neighbours) {
+        if (id < 0) {
+            return Collections.emptyList();
+        }
+        final int from = offsets[id];
+        final int to = offsets[id + 1];
+        return new AbstractList<N>() {
+            @Override
+            public N get(final int index) {
+                if (index < 0 || index >= to - from) {
+                    throw new IndexOutOfBoundsException(String.valueOf(index));
+                }
+                return CompactGraph.this.nodes.get(neighbours[from + index]);
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    /**
+     * Groups the given edges by their key with a stable counting sort and removes duplicates within each group.
+     *
+     * @return the offsets (one per key plus one) and the grouped values
+     */
+    private static int[][] group(final int keyCount, final int[] keys, final int[] values, final int edgeCount) {
+        final int[] offsets = new int[keyCount + 1];
+        for (int edge = 0; edge < edgeCount; edge++) {
+            offsets[keys[edge] + 1]++;
+        }
+        for (int key = 0; key < keyCount; key++) {
+            offsets[key + 1] += offsets[key];
+        }
+        final int[] grouped = new int[edgeCount];
+        final int[] next = Arrays.copyOf(offsets, keyCount);
+        for (int edge = 0; edge < edgeCount; edge++) {
+            grouped[next[keys[edge]]++] = values[edge];
+        }
+
+        // compact each group in place, the stamp of a value is the last group it was seen in, plus one
+        final int[] stamps = new int[keyCount];
+        int size = 0;
+        for (int key = 0; key < keyCount; key++) {
+            final int from = offsets[key];
+            final int to = offsets[key + 1];
+            offsets[key] = size;
+            for (int i = from; i < to; i++) {
+                final int value = grouped[i];
+                if (stamps[value] != key + 1) {
+                    stamps[value] = key + 1;
+                    grouped[size++] = value;
+                }
+            }
+        }
+        offsets[keyCount] = size;
+        return new int[][]{offsets, size == edgeCount ? grouped : Arrays.copyOf(grouped, size)};
+    }
+
+}
@@ -4,23 +4,40 @@ import com.google.common.collect.Sets;
 import org.apache.commons.io.FileUtils;
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
 
-import java.io.File;
-import java.io.PrintWriter;
+import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Database {
 
+    private final SymbolTable symbols;
     private final Map<String, Relation> relations;
 
     public Database() {
+        this(new SymbolTable());
+    }
+
+    /**
+     * @param symbols the symbol table of the relations, databases that are diffed must share it
+     */
+    public Database(final SymbolTable symbols) {
+        this.symbols = symbols;
         this.relations = new HashMap<>();
     }
 
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
     public Map<String, Relation> getRelations() {
         return relations;
     }
 
     public static void writeToFile(final Map<String, ? extends Relation> relations, final File outputFolder) {
+        writeToFile(relations, outputFolder, FactFiles.Format.TSV);
+    }
+
+    public static void writeToFile(final Map<String, ? extends Relation> relations, final File outputFolder, final FactFiles.Format format) {
         if (outputFolder.exists()) {
             try {
                 FileUtils.deleteDirectory(outputFolder);
@@ -30,116 +47,228 @@ public class Database {
         }
         outputFolder.mkdirs();
 
+        final Map<String, Boolean> diffs = new TreeMap<>();
         for (final Map.Entry<String, ? extends Relation> entry : relations.entrySet()) {
             if (!entry.getValue().isEmpty()) {
+                final String fileName = entry.getKey() + format.extension;
                 try {
-                    final PrintWriter writer = new PrintWriter(outputFolder.getAbsoluteFile() + File.separator + entry.getKey() + ".facts", "UTF-8");
-                    writer.print(entry.getValue().toString());
-                    writer.close();
+                    FactFiles.write(entry.getValue(), new File(outputFolder, fileName), format);
+                    diffs.put(fileName, entry.getValue() instanceof RelationDiff);
                 } catch (final Exception e) {
                     e.printStackTrace();
                 }
             }
         }
+        try {
+            FactFiles.writeManifest(outputFolder, diffs);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads back the relations written by {@link #writeToFile}, in either format. Diffs come back as
+     * {@link RelationDiff}s, so that they can be replayed without re-running Soot.
+     */
+    public static Map<String, Relation> readFromFolder(final File inputFolder, final SymbolTable symbols) throws IOException {
+        final Map<String, Relation> result = new HashMap<>();
+        final File[] files = inputFolder.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                for (final FactFiles.Format format : FactFiles.Format.values()) {
+                    if (file.getName().endsWith(format.extension)) {
+                        final String name = file.getName().substring(0, file.getName().length() - format.extension.length());
+                        result.put(name, FactFiles.read(file, format, symbols));
+                    }
+                }
+            }
+        }
+        return result;
     }
 
     public static class Relation {
-        protected final Set<Tuple> insertedTuples;
+        protected final SymbolTable symbols;
+        protected ColumnarTupleSet insertedTuples;
         protected RelationHeader header;
 
-        public Relation() {
-            this.insertedTuples = new HashSet<>();
+        public Relation(final SymbolTable symbols) {
+            this.symbols = symbols;
         }
 
         public void insert(final Tuple tuple) {
-            if (this.header != null && this.header.columns.size() != tuple.getSize()) {
-                throw new IllegalArgumentException();
-            }
-            this.insertedTuples.add(tuple);
+            this.insertedTuples.add(encode(tuple));
+        }
+
+        public void remove(final Tuple tuple) {
+            this.insertedTuples.remove(encode(tuple));
         }
 
         public void setHeader(final RelationHeader header) {
-            if (this.header == null) {
+            if (this.header == null && header != null) {
                 this.header = header;
+                this.insertedTuples = new ColumnarTupleSet(header.columns.size());
+                initColumns();
             }
         }
 
+        protected void initColumns() {
+        }
+
         public boolean isEmpty() {
-            return this.insertedTuples.isEmpty();
+            return this.insertedTuples == null || this.insertedTuples.isEmpty();
+        }
+
+        public int size() {
+            return this.insertedTuples == null ? 0 : this.insertedTuples.size();
         }
 
         @Override
         public String toString() {
+            final StringWriter writer = new StringWriter();
+            try {
+                write(writer);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return writer.toString();
+        }
+
+        /**
+         * Writes the header and the tuples in the tab-separated text format, one row at a time.
+         */
+        public void write(final Writer writer) throws IOException {
             final StringBuilder buffer = new StringBuilder();
-            buffer.append(this.header.toString()).append("\n");
-            int index = 0;
-            for (final Tuple tuple : this.insertedTuples) {
-                buffer.append(toString(tuple));
-                if (index++ < this.insertedTuples.size() - 1) {
+            writer.write(this.header.toString());
+            writer.write("\n");
+            for (int row = 0; row < this.insertedTuples.size(); row++) {
+                buffer.setLength(0);
+                appendRow(buffer, this.insertedTuples, row);
+                if (row < this.insertedTuples.size() - 1) {
                     buffer.append("\n");
                 }
+                writer.append(buffer);
             }
-            return buffer.toString();
         }
 
-        protected String toString(final Tuple tuple) {
-            final StringBuilder buffer = new StringBuilder();
-            boolean first = true;
-            for (final Object obj : tuple.getElements()) {
-                if (first) {
-                    first = false;
+        /**
+         * Maps the values of the given tuple to their column representation: integer columns are stored as they are,
+         * all other values are replaced by their symbol.
+         */
+        protected int[] encode(final Tuple tuple) {
+            if (this.header == null) {
+                throw new IllegalStateException("The header must be set before tuples can be stored");
+            }
+            if (this.header.columns.size() != tuple.getSize()) {
+                throw new IllegalArgumentException();
+            }
+            final int[] values = new int[tuple.getSize()];
+            for (int i = 0; i < values.length; i++) {
+                final Object value = tuple.get(i);
+                if (this.header.columns.get(i).type == Integer.class) {
+                    if (!(value instanceof Integer)) {
+                        throw new IllegalArgumentException("Column " + this.header.columns.get(i).name + " expects an Integer but got " + value);
+                    }
+                    values[i] = (Integer) value;
                 } else {
+                    values[i] = this.symbols.intern(value);
+                }
+            }
+            return values;
+        }
+
+        protected void appendRow(final StringBuilder buffer, final ColumnarTupleSet tuples, final int row) {
+            for (int i = 0; i < tuples.arity(); i++) {
+                if (i > 0) {
                     buffer.append("\t");
                 }
-                buffer.append(obj);
+                if (this.header.columns.get(i).type == Integer.class) {
+                    buffer.append(tuples.get(row, i));
+                } else {
+                    buffer.append(this.symbols.get(tuples.get(row, i)));
+                }
             }
-            return buffer.toString();
         }
     }
 
     public static class RelationDiff extends Relation {
-        protected final Set<Tuple> deletedTuples;
+        protected ColumnarTupleSet deletedTuples;
 
-        public RelationDiff() {
-            super();
-            this.deletedTuples = new HashSet<>();
+        public RelationDiff(final SymbolTable symbols) {
+            super(symbols);
         }
 
         public void delete(final Tuple tuple) {
-            if (this.header != null && this.header.columns.size() != tuple.getSize()) {
-                throw new IllegalArgumentException();
-            }
-            this.deletedTuples.add(tuple);
+            this.deletedTuples.add(encode(tuple));
         }
 
         @Override
-        public String toString() {
+        protected void initColumns() {
+            this.deletedTuples = new ColumnarTupleSet(this.header.columns.size());
+        }
+
+        @Override
+        public void write(final Writer writer) throws IOException {
             final StringBuilder buffer = new StringBuilder();
-            buffer.append(this.header.toString()).append("\n");
-            int index = 0;
-            for (final Tuple tuple : this.deletedTuples) {
+            writer.write(this.header.toString());
+            writer.write("\n");
+            for (int row = 0; row < this.deletedTuples.size(); row++) {
+                buffer.setLength(0);
                 buffer.append("-");
-                buffer.append(toString(tuple));
-                if (!this.insertedTuples.isEmpty() || index < this.deletedTuples.size() - 1) {
+                appendRow(buffer, this.deletedTuples, row);
+                if (!this.insertedTuples.isEmpty() || row < this.deletedTuples.size() - 1) {
                     buffer.append("\n");
                 }
-                index++;
+                writer.append(buffer);
             }
-            index = 0;
-            for (final Tuple tuple : this.insertedTuples) {
+            for (int row = 0; row < this.insertedTuples.size(); row++) {
+                buffer.setLength(0);
                 buffer.append("+");
-                buffer.append(toString(tuple));
-                if (index < this.insertedTuples.size() - 1) {
+                appendRow(buffer, this.insertedTuples, row);
+                if (row < this.insertedTuples.size() - 1) {
                     buffer.append("\n");
                 }
-                index++;
+                writer.append(buffer);
             }
-            return buffer.toString();
         }
 
         @Override
         public boolean isEmpty() {
-            return this.insertedTuples.isEmpty() && this.deletedTuples.isEmpty();
+            return super.isEmpty() && (this.deletedTuples == null || this.deletedTuples.isEmpty());
+        }
+    }
+
+    /**
+     * Assigns dense codes to the non-integer values of the relations of a database. Databases that are diffed share
+     * their table, so that equal values compare equal across them.
+     */
+    public static class SymbolTable {
+        private final Map<Object, Integer> codes;
+        private volatile Object[] values;
+        private int size;
+
+        public SymbolTable() {
+            this.codes = new ConcurrentHashMap<>();
+            this.values = new Object[1024];
+        }
+
+        public int intern(final Object value) {
+            final Integer code = this.codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            synchronized (this) {
+                return this.codes.computeIfAbsent(value, v -> {
+                    if (this.size == this.values.length) {
+                        this.values = Arrays.copyOf(this.values, 2 * this.size);
+                    }
+                    this.values[this.size] = v;
+                    return this.size++;
+                });
+            }
+        }
+
+        public Object get(final int code) {
+            return this.values[code];
         }
     }
 
@@ -158,6 +287,10 @@ public class Database {
             return new RelationHeader(columns);
         }
 
+        public static RelationHeader fromColumns(final List<Column> columns) {
+            return new RelationHeader(new ArrayList<>(columns));
+        }
+
         public static RelationHeader fromNames(final String... values) {
             final List<Column> columns = new ArrayList<>();
             for (final String value : values) {
@@ -166,6 +299,10 @@ public class Database {
             return new RelationHeader(columns);
         }
 
+        public List<Column> getColumns() {
+            return Collections.unmodifiableList(this.columns);
+        }
+
         @Override
         public String toString() {
             final StringBuilder builder = new StringBuilder();
@@ -195,13 +332,17 @@ public class Database {
     public Relation getRelation(final String key) {
         return this.relations.compute(key, (k, v) -> {
             if (v == null) {
-                v = new Relation();
+                v = new Relation(this.symbols);
             }
             return v;
         });
     }
 
     public static Map<String, RelationDiff> computeDiff(final Database leftDb, final Database rightDb) {
+        if (leftDb != null && rightDb != null && leftDb.symbols != rightDb.symbols) {
+            throw new IllegalArgumentException("Only databases with the same symbol table can be diffed");
+        }
+        final SymbolTable symbols = leftDb != null ? leftDb.symbols : rightDb != null ? rightDb.symbols : null;
         final Map<String, RelationDiff> result = new HashMap<>();
         for (final String relationName : Sets.union(leftDb == null ? Collections.emptySet() : leftDb.relations.keySet(),
                 rightDb == null ? Collections.emptySet() : rightDb.relations.keySet())) {
@@ -210,31 +351,46 @@ public class Database {
 
             if (leftRel == null && rightRel != null) {
                 // entirely new relation inserted
-                final RelationDiff diff = new RelationDiff();
+                final RelationDiff diff = new RelationDiff(symbols);
                 diff.setHeader(rightRel.header);
                 diff.insertedTuples.addAll(rightRel.insertedTuples);
                 result.put(relationName, diff);
             } else if (leftRel != null && rightRel == null) {
                 // entire old relation got deleted
-                final RelationDiff diff = new RelationDiff();
+                final RelationDiff diff = new RelationDiff(symbols);
                 diff.setHeader(leftRel.header);
                 diff.deletedTuples.addAll(leftRel.insertedTuples);
                 result.put(relationName, diff);
             } else {
                 assert leftRel != null;
-                // compute actual diff in terms of deleted/inserted tuples
-                final RelationDiff diff = new RelationDiff();
+                // compute actual diff in terms of deleted/inserted tuples by merging the sorted rows
+                final RelationDiff diff = new RelationDiff(symbols);
                 diff.setHeader(leftRel.header);
-                final Sets.SetView<Tuple> symDiff = Sets.symmetricDifference(leftRel.insertedTuples, rightRel.insertedTuples);
-                for (final Tuple tuple : symDiff) {
-                    if (leftRel.insertedTuples.contains(tuple)) {
+                final ColumnarTupleSet left = leftRel.insertedTuples;
+                final ColumnarTupleSet right = rightRel.insertedTuples;
+                left.sort();
+                right.sort();
+                int leftRow = 0;
+                int rightRow = 0;
+                while (leftRow < left.size() && rightRow < right.size()) {
+                    final int order = left.compare(leftRow, right, rightRow);
+                    if (order < 0) {
                         // the tuple has been deleted
-                        diff.deletedTuples.add(tuple);
-                    } else {
+                        diff.deletedTuples.add(left, leftRow++);
+                    } else if (order > 0) {
                         // the tuple has been inserted
-                        diff.insertedTuples.add(tuple);
+                        diff.insertedTuples.add(right, rightRow++);
+                    } else {
+                        leftRow++;
+                        rightRow++;
                     }
                 }
+                while (leftRow < left.size()) {
+                    diff.deletedTuples.add(left, leftRow++);
+                }
+                while (rightRow < right.size()) {
+                    diff.insertedTuples.add(right, rightRow++);
+                }
                 result.put(relationName, diff);
             }
 
@@ -0,0 +1,158 @@
+package experiments;
+
+import soot.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Assigns dense, collision-free ids to the entities (units, values, methods, fields and types) that facts refer to.
+ * Ids are handed out in the order in which entities are first seen and are keyed by identity, so they stay the same
+ * across change iterations as long as the same instance is used.
+ * <p>
+ * Optionally, the id map can be saved to and loaded from a file. Entities are then matched by a stable key (e.g. the
+ * method signature, or the position of a unit in its body) instead of by identity, so that ids also survive across runs.
+ */
+public class EntityIds {
+
+    private final Map<Object, Integer> ids;
+    private final Function<Unit, SootMethod> methodOf;
+    private final boolean persistent;
+    // the keys of the assigned ids, only maintained in persistent mode
+    private final List<String> keys;
+    // ids loaded from a previous run that have not been claimed by an entity yet
+    private final Map<String, Integer> unclaimedIds;
+    private final Map<Body, Map<Unit, Integer>> unitIndices;
+    private int nextId;
+
+    public EntityIds() {
+        this(null, false);
+    }
+
+    /**
+     * @param methodOf   maps units to their owning methods, only used to compute stable keys
+     * @param persistent whether stable keys should be maintained so that the ids can be saved
+     */
+    public EntityIds(final Function<Unit, SootMethod> methodOf, final boolean persistent) {
+        this.ids = new IdentityHashMap<>();
+        this.methodOf = methodOf;
+        this.persistent = persistent;
+        this.keys = new ArrayList<>();
+        this.unclaimedIds = new HashMap<>();
+        this.unitIndices = new HashMap<>();
+    }
+
+    public int size() {
+        return this.nextId;
+    }
+
+    /**
+     * @return the id of the given entity, assigning the next free id if it has not been seen before
+     */
+    public int id(final Object entity) {
+        return id(entity, null);
+    }
+
+    /**
+     * @param owner the unit in which the given entity occurs, used to compute the stable key of values
+     * @return the id of the given entity, assigning the next free id if it has not been seen before
+     */
+    public synchronized int id(final Object entity, final Unit owner) {
+        final Integer existing = this.ids.get(entity);
+        if (existing != null) {
+            return existing;
+        }
+        final String key = this.persistent ? keyOf(entity, owner) : null;
+        Integer id = key == null ? null : this.unclaimedIds.remove(key);
+        if (id == null) {
+            id = this.nextId++;
+        }
+        this.ids.put(entity, id);
+        if (this.persistent) {
+            while (this.keys.size() <= id) {
+                this.keys.add(null);
+            }
+            this.keys.set(id, key);
+        }
+        return id;
+    }
+
+    /**
+     * Writes the stable keys of all ids assigned so far, one "id\tkey" line per entity.
+     */
+    public synchronized void save(final File file) throws IOException {
+        if (!this.persistent) {
+            throw new IllegalStateException("Stable keys are only maintained in persistent mode");
+        }
+        try (final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            for (int id = 0; id < this.keys.size(); id++) {
+                final String key = this.keys.get(id);
+                if (key != null) {
+                    writer.write(id + "\t" + key + "\n");
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads an id map written by {@link #save(File)}. Entities seen afterwards get the id they had when the map was
+     * saved, all other entities get fresh ids that do not collide with the loaded ones.
+     */
+    public synchronized void load(final File file) throws IOException {
+        if (!this.persistent) {
+            throw new IllegalStateException("Stable keys are only maintained in persistent mode");
+        }
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int separator = line.indexOf('\t');
+                final int id = Integer.parseInt(line.substring(0, separator));
+                this.unclaimedIds.put(line.substring(separator + 1), id);
+                this.nextId = Math.max(this.nextId, id + 1);
+            }
+        }
+    }
+
+    private String keyOf(final Object entity, final Unit owner) {
+        if (entity instanceof SootMethod) {
+            return "method:" + ((SootMethod) entity).getSignature();
+        } else if (entity instanceof SootField) {
+            return "field:" + ((SootField) entity).getSignature();
+        } else if (entity instanceof Type) {
+            return "type:" + entity;
+        } else if (entity instanceof Unit) {
+            return unitKey((Unit) entity);
+        } else if (entity instanceof Local && owner != null) {
+            return "local:" + this.methodOf.apply(owner).getSignature() + ":" + ((Local) entity).getName();
+        } else if (entity instanceof Value && owner != null) {
+            // values are identified by the position of their box within the owning unit
+            final String ownerKey = unitKey(owner);
+            final List<ValueBox> boxes = owner.getUseAndDefBoxes();
+            for (int i = 0; i < boxes.size(); i++) {
+                if (boxes.get(i).getValue() == entity) {
+                    return ownerKey == null ? null : "value:" + ownerKey + "/" + i;
+                }
+            }
+        }
+        return null;
+    }
+
+    private String unitKey(final Unit unit) {
+        final SootMethod method = this.methodOf == null ? null : this.methodOf.apply(unit);
+        if (method == null || !method.hasActiveBody()) {
+            return null;
+        }
+        final Map<Unit, Integer> indices = this.unitIndices.computeIfAbsent(method.getActiveBody(), body -> {
+            final Map<Unit, Integer> result = new IdentityHashMap<>();
+            for (final Unit u : body.getUnits()) {
+                result.put(u, result.size());
+            }
+            return result;
+        });
+        final Integer index = indices.get(unit);
+        return index == null ? null : "unit:" + method.getSignature() + "#" + index;
+    }
+
+}
@@ -0,0 +1,349 @@
+package experiments;
+
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuples;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Streaming writers and matching readers for relations, in two formats:
+ * <ul>
+ * <li>{@link Format#TSV}: the tab-separated {@code .facts} format, written row by row through a buffered writer. The rows
+ * of a diff are prefixed with their sign. As the format cannot tell a diff from a relation whose first column is negative,
+ * the kind of every file is listed in the {@link #MANIFEST} of its folder.</li>
+ * <li>{@link Format#BINARY}: a compact little-endian column format. The file starts with the header and a dictionary per
+ * non-integer column, followed by one section (relation) or two sections (diff: deleted, then inserted tuples). Each
+ * section is a row count followed by the columns, one int per row. Large columns are written through a
+ * {@link java.nio.MappedByteBuffer}.</li>
+ * </ul>
+ */
+public class FactFiles {
+
+    public enum Format {
+        TSV(".facts"), BINARY(".bin");
+
+        public final String extension;
+
+        Format(final String extension) {
+            this.extension = extension;
+        }
+    }
+
+    private static final int MAGIC = 0x53544346;
+    private static final int VERSION = 1;
+    private static final byte KIND_RELATION = 0;
+    private static final byte KIND_DIFF = 1;
+    private static final String TEXT_KIND_RELATION = "relation";
+    private static final String TEXT_KIND_DIFF = "diff";
+    /** The file that lists the kind of each fact file of a folder, one tab-separated line per file. */
+    public static final String MANIFEST = "facts.manifest";
+    // columns smaller than this are written through a heap buffer, mapping them is not worth it
+    private static final long MAPPING_THRESHOLD = 1 << 16;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private FactFiles() {
+    }
+
+    public static void write(final Database.Relation relation, final File file, final Format format) throws IOException {
+        if (format == Format.TSV) {
+            try (final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), WRITE_BUFFER_SIZE)) {
+                relation.write(writer);
+            }
+        } else {
+            writeBinary(relation, file);
+        }
+    }
+
+    /**
+     * @param symbols the symbol table to encode the values with, usually that of the database the relation is compared to
+     */
+    public static Database.Relation read(final File file, final Format format, final Database.SymbolTable symbols) throws IOException {
+        return format == Format.TSV ? readText(file, symbols) : readBinary(file, symbols);
+    }
+
+    private static Database.Relation readText(final File file, final Database.SymbolTable symbols) throws IOException {
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            final String headerLine = reader.readLine();
+            if (headerLine == null) {
+                throw new IOException("Missing header in " + file);
+            }
+            final List<Database.Column> columns = new ArrayList<>();
+            for (final String column : headerLine.split("\t")) {
+                final int separator = column.lastIndexOf(':');
+                columns.add(new Database.Column(column.substring(0, separator), typeOf(column.substring(separator + 1))));
+            }
+
+            String line = reader.readLine();
+            Boolean diff = readManifest(file.getAbsoluteFile().getParentFile()).get(file.getName());
+            if (diff == null) {
+                // files written without a manifest, diffs prefix every row with its sign
+                diff = line != null && (line.startsWith("+") || line.startsWith("-"));
+            }
+            final Database.Relation relation = diff ? new Database.RelationDiff(symbols) : new Database.Relation(symbols);
+            relation.setHeader(Database.RelationHeader.fromColumns(columns));
+            for (; line != null; line = reader.readLine()) {
+                if (!diff) {
+                    relation.insert(parseRow(line, columns));
+                } else if (line.charAt(0) == '-') {
+                    ((Database.RelationDiff) relation).delete(parseRow(line.substring(1), columns));
+                } else {
+                    relation.insert(parseRow(line.substring(1), columns));
+                }
+            }
+            return relation;
+        }
+    }
+
+    /**
+     * Writes the {@link #MANIFEST} of a folder.
+     *
+     * @param diffs whether each file of the folder, by name, holds a diff
+     */
+    public static void writeManifest(final File folder, final Map<String, Boolean> diffs) throws IOException {
+        try (final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(folder, MANIFEST)), StandardCharsets.UTF_8))) {
+            for (final Map.Entry<String, Boolean> entry : diffs.entrySet()) {
+                writer.write(entry.getKey() + "\t" + (entry.getValue() ? TEXT_KIND_DIFF : TEXT_KIND_RELATION) + "\n");
+            }
+        }
+    }
+
+    /**
+     * Returns whether each file listed in the {@link #MANIFEST} of the given folder holds a diff, or an empty map if the
+     * folder has no manifest.
+     */
+    private static Map<String, Boolean> readManifest(final File folder) throws IOException {
+        final File manifest = new File(folder, MANIFEST);
+        final Map<String, Boolean> diffs = new HashMap<>();
+        if (!manifest.isFile()) {
+            return diffs;
+        }
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(manifest), StandardCharsets.UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                final int separator = line.lastIndexOf('\t');
+                if (separator < 0) {
+                    throw new IOException("Malformed line in " + manifest + ": " + line);
+                }
+                diffs.put(line.substring(0, separator), TEXT_KIND_DIFF.equals(line.substring(separator + 1)));
+            }
+        }
+        return diffs;
+    }
+
+    private static Tuple parseRow(final String line, final List<Database.Column> columns) throws IOException {
+        final String[] fields = line.split("\t", -1);
+        if (fields.length != columns.size()) {
+            throw new IOException("Expected " + columns.size() + " fields but got " + fields.length + ": " + line);
+        }
+        final Object[] values = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            final Class<?> type = columns.get(i).type;
+            if (type == Integer.class) {
+                values[i] = Integer.parseInt(fields[i]);
+            } else if (type == Long.class) {
+                values[i] = Long.parseLong(fields[i]);
+            } else if (type == Boolean.class) {
+                values[i] = Boolean.parseBoolean(fields[i]);
+            } else {
+                values[i] = fields[i];
+            }
+        }
+        return Tuples.flatTupleOf(values);
+    }
+
+    private static void writeBinary(final Database.Relation relation, final File file) throws IOException {
+        final List<Database.Column> columns = relation.header.getColumns();
+        final boolean diff = relation instanceof Database.RelationDiff;
+        final ColumnarTupleSet[] sections = diff
+                ? new ColumnarTupleSet[]{((Database.RelationDiff) relation).deletedTuples, relation.insertedTuples}
+                : new ColumnarTupleSet[]{relation.insertedTuples};
+
+        final ByteArrayOutputStream header = new ByteArrayOutputStream();
+        writeInt(header, MAGIC);
+        writeInt(header, VERSION);
+        header.write(diff ? KIND_DIFF : KIND_RELATION);
+        writeInt(header, columns.size());
+        for (final Database.Column column : columns) {
+            writeString(header, column.name);
+            writeString(header, column.type.getSimpleName());
+        }
+
+        // replace the symbol codes of the database by dense per-file codes, so that the file is self-contained
+        final List<Map<Integer, Integer>> dictionaries = new ArrayList<>();
+        for (int column = 0; column < columns.size(); column++) {
+            final Class<?> type = columns.get(column).type;
+            if (type == Integer.class) {
+                dictionaries.add(null);
+                continue;
+            }
+            final Map<Integer, Integer> dictionary = new LinkedHashMap<>();
+            for (final ColumnarTupleSet section : sections) {
+                for (int row = 0; row < section.size(); row++) {
+                    dictionary.putIfAbsent(section.get(row, column), dictionary.size());
+                }
+            }
+            writeInt(header, dictionary.size());
+            for (final int code : dictionary.keySet()) {
+                final Object value = relation.symbols.get(code);
+                if (type == Long.class) {
+                    writeLong(header, ((Number) value).longValue());
+                } else if (type == Boolean.class) {
+                    header.write((Boolean) value ? 1 : 0);
+                } else {
+                    writeString(header, String.valueOf(value));
+                }
+            }
+            dictionaries.add(dictionary);
+        }
+
+        try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = writeFully(channel, ByteBuffer.wrap(header.toByteArray()), 0);
+            for (final ColumnarTupleSet section : sections) {
+                final ByteBuffer count = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                count.putInt(section.size()).flip();
+                position = writeFully(channel, count, position);
+                final long bytes = (long) Integer.BYTES * section.size();
+                if (bytes > Integer.MAX_VALUE) {
+                    throw new IOException("Column of " + section.size() + " rows is too large for " + file);
+                }
+                for (int column = 0; column < columns.size(); column++) {
+                    final Map<Integer, Integer> dictionary = dictionaries.get(column);
+                    final boolean mapped = bytes >= MAPPING_THRESHOLD;
+                    final ByteBuffer target = mapped
+                            ? channel.map(FileChannel.MapMode.READ_WRITE, position, bytes)
+                            : ByteBuffer.allocate((int) bytes);
+                    target.order(ByteOrder.LITTLE_ENDIAN);
+                    for (int row = 0; row < section.size(); row++) {
+                        final int value = section.get(row, column);
+                        target.putInt(dictionary == null ? value : dictionary.get(value));
+                    }
+                    if (!mapped) {
+                        target.flip();
+                        writeFully(channel, target, position);
+                    }
+                    position += bytes;
+                }
+            }
+        }
+    }
+
+    private static Database.Relation readBinary(final File file, final Database.SymbolTable symbols) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), Integer.MAX_VALUE));
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a binary fact file: " + file);
+            }
+            final boolean diff = buffer.get() == KIND_DIFF;
+            final int columnCount = buffer.getInt();
+            final List<Database.Column> columns = new ArrayList<>();
+            for (int column = 0; column < columnCount; column++) {
+                final String name = readString(buffer);
+                columns.add(new Database.Column(name, typeOf(readString(buffer))));
+            }
+
+            // per column, the symbol code of each per-file code
+            final int[][] dictionaries = new int[columnCount][];
+            for (int column = 0; column < columnCount; column++) {
+                final Class<?> type = columns.get(column).type;
+                if (type == Integer.class) {
+                    continue;
+                }
+                dictionaries[column] = new int[buffer.getInt()];
+                for (int code = 0; code < dictionaries[column].length; code++) {
+                    final Object value;
+                    if (type == Long.class) {
+                        value = buffer.getLong();
+                    } else if (type == Boolean.class) {
+                        value = buffer.get() != 0;
+                    } else {
+                        value = readString(buffer);
+                    }
+                    dictionaries[column][code] = symbols.intern(value);
+                }
+            }
+
+            final Database.Relation relation = diff ? new Database.RelationDiff(symbols) : new Database.Relation(symbols);
+            relation.setHeader(Database.RelationHeader.fromColumns(columns));
+            final ColumnarTupleSet[] sections = diff
+                    ? new ColumnarTupleSet[]{((Database.RelationDiff) relation).deletedTuples, relation.insertedTuples}
+                    : new ColumnarTupleSet[]{relation.insertedTuples};
+
+            long position = buffer.position();
+            for (final ColumnarTupleSet section : sections) {
+                final ByteBuffer count = channel.map(FileChannel.MapMode.READ_ONLY, position, Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                final int rows = count.getInt();
+                position += Integer.BYTES;
+                final IntBuffer[] columnData = new IntBuffer[columnCount];
+                for (int column = 0; column < columnCount; column++) {
+                    columnData[column] = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) Integer.BYTES * rows)
+                            .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                    position += (long) Integer.BYTES * rows;
+                }
+                for (int row = 0; row < rows; row++) {
+                    final int[] values = new int[columnCount];
+                    for (int column = 0; column < columnCount; column++) {
+                        final int value = columnData[column].get(row);
+                        values[column] = dictionaries[column] == null ? value : dictionaries[column][value];
+                    }
+                    section.add(values);
+                }
+            }
+            return relation;
+        }
+    }
+
+    private static Class<?> typeOf(final String name) throws IOException {
+        switch (name) {
+            case "Integer":
+                return Integer.class;
+            case "Long":
+                return Long.class;
+            case "Boolean":
+                return Boolean.class;
+            case "String":
+                return String.class;
+            default:
+                throw new IOException("Unsupported column type " + name);
+        }
+    }
+
+    private static long writeFully(final FileChannel channel, final ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return position;
+    }
+
+    private static void writeInt(final ByteArrayOutputStream out, final int value) {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+
+    private static void writeLong(final ByteArrayOutputStream out, final long value) {
+        writeInt(out, (int) value);
+        writeInt(out, (int) (value >>> 32));
+    }
+
+    private static void writeString(final ByteArrayOutputStream out, final String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,374 @@
+package experiments;
+
+import soot.*;
+import soot.jimple.*;
+import soot.jimple.internal.*;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Walks units and emits the facts describing them. Facts are emitted as {@link RawFact}s that still refer to the Soot
+ * entities themselves; {@link Facts} turns them into tuples of entity ids. Keeping id assignment out of the traversal
+ * allows several generators to run in parallel while the ids still only depend on the order in which the raw facts are
+ * applied.
+ */
+public class FactGenerator {
+
+    private final ICFG icfg;
+    private final Set<Unit> generated;
+    private List<RawFact> output;
+    private Set<Object> seen;
+    private Unit owner;
+
+    public FactGenerator(final ICFG icfg) {
+        this.icfg = icfg;
+        this.generated = new HashSet<>();
+    }
+
+    /**
+     * Generates the facts of the given unit, and of the branch targets it refers to unless they have been generated
+     * before. Every raw fact is owned by the unit whose generation produced it.
+     *
+     * @return the raw facts in emission order, empty if the unit has already been generated
+     */
+    public List<RawFact> generate(final Unit input) {
+        this.output = new ArrayList<>();
+        generateOwned(input);
+        final List<RawFact> result = this.output;
+        this.output = null;
+        return result;
+    }
+
+    public Set<Unit> getGenerated() {
+        return this.generated;
+    }
+
+    public void markGenerated(final Collection<Unit> units) {
+        this.generated.addAll(units);
+    }
+
+    /**
+     * Makes the generator forget that the given unit has been generated, e.g. because it has been rewritten.
+     */
+    public void forget(final Unit unit) {
+        this.generated.remove(unit);
+    }
+
+    private void generateOwned(final Unit input) {
+        if (!this.generated.add(input)) {
+            // already owned by a previous generation step
+            return;
+        }
+        final Unit previousOwner = this.owner;
+        final Set<Object> previousSeen = this.seen;
+        this.owner = input;
+        this.seen = new HashSet<>();
+        try {
+            generateUnit(input);
+            for (final Unit target : this.icfg.getTargetNodes(input).distinctValues()) {
+                emit("ICFG", Database.RelationHeader.fromNames("source", "target"), input, target);
+            }
+        } finally {
+            this.owner = previousOwner;
+            this.seen = previousSeen;
+        }
+    }
+
+    /**
+     * Emits a fact. Values that are Soot entities are replaced by their ids later on, all other values (integers,
+     * longs, booleans and strings) are stored as they are.
+     */
+    private void emit(final String relation, final Database.RelationHeader header, final Object... values) {
+        this.output.add(new RawFact(relation, header, values, this.owner));
+    }
+
+    private <T> T resolved(final Supplier<T> reference) {
+        // resolving references may add phantom members to the Scene, which must not happen concurrently
+        synchronized (Scene.v()) {
+            return reference.get();
+        }
+    }
+
+    private void generateUnit(final Unit input) {
+        final String relation = input.getClass().getSimpleName();
+        emit("Unit", Database.RelationHeader.fromNames("id"), input);
+
+        final SootMethod method = this.icfg.getMethodOf(input);
+        emit("MethodOfUnit", Database.RelationHeader.fromNames("unit", "method"), input, method);
+        generate(method);
+
+        if (input instanceof JIdentityStmt) {
+            final Value left = ((JIdentityStmt) input).getLeftOp();
+            final Value right = ((JIdentityStmt) input).getRightOp();
+            emit(relation, Database.RelationHeader.fromNames("id", "left", "right"), input, left, right);
+            generate(left, input);
+            generate(right, input);
+        } else if (input instanceof JAssignStmt) {
+            final Value left = ((JAssignStmt) input).getLeftOp();
+            final Value right = ((JAssignStmt) input).getRightOp();
+            emit(relation, Database.RelationHeader.fromNames("id", "left", "right"), input, left, right);
+            generate(left, input);
+            generate(right, input);
+        } else if (input instanceof JReturnStmt) {
+            final Value op = ((JReturnStmt) input).getOp();
+            emit(relation, Database.RelationHeader.fromNames("id", "op", "method"), input, op, method);
+            generate(op, input);
+        } else if (input instanceof JReturnVoidStmt) {
+            emit(relation, Database.RelationHeader.fromNames("id", "method"), input, method);
+        } else if (input instanceof JInvokeStmt) {
+            final InvokeExpr invokeExpr = ((JInvokeStmt) input).getInvokeExpr();
+            emit(relation, Database.RelationHeader.fromNames("id", "invokeExpr"), input, invokeExpr);
+            generate(invokeExpr, input);
+        } else if (input instanceof JIfStmt) {
+            final Value condition = ((JIfStmt) input).getCondition();
+            final Stmt target = ((JIfStmt) input).getTarget();
+            emit(relation, Database.RelationHeader.fromNames("id", "condition", "target"), input, condition, target);
+            generate(condition, input);
+            generateOwned(target);
+        } else if (input instanceof JGotoStmt) {
+            final Unit target = ((JGotoStmt) input).getTarget();
+            emit(relation, Database.RelationHeader.fromNames("id", "target"), input, target);
+            generateOwned(target);
+        } else if (input instanceof JTableSwitchStmt) {
+            final Value key = ((JTableSwitchStmt) input).getKey();
+            final Unit defaultCase = ((JTableSwitchStmt) input).getDefaultTarget();
+            final List<Unit> targets = ((JTableSwitchStmt) input).getTargets();
+            final int low = ((JTableSwitchStmt) input).getLowIndex();
+            final int high = ((JTableSwitchStmt) input).getHighIndex();
+            emit(relation, Database.RelationHeader.fromNames("id", "key", "defaultCase"), input, key, defaultCase);
+            generate(key, input);
+            generateOwned(defaultCase);
+            for (int i = 0; i <= high - low; i++) {
+                final Unit target = targets.get(i);
+                emit("TableSwitchCases", Database.RelationHeader.fromNames("switchId", "index", "target"), input, low + i, target);
+                generateOwned(target);
+            }
+        } else if (input instanceof JLookupSwitchStmt) {
+            final Value key = ((JLookupSwitchStmt) input).getKey();
+            final Unit defaultCase = ((JLookupSwitchStmt) input).getDefaultTarget();
+            final List<Unit> targets = ((JLookupSwitchStmt) input).getTargets();
+            final List<IntConstant> lookupValues = ((JLookupSwitchStmt) input).getLookupValues();
+            emit(relation, Database.RelationHeader.fromNames("id", "key", "defaultCase"), input, key, defaultCase);
+            generate(key, input);
+            generateOwned(defaultCase);
+            for (int i = 0; i < lookupValues.size(); i++) {
+                final IntConstant lookupValue = lookupValues.get(i);
+                final Unit target = targets.get(i);
+                emit("LookupSwitchCases", Database.RelationHeader.fromNames("switchId", "lookupValue", "target"), input, lookupValue, target);
+                generateOwned(target);
+                generate(lookupValue, input);
+            }
+        } else if (input instanceof JThrowStmt) {
+            final Value op = ((JThrowStmt) input).getOp();
+            emit(relation, Database.RelationHeader.fromNames("id", "op"), input, op);
+            generate(op, input);
+        } else if (input instanceof JExitMonitorStmt) {
+            final Value op = ((JExitMonitorStmt) input).getOp();
+            emit(relation, Database.RelationHeader.fromNames("id", "op"), input, op);
+            generate(op, input);
+        } else if (input instanceof JEnterMonitorStmt) {
+            final Value op = ((JEnterMonitorStmt) input).getOp();
+            emit(relation, Database.RelationHeader.fromNames("id", "op"), input, op);
+            generate(op, input);
+        } else {
+            throw new IllegalArgumentException("Unhandled unit kind " + input.getClass());
+        }
+    }
+
+    private void generate(final Value input, final Unit surroundingUnit) {
+        final String relation = input.getClass().getSimpleName();
+        emit("Value", Database.RelationHeader.fromNames("id"), input);
+        if (input instanceof JimpleLocal) {
+            if (this.seen.add(input)) {
+                final SootMethod method = this.icfg.getMethodOf(surroundingUnit);
+                emit("MethodOfJimpleLocal", Database.RelationHeader.fromNames("local", "method"), input, method);
+                generate(method);
+            }
+            final String name = ((JimpleLocal) input).getName();
+            final Type type = input.getType();
+            emit(relation, Database.RelationHeader.fromPairs("id", Integer.class, "name", String.class, "type", Integer.class), input, name, type);
+            generate(type);
+        } else if (input instanceof ParameterRef) {
+            final SootMethod method = this.icfg.getMethodOf(surroundingUnit);
+            final int index = ((ParameterRef) input).getIndex();
+            final Type type = input.getType();
+            emit(relation, Database.RelationHeader.fromNames("id", "index", "type", "method"), input, index, type, method);
+            generate(type);
+            generate(method);
+        } else if (input instanceof ThisRef) {
+            final Type type = input.getType();
+            emit(relation, Database.RelationHeader.fromNames("id", "type"), input, type);
+            generate(type);
+        } else if (input instanceof InstanceFieldRef) {
+            final SootField fieldRef = resolved(((InstanceFieldRef) input)::getField);
+            final Value base = ((InstanceFieldRef) input).getBase();
+            emit(relation, Database.RelationHeader.fromNames("id", "base", "fieldRef"), input, base, fieldRef);
+            generate(base, surroundingUnit);
+            generate(fieldRef);
+        } else if (input instanceof StaticFieldRef) {
+            final SootField fieldRef = resolved(((StaticFieldRef) input)::getField);
+            emit(relation, Database.RelationHeader.fromNames("id", "fieldRef"), input, fieldRef);
+            generate(fieldRef);
+        } else if (input instanceof InstanceInvokeExpr) {
+            final Value base = ((InstanceInvokeExpr) input).getBase();
+            final List<Value> arguments = ((InstanceInvokeExpr) input).getArgs();
+            final SootMethod methodRef = resolved(((InstanceInvokeExpr) input)::getMethod);
+            emit(relation, Database.RelationHeader.fromNames("id", "base", "methodRef"), input, base, methodRef);
+            generate(base, surroundingUnit);
+            generate(methodRef);
+            generateMethodInvocationArguments(surroundingUnit, input, arguments);
+        } else if (input instanceof StaticInvokeExpr) {
+            final List<Value> arguments = ((StaticInvokeExpr) input).getArgs();
+            final SootMethod methodRef = resolved(((StaticInvokeExpr) input)::getMethod);
+            emit(relation, Database.RelationHeader.fromNames("id", "methodRef"), input, methodRef);
+            generate(methodRef);
+            generateMethodInvocationArguments(surroundingUnit, input, arguments);
+        } else if (input instanceof StringConstant) {
+            final String value = ((StringConstant) input).value;
+            emit(relation, Database.RelationHeader.fromPairs("id", Integer.class, "value", String.class), input, value.replaceAll("\\s", ""));
+        } else if (input instanceof IntConstant) {
+            final int value = ((IntConstant) input).value;
+            emit(relation, Database.RelationHeader.fromNames("id", "value"), input, value);
+        } else if (input instanceof DoubleConstant) {
+            final double value = ((DoubleConstant) input).value;
+            emit(relation, Database.RelationHeader.fromPairs("id", Integer.class, "value", String.class), input, Double.toString(value));
+        } else if (input instanceof LongConstant) {
+            final long value = ((LongConstant) input).value;
+            emit(relation, Database.RelationHeader.fromPairs("id", Integer.class, "value", Long.class), input, value);
+        } else if (input instanceof FloatConstant) {
+            final float value = ((FloatConstant) input).value;
+            emit(relation, Database.RelationHeader.fromPairs("id", Integer.class, "value", String.class), input, Float.toString(value));
+        } else if (input instanceof AbstractBinopExpr) {
+            final Value left = ((AbstractBinopExpr) input).getOp1();
+            final Value right = ((AbstractBinopExpr) input).getOp2();
+            emit(relation, Database.RelationHeader.fromNames("id", "left", "right"), input, left, right);
+            generate(left, surroundingUnit);
+            generate(right, surroundingUnit);
+        } else if (input instanceof JNewExpr) {
+            final Type type = input.getType();
+            emit(relation, Database.RelationHeader.fromNames("id", "type"), input, type);
+            generate(type);
+        } else if (input instanceof JArrayRef) {
+            final Value base = ((JArrayRef) input).getBase();
+            final Value index = ((JArrayRef) input).getIndex();
+            emit(relation, Database.RelationHeader.fromNames("id", "base", "index"), input, base, index);
+            generate(base, surroundingUnit);
+            generate(index, surroundingUnit);
+        } else if (input instanceof JCastExpr) {
+            final Value op = ((JCastExpr) input).getOp();
+            final Type type = input.getType();
+            emit(relation, Database.RelationHeader.fromNames("id", "op", "type"), input, op, type);
+            generate(op, surroundingUnit);
+            generate(type);
+        } else if (input instanceof NullConstant) {
+            emit(relation, Database.RelationHeader.fromNames("id"), input);
+        } else if (input instanceof JCaughtExceptionRef) {
+            emit(relation, Database.RelationHeader.fromNames("id"), input);
+        } else if (input instanceof JNewArrayExpr) {
+            final Type baseType = ((JNewArrayExpr) input).getBaseType();
+            final Value size = ((JNewArrayExpr) input).getSize();
+            emit(relation, Database.RelationHeader.fromNames("id", "baseType", "size"), input, baseType, size);
+            generate(baseType);
+            generate(size, surroundingUnit);
+        } else if (input instanceof JLengthExpr) {
+            final Value op = ((JLengthExpr) input).getOp();
+            emit(relation, Database.RelationHeader.fromNames("id", "op"), input, op);
+            generate(op, surroundingUnit);
+        } else if (input instanceof JNegExpr) {
+            final Value op = ((JNegExpr) input).getOp();
+            emit(relation, Database.RelationHeader.fromNames("id", "op"), input, op);
+            generate(op, surroundingUnit);
+        } else if (input instanceof JInstanceOfExpr) {
+            final Value op = ((JInstanceOfExpr) input).getOp();
+            final Type type = ((JInstanceOfExpr) input).getCheckType();
+            emit(relation, Database.RelationHeader.fromNames("id", "op", "type"), input, op, type);
+            generate(op, surroundingUnit);
+            generate(type);
+        } else if (input instanceof JNewMultiArrayExpr) {
+            final ArrayType baseType = ((JNewMultiArrayExpr) input).getBaseType();
+            emit(relation, Database.RelationHeader.fromNames("id", "baseType"), input, baseType);
+            generate(baseType);
+            for (int i = 0; i < ((JNewMultiArrayExpr) input).getSizeCount(); i++) {
+                final Value size = ((JNewMultiArrayExpr) input).getSize(i);
+                emit("NewMultiArraySizes", Database.RelationHeader.fromNames("arrayExprId", "index", "sizeValueId"), input, i, size);
+                generate(size, surroundingUnit);
+            }
+        } else if (input instanceof ClassConstant) {
+            final String value = ((ClassConstant) input).value;
+            emit(relation, Database.RelationHeader.fromPairs("id", Integer.class, "value", String.class), input, value);
+        } else {
+            throw new IllegalArgumentException("Unhandled value kind " + input.getClass());
+        }
+    }
+
+    private void generateMethodInvocationArguments(final Unit surroundingUnit, final Value input, final List<Value> arguments) {
+        int index = 0;
+        for (final Value argument : arguments) {
+            emit("MethodInvocationArguments", Database.RelationHeader.fromNames("invokeId", "index", "argument"), input, index++, argument);
+            generate(argument, surroundingUnit);
+        }
+    }
+
+    private void generate(final SootField input) {
+        if (this.seen.add(input)) {
+            final String relation = input.getClass().getSimpleName();
+            final SootClass declaringClass = input.getDeclaringClass();
+            final String name = input.getName();
+            final Type type = input.getType();
+            emit(relation, Database.RelationHeader.fromPairs("id", Integer.class, "name", String.class, "declaringClass", String.class, "type", Integer.class), input, name, declaringClass.getName(), type);
+            generate(type);
+        }
+    }
+
+    private void generate(final SootMethod input) {
+        if (this.seen.add(input)) {
+            final String relation = input.getClass().getSimpleName();
+            final SootClass declaringClass = input.getDeclaringClass();
+            final String name = input.getName();
+            final List<Type> parameterTypes = input.getParameterTypes();
+            final boolean isStatic = input.isStatic();
+            final Type returnType = input.getReturnType();
+            emit(relation, Database.RelationHeader.fromPairs("id", Integer.class, "name", String.class, "declaringClass", String.class, "isStatic", Boolean.class, "returnType", Integer.class), input, name, declaringClass.getName(), isStatic, returnType);
+            generate(returnType);
+            int index = 0;
+            for (final Type parameterType : parameterTypes) {
+                emit("MethodParameters", Database.RelationHeader.fromNames("methodId", "index", "parameterType"), input, index++, parameterType);
+                generate(parameterType);
+            }
+        }
+    }
+
+    private void generate(final Type input) {
+        if (this.seen.add(input)) {
+            final String relation = input.getClass().getSimpleName();
+            if (input instanceof RefType) {
+                final String name = ((RefType) input).getClassName();
+                emit(relation, Database.RelationHeader.fromPairs("id", Integer.class, "name", String.class), input, name);
+            } else if (input instanceof PrimType || input instanceof VoidType) {
+                emit(relation, Database.RelationHeader.fromNames("id"), input);
+            } else if (input instanceof ArrayType) {
+                final Type baseType = ((ArrayType) input).getElementType();
+                emit(relation, Database.RelationHeader.fromNames("id", "baseType"), input, baseType);
+                generate(baseType);
+            } else {
+                throw new IllegalArgumentException("Unhandled type kind " + input.getClass());
+            }
+        }
+    }
+
+    public static final class RawFact {
+        public final String relation;
+        public final Database.RelationHeader header;
+        public final Object[] values;
+        public final Unit owner;
+
+        private RawFact(final String relation, final Database.RelationHeader header, final Object[] values, final Unit owner) {
+            this.relation = relation;
+            this.header = header;
+            this.values = values;
+            this.owner = owner;
+        }
+    }
+
+}
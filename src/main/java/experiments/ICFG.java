@@ -4,7 +4,6 @@ import heros.InterproceduralCFG;
 import org.eclipse.viatra.query.runtime.base.itc.graphimpl.DotGenerator;
 import org.eclipse.viatra.query.runtime.base.itc.graphimpl.Graph;
 import org.eclipse.viatra.query.runtime.base.itc.igraph.IGraphObserver;
-import org.eclipse.viatra.query.runtime.matchers.util.EclipseCollectionsSetMemory;
 import org.eclipse.viatra.query.runtime.matchers.util.IMemoryView;
 import soot.SootMethod;
 import soot.Unit;
@@ -13,86 +12,244 @@ import soot.jimple.toolkits.ide.icfg.JimpleBasedInterproceduralCFG;
 import java.io.File;
 import java.io.PrintWriter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * The interprocedural control flow graph as a VIATRA graph data source, so that VIATRA's incremental transitive
+ * closure algorithms can run on it. The graph is fully mutable: edges and nodes can be inserted and deleted, and all
+ * attached observers are notified of every change after it has been made.
+ * <p>
+ * Both the outgoing and the incoming edges of each node are indexed in concurrent sets that are changed in place. The
+ * nodes are guarded by a fixed number of striped locks, and a change to an edge holds the locks of both of its end
+ * points, so the outgoing edges of the source and the incoming edges of the target always agree. The views returned by
+ * {@link #getTargetNodes} and {@link #getSourceNodes} are live and weakly consistent: they can be iterated while the
+ * graph is being changed, and may or may not reflect changes made during the iteration. The node set keeps the
+ * insertion order, which makes iteration deterministic.
+ */
 public class ICFG
         extends Graph<Unit> {
 
+    private static final int LOCK_STRIPES = 64;
+    private static final NodeSet EMPTY = new NodeSet(Collections.emptySet());
+
     private final Set<Unit> nodes;
-    private final Map<Unit, EclipseCollectionsSetMemory<Unit>> edges;
-    private static final EclipseCollectionsSetMemory<Unit> EMPTY = new EclipseCollectionsSetMemory<>();
+    private final ConcurrentMap<Unit, NodeSet> targets;
+    private final ConcurrentMap<Unit, NodeSet> sources;
+    private final Object[] locks;
+    private final List<IGraphObserver<Unit>> observers;
     private final InterproceduralCFG<Unit, SootMethod> jicfg;
 
     public ICFG(final InterproceduralCFG<Unit, SootMethod> jicfg) {
-        this.nodes = Collections.synchronizedSet(new HashSet<>());
-        this.edges = Collections.synchronizedMap(new HashMap<>());
+        this.nodes = Collections.synchronizedSet(new LinkedHashSet<>());
+        this.targets = new ConcurrentHashMap<>();
+        this.sources = new ConcurrentHashMap<>();
+        this.locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            this.locks[i] = new Object();
+        }
+        this.observers = new CopyOnWriteArrayList<>();
         this.jicfg = jicfg;
     }
 
+    /**
+     * Loads the nodes and edges of a materialized graph, see {@link ICFGExtractor}. The nodes are iterated in the order
+     * of the given graph.
+     */
+    public ICFG(final InterproceduralCFG<Unit, SootMethod> jicfg, final CompactGraph<Unit> graph) {
+        this(jicfg);
+        this.nodes.addAll(graph.getNodes());
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            final int outDegree = graph.outDegree(node);
+            if (outDegree > 0) {
+                final NodeSet nodeTargets = neighbours(this.targets, graph.node(node));
+                for (int i = 0; i < outDegree; i++) {
+                    nodeTargets.units.add(graph.node(graph.target(node, i)));
+                }
+            }
+            final int inDegree = graph.inDegree(node);
+            if (inDegree > 0) {
+                final NodeSet nodeSources = neighbours(this.sources, graph.node(node));
+                for (int i = 0; i < inDegree; i++) {
+                    nodeSources.units.add(graph.node(graph.source(node, i)));
+                }
+            }
+        }
+    }
+
     public SootMethod getMethodOf(final Unit unit) {
         return this.jicfg.getMethodOf(unit);
     }
 
+    /**
+     * Inserts the given edge, and its end points if they are not part of the graph yet. Inserting an existing edge has
+     * no effect.
+     */
     @Override
     public void insertEdge(final Unit source, final Unit target) {
-        this.insertNode(source);
-        this.insertNode(target);
-        this.edges.compute(source, (key, value) -> {
-            if (value == null) {
-                value = new EclipseCollectionsSetMemory<>();
+        final boolean newSource;
+        final boolean newTarget;
+        final boolean inserted;
+        synchronized (firstLock(source, target)) {
+            synchronized (secondLock(source, target)) {
+                newSource = this.nodes.add(source);
+                newTarget = this.nodes.add(target);
+                inserted = neighbours(this.targets, source).units.add(target);
+                if (inserted) {
+                    neighbours(this.sources, target).units.add(source);
+                }
+            }
+        }
+        if (newSource) {
+            notifyNodeInserted(source);
+        }
+        if (newTarget) {
+            notifyNodeInserted(target);
+        }
+        if (inserted) {
+            for (final IGraphObserver<Unit> observer : this.observers) {
+                observer.edgeInserted(source, target);
             }
-            value.add(target);
-            return value;
-        });
+        }
     }
 
     @Override
     public void deleteEdgeIfExists(final Unit source, final Unit target) {
-        throw new UnsupportedOperationException();
+        deleteEdge(source, target);
     }
 
     @Override
     public void deleteEdgeThatExists(final Unit source, final Unit target) {
-        throw new UnsupportedOperationException();
+        if (!deleteEdge(source, target)) {
+            throw new IllegalStateException("No edge from " + source + " to " + target);
+        }
+    }
+
+    private boolean deleteEdge(final Unit source, final Unit target) {
+        synchronized (firstLock(source, target)) {
+            synchronized (secondLock(source, target)) {
+                final NodeSet sourceTargets = this.targets.get(source);
+                if (sourceTargets == null || !sourceTargets.units.remove(target)) {
+                    return false;
+                }
+                this.sources.get(target).units.remove(source);
+            }
+        }
+        for (final IGraphObserver<Unit> observer : this.observers) {
+            observer.edgeDeleted(source, target);
+        }
+        return true;
     }
 
     @Override
     public void insertNode(final Unit node) {
-        this.nodes.add(node);
+        final boolean inserted;
+        synchronized (lockOf(node)) {
+            inserted = this.nodes.add(node);
+        }
+        if (inserted) {
+            notifyNodeInserted(node);
+        }
     }
 
+    /**
+     * Deletes the given node together with its incoming and outgoing edges. Observers are notified of the deletion of
+     * each edge before the deletion of the node.
+     */
     @Override
     public void deleteNode(final Unit node) {
-        throw new UnsupportedOperationException();
+        while (true) {
+            for (final Unit target : getTargetNodes(node).distinctValues()) {
+                deleteEdge(node, target);
+            }
+            for (final Unit source : getSourceNodes(node).distinctValues()) {
+                deleteEdge(source, node);
+            }
+            synchronized (lockOf(node)) {
+                // edges that were inserted concurrently are deleted in the next round
+                if (!getTargetNodes(node).isEmpty() || !getSourceNodes(node).isEmpty()) {
+                    continue;
+                }
+                this.targets.remove(node);
+                this.sources.remove(node);
+                if (!this.nodes.remove(node)) {
+                    return;
+                }
+            }
+            for (final IGraphObserver<Unit> observer : this.observers) {
+                observer.nodeDeleted(node);
+            }
+            return;
+        }
     }
 
     @Override
     public void attachObserver(final IGraphObserver<Unit> go) {
-        throw new UnsupportedOperationException();
+        this.observers.add(go);
     }
 
     @Override
     public void attachAsFirstObserver(final IGraphObserver<Unit> observer) {
-        throw new UnsupportedOperationException();
+        this.observers.add(0, observer);
     }
 
     @Override
     public void detachObserver(final IGraphObserver<Unit> go) {
-        throw new UnsupportedOperationException();
+        this.observers.remove(go);
     }
 
+    /**
+     * @return a read-only snapshot of the nodes in insertion order, changes go through the graph so that observers are
+     * notified
+     */
     @Override
     public Set<Unit> getAllNodes() {
-        return this.nodes;
+        synchronized (this.nodes) {
+            return Collections.unmodifiableSet(new LinkedHashSet<>(this.nodes));
+        }
+    }
+
+    public boolean containsNode(final Unit node) {
+        return this.nodes.contains(node);
     }
 
     @Override
     public IMemoryView<Unit> getTargetNodes(final Unit source) {
-        return this.edges.getOrDefault(source, EMPTY);
+        return this.targets.getOrDefault(source, EMPTY);
     }
 
     @Override
     public IMemoryView<Unit> getSourceNodes(final Unit target) {
-        throw new UnsupportedOperationException();
+        return this.sources.getOrDefault(target, EMPTY);
+    }
+
+    private void notifyNodeInserted(final Unit node) {
+        for (final IGraphObserver<Unit> observer : this.observers) {
+            observer.nodeInserted(node);
+        }
+    }
+
+    private static NodeSet neighbours(final ConcurrentMap<Unit, NodeSet> adjacency, final Unit node) {
+        return adjacency.computeIfAbsent(node, key -> new NodeSet(ConcurrentHashMap.newKeySet()));
+    }
+
+    private Object lockOf(final Unit node) {
+        return this.locks[stripe(node)];
+    }
+
+    /** The locks of the two end points of an edge are always taken in the order of their stripes. */
+    private Object firstLock(final Unit source, final Unit target) {
+        return this.locks[Math.min(stripe(source), stripe(target))];
+    }
+
+    private Object secondLock(final Unit source, final Unit target) {
+        return this.locks[Math.max(stripe(source), stripe(target))];
+    }
+
+    private static int stripe(final Unit node) {
+        final int hash = node.hashCode();
+        return (hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1);
     }
 
     @Override
@@ -126,4 +283,58 @@ public class ICFG
                 .replace("'", "\\'")
                 .replace("\"", "\\\"");
     }
+
+    /**
+     * The neighbours of a node. The set is changed in place while the locks of the node are held, and can be read at any
+     * time.
+     */
+    private static final class NodeSet
+            implements IMemoryView<Unit> {
+
+        private final Set<Unit> units;
+
+        private NodeSet(final Set<Unit> units) {
+            this.units = units;
+        }
+
+        @Override
+        public int getCount(final Unit value) {
+            return this.units.contains(value) ? 1 : 0;
+        }
+
+        @Override
+        public int getCountUnsafe(final Object value) {
+            return this.units.contains(value) ? 1 : 0;
+        }
+
+        @Override
+        public boolean containsNonZero(final Unit value) {
+            return this.units.contains(value);
+        }
+
+        @Override
+        public boolean containsNonZeroUnsafe(final Object value) {
+            return this.units.contains(value);
+        }
+
+        @Override
+        public int size() {
+            return this.units.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return this.units.isEmpty();
+        }
+
+        @Override
+        public Set<Unit> distinctValues() {
+            return Collections.unmodifiableSet(this.units);
+        }
+
+        @Override
+        public Iterator<Unit> iterator() {
+            return distinctValues().iterator();
+        }
+    }
 }
@@ -1,84 +1,230 @@
 package experiments;
 
-import heros.DefaultSeeds;
-import heros.FlowFunction;
-import heros.FlowFunctions;
 import heros.InterproceduralCFG;
 import soot.Scene;
+import soot.SootContext;
 import soot.SootMethod;
 import soot.Unit;
-import soot.jimple.toolkits.ide.DefaultJimpleIFDSTabulationProblem;
 
-import java.util.Collections;
-import java.util.Map;
-import java.util.Set;
-
-import com.google.common.collect.Sets;
-
-public class ICFGExtractor
-    extends DefaultJimpleIFDSTabulationProblem<Number, InterproceduralCFG<Unit, SootMethod>>
-    implements FlowFunctions<Unit, Number, SootMethod> {
-
-    final private ICFG jicfg;
-    final private static Set<Number> ZERO_SET = Sets.newHashSet(0);
-    final private FlowFunction<Number> zeroFunction = number -> ZERO_SET;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Materializes the interprocedural control flow graph that is reachable from the main method, without running a
+ * solver. The edges are the ones an IFDS solver would visit with a single zero fact: normal edges between the units of
+ * a method, call edges from a call site to the first unit of each callee, return edges from the reachable exits of each
+ * callee to the return sites of the call, and call-to-return edges.
+ * <p>
+ * The reachable methods are explored breadth first, with the methods of each level processed in parallel, and the
+ * edges of the reachable methods are then enumerated in parallel as well. The result is a {@link CompactGraph} whose
+ * node order only depends on the program, not on the number of threads.
+ */
+public class ICFGExtractor {
+
+    private final InterproceduralCFG<Unit, SootMethod> jicfg;
+    private final int parallelism;
+    private CompactGraph<Unit> graph;
+    private ICFG icfg;
 
     public ICFGExtractor(final InterproceduralCFG<Unit, SootMethod> jicfg) {
-        super(jicfg);
-        this.jicfg = new ICFG(jicfg);
+        this(jicfg, Runtime.getRuntime().availableProcessors());
     }
 
-    private void insertEdge(final Unit source, final Unit target) {
-        this.jicfg.insertNode(source);
-        this.jicfg.insertNode(target);
-        this.jicfg.insertEdge(source, target);
+    public ICFGExtractor(final InterproceduralCFG<Unit, SootMethod> jicfg, final int parallelism) {
+        this.jicfg = jicfg;
+        this.parallelism = parallelism;
     }
 
-    @Override
-    public FlowFunction<Number> getNormalFlowFunction(final Unit predecessor, final Unit successor) {
-        insertEdge(predecessor, successor);
-        return zeroFunction;
+    public ICFG getICFG() {
+        if (this.icfg == null) {
+            this.icfg = new ICFG(this.jicfg, getGraph());
+        }
+        return this.icfg;
     }
 
-    @Override
-    public FlowFunction<Number> getCallFlowFunction(final Unit callUnit, final SootMethod calledMethod) {
-        insertEdge(callUnit, calledMethod.getActiveBody().getUnits().getFirst());
-        return zeroFunction;
+    public CompactGraph<Unit> getGraph() {
+        if (this.graph == null) {
+            final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, this.parallelism));
+            try {
+                this.graph = materialize(executor);
+            } finally {
+                executor.shutdown();
+            }
+        }
+        return this.graph;
     }
 
-    @Override
-    public FlowFunction<Number> getReturnFlowFunction(final Unit callUnit,
-                                                      final SootMethod calledMethod,
-                                                      final Unit exitUnit,
-                                                      final Unit returnUnit) {
-        insertEdge(exitUnit, returnUnit);
-        return zeroFunction;
+    private CompactGraph<Unit> materialize(final ExecutorService executor) {
+        // explore the reachable methods level by level, the order of the levels makes the result deterministic
+        final Map<SootMethod, ReachableMethod> reachable = new LinkedHashMap<>();
+        final Set<SootMethod> discovered = new HashSet<>();
+        List<SootMethod> frontier = Collections.singletonList(Scene.v().getMainMethod());
+        discovered.addAll(frontier);
+        while (!frontier.isEmpty()) {
+            final List<SootMethod> next = new ArrayList<>();
+            for (final ReachableMethod method : map(executor, frontier, this::explore)) {
+                reachable.put(method.method, method);
+                for (final SootMethod callee : method.callees) {
+                    if (discovered.add(callee)) {
+                        next.add(callee);
+                    }
+                }
+            }
+            frontier = next;
+        }
+
+        final List<Unit> nodes = new ArrayList<>();
+        final Map<Unit, Integer> ids = new IdentityHashMap<>();
+        for (final ReachableMethod method : reachable.values()) {
+            for (final Unit unit : method.units) {
+                ids.put(unit, nodes.size());
+                nodes.add(unit);
+            }
+        }
+
+        final List<EdgeList> edgeLists = map(executor, new ArrayList<>(reachable.values()), method -> edgesOf(method, reachable, ids));
+        int edgeCount = 0;
+        for (final EdgeList edges : edgeLists) {
+            edgeCount += edges.size;
+        }
+        final int[] sources = new int[edgeCount];
+        final int[] targets = new int[edgeCount];
+        int position = 0;
+        for (final EdgeList edges : edgeLists) {
+            System.arraycopy(edges.sources, 0, sources, position, edges.size);
+            System.arraycopy(edges.targets, 0, targets, position, edges.size);
+            position += edges.size;
+        }
+        return new CompactGraph<>(nodes, sources, targets, edgeCount);
     }
 
-    @Override
-    public FlowFunction<Number> getCallToReturnFlowFunction(final Unit callUnit, final Unit returnUnit) {
-        insertEdge(callUnit, returnUnit);
-        return zeroFunction;
+    /**
+     * Collects the units of the given method that are reachable from its start points, and the callees of the
+     * reachable call sites. Reachability within a method does not depend on the calling context, so each method only
+     * needs to be explored once.
+     */
+    private ReachableMethod explore(final SootMethod method) {
+        final Set<Unit> reached = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Deque<Unit> worklist = new ArrayDeque<>(this.jicfg.getStartPointsOf(method));
+        reached.addAll(worklist);
+        while (!worklist.isEmpty()) {
+            // the return sites of a call are its successors, so calls need no special treatment here
+            for (final Unit successor : this.jicfg.getSuccsOf(worklist.poll())) {
+                if (reached.add(successor)) {
+                    worklist.add(successor);
+                }
+            }
+        }
+
+        final Unit first = method.getActiveBody().getUnits().getFirst();
+        final List<Unit> units = new ArrayList<>();
+        final List<Unit> exits = new ArrayList<>();
+        final Set<SootMethod> callees = new LinkedHashSet<>();
+        // keep the body order, and the first unit as the target of call edges even if it is not a start point
+        for (final Unit unit : method.getActiveBody().getUnits()) {
+            if (reached.contains(unit)) {
+                units.add(unit);
+                if (this.jicfg.isCallStmt(unit)) {
+                    callees.addAll(this.jicfg.getCalleesOfCallAt(unit));
+                }
+                if (this.jicfg.isExitStmt(unit)) {
+                    exits.add(unit);
+                }
+            } else if (unit == first) {
+                units.add(unit);
+            }
+        }
+        return new ReachableMethod(method, units, reached, exits, callees);
     }
 
-    @Override
-    protected FlowFunctions<Unit, Number, SootMethod> createFlowFunctionsFactory() {
-        return this;
+    private EdgeList edgesOf(final ReachableMethod method, final Map<SootMethod, ReachableMethod> reachable, final Map<Unit, Integer> ids) {
+        final EdgeList edges = new EdgeList();
+        for (final Unit unit : method.units) {
+            if (!method.reached.contains(unit)) {
+                continue;
+            }
+            final int source = ids.get(unit);
+            if (this.jicfg.isCallStmt(unit)) {
+                final Collection<Unit> returnSites = this.jicfg.getReturnSitesOfCallAt(unit);
+                for (final SootMethod callee : this.jicfg.getCalleesOfCallAt(unit)) {
+                    edges.add(source, ids.get(callee.getActiveBody().getUnits().getFirst()));
+                    for (final Unit exit : reachable.get(callee).exits) {
+                        for (final Unit returnSite : returnSites) {
+                            edges.add(ids.get(exit), ids.get(returnSite));
+                        }
+                    }
+                }
+                for (final Unit returnSite : returnSites) {
+                    edges.add(source, ids.get(returnSite));
+                }
+            } else {
+                for (final Unit successor : this.jicfg.getSuccsOf(unit)) {
+                    edges.add(source, ids.get(successor));
+                }
+            }
+        }
+        return edges;
     }
 
-    @Override
-    protected Number createZeroValue() {
-        return 0;
+    /**
+     * Applies the given function to all inputs on the executor and returns the results in the order of the inputs.
+     */
+    private static <T, R> List<R> map(final ExecutorService executor, final List<T> inputs, final Function<T, R> function) {
+        final List<Future<R>> futures = new ArrayList<>(inputs.size());
+        for (final T input : inputs) {
+            futures.add(executor.submit(SootContext.wrap(() -> function.apply(input))));
+        }
+        final List<R> results = new ArrayList<>(inputs.size());
+        try {
+            for (final Future<R> future : futures) {
+                results.add(future.get());
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (final ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        return results;
     }
 
-    @Override
-    public Map<Unit, Set<Number>> initialSeeds() {
-        return DefaultSeeds.make(Collections.singleton(Scene.v().getMainMethod().getActiveBody().getUnits().getFirst()),
-            zeroValue());
+    private static final class ReachableMethod {
+        private final SootMethod method;
+        // the nodes contributed by this method, in body order
+        private final List<Unit> units;
+        private final Set<Unit> reached;
+        // the reachable exits, only these return to the callers
+        private final List<Unit> exits;
+        private final Set<SootMethod> callees;
+
+        private ReachableMethod(final SootMethod method, final List<Unit> units, final Set<Unit> reached, final List<Unit> exits,
+                                final Set<SootMethod> callees) {
+            this.method = method;
+            this.units = units;
+            this.reached = reached;
+            this.exits = exits;
+            this.callees = callees;
+        }
     }
 
-    public ICFG getICFG() {
-        return this.jicfg;
+    private static final class EdgeList {
+        private int[] sources = new int[16];
+        private int[] targets = new int[16];
+        private int size;
+
+        private void add(final int source, final int target) {
+            if (this.size == this.sources.length) {
+                this.sources = Arrays.copyOf(this.sources, 2 * this.size);
+                this.targets = Arrays.copyOf(this.targets, 2 * this.size);
+            }
+            this.sources[this.size] = source;
+            this.targets[this.size] = target;
+            this.size++;
+        }
     }
 
 }
@@ -1,8 +1,6 @@
 package experiments;
 
 import com.google.common.collect.ImmutableMap;
-import heros.InterproceduralCFG;
-import heros.solver.IFDSSolver;
 import org.apache.commons.io.FileUtils;
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuples;
@@ -11,7 +9,10 @@ import soot.jimple.toolkits.ide.icfg.JimpleBasedInterproceduralCFG;
 import soot.options.Options;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 // dot -Tpdf icfg.dot  -o icfg.pdf
 public class ICFGTest {
@@ -29,13 +30,33 @@ public class ICFGTest {
 
     public static final String JAVA_HOME_RT = "/Library/Java/JavaVirtualMachines/jdk1.8.0_281.jdk/Contents/Home/jre/lib/rt.jar";
     public static final String OUTPUT_FOLDER = "/Users/tamas.szabo/git/soot.experiments/facts";
+    // maintain the fact database incrementally instead of re-extracting it after every change
+    public static final boolean INCREMENTAL = true;
+    // keep entity ids stable across runs by loading and saving the id map next to the facts
+    public static final boolean PERSIST_IDS = false;
+    public static final FactFiles.Format FORMAT = FactFiles.Format.TSV;
+    public static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
 
     public static void main(final String[] args) {
         final Tuple benchmarkData = BENCHMARKS.get(BENCHMARK);
         final String CLASSPATH = benchmarkData.get(0) + File.pathSeparator + JAVA_HOME_RT;
 
+        configureSoot(CLASSPATH, (String) benchmarkData.get(1));
+
+        final Transform transform = new Transform("wjtp.ifds", createFactExtractor());
+        PackManager.v().getPack("wjtp").add(transform);
+
+        //Apply all necessary packs of soot. This will execute the respective Transformer
+        PackManager.v().getPack("cg").apply();
+        PackManager.v().getPack("wjtp").apply();
+    }
+
+    /**
+     * Resets Soot and sets it up for a whole-program analysis of the given main class, with a CHA call graph.
+     */
+    public static void configureSoot(final String classpath, final String mainClassName) {
         G.reset();
-        Options.v().set_soot_classpath(CLASSPATH);
+        Options.v().set_soot_classpath(classpath);
 
         // We want to perform a whole program, i.e. an inter-procedural analysis.
         // We construct a basic CHA call graph for the program
@@ -49,18 +70,11 @@ public class ICFGTest {
         Options.v().set_prepend_classpath(false);
 
         Scene.v().addBasicClass("java.lang.StringBuilder");
-        final SootClass mainClass = Scene.v().forceResolve((String) benchmarkData.get(1), SootClass.BODIES);
+        final SootClass mainClass = Scene.v().forceResolve(mainClassName, SootClass.BODIES);
         if (mainClass != null) {
             mainClass.setApplicationClass();
         }
         Scene.v().loadNecessaryClasses();
-
-        final Transform transform = new Transform("wjtp.ifds", createFactExtractor());
-        PackManager.v().getPack("wjtp").add(transform);
-
-        //Apply all necessary packs of soot. This will execute the respective Transformer
-        PackManager.v().getPack("cg").apply();
-        PackManager.v().getPack("wjtp").apply();
     }
 
     private static Transformer createFactExtractor() {
@@ -68,11 +82,7 @@ public class ICFGTest {
             @Override
             protected void internalTransform(final String phaseName, final Map<String, String> options) {
                 final JimpleBasedInterproceduralCFG jicfg = new JimpleBasedInterproceduralCFG();
-                final ICFGExtractor extractor = new ICFGExtractor(jicfg);
-                final IFDSSolver<Unit, Number, SootMethod, InterproceduralCFG<Unit, SootMethod>> solver =
-                        new IFDSSolver<>(extractor);
-                solver.solve();
-                final ICFG icfg = extractor.getICFG();
+                final ICFG icfg = new ICFGExtractor(jicfg, PARALLELISM).getICFG();
 
                 // cleanup
                 try {
@@ -81,17 +91,51 @@ public class ICFGTest {
                     throw new RuntimeException(e);
                 }
 
-                Database oldDatabase = null;
-                Database newDatabase;
-
-                int index = 0;
-                do {
-                    final File outputFolder = new File(OUTPUT_FOLDER + File.separator + BENCHMARK + File.separator + index);
-                    newDatabase = new Facts(icfg).asDatabase();
-                    Database.writeToFile(Database.computeDiff(oldDatabase, newDatabase), outputFolder);
-                    oldDatabase = newDatabase;
-                    index++;
-                } while (index <= 1000 && ProgramChanger.tryRewrite(icfg));
+                final File idMap = new File(OUTPUT_FOLDER + File.separator + BENCHMARK + ".ids");
+                final EntityIds ids = new EntityIds(icfg::getMethodOf, PERSIST_IDS);
+                if (PERSIST_IDS && idMap.exists()) {
+                    try {
+                        ids.load(idMap);
+                    } catch (final IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+
+                if (INCREMENTAL) {
+                    final Facts facts = new Facts(icfg, ids, PARALLELISM, new Database.SymbolTable(), true);
+                    final Set<Unit> changedUnits = new LinkedHashSet<>();
+                    final ProgramChanger.RewriteListener listener = (unit, oldValue, newValue) -> changedUnits.add(unit);
+
+                    int index = 0;
+                    Database.writeToFile(Database.computeDiff(null, facts.asDatabase()),
+                            new File(OUTPUT_FOLDER + File.separator + BENCHMARK + File.separator + index), FORMAT);
+                    while (++index <= 1000 && ProgramChanger.tryRewrite(icfg, listener)) {
+                        final File outputFolder = new File(OUTPUT_FOLDER + File.separator + BENCHMARK + File.separator + index);
+                        Database.writeToFile(facts.update(changedUnits), outputFolder, FORMAT);
+                        changedUnits.clear();
+                    }
+                } else {
+                    final Database.SymbolTable symbols = new Database.SymbolTable();
+                    Database oldDatabase = null;
+                    Database newDatabase;
+
+                    int index = 0;
+                    do {
+                        final File outputFolder = new File(OUTPUT_FOLDER + File.separator + BENCHMARK + File.separator + index);
+                        newDatabase = new Facts(icfg, ids, PARALLELISM, symbols).asDatabase();
+                        Database.writeToFile(Database.computeDiff(oldDatabase, newDatabase), outputFolder, FORMAT);
+                        oldDatabase = newDatabase;
+                        index++;
+                    } while (index <= 1000 && ProgramChanger.tryRewrite(icfg));
+                }
+
+                if (PERSIST_IDS) {
+                    try {
+                        ids.save(idMap);
+                    } catch (final IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
             }
 
         };
@@ -66,75 +66,83 @@ public class ProgramChanger {
 
     };
 
-    public static final Random RANDOM = new Random(1563540296429L);
+    public static final long SEED = 1563540296429L;
+    public static final Random RANDOM = new Random(SEED);
     private static final List<Change> CHANGES = ImmutableList.of(REPLACE_INT_CONSTANT, REPLACE_FIELD_REFERENCE);
 
+    public static final RewriteListener NO_LISTENER = (unit, oldValue, newValue) -> {
+    };
+
     public static boolean tryRewrite(final ICFG input) {
+        return tryRewrite(input, NO_LISTENER);
+    }
+
+    public static boolean tryRewrite(final ICFG input, final RewriteListener listener) {
         for (final Unit unit : input.getAllNodes()) {
-            if (tryRewrite(unit, TreePVector.empty())) {
+            if (tryRewrite(unit, TreePVector.empty(), listener)) {
                 return true;
             }
         }
         return false;
     }
 
-    public static boolean tryRewrite(final Unit input, final PVector<Object> ancestors) {
+    public static boolean tryRewrite(final Unit input, final PVector<Object> ancestors, final RewriteListener listener) {
         final PVector<Object> newAncestors = ancestors.plus(input);
         if (input instanceof JIdentityStmt) {
-            if (tryRewriteGuard(((JIdentityStmt) input).getLeftOp(), ((JIdentityStmt) input)::setLeftOp, newAncestors)) {
+            if (tryRewriteGuard(((JIdentityStmt) input).getLeftOp(), ((JIdentityStmt) input)::setLeftOp, newAncestors, listener)) {
                 return true;
             }
-            return tryRewriteGuard(((JIdentityStmt) input).getRightOp(), ((JIdentityStmt) input)::setRightOp, newAncestors);
+            return tryRewriteGuard(((JIdentityStmt) input).getRightOp(), ((JIdentityStmt) input)::setRightOp, newAncestors, listener);
         } else if (input instanceof JAssignStmt) {
-            if (tryRewriteGuard(((JAssignStmt) input).getLeftOp(), ((JAssignStmt) input)::setLeftOp, newAncestors)) {
+            if (tryRewriteGuard(((JAssignStmt) input).getLeftOp(), ((JAssignStmt) input)::setLeftOp, newAncestors, listener)) {
                 return true;
             }
-            return tryRewriteGuard(((JAssignStmt) input).getRightOp(), ((JAssignStmt) input)::setRightOp, newAncestors);
+            return tryRewriteGuard(((JAssignStmt) input).getRightOp(), ((JAssignStmt) input)::setRightOp, newAncestors, listener);
         } else if (input instanceof JReturnStmt) {
-            return tryRewriteGuard(((JReturnStmt) input).getOp(), ((JReturnStmt) input)::setOp, newAncestors);
+            return tryRewriteGuard(((JReturnStmt) input).getOp(), ((JReturnStmt) input)::setOp, newAncestors, listener);
         } else if (input instanceof JReturnVoidStmt) {
             return false;
         } else if (input instanceof JInvokeStmt) {
-            return tryRewriteGuard(((JInvokeStmt) input).getInvokeExpr(), ((JInvokeStmt) input)::setInvokeExpr, newAncestors);
+            return tryRewriteGuard(((JInvokeStmt) input).getInvokeExpr(), ((JInvokeStmt) input)::setInvokeExpr, newAncestors, listener);
         } else if (input instanceof JIfStmt) {
-            if (tryRewriteGuard(((JIfStmt) input).getCondition(), ((JIfStmt) input)::setCondition, newAncestors)) {
+            if (tryRewriteGuard(((JIfStmt) input).getCondition(), ((JIfStmt) input)::setCondition, newAncestors, listener)) {
                 return true;
             }
-            return tryRewrite(((JIfStmt) input).getTarget(), newAncestors);
+            return tryRewrite(((JIfStmt) input).getTarget(), newAncestors, listener);
         } else if (input instanceof JGotoStmt) {
-            return tryRewrite(((JGotoStmt) input).getTarget(), newAncestors);
+            return tryRewrite(((JGotoStmt) input).getTarget(), newAncestors, listener);
         } else if (input instanceof JTableSwitchStmt) {
-            if (tryRewriteGuard(((JTableSwitchStmt) input).getKey(), ((JTableSwitchStmt) input)::setKey, newAncestors)) {
+            if (tryRewriteGuard(((JTableSwitchStmt) input).getKey(), ((JTableSwitchStmt) input)::setKey, newAncestors, listener)) {
                 return true;
             }
             for (final Unit target : ((JTableSwitchStmt) input).getTargets()) {
-                if (tryRewrite(target, newAncestors)) {
+                if (tryRewrite(target, newAncestors, listener)) {
                     return true;
                 }
             }
-            return tryRewrite(((JTableSwitchStmt) input).getDefaultTarget(), newAncestors);
+            return tryRewrite(((JTableSwitchStmt) input).getDefaultTarget(), newAncestors, listener);
         } else if (input instanceof JLookupSwitchStmt) {
-            if (tryRewriteGuard(((JLookupSwitchStmt) input).getKey(), ((JLookupSwitchStmt) input)::setKey, newAncestors)) {
+            if (tryRewriteGuard(((JLookupSwitchStmt) input).getKey(), ((JLookupSwitchStmt) input)::setKey, newAncestors, listener)) {
                 return true;
             }
             for (final Unit target : ((JLookupSwitchStmt) input).getTargets()) {
-                if (tryRewrite(target, newAncestors)) {
+                if (tryRewrite(target, newAncestors, listener)) {
                     return true;
                 }
             }
-            return tryRewrite(((JLookupSwitchStmt) input).getDefaultTarget(), newAncestors);
+            return tryRewrite(((JLookupSwitchStmt) input).getDefaultTarget(), newAncestors, listener);
         } else if (input instanceof JThrowStmt) {
-            return tryRewriteGuard(((JThrowStmt) input).getOp(), ((JThrowStmt) input)::setOp, newAncestors);
+            return tryRewriteGuard(((JThrowStmt) input).getOp(), ((JThrowStmt) input)::setOp, newAncestors, listener);
         } else if (input instanceof JExitMonitorStmt) {
-            return tryRewriteGuard(((JExitMonitorStmt) input).getOp(), ((JExitMonitorStmt) input)::setOp, newAncestors);
+            return tryRewriteGuard(((JExitMonitorStmt) input).getOp(), ((JExitMonitorStmt) input)::setOp, newAncestors, listener);
         } else if (input instanceof JEnterMonitorStmt) {
-            return tryRewriteGuard(((JEnterMonitorStmt) input).getOp(), ((JEnterMonitorStmt) input)::setOp, newAncestors);
+            return tryRewriteGuard(((JEnterMonitorStmt) input).getOp(), ((JEnterMonitorStmt) input)::setOp, newAncestors, listener);
         } else {
             throw new IllegalArgumentException("Unhandled unit kind " + input.getClass());
         }
     }
 
-    public static Pair<Value, Boolean> tryRewrite(final Value input, final PVector<Object> ancestors) {
+    public static Pair<Value, Boolean> tryRewrite(final Value input, final PVector<Object> ancestors, final RewriteListener listener) {
         final PVector<Object> newAncestors = ancestors.plus(input);
         if (input instanceof JimpleLocal) {
             return tryRewriteRandom(input, ancestors);
@@ -147,13 +155,13 @@ public class ProgramChanger {
         } else if (input instanceof StaticFieldRef) {
             return tryRewriteRandom(input, ancestors);
         } else if (input instanceof InstanceInvokeExpr) {
-            if (tryRewriteGuard(((InstanceInvokeExpr) input).getBase(), ((InstanceInvokeExpr) input)::setBase, newAncestors)) {
+            if (tryRewriteGuard(((InstanceInvokeExpr) input).getBase(), ((InstanceInvokeExpr) input)::setBase, newAncestors, listener)) {
                 return new Pair<>(null, true);
             }
             final List<Value> arguments = ((InstanceInvokeExpr) input).getArgs();
             for (int i = 0; i < arguments.size(); i++) {
                 final int finalIndex = i;
-                if (tryRewriteGuard(arguments.get(i), a -> ((InstanceInvokeExpr) input).setArg(finalIndex, a), newAncestors)) {
+                if (tryRewriteGuard(arguments.get(i), a -> ((InstanceInvokeExpr) input).setArg(finalIndex, a), newAncestors, listener)) {
                     return new Pair<>(null, true);
                 }
             }
@@ -162,7 +170,7 @@ public class ProgramChanger {
             final List<Value> arguments = ((StaticInvokeExpr) input).getArgs();
             for (int i = 0; i < arguments.size(); i++) {
                 final int finalIndex = i;
-                if (tryRewriteGuard(arguments.get(i), a -> ((StaticInvokeExpr) input).setArg(finalIndex, a), newAncestors)) {
+                if (tryRewriteGuard(arguments.get(i), a -> ((StaticInvokeExpr) input).setArg(finalIndex, a), newAncestors, listener)) {
                     return new Pair<>(null, true);
                 }
             }
@@ -178,22 +186,22 @@ public class ProgramChanger {
         } else if (input instanceof FloatConstant) {
             return tryRewriteRandom(input, ancestors);
         } else if (input instanceof AbstractBinopExpr) {
-            if (tryRewriteGuard(((AbstractBinopExpr) input).getOp1(), ((AbstractBinopExpr) input)::setOp1, newAncestors)) {
+            if (tryRewriteGuard(((AbstractBinopExpr) input).getOp1(), ((AbstractBinopExpr) input)::setOp1, newAncestors, listener)) {
                 return new Pair<>(null, true);
             }
-            if (tryRewriteGuard(((AbstractBinopExpr) input).getOp1(), ((AbstractBinopExpr) input)::setOp1, newAncestors)) {
+            if (tryRewriteGuard(((AbstractBinopExpr) input).getOp1(), ((AbstractBinopExpr) input)::setOp1, newAncestors, listener)) {
                 return new Pair<>(null, true);
             }
             return tryRewriteRandom(input, ancestors);
         } else if (input instanceof JNewExpr) {
             return tryRewriteRandom(input, ancestors);
         } else if (input instanceof JArrayRef) {
-            if (tryRewriteGuard(((JArrayRef) input).getIndex(), ((JArrayRef) input)::setIndex, newAncestors)) {
+            if (tryRewriteGuard(((JArrayRef) input).getIndex(), ((JArrayRef) input)::setIndex, newAncestors, listener)) {
                 return new Pair<>(null, true);
             }
             return tryRewriteRandom(input, ancestors);
         } else if (input instanceof JCastExpr) {
-            if (tryRewriteGuard(((JCastExpr) input).getOp(), ((JCastExpr) input)::setOp, newAncestors)) {
+            if (tryRewriteGuard(((JCastExpr) input).getOp(), ((JCastExpr) input)::setOp, newAncestors, listener)) {
                 return new Pair<>(null, true);
             }
             return tryRewriteRandom(input, ancestors);
@@ -202,22 +210,22 @@ public class ProgramChanger {
         } else if (input instanceof JCaughtExceptionRef) {
             return tryRewriteRandom(input, ancestors);
         } else if (input instanceof JNewArrayExpr) {
-            if (tryRewriteGuard(((JNewArrayExpr) input).getSize(), ((JNewArrayExpr) input)::setSize, newAncestors)) {
+            if (tryRewriteGuard(((JNewArrayExpr) input).getSize(), ((JNewArrayExpr) input)::setSize, newAncestors, listener)) {
                 return new Pair<>(null, true);
             }
             return tryRewriteRandom(input, ancestors);
         } else if (input instanceof JLengthExpr) {
-            if (tryRewriteGuard(((JLengthExpr) input).getOp(), ((JLengthExpr) input)::setOp, newAncestors)) {
+            if (tryRewriteGuard(((JLengthExpr) input).getOp(), ((JLengthExpr) input)::setOp, newAncestors, listener)) {
                 return new Pair<>(null, true);
             }
             return tryRewriteRandom(input, ancestors);
         } else if (input instanceof JNegExpr) {
-            if (tryRewriteGuard(((JNegExpr) input).getOp(), ((JNegExpr) input)::setOp, newAncestors)) {
+            if (tryRewriteGuard(((JNegExpr) input).getOp(), ((JNegExpr) input)::setOp, newAncestors, listener)) {
                 return new Pair<>(null, true);
             }
             return tryRewriteRandom(input, ancestors);
         } else if (input instanceof JInstanceOfExpr) {
-            if (tryRewriteGuard(((JInstanceOfExpr) input).getOp(), ((JInstanceOfExpr) input)::setOp, newAncestors)) {
+            if (tryRewriteGuard(((JInstanceOfExpr) input).getOp(), ((JInstanceOfExpr) input)::setOp, newAncestors, listener)) {
                 return new Pair<>(null, true);
             }
             return tryRewriteRandom(input, ancestors);
@@ -225,7 +233,7 @@ public class ProgramChanger {
             for (int i = 0; i < ((JNewMultiArrayExpr) input).getSizeCount(); i++) {
                 final int finalIndex = i;
                 final Value size = ((JNewMultiArrayExpr) input).getSize(i);
-                if (tryRewriteGuard(size, s -> ((JNewMultiArrayExpr) input).setSize(finalIndex, s), newAncestors)) {
+                if (tryRewriteGuard(size, s -> ((JNewMultiArrayExpr) input).setSize(finalIndex, s), newAncestors, listener)) {
                     return new Pair<>(null, true);
                 }
             }
@@ -249,17 +257,39 @@ public class ProgramChanger {
         }
     }
 
-    public static boolean tryRewriteGuard(final Value value, final Consumer<Value> consumer, final PVector<Object> ancestors) {
-        final Pair<Value, Boolean> pair = tryRewrite(value, ancestors);
+    public static boolean tryRewriteGuard(final Value value, final Consumer<Value> consumer, final PVector<Object> ancestors,
+                                          final RewriteListener listener) {
+        final Pair<Value, Boolean> pair = tryRewrite(value, ancestors, listener);
         final Value rewrittenValue = pair.getO1();
         if (rewrittenValue != null) {
             consumer.accept(rewrittenValue);
+            listener.rewritten(owningUnit(ancestors), value, rewrittenValue);
             return true;
         } else {
             return pair.getO2();
         }
     }
 
+    private static Unit owningUnit(final PVector<Object> ancestors) {
+        for (int i = ancestors.size() - 1; i >= 0; i--) {
+            if (ancestors.get(i) instanceof Unit) {
+                return (Unit) ancestors.get(i);
+            }
+        }
+        throw new IllegalStateException("Rewritten value is not nested in a unit " + ancestors);
+    }
+
+    /**
+     * Gets notified about every in-place rewrite, so that consumers such as {@link Facts#update} only need to look at
+     * the units that actually changed.
+     */
+    @FunctionalInterface
+    public interface RewriteListener {
+
+        void rewritten(Unit unit, Value oldValue, Value newValue);
+
+    }
+
     public abstract static class Change implements BiPredicate<Value, PVector<Object>>, Function<Value, Value> {
 
         public abstract String getName();
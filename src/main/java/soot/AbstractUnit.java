@@ -26,12 +26,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-import soot.tagkit.AbstractHost;
+import soot.tagkit.PackedTagHost;
 import soot.util.Switch;
 
 /** Provides default implementations for the methods in Unit. */
 @SuppressWarnings("serial")
-public abstract class AbstractUnit extends AbstractHost implements Unit {
+public abstract class AbstractUnit extends PackedTagHost implements Unit {
 
   /** Returns a deep clone of this object. */
   public abstract Object clone();
@@ -63,6 +63,16 @@ public abstract class AbstractUnit extends AbstractHost implements Unit {
     return Collections.emptyList();
   }
 
+  /** The {@link UnitArrayChain} that contains this Unit, and the position of this Unit in its array. */
+  transient Object chainOwner;
+  transient int chainIndex;
+
+  /**
+   * The number of this Unit, 0 until it is first asked for, see {@link UnitNumberer}. The number belongs to the numberer of
+   * the Scene, a deserialized Unit is numbered again.
+   */
+  transient volatile int number = 0;
+
   /** List of UnitBoxes pointing to this Unit. */
   protected List<UnitBox> boxesPointingToThis = null;
 
@@ -116,6 +126,18 @@ public abstract class AbstractUnit extends AbstractHost implements Unit {
     }
   }
 
+  /** Returns the number of this Unit, numbering it by the {@link Scene#getUnitNumberer() unit numberer} if needed. */
+  @Override
+  public final int getNumber() {
+    int n = number;
+    return n != 0 ? n : Scene.v().getUnitNumberer().assign(this);
+  }
+
+  @Override
+  public final void setNumber(int number) {
+    this.number = number;
+  }
+
   /** Used to implement the Switchable construct. */
   @Override
   public void apply(Switch sw) {
@@ -37,7 +37,12 @@ public abstract class AbstractValueBox extends AbstractHost implements ValueBox
       throw new IllegalArgumentException("value may not be null");
     }
     if (canContainValue(value)) {
+      Value oldValue = this.value;
       this.value = value;
+      if (oldValue != null && oldValue != value) {
+        BodyChangeLog.valueReplaced(this, oldValue, value);
+        BodyStore.valueReplaced();
+      }
     } else {
       throw new RuntimeException("Box " + this + " cannot contain value: " + value + "(" + value.getClass() + ")");
     }
@@ -0,0 +1,341 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An index of the entries of a zip or jar archive, read once from its central directory. Entries are read from a
+ * memory-mapped view of the archive, only the requested entry is inflated. An index is immutable and may be used from any
+ * thread.
+ *
+ * <p>
+ * Archives that cannot be mapped, i.e. archives larger than 2GB, zip64 archives and archives with data in front of the
+ * first entry, are read through a single {@link ZipFile} instead, which is opened when the index is first read and shared by
+ * all threads. It is closed by {@link #close()}, and opened again if the index is read afterwards.
+ * </p>
+ */
+public final class ArchiveIndex {
+  private static final Logger logger = LoggerFactory.getLogger(ArchiveIndex.class);
+
+  private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+  private static final int CENTRAL_DIRECTORY_ENTRY = 0x02014b50;
+  private static final int LOCAL_HEADER = 0x04034b50;
+  private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+  private static final int MAX_COMMENT_SIZE = 0xffff;
+  private static final int STORED = 0;
+  private static final int DEFLATED = 8;
+
+  /** Inflaters are expensive to create, they are shared by all archives. */
+  private static final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<Inflater>();
+
+  /** The indices shared by all Scenes, by absolute path of the archive. */
+  private static final Map<String, ArchiveIndex> shared = new ConcurrentHashMap<String, ArchiveIndex>();
+
+  private final File file;
+  private final long length;
+  private final long lastModified;
+  private final List<String> names;
+  private final Map<String, Integer> positions;
+  private final ByteBuffer buffer;
+  private final int[] offsets;
+  private final int[] compressedSizes;
+  private final int[] sizes;
+  private final short[] methods;
+  /** The open archive of an index that is read through {@link ZipFile}, guarded by the index. */
+  private ZipFile zipFile;
+
+  private ArchiveIndex(File file, List<String> names, ByteBuffer buffer, int[] offsets, int[] compressedSizes,
+      int[] sizes, short[] methods) {
+    this.file = file;
+    this.length = file.length();
+    this.lastModified = file.lastModified();
+    this.names = Collections.unmodifiableList(names);
+    this.positions = new HashMap<String, Integer>(names.size() * 4 / 3 + 1);
+    for (int i = 0; i < names.size(); i++) {
+      // the first of several entries with the same name wins
+      positions.putIfAbsent(names.get(i), i);
+    }
+    this.buffer = buffer;
+    this.offsets = offsets;
+    this.compressedSizes = compressedSizes;
+    this.sizes = sizes;
+    this.methods = methods;
+  }
+
+  /**
+   * Returns the index of the given archive that is shared by all Scenes, e.g. by the Scenes of several
+   * {@link SootContext}s. The archive is read again if its size or modification time has changed since it was indexed.
+   */
+  public static ArchiveIndex forFile(File file) throws IOException {
+    String key = file.getAbsolutePath();
+    ArchiveIndex index = shared.get(key);
+    if (index == null || index.length != file.length() || index.lastModified != file.lastModified()) {
+      // indices are immutable, if two threads read the same archive, either index will do
+      index = open(file);
+      ArchiveIndex replaced = shared.put(key, index);
+      if (replaced != null) {
+        closeQuietly(replaced);
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Forgets the shared indices and closes them. Indices that are still in use by a Scene open their archive again when
+   * they are read.
+   */
+  public static void clearSharedIndices() {
+    for (String key : new ArrayList<String>(shared.keySet())) {
+      ArchiveIndex index = shared.remove(key);
+      if (index != null) {
+        closeQuietly(index);
+      }
+    }
+  }
+
+  private static void closeQuietly(ArchiveIndex index) {
+    try {
+      index.close();
+    } catch (IOException e) {
+      logger.debug("Failed to close " + index.file, e);
+    }
+  }
+
+  /**
+   * Reads the central directory of the given archive.
+   */
+  public static ArchiveIndex open(File file) throws IOException {
+    ByteBuffer buffer = null;
+    if (file.length() <= Integer.MAX_VALUE) {
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+      ArchiveIndex index = readCentralDirectory(file, buffer);
+      if (index != null) {
+        return index;
+      }
+    }
+    logger.debug("Reading " + file + " through ZipFile, it cannot be mapped");
+    List<String> names = new ArrayList<String>();
+    // the archive is opened again when it is read, so that an index that is never read holds no file handle
+    try (ZipFile zipFile = new ZipFile(file)) {
+      for (Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements();) {
+        names.add(entries.nextElement().getName());
+      }
+    }
+    return new ArchiveIndex(file, names, null, null, null, null, null);
+  }
+
+  /**
+   * Returns the index of the given mapped archive, or <code>null</code> if the archive is not laid out as expected.
+   */
+  private static ArchiveIndex readCentralDirectory(File file, ByteBuffer mapped) {
+    ByteBuffer buf = mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    int end = -1;
+    int lowest = Math.max(0, buf.limit() - END_OF_CENTRAL_DIRECTORY_SIZE - MAX_COMMENT_SIZE);
+    for (int i = buf.limit() - END_OF_CENTRAL_DIRECTORY_SIZE; i >= lowest; i--) {
+      if (buf.getInt(i) == END_OF_CENTRAL_DIRECTORY) {
+        end = i;
+        break;
+      }
+    }
+    if (end < 0) {
+      return null;
+    }
+    int count = buf.getShort(end + 10) & 0xffff;
+    long directorySize = buf.getInt(end + 12) & 0xffffffffL;
+    long directoryOffset = buf.getInt(end + 16) & 0xffffffffL;
+    if (count == 0xffff || directoryOffset == 0xffffffffL || directoryOffset + directorySize != end) {
+      // zip64, or offsets that are not relative to the start of the file
+      return null;
+    }
+
+    List<String> names = new ArrayList<String>(count);
+    int[] offsets = new int[count];
+    int[] compressedSizes = new int[count];
+    int[] sizes = new int[count];
+    short[] methods = new short[count];
+    int pos = (int) directoryOffset;
+    for (int i = 0; i < count; i++) {
+      if (pos + 46 > end || buf.getInt(pos) != CENTRAL_DIRECTORY_ENTRY) {
+        return null;
+      }
+      methods[i] = buf.getShort(pos + 10);
+      compressedSizes[i] = buf.getInt(pos + 20);
+      sizes[i] = buf.getInt(pos + 24);
+      int nameLength = buf.getShort(pos + 28) & 0xffff;
+      int extraLength = buf.getShort(pos + 30) & 0xffff;
+      int commentLength = buf.getShort(pos + 32) & 0xffff;
+      offsets[i] = buf.getInt(pos + 42);
+      if (compressedSizes[i] < 0 || sizes[i] < 0 || offsets[i] < 0) {
+        return null;
+      }
+      byte[] name = new byte[nameLength];
+      ByteBuffer slice = buf.duplicate();
+      ((Buffer) slice).position(pos + 46);
+      slice.get(name);
+      names.add(new String(name, StandardCharsets.UTF_8));
+      pos += 46 + nameLength + extraLength + commentLength;
+    }
+    return new ArchiveIndex(file, names, mapped, offsets, compressedSizes, sizes, methods);
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /** Returns the names of all entries in the order of the central directory. */
+  public List<String> getEntryNames() {
+    return names;
+  }
+
+  public boolean contains(String entryName) {
+    return positions.containsKey(entryName);
+  }
+
+  /**
+   * Returns the uncompressed contents of the given entry.
+   *
+   * @throws IOException
+   *           if the archive does not contain the entry or the entry cannot be read
+   */
+  public byte[] read(String entryName) throws IOException {
+    Integer position = positions.get(entryName);
+    if (position == null) {
+      throw new IOException("Failed to find entry '" + entryName + "' in the archive file at path '" + file + "'");
+    }
+    if (buffer == null) {
+      return readThroughZipFile(entryName);
+    }
+
+    int i = position;
+    ByteBuffer buf = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    int header = offsets[i];
+    if (buf.getInt(header) != LOCAL_HEADER) {
+      throw new IOException("Invalid local header for entry '" + entryName + "' in '" + file + "'");
+    }
+    // the extra field of the local header may differ from the one in the central directory
+    int data = header + 30 + (buf.getShort(header + 26) & 0xffff) + (buf.getShort(header + 28) & 0xffff);
+    byte[] compressed = new byte[compressedSizes[i] + (methods[i] == DEFLATED ? 1 : 0)];
+    ((Buffer) buf).position(data);
+    buf.get(compressed, 0, compressedSizes[i]);
+    switch (methods[i]) {
+      case STORED:
+        return compressed;
+      case DEFLATED:
+        return inflate(entryName, compressed, sizes[i]);
+      default:
+        throw new IOException("Unsupported compression method " + methods[i] + " of entry '" + entryName + "' in '"
+            + file + "'");
+    }
+  }
+
+  private synchronized byte[] readThroughZipFile(String entryName) throws IOException {
+    if (zipFile == null) {
+      zipFile = new ZipFile(file);
+    }
+    ZipEntry entry = zipFile.getEntry(entryName);
+    try (InputStream in = zipFile.getInputStream(entry)) {
+      return readFully(in, entry.getSize());
+    }
+  }
+
+  private byte[] inflate(String entryName, byte[] compressed, int size) throws IOException {
+    Inflater inflater = inflaters.poll();
+    if (inflater == null) {
+      inflater = new Inflater(true);
+    }
+    try {
+      // the extra byte at the end of the input is needed by inflaters without zlib header
+      inflater.setInput(compressed);
+      byte[] result = new byte[size];
+      int length = 0;
+      while (length < size) {
+        int n = inflater.inflate(result, length, size - length);
+        if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        length += n;
+      }
+      if (length != size) {
+        throw new IOException("Failed to inflate entry '" + entryName + "' in '" + file + "'");
+      }
+      return result;
+    } catch (DataFormatException e) {
+      throw new IOException("Failed to inflate entry '" + entryName + "' in '" + file + "'", e);
+    } finally {
+      inflater.reset();
+      inflaters.offer(inflater);
+    }
+  }
+
+  private static byte[] readFully(InputStream in, long size) throws IOException {
+    byte[] result = new byte[size >= 0 ? (int) size : 4096];
+    int length = 0;
+    for (int n; (n = in.read(result, length, result.length - length)) > 0;) {
+      length += n;
+      if (length == result.length && size < 0) {
+        result = Arrays.copyOf(result, 2 * length);
+      }
+    }
+    return length == result.length ? result : Arrays.copyOf(result, length);
+  }
+
+  /**
+   * Closes the archive if it is read through a {@link ZipFile}, mapped archives are released by the garbage collector. The
+   * index can still be read afterwards, which opens the archive again.
+   */
+  public synchronized void close() throws IOException {
+    if (zipFile != null) {
+      ZipFile open = zipFile;
+      zipFile = null;
+      open.close();
+    }
+  }
+}
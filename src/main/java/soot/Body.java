@@ -83,6 +83,12 @@ public abstract class Body extends AbstractHost implements Serializable {
   /** The chain of units for this Body. */
   protected UnitPatchingChain unitChain = new UnitPatchingChain(new HashChain<Unit>());
 
+  /** Records the changes of this Body while enabled, see {@link #enableChangeLog()}. */
+  private transient BodyChangeLog changeLog = null;
+
+  /** Set whenever the body is obtained from its method, lets the {@link BodyStore} evict bodies that are not in use. */
+  transient boolean recentlyUsed = false;
+
   private static BodyValidator[] validators;
 
   /** Creates a deep copy of this Body. */
@@ -381,6 +387,51 @@ public abstract class Body extends AbstractHost implements Serializable {
     return unitChain;
   }
 
+  /**
+   * Moves the units of this Body into a {@link UnitArrayChain}, which needs less memory and is faster to traverse than the
+   * default chain, but slower to modify in many places. Meant for bodies that are mostly read from now on. The units
+   * themselves and the chain returned by {@link #getUnits()} stay the same.
+   */
+  public synchronized void compactUnits() {
+    Chain<Unit> inner = unitChain.getNonPatchingChain();
+    if (!(inner instanceof UnitArrayChain)) {
+      unitChain.innerChain = new UnitArrayChain(inner);
+      inner.clear();
+    }
+  }
+
+  /**
+   * Starts recording the changes of this Body, i.e. the units inserted and removed through {@link #getUnits()}, the values
+   * replaced in the boxes of its units, and added, removed or changed traps. Does nothing if the changes are already being
+   * recorded. The log keeps the boxes of the body registered, so it should be disabled when it is no longer needed.
+   *
+   * @return the log that records the changes, drain it to obtain them
+   *
+   * @see BodyChangeLog
+   */
+  public synchronized BodyChangeLog enableChangeLog() {
+    if (changeLog == null) {
+      changeLog = new BodyChangeLog(this);
+      changeLog.enable();
+      unitChain.setChangeLog(changeLog);
+    }
+    return changeLog;
+  }
+
+  /** Returns the log that records the changes of this Body, or <code>null</code> if they are not being recorded. */
+  public BodyChangeLog getChangeLog() {
+    return changeLog;
+  }
+
+  /** Stops recording the changes of this Body. Changes that have not been drained yet are discarded. */
+  public synchronized void disableChangeLog() {
+    if (changeLog != null) {
+      unitChain.setChangeLog(null);
+      changeLog.disable();
+      changeLog = null;
+    }
+  }
+
   /**
    * Returns the result of iterating through all Units in this body and querying them for their UnitBoxes. All UnitBoxes thus
    * found are returned. Branching Units and statements which use PhiExpr will have UnitBoxes; a UnitBox contains a Unit that
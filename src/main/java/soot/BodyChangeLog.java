@@ -0,0 +1,368 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records the structural changes of a {@link Body} since the log was enabled or last drained: units inserted into or
+ * removed from the unit chain, values replaced in the {@link ValueBox}es of its units, and traps that have been added,
+ * removed or changed. Consumers such as incremental analyses can drain the log and only update what has changed, instead
+ * of rescanning the body.
+ *
+ * <p>
+ * Unit insertions and removals are recorded by the {@link UnitPatchingChain}, so changes made through
+ * {@link PatchingChain#getNonPatchingChain()} are not seen. Value replacements are reported by the boxes themselves; every
+ * box of a unit in the body is registered with the log, including the nested boxes of expressions. Traps are compared
+ * against a snapshot when the log is drained, as bodies have few traps. Changing the target of a branch is not recorded.
+ * </p>
+ *
+ * @see Body#enableChangeLog()
+ */
+public class BodyChangeLog {
+
+  /**
+   * The number of enabled logs in all contexts, lets boxes skip looking up their owner while no body records changes.
+   */
+  private static volatile int enabledLogs;
+
+  private final Body body;
+  /** The owners of the boxes of the Scene the body belongs to. */
+  private final ValueBoxOwners boxOwners;
+  private final Map<Unit, Registration> registrations = new IdentityHashMap<Unit, Registration>();
+  private Set<Unit> addedUnits = new LinkedHashSet<Unit>();
+  private Set<Unit> removedUnits = new LinkedHashSet<Unit>();
+  private Set<Unit> changedUnits = new LinkedHashSet<Unit>();
+  private List<ValueChange> valueChanges = new ArrayList<ValueChange>();
+  private Map<Trap, TrapState> trapSnapshot;
+  private boolean enabled;
+
+  BodyChangeLog(Body body) {
+    this.body = body;
+    this.boxOwners = ValueBoxOwners.v();
+  }
+
+  /**
+   * Called by {@link AbstractValueBox} after a value has been replaced.
+   */
+  static void valueReplaced(ValueBox box, Value oldValue, Value newValue) {
+    if (enabledLogs == 0) {
+      return;
+    }
+    Registration registration = ValueBoxOwners.v().get(box);
+    if (registration != null) {
+      registration.log.recordValueChange(registration, box, oldValue, newValue);
+    }
+  }
+
+  synchronized void enable() {
+    if (enabled) {
+      return;
+    }
+    enabled = true;
+    synchronized (BodyChangeLog.class) {
+      enabledLogs++;
+    }
+    for (Unit u : body.getUnits()) {
+      register(u);
+    }
+    trapSnapshot = snapshotTraps();
+  }
+
+  synchronized void disable() {
+    if (!enabled) {
+      return;
+    }
+    enabled = false;
+    for (Unit u : new ArrayList<Unit>(registrations.keySet())) {
+      unregister(u);
+    }
+    synchronized (BodyChangeLog.class) {
+      enabledLogs--;
+    }
+  }
+
+  /** Returns the body whose changes are recorded. */
+  public Body getBody() {
+    return body;
+  }
+
+  synchronized void unitAdded(Unit u) {
+    if (!enabled) {
+      return;
+    }
+    register(u);
+    if (removedUnits.remove(u)) {
+      // re-inserting a removed unit moves it
+      changedUnits.add(u);
+    } else {
+      addedUnits.add(u);
+    }
+  }
+
+  synchronized void unitRemoved(Unit u) {
+    if (!enabled) {
+      return;
+    }
+    unregister(u);
+    changedUnits.remove(u);
+    if (!addedUnits.remove(u)) {
+      removedUnits.add(u);
+    }
+  }
+
+  private synchronized void recordValueChange(Registration registration, ValueBox box, Value oldValue, Value newValue) {
+    if (!enabled || registrations.get(registration.unit) != registration) {
+      return;
+    }
+    // the boxes nested in the old value are gone, the ones in the new value now belong to the unit
+    for (ValueBox nested : oldValue.getUseBoxes()) {
+      boxOwners.remove(nested, registration);
+    }
+    for (ValueBox nested : newValue.getUseBoxes()) {
+      boxOwners.put(nested, registration);
+    }
+    valueChanges.add(new ValueChange(registration.unit, box, oldValue, newValue));
+    if (!addedUnits.contains(registration.unit)) {
+      changedUnits.add(registration.unit);
+    }
+  }
+
+  /**
+   * Returns the changes recorded since the log was enabled or last drained, and starts a new, empty change set.
+   */
+  public synchronized ChangeSet drain() {
+    List<Trap> addedTraps = new ArrayList<Trap>();
+    List<Trap> removedTraps = new ArrayList<Trap>();
+    List<Trap> changedTraps = new ArrayList<Trap>();
+    Map<Trap, TrapState> currentTraps = snapshotTraps();
+    if (trapSnapshot != null) {
+      for (Map.Entry<Trap, TrapState> entry : currentTraps.entrySet()) {
+        TrapState previous = trapSnapshot.get(entry.getKey());
+        if (previous == null) {
+          addedTraps.add(entry.getKey());
+        } else if (!previous.equals(entry.getValue())) {
+          changedTraps.add(entry.getKey());
+        }
+      }
+      for (Trap trap : trapSnapshot.keySet()) {
+        if (!currentTraps.containsKey(trap)) {
+          removedTraps.add(trap);
+        }
+      }
+    }
+    trapSnapshot = enabled ? currentTraps : null;
+
+    ChangeSet result = new ChangeSet(addedUnits, removedUnits, changedUnits, valueChanges, addedTraps, removedTraps,
+        changedTraps);
+    addedUnits = new LinkedHashSet<Unit>();
+    removedUnits = new LinkedHashSet<Unit>();
+    changedUnits = new LinkedHashSet<Unit>();
+    valueChanges = new ArrayList<ValueChange>();
+    return result;
+  }
+
+  private void register(Unit u) {
+    Registration registration = new Registration(this, u);
+    Registration previous = registrations.put(u, registration);
+    if (previous != null) {
+      unregisterBoxes(previous);
+    }
+    for (ValueBox box : u.getUseAndDefBoxes()) {
+      boxOwners.put(box, registration);
+    }
+  }
+
+  private void unregister(Unit u) {
+    Registration registration = registrations.remove(u);
+    if (registration != null) {
+      unregisterBoxes(registration);
+    }
+  }
+
+  private void unregisterBoxes(Registration registration) {
+    for (ValueBox box : registration.unit.getUseAndDefBoxes()) {
+      boxOwners.remove(box, registration);
+    }
+  }
+
+  private Map<Trap, TrapState> snapshotTraps() {
+    Map<Trap, TrapState> snapshot = new IdentityHashMap<Trap, TrapState>();
+    for (Trap trap : body.getTraps()) {
+      snapshot.put(trap, new TrapState(trap));
+    }
+    return snapshot;
+  }
+
+  /** A unit of the body, shared by all of its boxes. */
+  static final class Registration {
+    private final BodyChangeLog log;
+    private final Unit unit;
+
+    private Registration(BodyChangeLog log, Unit unit) {
+      this.log = log;
+      this.unit = unit;
+    }
+  }
+
+  private static final class TrapState {
+    private final SootClass exception;
+    private final Unit begin;
+    private final Unit end;
+    private final Unit handler;
+
+    private TrapState(Trap trap) {
+      this.exception = trap.getException();
+      this.begin = trap.getBeginUnit();
+      this.end = trap.getEndUnit();
+      this.handler = trap.getHandlerUnit();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof TrapState)) {
+        return false;
+      }
+      TrapState other = (TrapState) obj;
+      return exception == other.exception && begin == other.begin && end == other.end && handler == other.handler;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(begin) * 31 + System.identityHashCode(handler);
+    }
+  }
+
+  /**
+   * A replacement of the value of a box that belongs to a unit of the body.
+   */
+  public static final class ValueChange {
+    private final Unit unit;
+    private final ValueBox box;
+    private final Value oldValue;
+    private final Value newValue;
+
+    ValueChange(Unit unit, ValueBox box, Value oldValue, Value newValue) {
+      this.unit = unit;
+      this.box = box;
+      this.oldValue = oldValue;
+      this.newValue = newValue;
+    }
+
+    public Unit getUnit() {
+      return unit;
+    }
+
+    public ValueBox getBox() {
+      return box;
+    }
+
+    public Value getOldValue() {
+      return oldValue;
+    }
+
+    public Value getNewValue() {
+      return newValue;
+    }
+
+    @Override
+    public String toString() {
+      return unit + ": " + oldValue + " -> " + newValue;
+    }
+  }
+
+  /**
+   * The net changes of a body between two points in time. A unit that was inserted and removed again does not show up at
+   * all, and units that were changed in place are only reported as changed if they were present before.
+   */
+  public static final class ChangeSet {
+    private final Set<Unit> addedUnits;
+    private final Set<Unit> removedUnits;
+    private final Set<Unit> changedUnits;
+    private final List<ValueChange> valueChanges;
+    private final List<Trap> addedTraps;
+    private final List<Trap> removedTraps;
+    private final List<Trap> changedTraps;
+
+    ChangeSet(Set<Unit> addedUnits, Set<Unit> removedUnits, Set<Unit> changedUnits, List<ValueChange> valueChanges,
+        List<Trap> addedTraps, List<Trap> removedTraps, List<Trap> changedTraps) {
+      this.addedUnits = Collections.unmodifiableSet(addedUnits);
+      this.removedUnits = Collections.unmodifiableSet(removedUnits);
+      this.changedUnits = Collections.unmodifiableSet(changedUnits);
+      this.valueChanges = Collections.unmodifiableList(valueChanges);
+      this.addedTraps = Collections.unmodifiableList(addedTraps);
+      this.removedTraps = Collections.unmodifiableList(removedTraps);
+      this.changedTraps = Collections.unmodifiableList(changedTraps);
+    }
+
+    public Set<Unit> getAddedUnits() {
+      return addedUnits;
+    }
+
+    public Set<Unit> getRemovedUnits() {
+      return removedUnits;
+    }
+
+    /** Returns the units that were present before and whose values have been replaced, or that have been moved. */
+    public Set<Unit> getChangedUnits() {
+      return changedUnits;
+    }
+
+    /** Returns all value replacements in the order in which they happened. */
+    public List<ValueChange> getValueChanges() {
+      return valueChanges;
+    }
+
+    public List<Trap> getAddedTraps() {
+      return addedTraps;
+    }
+
+    public List<Trap> getRemovedTraps() {
+      return removedTraps;
+    }
+
+    /** Returns the traps whose exception or begin, end or handler unit has changed. */
+    public List<Trap> getChangedTraps() {
+      return changedTraps;
+    }
+
+    /** Returns all added, removed and changed units. */
+    public Set<Unit> getAffectedUnits() {
+      Set<Unit> result = new LinkedHashSet<Unit>(addedUnits);
+      result.addAll(removedUnits);
+      result.addAll(changedUnits);
+      return result;
+    }
+
+    public boolean isEmpty() {
+      return addedUnits.isEmpty() && removedUnits.isEmpty() && changedUnits.isEmpty() && addedTraps.isEmpty()
+          && removedTraps.isEmpty() && changedTraps.isEmpty();
+    }
+  }
+}
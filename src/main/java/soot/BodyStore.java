@@ -0,0 +1,438 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import soot.jimple.AnyNewExpr;
+import soot.jimple.AssignStmt;
+import soot.jimple.CastExpr;
+import soot.jimple.JimpleBody;
+import soot.jimple.JimpleBodyEncoding;
+import soot.jimple.toolkits.callgraph.Edge;
+import soot.options.Options;
+import soot.tagkit.PackedTagHost;
+
+/**
+ * Keeps the number of units in unmodified Jimple bodies within the budget given by {@link Options#body_budget()}. When
+ * loading a body exceeds the budget, the least recently used unmodified bodies are evicted from their methods. An evicted
+ * body is kept compressed in the binary form of {@link JimpleBodyEncoding}, together with the line numbers and bytecode
+ * offsets of its units, and read again when its method is asked for its active body, so eviction is transparent to code
+ * that always gets bodies from their methods.
+ *
+ * <p>
+ * A body counts as modified once its locals, units or traps have changed, or once a value has been replaced in any box
+ * after the body was loaded, as boxes do not know their body. Modified bodies and bodies that carry other tags than line
+ * numbers and bytecode offsets are never evicted.
+ * </p>
+ *
+ * <p>
+ * The call graph and the points-to analyses of the Scene refer to the locals and to some units of a body. Evicting a body
+ * therefore keeps its locals, the units that are sources of call graph edges and, if there is a points-to analysis, the
+ * units that allocate or cast. The reloaded body contains these very objects, so the analyses of the Scene stay valid for
+ * it. Any other analysis that keeps units of a body, or a body that it modifies later, has to {@link #pin(SootMethod) pin}
+ * these bodies.
+ * </p>
+ */
+public class BodyStore {
+
+  /** Set once bodies may be evicted in some context, lets boxes skip counting replaced values until then. */
+  private static volatile boolean tracking;
+  /** The number of bodies that the current thread is building, the values they replace do not modify loaded bodies. */
+  private static final ThreadLocal<int[]> building = new ThreadLocal<int[]>() {
+    @Override
+    protected int[] initialValue() {
+      return new int[1];
+    }
+  };
+
+  private final Map<SootMethod, Entry> entries = new IdentityHashMap<SootMethod, Entry>();
+  /** The resident evictable bodies in the order in which the clock hand visits them. */
+  private final Deque<Entry> clock = new ArrayDeque<Entry>();
+  private final Set<SootMethod> pinned = Collections.newSetFromMap(new ConcurrentHashMap<SootMethod, Boolean>());
+  private final Map<SootMethod, Evicted> evicted = new ConcurrentHashMap<SootMethod, Evicted>();
+  /** The number of values replaced in boxes outside of building a body. */
+  private final AtomicLong replacedValues = new AtomicLong();
+  private long residentUnits = 0;
+  private long evictions = 0;
+  private long reloads = 0;
+
+  public BodyStore(Singletons.Global g) {
+  }
+
+  public static BodyStore v() {
+    return G.v().soot_BodyStore();
+  }
+
+  /** Returns true if bodies may be evicted in this run. */
+  public boolean isEnabled() {
+    return Options.v().body_budget() > 0;
+  }
+
+  /**
+   * Keeps the body of the given method in memory from now on, reloading it first if it has been evicted.
+   */
+  public void pin(SootMethod m) {
+    pinned.add(m);
+    if (evicted.containsKey(m)) {
+      m.retrieveActiveBody();
+    }
+    synchronized (this) {
+      Entry entry = entries.remove(m);
+      if (entry != null) {
+        clock.remove(entry);
+        residentUnits -= entry.units;
+      }
+    }
+  }
+
+  /** Returns the number of units in the resident bodies that may be evicted. */
+  public synchronized long getResidentUnits() {
+    return residentUnits;
+  }
+
+  /** Returns the number of bodies evicted so far. */
+  public synchronized long getEvictionCount() {
+    return evictions;
+  }
+
+  /** Returns the number of evicted bodies that have been read again. */
+  public synchronized long getReloadCount() {
+    return reloads;
+  }
+
+  boolean hasEvictedBody(SootMethod m) {
+    return !evicted.isEmpty() && evicted.containsKey(m);
+  }
+
+  /** Called by {@link SootMethod} before it builds a body, see {@link #endBuilding()}. */
+  static void beginBuilding() {
+    building.get()[0]++;
+  }
+
+  /** Called by {@link SootMethod} after it has built a body. */
+  static void endBuilding() {
+    building.get()[0]--;
+  }
+
+  /** Called by {@link AbstractValueBox} after a value has been replaced. */
+  static void valueReplaced() {
+    if (tracking && building.get()[0] == 0) {
+      v().replacedValues.incrementAndGet();
+    }
+  }
+
+  /**
+   * Called by {@link SootMethod} after it has loaded or reloaded the given body, without holding the lock of the method.
+   * Evicts other bodies if the budget is exceeded.
+   */
+  void bodyLoaded(SootMethod m, Body body) {
+    if (!isEnabled() || body.getClass() != JimpleBody.class || pinned.contains(m)) {
+      return;
+    }
+    tracking = true;
+    body.recentlyUsed = true;
+    Entry entry = new Entry(m, body, body.getUnits().size(), body.getModificationCount(), replacedValues.get());
+    List<Entry> victims = new ArrayList<Entry>();
+    synchronized (this) {
+      Entry previous = entries.put(m, entry);
+      if (previous != null) {
+        clock.remove(previous);
+        residentUnits -= previous.units;
+      }
+      clock.addLast(entry);
+      residentUnits += entry.units;
+
+      // the clock algorithm, a body that has been used since the hand last passed it gets a second chance. The hand makes
+      // at most one turn over the other bodies, the body that is being loaded is the last one in the clock and is handed
+      // to the caller, so it must not be evicted here. The budget may stay exceeded until the next load.
+      long budget = Options.v().body_budget();
+      for (int visits = clock.size() - 1; residentUnits > budget && visits > 0; visits--) {
+        Entry candidate = clock.pollFirst();
+        if (candidate.body.recentlyUsed) {
+          candidate.body.recentlyUsed = false;
+          clock.addLast(candidate);
+        } else {
+          entries.remove(candidate.method);
+          residentUnits -= candidate.units;
+          victims.add(candidate);
+        }
+      }
+    }
+    for (Entry victim : victims) {
+      evict(victim);
+    }
+  }
+
+  /**
+   * Called by {@link SootMethod} when its active body is set or released, the store forgets about the previous body.
+   */
+  void bodyReplaced(SootMethod m) {
+    if (!isEnabled()) {
+      return;
+    }
+    evicted.remove(m);
+    synchronized (this) {
+      Entry entry = entries.remove(m);
+      if (entry != null) {
+        clock.remove(entry);
+        residentUnits -= entry.units;
+      }
+    }
+  }
+
+  /**
+   * Parses the evicted body of the given method again. Called by {@link SootMethod} while holding its lock.
+   *
+   * @return the body, or <code>null</code> if the body of the method has not been evicted
+   */
+  Body reload(SootMethod m) {
+    Evicted copy = evicted.remove(m);
+    if (copy == null) {
+      return null;
+    }
+    Body body;
+    beginBuilding();
+    try {
+      body = copy.restore(m);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to read the evicted body of " + m.getSignature(), e);
+    } finally {
+      endBuilding();
+    }
+    synchronized (this) {
+      reloads++;
+    }
+    return body;
+  }
+
+  private void evict(Entry entry) {
+    SootMethod m = entry.method;
+    Body body = entry.body;
+    Evicted copy;
+    synchronized (m) {
+      if (m.activeBody != body || pinned.contains(m) || body.getChangeLog() != null
+          || body.getModificationCount() != entry.modificationCount || replacedValues.get() != entry.replacedValues) {
+        // modified bodies stay, and are not considered again
+        return;
+      }
+      copy = Evicted.of(body);
+      if (copy == null) {
+        return;
+      }
+      evicted.put(m, copy);
+      m.activeBody = null;
+    }
+    // a reloaded body has new units, the numberer must not keep the old ones alive. Their numbers are not handed out again,
+    // as numbered sets and maps of analyses may still refer to them
+    UnitNumberer numberer = Scene.v().getUnitNumberer();
+    Set<Unit> kept = Collections.newSetFromMap(new IdentityHashMap<Unit, Boolean>());
+    Collections.addAll(kept, copy.keptUnits);
+    for (Unit u : body.getUnits()) {
+      if (!kept.contains(u)) {
+        numberer.retire(u);
+      }
+    }
+    synchronized (this) {
+      evictions++;
+    }
+  }
+
+  /**
+   * Returns the units of the given body that the call graph and the points-to analysis of the Scene refer to.
+   */
+  private static Set<Unit> referencedUnits(Body body) {
+    Set<Unit> units = Collections.newSetFromMap(new IdentityHashMap<Unit, Boolean>());
+    Scene scene = Scene.v();
+    if (scene.hasCallGraph()) {
+      for (Iterator<Edge> it = scene.getCallGraph().edgesOutOf(body.getMethod()); it.hasNext();) {
+        Unit src = it.next().srcUnit();
+        if (src != null) {
+          units.add(src);
+        }
+      }
+    }
+    if (scene.hasPointsToAnalysis()) {
+      // allocation sites and casts are nodes of the points-to graph
+      for (Unit u : body.getUnits()) {
+        if (u instanceof AssignStmt) {
+          Value rhs = ((AssignStmt) u).getRightOp();
+          if (rhs instanceof AnyNewExpr || rhs instanceof CastExpr) {
+            units.add(u);
+          }
+        }
+      }
+    }
+    return units;
+  }
+
+  /** The serialized copy of an evicted body, and the objects of the body that analyses refer to. */
+  private static final class Evicted {
+    private final byte[] data;
+    private final Local[] locals;
+    private final int unitCount;
+    private final Unit[] keptUnits;
+    private final int[] keptPositions;
+
+    private Evicted(byte[] data, Local[] locals, int unitCount, Unit[] keptUnits, int[] keptPositions) {
+      this.data = data;
+      this.locals = locals;
+      this.unitCount = unitCount;
+      this.keptUnits = keptUnits;
+      this.keptPositions = keptPositions;
+    }
+
+    /**
+     * Serializes the given body, and detaches the units to keep from it.
+     *
+     * @return the copy, or <code>null</code> if the body cannot be evicted because of its tags or units
+     */
+    static Evicted of(Body body) {
+      if (!body.getTags().isEmpty()) {
+        return null;
+      }
+      Set<Unit> referenced = referencedUnits(body);
+      for (Unit u : body.getUnits()) {
+        if (!(u instanceof PackedTagHost) || !((PackedTagHost) u).hasOnlyPositionTags()) {
+          return null;
+        }
+        if (referenced.contains(u) && !u.getUnitBoxes().isEmpty()) {
+          // the branch targets of a kept unit would point into the old body
+          return null;
+        }
+      }
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (DataOutputStream out
+          = new DataOutputStream(new DeflaterOutputStream(bytes, new Deflater(Deflater.BEST_SPEED), 4096))) {
+        JimpleBodyEncoding.write(body, out);
+        for (Unit u : body.getUnits()) {
+          ((PackedTagHost) u).writePositionTags(out);
+        }
+      } catch (IllegalArgumentException e) {
+        // not a Jimple body
+        return null;
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to write an evicted body", e);
+      }
+
+      Unit[] keptUnits = new Unit[referenced.size()];
+      int[] keptPositions = new int[referenced.size()];
+      int position = 0;
+      int kept = 0;
+      for (Unit u : body.getUnits()) {
+        if (referenced.contains(u)) {
+          keptUnits[kept] = u;
+          keptPositions[kept++] = position;
+        }
+        position++;
+      }
+      for (Unit u : keptUnits) {
+        // the boxes of the old body that point to the unit go away with it
+        for (UnitBox b : new ArrayList<UnitBox>(u.getBoxesPointingToThis())) {
+          u.removeBoxPointingToThis(b);
+        }
+        if (u instanceof AbstractUnit) {
+          ((AbstractUnit) u).chainOwner = null;
+        }
+      }
+      Local[] locals = body.getLocals().toArray(new Local[body.getLocalCount()]);
+      return new Evicted(bytes.toByteArray(), locals, position, keptUnits, keptPositions);
+    }
+
+    /** Parses the body again, and puts the kept locals and units into it. */
+    Body restore(SootMethod m) throws IOException {
+      Body body;
+      try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)))) {
+        body = JimpleBodyEncoding.read(m, in);
+        if (body.getUnits().size() != unitCount) {
+          throw new IOException("Expected " + unitCount + " units but got " + body.getUnits().size());
+        }
+        for (Unit u : body.getUnits()) {
+          ((PackedTagHost) u).readPositionTags(in);
+        }
+      }
+
+      Map<String, Local> byName = new HashMap<String, Local>();
+      for (Local l : locals) {
+        byName.put(l.getName(), l);
+      }
+      for (Unit u : body.getUnits()) {
+        for (ValueBox box : u.getUseAndDefBoxes()) {
+          Value value = box.getValue();
+          if (value instanceof Local) {
+            Local old = byName.get(((Local) value).getName());
+            if (old == null) {
+              throw new IOException("Unknown local " + value);
+            }
+            box.setValue(old);
+          }
+        }
+      }
+      body.getLocals().clear();
+      Collections.addAll(body.getLocals(), locals);
+
+      if (keptUnits.length > 0) {
+        Unit[] units = body.getUnits().toArray(new Unit[unitCount]);
+        for (int i = 0; i < keptUnits.length; i++) {
+          body.getUnits().swapWith(units[keptPositions[i]], keptUnits[i]);
+        }
+      }
+      return body;
+    }
+  }
+
+  private static final class Entry {
+    private final SootMethod method;
+    private final Body body;
+    private final int units;
+    private final long modificationCount;
+    private final long replacedValues;
+
+    private Entry(SootMethod method, Body body, int units, long modificationCount, long replacedValues) {
+      this.method = method;
+      this.body = body;
+      this.units = units;
+      this.modificationCount = modificationCount;
+      this.replacedValues = replacedValues;
+    }
+  }
+}
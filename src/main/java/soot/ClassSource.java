@@ -40,6 +40,14 @@ public abstract class ClassSource {
    */
   public abstract Dependencies resolve(SootClass sc);
 
+  /**
+   * Loads and parses the class ahead of {@link #resolve(SootClass)}, so that this part can run on another thread while the
+   * resolver builds other classes. Called at most once, before resolve, and must not access the Scene. Does nothing by
+   * default.
+   */
+  public void prefetch() {
+  }
+
   protected String className;
 
   public void close() {
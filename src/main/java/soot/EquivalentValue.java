@@ -45,7 +45,7 @@ public class EquivalentValue implements Value {
     if (o instanceof EquivalentValue) {
       o = ((EquivalentValue) o).e;
     }
-    return e.equivTo(o);
+    return e == o || e.equivTo(o);
   }
 
   /**
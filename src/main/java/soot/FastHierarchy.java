@@ -23,14 +23,22 @@ package soot;
  */
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
 
 import soot.jimple.SpecialInvokeExpr;
 import soot.util.ConcurrentHashMultiMap;
@@ -79,7 +87,26 @@ public class FastHierarchy {
    * For each class (NOT interface), this map contains a Interval, which is a pair of numbers giving a preorder and postorder
    * ordering of classes in the inheritance tree.
    */
-  protected Map<SootClass, Interval> classToInterval = new HashMap<SootClass, Interval>();
+  protected Map<SootClass, Interval> classToInterval = new ConcurrentHashMap<SootClass, Interval>();
+
+  /**
+   * Once the hierarchy is frozen, this table holds, indexed by class number, the sorted numbers of all classes and
+   * interfaces a class can be stored in, including the class itself. The entry is null for classes that the table does not
+   * cover, i.e., classes added after the freeze, classes below the HIERARCHY level and classes without an Interval.
+   */
+  protected volatile int[][] classToSupertypes;
+
+  /**
+   * Once the hierarchy is frozen, this table caches the result of {@link #getAllImplementersOfInterface(SootClass)} by
+   * interface number.
+   */
+  protected AtomicReferenceArray<Set<SootClass>> interfaceToAllImplementersByNumber;
+
+  /** The number of classes from which on {@link #FastHierarchy()} builds the hierarchy in parallel. */
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+
+  /** Scenes with at least this many classes get their hierarchy built and frozen on the common fork-join pool. */
+  protected final int parallelThreshold;
 
   protected Scene sc;
 
@@ -139,47 +166,270 @@ public class FastHierarchy {
 
   /** Constructs a hierarchy from the current scene. */
   public FastHierarchy() {
+    this(DEFAULT_PARALLEL_THRESHOLD);
+  }
+
+  /**
+   * Constructs a hierarchy from the current scene, on the common fork-join pool if the scene has at least
+   * <code>parallelThreshold</code> classes. Only the classes' own hierarchy data is read on the pool threads, so this works
+   * within a {@link SootContext} as well.
+   */
+  public FastHierarchy(int parallelThreshold) {
+    this.parallelThreshold = parallelThreshold;
     this.sc = Scene.v();
 
     this.rtObject = Scene.v().getObjectType();
     this.rtSerializable = RefType.v("java.io.Serializable");
     this.rtCloneable = RefType.v("java.lang.Cloneable");
 
+    final boolean parallel = sc.getClasses().size() >= parallelThreshold;
+
     /* First build the inverse maps. */
-    buildInverseMaps();
+    if (parallel) {
+      buildInverseMapsInParallel();
+    } else {
+      buildInverseMaps();
+    }
 
     /* Now do a dfs traversal to get the Interval numbers. */
-    int r = dfsVisit(0, sc.getSootClass("java.lang.Object"));
+    int r = visitRoot(0, sc.getSootClass("java.lang.Object"), parallel);
     /*
      * also have to traverse for all phantom classes because they also can be roots of the type hierarchy
      */
     for (final Iterator<SootClass> phantomClassIt = sc.getPhantomClasses().snapshotIterator(); phantomClassIt.hasNext();) {
       SootClass phantomClass = phantomClassIt.next();
       if (!phantomClass.isInterface()) {
-        r = dfsVisit(r, phantomClass);
+        r = visitRoot(r, phantomClass, parallel);
       }
     }
   }
 
-  protected void buildInverseMaps() {
-    for (SootClass cl : sc.getClasses().getElementsUnsorted()) {
-      if (cl.resolvingLevel() < SootClass.HIERARCHY) {
-        continue;
+  /**
+   * Constructs a hierarchy from the current scene with the given intervals of its classes instead of traversing the
+   * classes. The intervals must be those of a hierarchy of the same classes, as written by a {@link SceneSnapshot}.
+   */
+  FastHierarchy(Map<SootClass, int[]> intervals) {
+    this.parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    this.sc = Scene.v();
+
+    this.rtObject = Scene.v().getObjectType();
+    this.rtSerializable = RefType.v("java.io.Serializable");
+    this.rtCloneable = RefType.v("java.lang.Cloneable");
+
+    if (sc.getClasses().size() >= parallelThreshold) {
+      buildInverseMapsInParallel();
+    } else {
+      buildInverseMaps();
+    }
+    for (Map.Entry<SootClass, int[]> e : intervals.entrySet()) {
+      classToInterval.put(e.getKey(), new Interval(e.getValue()[0], e.getValue()[1]));
+    }
+  }
+
+  /** Returns the lower and upper bound of the interval of the given class, or null if it has none. */
+  int[] getInterval(SootClass c) {
+    Interval interval = classToInterval.get(c);
+    return interval == null ? null : new int[] { interval.lower, interval.upper };
+  }
+
+  private int visitRoot(int start, SootClass root, boolean parallel) {
+    if (!parallel) {
+      return dfsVisit(start, root);
+    }
+    if (root.isInterface()) {
+      throw new RuntimeException("Attempt to dfs visit interface " + root);
+    }
+    // first count the classes in each subtree, then hand every subclass the range that dfsVisit would give it
+    Map<SootClass, Integer> sizes = new ConcurrentHashMap<SootClass, Integer>();
+    int size = new SubtreeSize(root, sizes).invoke();
+    new IntervalAssignment(root, start, sizes).invoke();
+    return start + 2 * size;
+  }
+
+  /** Returns the direct subclasses of c that take part in the interval numbering, in the order dfsVisit visits them. */
+  private List<SootClass> intervalChildren(SootClass c) {
+    List<SootClass> children = new ArrayList<SootClass>();
+    Collection<SootClass> col = classToSubclasses.get(c);
+    if (col != null) {
+      for (SootClass sc : col) {
+        if (!sc.isInterface()) {
+          children.add(sc);
+        }
       }
-      if (!cl.isInterface()) {
+    }
+    return children;
+  }
+
+  /** Counts the classes in the subtree of a class, storing the count of every class in the subtree. */
+  private class SubtreeSize extends RecursiveTask<Integer> {
+    private static final long serialVersionUID = 1L;
+
+    private final SootClass c;
+    private final Map<SootClass, Integer> sizes;
+
+    SubtreeSize(SootClass c, Map<SootClass, Integer> sizes) {
+      this.c = c;
+      this.sizes = sizes;
+    }
+
+    @Override
+    protected Integer compute() {
+      List<SubtreeSize> tasks = new ArrayList<SubtreeSize>();
+      for (SootClass child : intervalChildren(c)) {
+        tasks.add(new SubtreeSize(child, sizes));
+      }
+      int size = 1;
+      for (SubtreeSize task : ForkJoinTask.invokeAll(tasks)) {
+        size += task.join();
+      }
+      sizes.put(c, size);
+      return size;
+    }
+  }
+
+  /** Assigns the same Intervals as dfsVisit to the subtree of a class, given the sizes of all subtrees. */
+  private class IntervalAssignment extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final SootClass c;
+    private final int start;
+    private final Map<SootClass, Integer> sizes;
+
+    IntervalAssignment(SootClass c, int start, Map<SootClass, Integer> sizes) {
+      this.c = c;
+      this.start = start;
+      this.sizes = sizes;
+    }
+
+    @Override
+    protected void compute() {
+      List<IntervalAssignment> tasks = new ArrayList<IntervalAssignment>();
+      int next = start + 1;
+      for (SootClass child : intervalChildren(c)) {
+        tasks.add(new IntervalAssignment(child, next, sizes));
+        next += 2 * sizes.get(child);
+      }
+      classToInterval.putIfAbsent(c, new Interval(start, next));
+      ForkJoinTask.invokeAll(tasks);
+    }
+  }
+
+  /**
+   * Precomputes the supertypes of every class, so that {@link #canStoreClass(SootClass, SootClass)} and
+   * {@link #canStoreType(Type, Type)} answer from an array instead of walking the implementers of interfaces. The hierarchy
+   * of the classes known at this point must not change afterwards, which holds anyway, as the hierarchy is recreated when
+   * the Scene changes. Classes added later are answered as before.
+   */
+  public synchronized void freeze() {
+    if (classToSupertypes != null) {
+      return;
+    }
+    Collection<SootClass> classes = sc.getClasses().getElementsUnsorted();
+    int size = 0;
+    for (SootClass cl : classes) {
+      size = Math.max(size, cl.getNumber() + 1);
+    }
+    final SootClass[] byNumber = new SootClass[size];
+    for (SootClass cl : classes) {
+      if (cl.resolvingLevel() >= SootClass.HIERARCHY && (cl.isInterface() || classToInterval.containsKey(cl))) {
+        byNumber[cl.getNumber()] = cl;
+      }
+    }
+    final int objectNumber = rtObject.getSootClass().getNumber();
+    final AtomicReferenceArray<int[]> allSupertypes = new AtomicReferenceArray<int[]>(size);
+    final int[][] supertypes = new int[size][];
+    IntStream numbers = IntStream.range(0, size);
+    if (size >= parallelThreshold) {
+      numbers = numbers.parallel();
+    }
+    // each thread writes its own slots of supertypes, and the stream publishes them when it completes
+    numbers.forEach(n -> {
+      if (byNumber[n] != null) {
+        supertypes[n] = supertypesOf(byNumber[n], allSupertypes, objectNumber);
+      }
+    });
+    interfaceToAllImplementersByNumber = new AtomicReferenceArray<Set<SootClass>>(size);
+    classToSupertypes = supertypes;
+  }
+
+  /** Returns true if {@link #freeze()} has been called on this hierarchy. */
+  public boolean isFrozen() {
+    return classToSupertypes != null;
+  }
+
+  /**
+   * Computes the sorted numbers of the supertypes of the given class, memoized in the given table. Threads that compute the
+   * same class at the same time compute the same result, so the table is not locked.
+   */
+  private int[] supertypesOf(SootClass cl, AtomicReferenceArray<int[]> memo, int objectNumber) {
+    final int number = cl.getNumber();
+    if (number < memo.length()) {
+      int[] known = memo.get(number);
+      if (known != null) {
+        return known;
+      }
+    }
+    // the inverse maps only hold edges of classes at the HIERARCHY level, so the other classes have no supertypes
+    Set<Integer> result = new HashSet<Integer>();
+    result.add(number);
+    if (cl.resolvingLevel() >= SootClass.HIERARCHY) {
+      if (cl.isInterface()) {
+        // see canStoreClass: interfaces can be stored in Object
+        result.add(objectNumber);
+      } else {
         SootClass superClass = cl.getSuperclassUnsafe();
         if (superClass != null) {
-          classToSubclasses.put(superClass, cl);
+          for (int n : supertypesOf(superClass, memo, objectNumber)) {
+            result.add(n);
+          }
         }
       }
-      for (final SootClass supercl : cl.getInterfaces()) {
-        if (cl.isInterface()) {
-          interfaceToSubinterfaces.put(supercl, cl);
-        } else {
-          interfaceToImplementers.put(supercl, cl);
+      for (SootClass supercl : cl.getInterfaces()) {
+        for (int n : supertypesOf(supercl, memo, objectNumber)) {
+          result.add(n);
         }
       }
     }
+    int[] sorted = new int[result.size()];
+    int i = 0;
+    for (Integer n : result) {
+      sorted[i++] = n;
+    }
+    Arrays.sort(sorted);
+    if (number < memo.length()) {
+      memo.set(number, sorted);
+    }
+    return sorted;
+  }
+
+  protected void buildInverseMaps() {
+    for (SootClass cl : sc.getClasses().getElementsUnsorted()) {
+      addInverseEdges(cl);
+    }
+  }
+
+  /** Builds the inverse maps on the common fork-join pool. The maps are concurrent, so no further locking is needed. */
+  private void buildInverseMapsInParallel() {
+    new ArrayList<SootClass>(sc.getClasses().getElementsUnsorted()).parallelStream().forEach(this::addInverseEdges);
+  }
+
+  private void addInverseEdges(SootClass cl) {
+    if (cl.resolvingLevel() < SootClass.HIERARCHY) {
+      return;
+    }
+    if (!cl.isInterface()) {
+      SootClass superClass = cl.getSuperclassUnsafe();
+      if (superClass != null) {
+        classToSubclasses.put(superClass, cl);
+      }
+    }
+    for (final SootClass supercl : cl.getInterfaces()) {
+      if (cl.isInterface()) {
+        interfaceToSubinterfaces.put(supercl, cl);
+      } else {
+        interfaceToImplementers.put(supercl, cl);
+      }
+    }
   }
 
   /**
@@ -205,6 +455,20 @@ public class FastHierarchy {
    */
   public Set<SootClass> getAllImplementersOfInterface(SootClass parent) {
     parent.checkLevel(SootClass.HIERARCHY);
+    final AtomicReferenceArray<Set<SootClass>> byNumber = interfaceToAllImplementersByNumber;
+    final int number = parent.getNumber();
+    if (byNumber != null && number < byNumber.length()) {
+      Set<SootClass> result = byNumber.get(number);
+      if (result == null) {
+        result = computeAllImplementersOfInterface(parent);
+        byNumber.compareAndSet(number, null, result);
+      }
+      return result;
+    }
+    return computeAllImplementersOfInterface(parent);
+  }
+
+  private Set<SootClass> computeAllImplementersOfInterface(SootClass parent) {
     Set<SootClass> result = interfaceToAllImplementers.get(parent);
     if (result.size() > 0) {
       return result;
@@ -344,6 +608,17 @@ public class FastHierarchy {
   public boolean canStoreClass(SootClass child, SootClass parent) {
     parent.checkLevel(SootClass.HIERARCHY);
     child.checkLevel(SootClass.HIERARCHY);
+    final int[][] supertypes = classToSupertypes;
+    if (supertypes != null) {
+      final int childNumber = child.getNumber();
+      final int parentNumber = parent.getNumber();
+      if (childNumber < supertypes.length && parentNumber < supertypes.length) {
+        final int[] childSupertypes = supertypes[childNumber];
+        if (childSupertypes != null && supertypes[parentNumber] != null) {
+          return Arrays.binarySearch(childSupertypes, parentNumber) >= 0;
+        }
+      }
+    }
     Interval parentInterval = classToInterval.get(parent);
     Interval childInterval = classToInterval.get(child);
     if (parentInterval != null && childInterval != null) {
@@ -48,6 +48,7 @@ public class FoundFile {
   protected ZipFile zipFile;
   protected ZipEntry zipEntry;
   protected List<InputStream> openedInputStreams;
+  private ArchiveIndex archive;
 
   public FoundFile(ZipFile file, ZipEntry entry) {
     this();
@@ -67,6 +68,16 @@ public class FoundFile {
     this.entryName = entryName;
   }
 
+  public FoundFile(ArchiveIndex archive, String entryName) {
+    this();
+    if (archive == null || entryName == null) {
+      throw new IllegalArgumentException("Error: The archive and entry name cannot be null.");
+    }
+    this.archive = archive;
+    this.file = archive.getFile();
+    this.entryName = entryName;
+  }
+
   public FoundFile(File file) {
     this();
     if (file == null) {
@@ -116,6 +127,13 @@ public class FoundFile {
       } catch (Exception e) {
         throw new RuntimeException("Error: Failed to open a InputStream for the file at path '" + file.getPath() + "'.", e);
       }
+    } else if (archive != null) {
+      try {
+        ret = new ByteArrayInputStream(archive.read(entryName));
+      } catch (IOException e) {
+        throw new RuntimeException("Error: Failed to open a InputStream for the entry '" + entryName
+            + "' of the archive at path '" + file.getPath() + "'.", e);
+      }
     } else {
       if (zipFile == null) {
         try {
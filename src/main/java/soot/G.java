@@ -63,7 +63,7 @@ public class G extends Singletons {
     objectGetter.reset();
   }
 
-  private static GlobalObjectGetter objectGetter = new GlobalObjectGetter() {
+  private static volatile GlobalObjectGetter objectGetter = new GlobalObjectGetter() {
 
     private G instance = new G();
 
@@ -82,6 +82,10 @@ public class G extends Singletons {
     objectGetter = newGetter;
   }
 
+  static GlobalObjectGetter getGlobalObjectGetter() {
+    return objectGetter;
+  }
+
   /**
    * Deprecated use logging via slf4j instead
    */
@@ -657,7 +657,7 @@ public class PackManager {
 
     while (classes.hasNext()) {
       final SootClass c = classes.next();
-      executor.execute(() -> runBodyPacks(c));
+      executor.execute(SootContext.wrap(() -> runBodyPacks(c)));
     }
 
     // Wait till all packs have been executed
@@ -696,7 +696,7 @@ public class PackManager {
 
     while (classes.hasNext()) {
       final SootClass c = classes.next();
-      executor.execute(() -> writeClass(c));
+      executor.execute(SootContext.wrap(() -> writeClass(c)));
     }
 
     // Wait till all classes have been written
@@ -1272,14 +1272,14 @@ public class PackManager {
       while (methodIt.hasNext()) {
         final SootMethod m = methodIt.next();
         if (m.isConcrete()) {
-          executor.execute(new Runnable() {
+          executor.execute(SootContext.wrap(new Runnable() {
 
             @Override
             public void run() {
               m.retrieveActiveBody();
             }
 
-          });
+          }));
         }
       }
     }
@@ -55,7 +55,11 @@ public class PatchingChain<E extends Unit> extends AbstractCollection<E> impleme
   /** Adds the given object to this Chain. */
   @Override
   public boolean add(E o) {
-    return innerChain.add(o);
+    boolean res = innerChain.add(o);
+    if (res) {
+      elementAdded(o);
+    }
+    return res;
   }
 
   /** Replaces <code>out</code> in the Chain by <code>in</code>. */
@@ -63,23 +67,28 @@ public class PatchingChain<E extends Unit> extends AbstractCollection<E> impleme
   public void swapWith(E out, E in) {
     innerChain.swapWith(out, in);
     out.redirectJumpsToThisTo(in);
+    elementRemoved(out);
+    elementAdded(in);
   }
 
   /** Inserts <code>toInsert</code> in the Chain after <code>point</code>. */
   @Override
   public void insertAfter(E toInsert, E point) {
     innerChain.insertAfter(toInsert, point);
+    elementAdded(toInsert);
   }
 
   /** Inserts <code>toInsert</code> in the Chain after <code>point</code>. */
   @Override
   public void insertAfter(List<E> toInsert, E point) {
     innerChain.insertAfter(toInsert, point);
+    elementsAdded(toInsert);
   }
 
   @Override
   public void insertAfter(Chain<E> toInsert, E point) {
     innerChain.insertAfter(toInsert, point);
+    elementsAdded(toInsert);
   }
 
   /** Inserts <code>toInsert</code> in the Chain before <code>point</code>. */
@@ -113,11 +122,13 @@ public class PatchingChain<E extends Unit> extends AbstractCollection<E> impleme
   public void insertBefore(E toInsert, E point) {
     point.redirectJumpsToThisTo(toInsert);
     innerChain.insertBefore(toInsert, point);
+    elementAdded(toInsert);
   }
 
   /** Inserts <code>toInsert</code> in the Chain before <code>point</code> WITHOUT redirecting jumps. */
   public void insertBeforeNoRedirect(E toInsert, E point) {
     innerChain.insertBefore(toInsert, point);
+    elementAdded(toInsert);
   }
 
   /** Returns true if object <code>a</code> follows object <code>b</code> in the Chain. */
@@ -151,6 +162,9 @@ public class PatchingChain<E extends Unit> extends AbstractCollection<E> impleme
       res = innerChain.remove(obj);
 
       ((E) obj).redirectJumpsToThisTo(successor);
+      if (res) {
+        elementRemoved((E) obj);
+      }
     }
 
     return res;
@@ -166,12 +180,14 @@ public class PatchingChain<E extends Unit> extends AbstractCollection<E> impleme
   @Override
   public void addFirst(E u) {
     innerChain.addFirst(u);
+    elementAdded(u);
   }
 
   /** Adds the given object at the end of the Chain. */
   @Override
   public void addLast(E u) {
     innerChain.addLast(u);
+    elementAdded(u);
   }
 
   /** Removes the first object from this Chain. */
@@ -263,6 +279,7 @@ public class PatchingChain<E extends Unit> extends AbstractCollection<E> impleme
       innerIterator.remove();
 
       lastObject.redirectJumpsToThisTo(successor);
+      elementRemoved(lastObject);
     }
   }
 
@@ -314,10 +331,32 @@ public class PatchingChain<E extends Unit> extends AbstractCollection<E> impleme
   @Override
   public void insertAfter(Collection<? extends E> toInsert, E point) {
     innerChain.insertAfter(toInsert, point);
+    elementsAdded(toInsert);
   }
 
   @Override
   public void insertBefore(Collection<? extends E> toInsert, E point) {
     innerChain.insertBefore(toInsert, point);
+    elementsAdded(toInsert);
+  }
+
+  /**
+   * Called after the given element has been inserted through this chain. Insertions into the {@link #getNonPatchingChain()
+   * inner chain} are not reported. Does nothing by default.
+   */
+  protected void elementAdded(E e) {
+  }
+
+  /**
+   * Called after the given element has been removed through this chain. Removals from the {@link #getNonPatchingChain()
+   * inner chain} are not reported. Does nothing by default.
+   */
+  protected void elementRemoved(E e) {
+  }
+
+  protected void elementsAdded(Collection<? extends E> elements) {
+    for (E e : elements) {
+      elementAdded(e);
+    }
   }
 }
@@ -71,7 +71,6 @@ import soot.util.ArrayNumberer;
 import soot.util.Chain;
 import soot.util.HashChain;
 import soot.util.IterableNumberer;
-import soot.util.MapNumberer;
 import soot.util.Numberer;
 import soot.util.StringNumberer;
 import soot.util.WeakMapNumberer;
@@ -164,7 +163,7 @@ public class Scene {
   protected final ArrayNumberer<Kind> kindNumberer;
   protected IterableNumberer<Type> typeNumberer = new ArrayNumberer<Type>();
   protected IterableNumberer<SootMethod> methodNumberer = new ArrayNumberer<SootMethod>();
-  protected Numberer<Unit> unitNumberer = new MapNumberer<Unit>();
+  protected UnitNumberer unitNumberer = new UnitNumberer();
   protected Numberer<Context> contextNumberer = null;
   protected Numberer<SparkField> fieldNumberer = new ArrayNumberer<SparkField>();
   protected IterableNumberer<SootClass> classNumberer = new ArrayNumberer<SootClass>();
@@ -1522,7 +1521,7 @@ public class Scene {
     return contextNumberer;
   }
 
-  public Numberer<Unit> getUnitNumberer() {
+  public UnitNumberer getUnitNumberer() {
     return unitNumberer;
   }
 
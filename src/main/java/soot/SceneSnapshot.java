@@ -0,0 +1,526 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.jimple.JimpleBodyEncoding;
+import soot.jimple.toolkits.callgraph.CallGraph;
+import soot.jimple.toolkits.callgraph.Edge;
+import soot.util.Chain;
+
+/**
+ * Writes the state of a fully loaded {@link Scene} to a single file and restores it into a fresh Scene, so that several
+ * analyses can start from the same program without resolving it from bytecode again.
+ *
+ * <p>
+ * A snapshot is a zip file with a single binary entry. It holds the classes in the order of the Scene together with their
+ * resolving level, modifiers, hierarchy and members, the application, library and phantom classes in the order of their
+ * chains, the main class, the intervals of the {@link FastHierarchy}, the bodies of all methods that have one in the
+ * encoding of {@link JimpleBodyEncoding} and the entry points. Optionally, it holds the call graph as well. Names and
+ * types are written once for the whole snapshot.
+ * </p>
+ *
+ * <p>
+ * Restoring creates the classes in the order of the snapshot, so classes are numbered as in the original Scene. Methods and
+ * fields are numbered in the order of their original numbers, so they keep their numbers unless members were removed from
+ * the original Scene. Bodies are read as they were written, the jb pack is not applied again, but their types, locals and
+ * units are numbered anew. If the original Scene had a hierarchy, it is restored with its intervals and frozen if it was.
+ * The {@link soot.jimple.toolkits.callgraph.ReachableMethods} are derived from the restored call graph when they are first
+ * requested. Tags are not part of a snapshot, and edges of a context-sensitive call graph lose their contexts.
+ * </p>
+ */
+public class SceneSnapshot {
+  private static final Logger logger = LoggerFactory.getLogger(SceneSnapshot.class);
+
+  /** Identifies the layout of a snapshot, change it whenever snapshots are written differently. */
+  private static final String FORMAT = "soot-scene-snapshot 2";
+
+  private static final String SCENE = "scene";
+
+  private SceneSnapshot() {
+  }
+
+  /**
+   * Writes the current Scene to the given file. Bodies that have not been created yet are created first, bodies that cannot
+   * be created are left out.
+   *
+   * @param includeCallGraph
+   *          whether to include the call graph of the Scene, if there is one
+   * @throws IllegalArgumentException
+   *           if a body is not a Jimple body
+   */
+  public static void write(File file, boolean includeCallGraph) throws IOException {
+    Scene scene = Scene.v();
+    retrieveBodies();
+    List<SootClass> classes = new ArrayList<SootClass>(scene.getClasses());
+    try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+      zip.setLevel(Deflater.BEST_SPEED);
+      zip.putNextEntry(new ZipEntry(SCENE));
+      DataOutputStream data = new DataOutputStream(new BufferedOutputStream(zip));
+      data.writeUTF(FORMAT);
+      JimpleBodyEncoding.Writer out = new JimpleBodyEncoding.Writer(data);
+
+      out.writeInt(classes.size());
+      for (SootClass sc : classes) {
+        out.writeString(sc.getName());
+        out.writeInt(sc.resolvingLevel());
+        out.writeInt(sc.getModifiers());
+      }
+      for (SootClass sc : classes) {
+        if (sc.resolvingLevel() >= SootClass.HIERARCHY) {
+          writeHierarchy(out, sc);
+        }
+      }
+      // the position of every method in the snapshot, by which the entry points and the call graph refer to it
+      Map<SootMethod, Integer> methodIndices = new IdentityHashMap<SootMethod, Integer>();
+      for (SootClass sc : classes) {
+        writeMembers(out, sc, methodIndices);
+      }
+      writeClassNames(out, scene.getApplicationClasses());
+      writeClassNames(out, scene.getLibraryClasses());
+      writeClassNames(out, scene.getPhantomClasses());
+      out.writeString(scene.hasMainClass() ? scene.getMainClass().getName() : "");
+      writeFastHierarchy(out, classes);
+
+      for (SootClass sc : classes) {
+        for (SootMethod m : methodsOf(sc)) {
+          if (m.hasActiveBody()) {
+            out.writeBody(m.getActiveBody());
+          }
+        }
+      }
+
+      boolean hasCallGraph = includeCallGraph && scene.hasCallGraph();
+      boolean hasEntryPoints = scene.hasCustomEntryPoints() || hasCallGraph;
+      out.writeInt(hasEntryPoints ? 1 : 0);
+      if (hasEntryPoints) {
+        List<SootMethod> entryPoints = scene.getEntryPoints();
+        out.writeInt(entryPoints.size());
+        for (SootMethod m : entryPoints) {
+          out.writeInt(indexOf(methodIndices, m));
+        }
+      }
+      out.writeInt(hasCallGraph ? 1 : 0);
+      if (hasCallGraph) {
+        writeCallGraph(out, scene.getCallGraph(), methodIndices);
+      }
+      out.writeInt(scene.doneResolving() ? 1 : 0);
+      data.flush();
+      zip.closeEntry();
+    }
+  }
+
+  /**
+   * Restores the Scene from the given snapshot. The Scene must not contain any classes yet, i.e. this is meant to be called
+   * right after {@link G#reset()} and setting the options, in place of {@link Scene#loadNecessaryClasses()}.
+   */
+  public static void restore(File file) throws IOException {
+    Scene scene = Scene.v();
+    if (!scene.getClasses().isEmpty()) {
+      throw new IllegalStateException("Cannot restore a snapshot into a Scene that already contains classes");
+    }
+    try (ZipFile zip = new ZipFile(file)) {
+      ZipEntry entry = zip.getEntry(SCENE);
+      if (entry == null) {
+        throw new IOException(file + " is not a Scene snapshot");
+      }
+      DataInputStream data = new DataInputStream(new BufferedInputStream(zip.getInputStream(entry)));
+      if (!FORMAT.equals(data.readUTF())) {
+        throw new IOException(file + " is not a Scene snapshot of a supported format");
+      }
+      JimpleBodyEncoding.Reader in = new JimpleBodyEncoding.Reader(data);
+
+      // create all classes first, so that they keep their order and numbers
+      int classCount = in.readInt();
+      List<SootClass> classes = new ArrayList<SootClass>(classCount);
+      for (int i = 0; i < classCount; i++) {
+        SootClass sc = SootResolver.v().makeClassRef(in.readString());
+        sc.setResolvingLevel(in.readInt());
+        sc.setModifiers(in.readInt());
+        classes.add(sc);
+      }
+      for (SootClass sc : classes) {
+        if (sc.resolvingLevel() >= SootClass.HIERARCHY) {
+          readHierarchy(in, sc);
+        }
+      }
+      List<SootMethod> methods = new ArrayList<SootMethod>();
+      List<SootMethod> withBodies = new ArrayList<SootMethod>();
+      readMembers(in, classes, methods, withBodies);
+
+      // every new class is a library class, restore the original chains instead
+      scene.getLibraryClasses().clear();
+      for (SootClass sc : readClasses(in)) {
+        scene.getApplicationClasses().add(sc);
+      }
+      for (SootClass sc : readClasses(in)) {
+        scene.getLibraryClasses().add(sc);
+      }
+      for (SootClass sc : readClasses(in)) {
+        sc.setPhantomClass();
+      }
+      String mainClass = in.readString();
+      if (!mainClass.isEmpty()) {
+        scene.setMainClass(scene.getSootClass(mainClass));
+      }
+      readFastHierarchy(in, classes);
+
+      for (SootMethod m : withBodies) {
+        m.setActiveBody(in.readBody(m));
+      }
+
+      if (in.readInt() != 0) {
+        int count = in.readInt();
+        List<SootMethod> entryPoints = new ArrayList<SootMethod>(count);
+        for (int i = 0; i < count; i++) {
+          entryPoints.add(methods.get(in.readInt()));
+        }
+        scene.setEntryPoints(entryPoints);
+      }
+      if (in.readInt() != 0) {
+        scene.setCallGraph(readCallGraph(in, methods));
+      }
+      if (in.readInt() != 0) {
+        scene.setDoneResolving();
+      }
+    }
+  }
+
+  /**
+   * Creates the bodies of all concrete methods of the classes that are resolved to {@link SootClass#BODIES}. Creating a body
+   * may add classes to the Scene, such as the classes of lambda expressions, so this is repeated for the new classes.
+   */
+  private static void retrieveBodies() {
+    int done = 0;
+    while (done < Scene.v().getClasses().size()) {
+      List<SootClass> classes = new ArrayList<SootClass>(Scene.v().getClasses());
+      for (SootClass sc : classes.subList(done, classes.size())) {
+        if (sc.resolvingLevel() < SootClass.BODIES) {
+          continue;
+        }
+        for (SootMethod m : new ArrayList<SootMethod>(sc.getMethods())) {
+          if (m.isConcrete() && !m.isPhantom() && !m.hasActiveBody()) {
+            try {
+              m.retrieveActiveBody();
+            } catch (RuntimeException e) {
+              logger.warn("Snapshot does not contain the body of " + m.getSignature() + ": " + e.getMessage());
+            }
+          }
+        }
+      }
+      done = classes.size();
+    }
+  }
+
+  private static void writeHierarchy(JimpleBodyEncoding.Writer out, SootClass sc) throws IOException {
+    out.writeString(sc.hasSuperclass() ? sc.getSuperclass().getName() : "");
+    writeClassNames(out, sc.getInterfaces());
+    out.writeString(sc.hasOuterClass() ? sc.getOuterClass().getName() : "");
+  }
+
+  private static void readHierarchy(JimpleBodyEncoding.Reader in, SootClass sc) throws IOException {
+    Scene scene = Scene.v();
+    String superclass = in.readString();
+    if (!superclass.isEmpty()) {
+      sc.setSuperclass(scene.getSootClass(superclass));
+    }
+    for (SootClass i : readClasses(in)) {
+      sc.addInterface(i);
+    }
+    String outerClass = in.readString();
+    if (!outerClass.isEmpty()) {
+      sc.setOuterClass(scene.getSootClass(outerClass));
+    }
+  }
+
+  /**
+   * Writes the fields and methods of the given class together with their numbers, and assigns the methods their position in
+   * the snapshot. Classes below {@link SootClass#SIGNATURES} can have members as well, e.g. the class sources create all
+   * members when they resolve the hierarchy of a class, and these are numbered like all others.
+   */
+  private static void writeMembers(JimpleBodyEncoding.Writer out, SootClass sc, Map<SootMethod, Integer> methodIndices)
+      throws IOException {
+    Collection<SootField> fields = fieldsOf(sc);
+    out.writeInt(fields.size());
+    for (SootField f : fields) {
+      out.writeString(f.getName());
+      out.writeType(f.getType());
+      out.writeInt(f.getModifiers());
+      out.writeInt(f.getNumber());
+      out.writeInt(f.isPhantom() ? 1 : 0);
+    }
+    List<SootMethod> methods = methodsOf(sc);
+    out.writeInt(methods.size());
+    for (SootMethod m : methods) {
+      out.writeString(m.getName());
+      out.writeTypes(m.getParameterTypes());
+      out.writeType(m.getReturnType());
+      out.writeInt(m.getModifiers());
+      writeClassNames(out, m.getExceptions());
+      out.writeInt(m.getNumber());
+      out.writeInt((m.isPhantom() ? 1 : 0) | (m.hasActiveBody() ? 2 : 0));
+      methodIndices.put(m, methodIndices.size());
+    }
+  }
+
+  /**
+   * Reads the fields and methods of the given classes. The members are numbered in the order of their original numbers
+   * before they are added to their classes, which only numbers the members that have no number yet.
+   */
+  private static void readMembers(JimpleBodyEncoding.Reader in, List<SootClass> classes, List<SootMethod> methods,
+      List<SootMethod> withBodies) throws IOException {
+    Scene scene = Scene.v();
+    Map<SootField, Integer> fieldNumbers = new HashMap<SootField, Integer>();
+    Map<SootMethod, Integer> methodNumbers = new HashMap<SootMethod, Integer>();
+    Map<SootClass, List<SootField>> fields = new HashMap<SootClass, List<SootField>>();
+    Map<SootClass, List<SootMethod>> classMethods = new HashMap<SootClass, List<SootMethod>>();
+    for (SootClass sc : classes) {
+      int fieldCount = in.readInt();
+      List<SootField> declared = new ArrayList<SootField>(fieldCount);
+      for (int i = 0; i < fieldCount; i++) {
+        SootField f = scene.makeSootField(in.readString(), in.readType(), in.readInt());
+        int number = in.readInt();
+        if (number != 0) {
+          fieldNumbers.put(f, number);
+        }
+        f.setPhantom(in.readInt() != 0);
+        declared.add(f);
+      }
+      fields.put(sc, declared);
+
+      int methodCount = in.readInt();
+      List<SootMethod> declaredMethods = new ArrayList<SootMethod>(methodCount);
+      for (int i = 0; i < methodCount; i++) {
+        String name = in.readString();
+        List<Type> parameterTypes = in.readTypes();
+        Type returnType = in.readType();
+        int modifiers = in.readInt();
+        SootMethod m = scene.makeSootMethod(name, parameterTypes, returnType, modifiers, readClasses(in));
+        int number = in.readInt();
+        if (number != 0) {
+          methodNumbers.put(m, number);
+        }
+        int flags = in.readInt();
+        m.setPhantom((flags & 1) != 0);
+        if ((flags & 2) != 0) {
+          withBodies.add(m);
+        }
+        declaredMethods.add(m);
+      }
+      classMethods.put(sc, declaredMethods);
+      methods.addAll(declaredMethods);
+    }
+
+    for (SootField f : sortByNumber(fieldNumbers)) {
+      scene.getFieldNumberer().add(f);
+    }
+    for (SootMethod m : sortByNumber(methodNumbers)) {
+      scene.getMethodNumberer().add(m);
+    }
+    // the Scene is not done resolving yet, so members can be added to classes of any level
+    for (SootClass sc : classes) {
+      for (SootField f : fields.get(sc)) {
+        sc.addField(f);
+      }
+      for (SootMethod m : classMethods.get(sc)) {
+        sc.addMethod(m);
+      }
+    }
+  }
+
+  /** Returns the fields of the given class without checking its resolving level. */
+  private static Collection<SootField> fieldsOf(SootClass sc) {
+    return sc.fields == null ? Collections.<SootField>emptyList() : sc.fields;
+  }
+
+  /** Returns the methods of the given class without checking its resolving level. */
+  private static List<SootMethod> methodsOf(SootClass sc) {
+    return sc.methodList == null ? Collections.<SootMethod>emptyList() : new ArrayList<SootMethod>(sc.methodList);
+  }
+
+  /** Returns the keys of the given map in the order of their values. */
+  private static <T> List<T> sortByNumber(final Map<T, Integer> numbers) {
+    List<T> sorted = new ArrayList<T>(numbers.keySet());
+    Collections.sort(sorted, new Comparator<T>() {
+      @Override
+      public int compare(T a, T b) {
+        return Integer.compare(numbers.get(a), numbers.get(b));
+      }
+    });
+    return sorted;
+  }
+
+  private static void writeFastHierarchy(JimpleBodyEncoding.Writer out, List<SootClass> classes) throws IOException {
+    Scene scene = Scene.v();
+    if (!scene.hasFastHierarchy()) {
+      out.writeInt(0);
+      return;
+    }
+    FastHierarchy hierarchy = scene.getFastHierarchy();
+    out.writeInt(hierarchy.isFrozen() ? 2 : 1);
+    List<Integer> indices = new ArrayList<Integer>();
+    List<int[]> intervals = new ArrayList<int[]>();
+    for (int i = 0; i < classes.size(); i++) {
+      int[] interval = hierarchy.getInterval(classes.get(i));
+      if (interval != null) {
+        indices.add(i);
+        intervals.add(interval);
+      }
+    }
+    out.writeInt(indices.size());
+    for (int i = 0; i < indices.size(); i++) {
+      out.writeInt(indices.get(i));
+      out.writeInt(intervals.get(i)[0]);
+      out.writeInt(intervals.get(i)[1]);
+    }
+  }
+
+  private static void readFastHierarchy(JimpleBodyEncoding.Reader in, List<SootClass> classes) throws IOException {
+    int state = in.readInt();
+    if (state == 0) {
+      return;
+    }
+    int count = in.readInt();
+    Map<SootClass, int[]> intervals = new HashMap<SootClass, int[]>(count * 2);
+    for (int i = 0; i < count; i++) {
+      SootClass sc = classes.get(in.readInt());
+      intervals.put(sc, new int[] { in.readInt(), in.readInt() });
+    }
+    FastHierarchy hierarchy = new FastHierarchy(intervals);
+    if (state == 2) {
+      hierarchy.freeze();
+    }
+    Scene.v().setFastHierarchy(hierarchy);
+  }
+
+  private static void writeCallGraph(JimpleBodyEncoding.Writer out, CallGraph cg, Map<SootMethod, Integer> methodIndices)
+      throws IOException {
+    out.writeInt(cg.size());
+    // the position of every unit of the sources, numbered once per source instead of once per edge
+    Map<SootMethod, Map<Unit, Integer>> unitIndices = new HashMap<SootMethod, Map<Unit, Integer>>();
+    for (Edge e : cg) {
+      int unitIndex = -1;
+      if (e.srcUnit() != null) {
+        Map<Unit, Integer> indices = unitIndices.get(e.src());
+        if (indices == null) {
+          indices = new IdentityHashMap<Unit, Integer>();
+          for (Unit u : e.src().getActiveBody().getUnits()) {
+            indices.put(u, indices.size());
+          }
+          unitIndices.put(e.src(), indices);
+        }
+        Integer index = indices.get(e.srcUnit());
+        if (index == null) {
+          throw new IllegalStateException("Call graph edge from a unit that is not in the body of " + e.src());
+        }
+        unitIndex = index;
+      }
+      out.writeString(e.kind().name());
+      out.writeInt(indexOf(methodIndices, e.src()));
+      out.writeInt(unitIndex + 1);
+      out.writeInt(indexOf(methodIndices, e.tgt()));
+    }
+  }
+
+  private static CallGraph readCallGraph(JimpleBodyEncoding.Reader in, List<SootMethod> methods) throws IOException {
+    Map<String, Kind> kinds = new HashMap<String, Kind>();
+    for (Field f : Kind.class.getFields()) {
+      if (java.lang.reflect.Modifier.isStatic(f.getModifiers()) && f.getType() == Kind.class) {
+        try {
+          Kind kind = (Kind) f.get(null);
+          kinds.put(kind.name(), kind);
+        } catch (IllegalAccessException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    }
+
+    CallGraph cg = new CallGraph();
+    Map<SootMethod, Unit[]> units = new HashMap<SootMethod, Unit[]>();
+    for (int count = in.readInt(); count > 0; count--) {
+      Kind kind = kinds.get(in.readString());
+      SootMethod src = methods.get(in.readInt());
+      int unitIndex = in.readInt() - 1;
+      SootMethod tgt = methods.get(in.readInt());
+      Unit srcUnit = null;
+      if (unitIndex >= 0) {
+        Unit[] srcUnits = units.get(src);
+        if (srcUnits == null) {
+          Chain<Unit> chain = src.getActiveBody().getUnits();
+          srcUnits = chain.toArray(new Unit[chain.size()]);
+          units.put(src, srcUnits);
+        }
+        srcUnit = srcUnits[unitIndex];
+      }
+      cg.addEdge(new Edge(src, srcUnit, tgt, kind));
+    }
+    return cg;
+  }
+
+  private static int indexOf(Map<SootMethod, Integer> methodIndices, SootMethod m) {
+    Integer index = methodIndices.get(m);
+    if (index == null) {
+      throw new IllegalStateException(m.getSignature() + " is not declared by a class of the Scene");
+    }
+    return index;
+  }
+
+  private static void writeClassNames(JimpleBodyEncoding.Writer out, Collection<SootClass> classes) throws IOException {
+    out.writeInt(classes.size());
+    for (SootClass sc : classes) {
+      out.writeString(sc.getName());
+    }
+  }
+
+  private static List<SootClass> readClasses(JimpleBodyEncoding.Reader in) throws IOException {
+    int count = in.readInt();
+    List<SootClass> classes = new ArrayList<SootClass>(count);
+    for (int i = 0; i < count; i++) {
+      classes.add(Scene.v().getSootClass(in.readString()));
+    }
+    return classes;
+  }
+}
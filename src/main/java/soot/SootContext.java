@@ -0,0 +1,192 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.concurrent.Callable;
+
+/**
+ * An independent set of Soot globals, i.e. its own {@link Scene}, {@link soot.options.Options}, {@link PackManager},
+ * {@link PhaseOptions} and all other singletons of {@link G}. Code run through {@link #call(Callable)} or
+ * {@link #run(Runnable)} sees the globals of the context, so that several analyses can run concurrently in one JVM, each on
+ * its own thread. The context is bound to the calling thread only, it is not inherited by the threads that are started
+ * while it is bound, as pooled threads would otherwise keep the context they were started in and use it for the tasks of
+ * other contexts. Tasks handed to a thread pool must therefore be wrapped with {@link #wrap(Runnable)} or
+ * {@link #wrap(Callable)}, as Soot does for its own pools.
+ *
+ * <pre>
+ * SootContext context = SootContext.create();
+ * CallGraph cg = context.call(() -&gt; {
+ *   Options.v().set_soot_classpath(classPath);
+ *   Scene.v().loadNecessaryClasses();
+ *   PackManager.v().runPacks();
+ *   return Scene.v().getCallGraph();
+ * });
+ * </pre>
+ *
+ * <p>
+ * Threads without a context use the globals that {@link G#v()} returned before the first context was created.
+ * {@link G#reset()} only resets the globals of the bound context. Data that does not depend on the Scene is shared by all
+ * contexts: the indices of the archives on the class path, see {@link ArchiveIndex#forFile(java.io.File)}, and the
+ * {@link soot.options.Options#body_cache_dir() body cache} on disk. A JDK Scene that has been prepared once can be copied
+ * into each context with {@link SceneSnapshot#restore(java.io.File)}.
+ * </p>
+ *
+ * <p>
+ * The context must not be replaced through {@link G#setGlobalObjectGetter(G.GlobalObjectGetter)} after the first context
+ * has been created. Objects of one context, such as classes, methods and bodies, must not be used in another context.
+ * </p>
+ */
+public final class SootContext {
+
+  private static final ThreadLocal<SootContext> bound = new ThreadLocal<SootContext>();
+
+  private volatile G g;
+
+  private SootContext() {
+    this.g = new G();
+  }
+
+  /** Creates a context with fresh globals. */
+  public static SootContext create() {
+    install();
+    return new SootContext();
+  }
+
+  /** Returns the context bound to the current thread, or <code>null</code> if the thread uses the shared globals. */
+  public static SootContext current() {
+    return bound.get();
+  }
+
+  /** Returns the globals of this context. */
+  public G getG() {
+    return g;
+  }
+
+  /** Replaces the globals of this context by fresh ones, like {@link G#reset()} does while the context is bound. */
+  public void reset() {
+    g = new G();
+  }
+
+  /**
+   * Runs the given task on the current thread with this context bound, and restores the previous binding afterwards.
+   */
+  public <V> V call(Callable<V> task) throws Exception {
+    SootContext previous = bound.get();
+    bound.set(this);
+    try {
+      return task.call();
+    } finally {
+      if (previous == null) {
+        bound.remove();
+      } else {
+        bound.set(previous);
+      }
+    }
+  }
+
+  /**
+   * Runs the given task on the current thread with this context bound, and restores the previous binding afterwards.
+   */
+  public void run(final Runnable task) {
+    try {
+      call(new Callable<Void>() {
+        @Override
+        public Void call() {
+          task.run();
+          return null;
+        }
+      });
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      // Runnables cannot throw checked exceptions
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * Returns a task that runs the given task with the context of the calling thread bound, so that it can be handed to a
+   * thread pool. Returns the task itself if no context is bound.
+   */
+  public static Runnable wrap(final Runnable task) {
+    final SootContext context = current();
+    if (context == null) {
+      return task;
+    }
+    return new Runnable() {
+      @Override
+      public void run() {
+        context.run(task);
+      }
+    };
+  }
+
+  /**
+   * Returns a task that calls the given task with the context of the calling thread bound, so that it can be handed to a
+   * thread pool. Returns the task itself if no context is bound.
+   */
+  public static <V> Callable<V> wrap(final Callable<V> task) {
+    final SootContext context = current();
+    if (context == null) {
+      return task;
+    }
+    return new Callable<V>() {
+      @Override
+      public V call() throws Exception {
+        return context.call(task);
+      }
+    };
+  }
+
+  /** Makes {@link G#v()} look up the bound context first. */
+  private static synchronized void install() {
+    G.GlobalObjectGetter getter = G.getGlobalObjectGetter();
+    if (!(getter instanceof ContextObjectGetter)) {
+      G.setGlobalObjectGetter(new ContextObjectGetter(getter));
+    }
+  }
+
+  private static final class ContextObjectGetter implements G.GlobalObjectGetter {
+    private final G.GlobalObjectGetter unbound;
+
+    private ContextObjectGetter(G.GlobalObjectGetter unbound) {
+      this.unbound = unbound;
+    }
+
+    @Override
+    public G getG() {
+      SootContext context = bound.get();
+      return context == null ? unbound.getG() : context.g;
+    }
+
+    @Override
+    public void reset() {
+      SootContext context = bound.get();
+      if (context == null) {
+        unbound.reset();
+      } else {
+        context.reset();
+      }
+    }
+  }
+}
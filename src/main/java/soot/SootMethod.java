@@ -313,6 +313,9 @@ public class SootMethod extends AbstractHost implements ClassMember, Numberable,
     // This is a quick check just in case the activeBody exists.
     Body activeBody = this.activeBody;
     if (activeBody != null) {
+      if (!activeBody.recentlyUsed) {
+        activeBody.recentlyUsed = true;
+      }
       return activeBody;
     }
 
@@ -325,19 +328,39 @@ public class SootMethod extends AbstractHost implements ClassMember, Numberable,
         return activeBody;
       }
 
-      if (declaringClass != null) {
-        declaringClass.checkLevel(SootClass.BODIES);
-      }
-      if ((declaringClass != null && declaringClass.isPhantomClass()) || isPhantom()) {
-        throw new RuntimeException("cannot get active body for phantom method: " + getSignature());
-      }
+      // The body may have been evicted to save memory
+      activeBody = reloadEvictedBody();
+      if (activeBody == null) {
+        if (declaringClass != null) {
+          declaringClass.checkLevel(SootClass.BODIES);
+        }
+        if ((declaringClass != null && declaringClass.isPhantomClass()) || isPhantom()) {
+          throw new RuntimeException("cannot get active body for phantom method: " + getSignature());
+        }
 
-      // ignore empty body exceptions if we are just computing coffi metrics
-      if (!soot.jbco.Main.metrics) {
-        throw new RuntimeException("no active body present for method " + getSignature());
+        // ignore empty body exceptions if we are just computing coffi metrics
+        if (!soot.jbco.Main.metrics) {
+          throw new RuntimeException("no active body present for method " + getSignature());
+        }
+        return null;
       }
+    }
+    BodyStore.v().bodyLoaded(this, activeBody);
+    return activeBody;
+  }
+
+  /**
+   * Sets the active body to the evicted body of this method, if there is one. Must be called while holding the lock of this
+   * method.
+   */
+  private Body reloadEvictedBody() {
+    BodyStore store = BodyStore.v();
+    if (!store.hasEvictedBody(this)) {
       return null;
     }
+    Body body = store.reload(this);
+    this.activeBody = body;
+    return body;
   }
 
   /**
@@ -361,6 +384,7 @@ public class SootMethod extends AbstractHost implements ClassMember, Numberable,
     }
 
     this.activeBody = body;
+    BodyStore.v().bodyReplaced(this);
   }
 
   /**
@@ -375,6 +399,9 @@ public class SootMethod extends AbstractHost implements ClassMember, Numberable,
     // This is a quick check just in case the activeBody exists.
     Body activeBody = this.activeBody;
     if (activeBody != null) {
+      if (!activeBody.recentlyUsed) {
+        activeBody.recentlyUsed = true;
+      }
       return activeBody;
     }
 
@@ -387,37 +414,50 @@ public class SootMethod extends AbstractHost implements ClassMember, Numberable,
         return activeBody;
       }
 
-      if (declaringClass != null) {
-        declaringClass.checkLevel(SootClass.BODIES);
-      }
-      if ((declaringClass != null && declaringClass.isPhantomClass()) || isPhantom()) {
-        throw new RuntimeException("cannot get resident body for phantom method : " + this);
-      }
+      // The body may have been evicted to save memory
+      activeBody = reloadEvictedBody();
+      if (activeBody == null) {
+        if (declaringClass != null) {
+          declaringClass.checkLevel(SootClass.BODIES);
+        }
+        if ((declaringClass != null && declaringClass.isPhantomClass()) || isPhantom()) {
+          throw new RuntimeException("cannot get resident body for phantom method : " + this);
+        }
 
-      if (ms == null) {
-        throw new RuntimeException("No method source set for method " + this);
-      }
+        if (ms == null) {
+          throw new RuntimeException("No method source set for method " + this);
+        }
 
-      // Method sources are not expected to be thread safe
-      activeBody = ms.getBody(this, "jb");
-      setActiveBody(activeBody);
+        // Method sources are not expected to be thread safe
+        BodyStore.beginBuilding();
+        try {
+          activeBody = ms.getBody(this, "jb");
+        } finally {
+          BodyStore.endBuilding();
+        }
+        setActiveBody(activeBody);
 
-      // If configured, we drop the method source to save memory
-      if (Options.v().drop_bodies_after_load()) {
-        ms = null;
+        // If configured, we drop the method source to save memory
+        if (Options.v().drop_bodies_after_load()) {
+          ms = null;
+        }
       }
-      return activeBody;
     }
+    if (activeBody != null) {
+      BodyStore.v().bodyLoaded(this, activeBody);
+    }
+    return activeBody;
   }
 
-  /** Returns true if this method has an active body. */
+  /** Returns true if this method has an active body, which includes a body that has been evicted to save memory. */
   public boolean hasActiveBody() {
-    return activeBody != null;
+    return activeBody != null || BodyStore.v().hasEvictedBody(this);
   }
 
   /** Releases the active body associated with this method. */
   public synchronized void releaseActiveBody() {
     activeBody = null;
+    BodyStore.v().bodyReplaced(this);
   }
 
   /**
@@ -28,8 +28,16 @@ import java.io.InputStream;
 import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,6 +67,24 @@ public class SootResolver {
 
   private Program program = null;
 
+  /** The number of class sources that may be prefetched ahead of the resolver, per thread. */
+  private static final int PREFETCH_WINDOW_PER_THREAD = 64;
+
+  /**
+   * Loads and parses class sources ahead of the resolver, see {@link Options#resolver_threads()}. The pool only lives while
+   * the worklist is processed, so that no threads are left behind when the resolver is reset.
+   */
+  private ForkJoinPool prefetchPool = null;
+
+  /** The number of nested calls of {@link #processResolveWorklist()}. */
+  private int worklistDepth = 0;
+
+  /** Classes waiting to be prefetched once the prefetch window has room again. */
+  private final Set<SootClass> prefetchQueue = new LinkedHashSet<SootClass>();
+
+  /** Class sources that are being prefetched or are ready, but not yet resolved. */
+  private final Map<SootClass, Future<ClassSource>> prefetched = new HashMap<SootClass, Future<ClassSource>>();
+
   public SootResolver(Singletons.Global g) {
     worklist[SootClass.HIERARCHY] = new ArrayDeque<SootClass>();
     worklist[SootClass.SIGNATURES] = new ArrayDeque<SootClass>();
@@ -152,6 +178,20 @@ public class SootResolver {
 
   /** Resolve all classes on toResolveWorklist. */
   protected void processResolveWorklist() {
+    worklistDepth++;
+    try {
+      processResolveWorklistUnchecked();
+    } catch (RuntimeException e) {
+      discardPrefetched();
+      throw e;
+    } finally {
+      if (--worklistDepth == 0) {
+        shutdownPrefetchPool();
+      }
+    }
+  }
+
+  private void processResolveWorklistUnchecked() {
     for (int i = SootClass.BODIES; i >= SootClass.HIERARCHY; i--) {
       while (!worklist[i].isEmpty()) {
         SootClass sc = worklist[i].pop();
@@ -203,6 +243,99 @@ public class SootResolver {
       return;
     }
     worklist[desiredLevel].add(sc);
+    if (sc.resolvingLevel() < SootClass.HIERARCHY && prefetchEnabled()) {
+      if (!prefetched.containsKey(sc) && prefetchQueue.add(sc)) {
+        fillPrefetchWindow();
+      }
+    }
+  }
+
+  private boolean prefetchEnabled() {
+    if (prefetchPool == null) {
+      int threads = Options.v().resolver_threads();
+      if (threads == 0) {
+        threads = Runtime.getRuntime().availableProcessors();
+      }
+      // the module path source locator is not prepared for this
+      if (threads <= 1 || ModuleUtil.module_mode()) {
+        return false;
+      }
+      prefetchPool = new ForkJoinPool(threads);
+    }
+    return true;
+  }
+
+  /**
+   * Locates the sources of queued classes on the resolver thread and prefetches them on the pool, until the window is
+   * full. Only the prefetching runs in parallel, the classes are still resolved one after the other in worklist order.
+   */
+  private void fillPrefetchWindow() {
+    int window = PREFETCH_WINDOW_PER_THREAD * prefetchPool.getParallelism();
+    Iterator<SootClass> it = prefetchQueue.iterator();
+    while (prefetched.size() < window && it.hasNext()) {
+      SootClass sc = it.next();
+      it.remove();
+      if (sc.resolvingLevel() >= SootClass.HIERARCHY) {
+        continue;
+      }
+      final ClassSource source;
+      try {
+        source = SourceLocator.v().getClassSource(sc.getName());
+      } catch (RuntimeException e) {
+        // bringToHierarchy looks the class up again and reports the error
+        continue;
+      }
+      if (source != null) {
+        prefetched.put(sc, prefetchPool.submit(new Callable<ClassSource>() {
+          @Override
+          public ClassSource call() {
+            source.prefetch();
+            return source;
+          }
+        }));
+      }
+    }
+  }
+
+  /**
+   * Returns the prefetched source of the given class, or <code>null</code> if it has not been prefetched.
+   */
+  private ClassSource takePrefetched(SootClass sc) {
+    Future<ClassSource> future = prefetched.remove(sc);
+    prefetchQueue.remove(sc);
+    if (future == null) {
+      return null;
+    }
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Error: Failed to prefetch class " + sc.getName(), e.getCause());
+    } finally {
+      fillPrefetchWindow();
+    }
+  }
+
+  private void discardPrefetched() {
+    prefetchQueue.clear();
+    for (Future<ClassSource> future : prefetched.values()) {
+      try {
+        future.get().close();
+      } catch (Exception e) {
+        logger.debug(e.getMessage(), e);
+      }
+    }
+    prefetched.clear();
+  }
+
+  private void shutdownPrefetchPool() {
+    if (prefetchPool != null) {
+      discardPrefetched();
+      prefetchPool.shutdown();
+      prefetchPool = null;
+    }
   }
 
   /**
@@ -223,12 +356,14 @@ public class SootResolver {
 
   protected void bringToHierarchyUnchecked(SootClass sc) {
     String className = sc.getName();
-    ClassSource is;
-    if (ModuleUtil.module_mode()) {
-      is = ModulePathSourceLocator.v().getClassSource(className,
-          com.google.common.base.Optional.fromNullable(sc.moduleName));
-    } else {
-      is = SourceLocator.v().getClassSource(className);
+    ClassSource is = takePrefetched(sc);
+    if (is == null) {
+      if (ModuleUtil.module_mode()) {
+        is = ModulePathSourceLocator.v().getClassSource(className,
+            com.google.common.base.Optional.fromNullable(sc.moduleName));
+      } else {
+        is = SourceLocator.v().getClassSource(className);
+      }
     }
     try {
       boolean modelAsPhantomRef = is == null;
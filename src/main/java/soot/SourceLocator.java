@@ -31,16 +31,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import org.jf.dexlib2.iface.DexFile;
 import org.slf4j.Logger;
@@ -91,27 +90,11 @@ public class SourceLocator {
               return ClassSourceType.directory;
             }
           });
-  private LoadingCache<String, Set<String>> archivePathsToEntriesCache
-      = CacheBuilder.newBuilder().initialCapacity(60).maximumSize(500).softValues()
-          .concurrencyLevel(Runtime.getRuntime().availableProcessors()).build(new CacheLoader<String, Set<String>>() {
-            @Override
-            public Set<String> load(String archivePath) throws Exception {
-              ZipFile archive = null;
-              try {
-                archive = new ZipFile(archivePath);
-                Set<String> ret = new HashSet<String>();
-                Enumeration<? extends ZipEntry> it = archive.entries();
-                while (it.hasMoreElements()) {
-                  ret.add(it.nextElement().getName());
-                }
-                return ret;
-              } finally {
-                if (archive != null) {
-                  archive.close();
-                }
-              }
-            }
-          });
+  /** The indices of the archives on the class path, they are never evicted as they are compact. */
+  private final Map<String, ArchiveIndex> archiveIndices = new ConcurrentHashMap<String, ArchiveIndex>();
+  /** The class path split into directories and runs of archives, see {@link #lookupInClassPath(String)}. */
+  private volatile List<ClassPathSegment> classPathSegments;
+  private List<String> classPathOfSegments;
   /**
    * Set containing all dex files that were appended to the classpath later on. The classes from these files are not yet
    * loaded and are still missing from dexClassIndex.
@@ -344,12 +327,8 @@ public class SourceLocator {
     }
     // load Java class files from ZIP and JAR
     else if (cst == ClassSourceType.jar || cst == ClassSourceType.zip) {
-      ZipFile archive = null;
       try {
-        archive = new ZipFile(aPath);
-        for (Enumeration<? extends ZipEntry> entries = archive.entries(); entries.hasMoreElements();) {
-          ZipEntry entry = entries.nextElement();
-          String entryName = entry.getName();
+        for (String entryName : getArchiveIndex(aPath).getEntryNames()) {
           if (entryName.endsWith(".class") || entryName.endsWith(".jimple")) {
             int extensionIndex = entryName.lastIndexOf('.');
             entryName = entryName.substring(0, extensionIndex);
@@ -359,14 +338,6 @@ public class SourceLocator {
         }
       } catch (Throwable e) {
         throw new CompilationDeathException("Error reading archive '" + aPath + "'", e);
-      } finally {
-        try {
-          if (archive != null) {
-            archive.close();
-          }
-        } catch (Throwable t) {
-          logger.debug("" + t.getMessage());
-        }
       }
 
       // we might have dex files inside the archive
@@ -607,16 +578,19 @@ public class SourceLocator {
   }
 
   /**
-   * Searches for a file with the given name in the exploded classPath.
+   * Searches for a file with the given name in the exploded classPath. Consecutive archives on the class path are looked up
+   * in a single merged index, which maps each file to the first of these archives that contains it.
    */
   public FoundFile lookupInClassPath(String fileName) {
-    for (String dir : classPath) {
+    for (ClassPathSegment segment : getClassPathSegments()) {
       FoundFile ret = null;
-      ClassSourceType cst = getClassSourceType(dir);
-      if (cst == ClassSourceType.zip || cst == ClassSourceType.jar) {
-        ret = lookupInArchive(dir, fileName);
-      } else if (cst == ClassSourceType.directory) {
-        ret = lookupInDir(dir, fileName);
+      if (segment.directory != null) {
+        ret = lookupInDir(segment.directory, fileName);
+      } else {
+        ArchiveIndex archive = segment.archives.get(fileName);
+        if (archive != null) {
+          ret = new FoundFile(archive, fileName);
+        }
       }
       if (ret != null) {
         return ret;
@@ -625,6 +599,53 @@ public class SourceLocator {
     return null;
   }
 
+  private List<ClassPathSegment> getClassPathSegments() {
+    List<ClassPathSegment> segments = classPathSegments;
+    if (segments != null && classPathOfSegments == classPath) {
+      return segments;
+    }
+    synchronized (this) {
+      if (classPathSegments != null && classPathOfSegments == classPath) {
+        return classPathSegments;
+      }
+      segments = new ArrayList<ClassPathSegment>();
+      Map<String, ArchiveIndex> archives = null;
+      for (String dir : classPath) {
+        ClassSourceType cst = getClassSourceType(dir);
+        if (cst == ClassSourceType.zip || cst == ClassSourceType.jar) {
+          if (archives == null) {
+            archives = new HashMap<String, ArchiveIndex>();
+            segments.add(new ClassPathSegment(null, archives));
+          }
+          ArchiveIndex archive = getArchiveIndex(dir);
+          for (String entryName : archive.getEntryNames()) {
+            archives.putIfAbsent(entryName, archive);
+          }
+        } else if (cst == ClassSourceType.directory) {
+          archives = null;
+          segments.add(new ClassPathSegment(dir, null));
+        }
+      }
+      classPathOfSegments = classPath;
+      classPathSegments = segments;
+      return segments;
+    }
+  }
+
+  /**
+   * Returns the index of the given archive, reading its central directory if no Scene has done so yet.
+   */
+  public ArchiveIndex getArchiveIndex(String archivePath) {
+    return archiveIndices.computeIfAbsent(archivePath, path -> {
+      try {
+        return ArchiveIndex.forFile(new File(path));
+      } catch (IOException e) {
+        throw new RuntimeException(
+            "Error: Failed to retrieve the archive entries list for the archive at path '" + path + "'.", e);
+      }
+    });
+  }
+
   private FoundFile lookupInDir(String dir, String fileName) {
     File f = new File(dir, fileName);
     if (f.exists() && f.canRead()) {
@@ -634,15 +655,9 @@ public class SourceLocator {
   }
 
   protected FoundFile lookupInArchive(String archivePath, String fileName) {
-    Set<String> entryNames = null;
-    try {
-      entryNames = archivePathsToEntriesCache.get(archivePath);
-    } catch (Exception e) {
-      throw new RuntimeException(
-          "Error: Failed to retrieve the archive entries list for the archive at path '" + archivePath + "'.", e);
-    }
-    if (entryNames.contains(fileName)) {
-      return new FoundFile(archivePath, fileName);
+    ArchiveIndex archive = getArchiveIndex(archivePath);
+    if (archive.contains(fileName)) {
+      return new FoundFile(archive, fileName);
     }
     return null;
   }
@@ -710,4 +725,15 @@ public class SourceLocator {
   protected enum ClassSourceType {
     jar, zip, apk, dex, directory, jrt, unknown
   }
+
+  /** Either a directory or a run of archives on the class path. */
+  private static class ClassPathSegment {
+    private final String directory;
+    private final Map<String, ArchiveIndex> archives;
+
+    private ClassPathSegment(String directory, Map<String, ArchiveIndex> archives) {
+      this.directory = directory;
+      this.archives = archives;
+    }
+  }
 }
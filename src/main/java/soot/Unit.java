@@ -27,13 +27,14 @@ import java.util.List;
 
 import soot.tagkit.Host;
 import soot.util.Chain;
+import soot.util.Numberable;
 import soot.util.Switchable;
 
 /**
  * A code fragment (eg Stmt or Inst), used within Body classes. Intermediate representations must use an implementation of
  * Unit for their code. In general, a unit denotes some sort of unit for execution.
  */
-public interface Unit extends Switchable, Host, Serializable, Context {
+public interface Unit extends Switchable, Host, Serializable, Context, Numberable {
   /** Returns a list of Boxes containing Values used in this Unit. */
   public List<ValueBox> getUseBoxes();
 
@@ -0,0 +1,515 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import soot.util.Chain;
+
+/**
+ * A chain of units that keeps its units in an array instead of a linked list with a hash map, for bodies that are mostly
+ * read. Each {@link AbstractUnit} remembers its position in the chain that owns it, so that lookups, {@link #getSuccOf},
+ * {@link #getPredOf} and {@link #follows} are array accesses, and iterating walks the array.
+ *
+ * <p>
+ * The array is a gap buffer: insertions and removals move the gap to the point of modification, so that a sequence of
+ * modifications close to each other, or appending units, only moves few units. Units that are not {@link AbstractUnit}s, or
+ * that are contained in more than one such chain at once, are looked up by scanning the array.
+ * </p>
+ *
+ * <p>
+ * Like {@link soot.util.HashChain}, this chain does not patch jumps, wrap it in a {@link UnitPatchingChain} for that, see
+ * {@link Body#compactUnits()}.
+ * </p>
+ */
+@SuppressWarnings("serial")
+public class UnitArrayChain extends AbstractCollection<Unit> implements Chain<Unit> {
+
+  /** Marks units that are contained in several chains, which therefore cannot know their position. */
+  private static final Object SHARED = new Object();
+
+  private static final Unit[] EMPTY = new Unit[0];
+
+  private Unit[] units;
+  private int gapStart;
+  private int gapEnd;
+  private int stateCount = 0;
+
+  /** Constructs an empty chain. */
+  public UnitArrayChain() {
+    this.units = EMPTY;
+  }
+
+  /** Constructs a chain filled with the units of the given chain, in the same order. */
+  public UnitArrayChain(Collection<? extends Unit> src) {
+    this.units = new Unit[src.size()];
+    this.gapStart = 0;
+    this.gapEnd = units.length;
+    for (Unit u : src) {
+      addLast(u);
+    }
+  }
+
+  @Override
+  public synchronized int size() {
+    return units.length - (gapEnd - gapStart);
+  }
+
+  /** Returns the unit at the given position. */
+  public synchronized Unit get(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+    }
+    return units[physical(index)];
+  }
+
+  /** Returns the position of the given unit in this chain, or -1 if the chain does not contain it. */
+  public synchronized int indexOf(Object o) {
+    if (o instanceof AbstractUnit) {
+      AbstractUnit u = (AbstractUnit) o;
+      if (u.chainOwner == this) {
+        return logical(u.chainIndex);
+      } else if (u.chainOwner != SHARED) {
+        return -1;
+      }
+    }
+    for (int i = 0, n = units.length; i < n; i++) {
+      if (units[i] == o && (i < gapStart || i >= gapEnd)) {
+        return logical(i);
+      }
+    }
+    return -1;
+  }
+
+  private int physical(int index) {
+    return index < gapStart ? index : index + (gapEnd - gapStart);
+  }
+
+  private int logical(int physical) {
+    return physical < gapStart ? physical : physical - (gapEnd - gapStart);
+  }
+
+  private int indexOfExisting(Unit point) {
+    int index = indexOf(point);
+    if (index < 0) {
+      throw new RuntimeException("Insertion point not found in chain!");
+    }
+    return index;
+  }
+
+  /** Stores a unit of this chain at the given physical position. */
+  private void place(Unit u, int physical) {
+    units[physical] = u;
+    if (u instanceof AbstractUnit) {
+      AbstractUnit au = (AbstractUnit) u;
+      if (au.chainOwner == this) {
+        au.chainIndex = physical;
+      }
+    }
+  }
+
+  /** Stores a unit that is new to this chain at the given physical position. */
+  private void adopt(Unit u, int physical) {
+    if (u instanceof AbstractUnit) {
+      AbstractUnit au = (AbstractUnit) u;
+      if (au.chainOwner == null) {
+        au.chainOwner = this;
+      } else if (au.chainOwner != this) {
+        // contained in another chain as well, neither chain can rely on the position
+        au.chainOwner = SHARED;
+      }
+    }
+    place(u, physical);
+  }
+
+  /** Moves the gap so that it starts at the given position. */
+  private void moveGap(int index) {
+    if (index < gapStart) {
+      int count = gapStart - index;
+      int gap = gapEnd - gapStart;
+      for (int i = gapStart - 1; i >= index; i--) {
+        place(units[i], i + gap);
+      }
+      Arrays.fill(units, index, Math.min(index + gap, gapStart), null);
+      gapStart -= count;
+      gapEnd -= count;
+    } else if (index > gapStart) {
+      int count = index - gapStart;
+      int gap = gapEnd - gapStart;
+      for (int i = gapEnd; i < gapEnd + count; i++) {
+        place(units[i], i - gap);
+      }
+      Arrays.fill(units, Math.max(gapEnd, index), gapEnd + count, null);
+      gapStart += count;
+      gapEnd += count;
+    }
+  }
+
+  private void insertAt(int index, Unit u) {
+    if (u == null) {
+      throw new RuntimeException("Bad idea! You tried to insert a null object into a Chain!");
+    }
+    if (indexOf(u) >= 0) {
+      throw new RuntimeException("Chain already contains object: " + u);
+    }
+    stateCount++;
+    moveGap(index);
+    if (gapStart == gapEnd) {
+      grow();
+    }
+    adopt(u, gapStart);
+    gapStart++;
+  }
+
+  private void grow() {
+    int size = units.length;
+    int capacity = Math.max(8, size + (size >> 1));
+    Unit[] grown = new Unit[capacity];
+    // the units behind the gap move to the end of the new array
+    int tail = size - gapEnd;
+    System.arraycopy(units, 0, grown, 0, gapStart);
+    System.arraycopy(units, gapEnd, grown, capacity - tail, tail);
+    units = grown;
+    gapEnd = capacity - tail;
+    for (int i = gapEnd; i < capacity; i++) {
+      place(units[i], i);
+    }
+  }
+
+  private Unit removeAt(int index) {
+    stateCount++;
+    moveGap(index + 1);
+    gapStart--;
+    Unit u = units[gapStart];
+    units[gapStart] = null;
+    if (u instanceof AbstractUnit) {
+      AbstractUnit au = (AbstractUnit) u;
+      if (au.chainOwner == this) {
+        au.chainOwner = null;
+      }
+    }
+    return u;
+  }
+
+  @Override
+  public synchronized void clear() {
+    stateCount++;
+    for (int i = 0, n = units.length; i < n; i++) {
+      Unit u = units[i];
+      if (u instanceof AbstractUnit && ((AbstractUnit) u).chainOwner == this) {
+        ((AbstractUnit) u).chainOwner = null;
+      }
+    }
+    units = EMPTY;
+    gapStart = gapEnd = 0;
+  }
+
+  @Override
+  public synchronized boolean add(Unit u) {
+    addLast(u);
+    return true;
+  }
+
+  @Override
+  public synchronized boolean contains(Object o) {
+    return indexOf(o) >= 0;
+  }
+
+  @Override
+  public synchronized void swapWith(Unit out, Unit in) {
+    insertBefore(in, out);
+    remove(out);
+  }
+
+  @Override
+  public synchronized void insertAfter(Unit toInsert, Unit point) {
+    insertAt(indexOfExisting(point) + 1, toInsert);
+  }
+
+  @Override
+  public synchronized void insertAfter(Collection<? extends Unit> toInsert, Unit point) {
+    if (toInsert == null) {
+      throw new RuntimeException("Warning! You tried to insert a null list into a Chain!");
+    }
+    int index = indexOfExisting(point) + 1;
+    for (Unit u : toInsert) {
+      insertAt(index++, u);
+    }
+  }
+
+  @Override
+  public synchronized void insertAfter(List<Unit> toInsert, Unit point) {
+    insertAfter((Collection<Unit>) toInsert, point);
+  }
+
+  @Override
+  public synchronized void insertAfter(Chain<Unit> toInsert, Unit point) {
+    insertAfter((Collection<Unit>) toInsert, point);
+  }
+
+  @Override
+  public synchronized void insertBefore(Unit toInsert, Unit point) {
+    insertAt(indexOfExisting(point), toInsert);
+  }
+
+  @Override
+  public synchronized void insertBefore(Collection<? extends Unit> toInsert, Unit point) {
+    if (toInsert == null) {
+      throw new RuntimeException("Warning! You tried to insert a null list into a Chain!");
+    }
+    int index = indexOfExisting(point);
+    for (Unit u : toInsert) {
+      insertAt(index++, u);
+    }
+  }
+
+  @Override
+  public synchronized void insertBefore(List<Unit> toInsert, Unit point) {
+    insertBefore((Collection<Unit>) toInsert, point);
+  }
+
+  @Override
+  public synchronized void insertBefore(Chain<Unit> toInsert, Unit point) {
+    insertBefore((Collection<Unit>) toInsert, point);
+  }
+
+  @Override
+  public synchronized boolean remove(Object o) {
+    if (o == null) {
+      throw new RuntimeException("Bad idea! You tried to remove a null object from a Chain!");
+    }
+    int index = indexOf(o);
+    if (index < 0) {
+      return false;
+    }
+    removeAt(index);
+    return true;
+  }
+
+  @Override
+  public synchronized void addFirst(Unit u) {
+    insertAt(0, u);
+  }
+
+  @Override
+  public synchronized void addLast(Unit u) {
+    insertAt(size(), u);
+  }
+
+  @Override
+  public synchronized void removeFirst() {
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    removeAt(0);
+  }
+
+  @Override
+  public synchronized void removeLast() {
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    removeAt(size() - 1);
+  }
+
+  @Override
+  public synchronized boolean follows(Unit someObject, Unit someReferenceObject) {
+    int reference = indexOf(someReferenceObject);
+    return reference >= 0 && indexOf(someObject) >= reference;
+  }
+
+  @Override
+  public synchronized Unit getFirst() {
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    return units[physical(0)];
+  }
+
+  @Override
+  public synchronized Unit getLast() {
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    return units[physical(size() - 1)];
+  }
+
+  @Override
+  public synchronized Unit getSuccOf(Unit point) {
+    int index = indexOf(point);
+    if (index < 0) {
+      throw new NoSuchElementException();
+    }
+    return index + 1 < size() ? units[physical(index + 1)] : null;
+  }
+
+  @Override
+  public synchronized Unit getPredOf(Unit point) {
+    if (point == null) {
+      throw new RuntimeException("trying to hash null value.");
+    }
+    int index = indexOf(point);
+    if (index < 0) {
+      throw new NoSuchElementException();
+    }
+    return index > 0 ? units[physical(index - 1)] : null;
+  }
+
+  @Override
+  public synchronized Iterator<Unit> snapshotIterator() {
+    return new ArrayList<Unit>(this).iterator();
+  }
+
+  @Override
+  public synchronized Iterator<Unit> iterator() {
+    return new ArrayIterator(0, null);
+  }
+
+  @Override
+  public synchronized Iterator<Unit> iterator(Unit u) {
+    if (isEmpty()) {
+      return new ArrayIterator(0, null);
+    }
+    int index = indexOf(u);
+    if (index < 0) {
+      throw new NoSuchElementException("UnitArrayChain.iterator(obj) with obj that is not in the chain: " + u);
+    }
+    return new ArrayIterator(index, null);
+  }
+
+  /**
+   * Returns an iterator ranging from <code>head</code> to <code>tail</code>, inclusive, with the same special cases as
+   * {@link soot.util.HashChain#iterator(Object, Object)}.
+   */
+  @Override
+  public synchronized Iterator<Unit> iterator(Unit head, Unit tail) {
+    if (isEmpty() || (head != null && getPredOf(head) == tail)) {
+      return new ArrayIterator(size(), null);
+    }
+    int index = indexOf(head);
+    if (index < 0) {
+      throw new NoSuchElementException("UnitArrayChain.iterator(obj) with obj that is not in the chain: " + head);
+    }
+    return new ArrayIterator(index, tail);
+  }
+
+  @Override
+  public synchronized Object[] toArray() {
+    Object[] result = new Object[size()];
+    System.arraycopy(units, 0, result, 0, gapStart);
+    System.arraycopy(units, gapEnd, result, gapStart, units.length - gapEnd);
+    return result;
+  }
+
+  @Override
+  public long getModificationCount() {
+    return stateCount;
+  }
+
+  /** Returns a copy of the units, which may be iterated while this chain is being modified. */
+  @Override
+  public synchronized Collection<Unit> getElementsUnsorted() {
+    return new ArrayList<Unit>(this);
+  }
+
+  @Override
+  public synchronized String toString() {
+    return Arrays.toString(toArray());
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    // the positions are not serialized with the units
+    for (int i = 0, n = units.length; i < n; i++) {
+      if (i < gapStart || i >= gapEnd) {
+        adopt(units[i], i);
+      }
+    }
+  }
+
+  private class ArrayIterator implements Iterator<Unit> {
+    private int next;
+    private int last = -1;
+    private final Unit destination;
+    private boolean reachedDestination = false;
+    private int iteratorStateCount = stateCount;
+
+    private ArrayIterator(int next, Unit destination) {
+      this.next = next;
+      this.destination = destination;
+    }
+
+    @Override
+    public boolean hasNext() {
+      // iterators do not lock the chain, concurrent modifications are detected through the state count
+      if (stateCount != iteratorStateCount) {
+        throw new ConcurrentModificationException();
+      }
+      // like HashChain, an iterator with a destination only stops once the destination has been returned
+      return destination == null ? next < units.length - (gapEnd - gapStart) : !reachedDestination;
+    }
+
+    @Override
+    public Unit next() {
+      if (stateCount != iteratorStateCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (next >= units.length - (gapEnd - gapStart)) {
+        throw new NoSuchElementException(destination != null && !reachedDestination
+            ? "UnitArrayChain iterator reached end of chain without reaching specified tail unit"
+            : "UnitArrayChain iterator called past the end of the Chain");
+      }
+      last = next++;
+      Unit u = units[physical(last)];
+      if (u == destination) {
+        reachedDestination = true;
+      }
+      return u;
+    }
+
+    @Override
+    public void remove() {
+      synchronized (UnitArrayChain.this) {
+        if (stateCount != iteratorStateCount) {
+          throw new ConcurrentModificationException();
+        }
+        if (last < 0) {
+          throw new IllegalStateException();
+        }
+        removeAt(last);
+        next = last;
+        last = -1;
+        iteratorStateCount = stateCount;
+      }
+    }
+  }
+}
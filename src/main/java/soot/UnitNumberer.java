@@ -0,0 +1,181 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import soot.util.IterableNumberer;
+
+/**
+ * Numbers the units of the Scene densely, starting at 1. Units are numbered on demand, the first time their
+ * {@link Unit#getNumber()} is called, so units that never end up in a numbered set or map do not take up a number. The
+ * number is stored in the unit itself, looking it up is a field access.
+ *
+ * <p>
+ * Numbers of units that are no longer used can be given back with {@link #remove(Unit)}, they are handed out again, lowest
+ * first, so that the numbers stay dense. Units that numbered sets or maps may still refer to are dropped with
+ * {@link #retire(Unit)} instead, which never hands their numbers out again. The numberer is thread-safe.
+ * </p>
+ */
+public class UnitNumberer implements IterableNumberer<Unit> {
+
+  /** Written under the lock of this numberer, read without it. */
+  private volatile Unit[] numberToUnit = new Unit[1024];
+  private int lastNumber = 0;
+  private final BitSet freeNumbers = new BitSet();
+
+  /** Assigns a number to the given unit, unless it already has one. */
+  @Override
+  public void add(Unit u) {
+    if (rawNumber(u) == 0) {
+      assign(u);
+    }
+  }
+
+  /** Assigns a number to the given unit, unless it already has one, and returns the number of the unit. */
+  synchronized int assign(Unit u) {
+    int number = rawNumber(u);
+    if (number != 0) {
+      return number;
+    }
+    number = freeNumbers.nextSetBit(1);
+    if (number > 0) {
+      freeNumbers.clear(number);
+    } else {
+      number = ++lastNumber;
+    }
+    Unit[] units = numberToUnit;
+    if (number >= units.length) {
+      units = Arrays.copyOf(units, units.length * 2);
+    }
+    units[number] = u;
+    numberToUnit = units;
+    // the number is set last, readers that see it also see the unit in the array
+    u.setNumber(number);
+    return number;
+  }
+
+  private static int rawNumber(Unit u) {
+    return u instanceof AbstractUnit ? ((AbstractUnit) u).number : u.getNumber();
+  }
+
+  /** Returns the number of the given unit, numbering it first if needed. */
+  @Override
+  public long get(Unit u) {
+    if (u == null) {
+      return 0;
+    }
+    return u.getNumber();
+  }
+
+  @Override
+  public Unit get(long number) {
+    if (number <= 0) {
+      return null;
+    }
+    Unit[] units = numberToUnit;
+    return number < units.length ? units[(int) number] : null;
+  }
+
+  /** Returns the highest number handed out so far. */
+  @Override
+  public synchronized int size() {
+    return lastNumber;
+  }
+
+  /**
+   * Gives the number of the given unit back, it may be handed out to another unit from now on. The unit gets a new number
+   * when it is numbered again. Only remove units that no numbered set or map refers to anymore.
+   */
+  @Override
+  public synchronized boolean remove(Unit u) {
+    if (!forget(u)) {
+      return false;
+    }
+    freeNumbers.set(rawNumber(u));
+    u.setNumber(0);
+    return true;
+  }
+
+  /**
+   * Drops the given unit from the numberer without giving its number back, so the numberer no longer keeps the unit alive
+   * but never hands its number out again. The unit keeps its number. Unlike {@link #remove(Unit)}, this is safe while
+   * numbered sets or maps may still refer to the unit, as they can never mistake another unit for it.
+   */
+  public synchronized boolean retire(Unit u) {
+    return forget(u);
+  }
+
+  private boolean forget(Unit u) {
+    if (u == null) {
+      return false;
+    }
+    int number = rawNumber(u);
+    Unit[] units = numberToUnit;
+    if (number <= 0 || number >= units.length || units[number] != u) {
+      return false;
+    }
+    units[number] = null;
+    return true;
+  }
+
+  /** Iterates over the numbered units in the order of their numbers. */
+  @Override
+  public Iterator<Unit> iterator() {
+    return new Iterator<Unit>() {
+      private int next = advance(1);
+
+      private int advance(int from) {
+        Unit[] units = numberToUnit;
+        int last = Math.min(size(), units.length - 1);
+        while (from <= last && units[from] == null) {
+          from++;
+        }
+        return from <= last ? from : -1;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next > 0;
+      }
+
+      @Override
+      public Unit next() {
+        if (next <= 0) {
+          throw new NoSuchElementException();
+        }
+        Unit u = numberToUnit[next];
+        next = advance(next + 1);
+        return u;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+}
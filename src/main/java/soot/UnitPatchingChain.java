@@ -40,10 +40,32 @@ import soot.util.Chain;
 @SuppressWarnings("serial")
 public class UnitPatchingChain extends PatchingChain<Unit> {
 
+  private transient BodyChangeLog changeLog;
+
   public UnitPatchingChain(Chain<Unit> aChain) {
     super(aChain);
   }
 
+  void setChangeLog(BodyChangeLog changeLog) {
+    this.changeLog = changeLog;
+  }
+
+  @Override
+  protected void elementAdded(Unit u) {
+    BodyChangeLog log = changeLog;
+    if (log != null) {
+      log.unitAdded(u);
+    }
+  }
+
+  @Override
+  protected void elementRemoved(Unit u) {
+    BodyChangeLog log = changeLog;
+    if (log != null) {
+      log.unitRemoved(u);
+    }
+  }
+
   /**
    * Inserts instrumentation in a manner such that the resulting control flow graph (CFG) of the program will contain
    * <code>toInsert</code> on an edge that is defined by <code>point_source</code> and <code>point_target</code>.
@@ -82,6 +104,7 @@ public class UnitPatchingChain extends PatchingChain<Unit> {
     if (point_src == null && point_tgt != null) {
       point_tgt.redirectJumpsToThisTo(toInsert.iterator().next());
       innerChain.insertBefore(toInsert, point_tgt);
+      elementsAdded(toInsert);
       return;
     }
 
@@ -89,6 +112,7 @@ public class UnitPatchingChain extends PatchingChain<Unit> {
     // is null
     if (point_src != null && point_tgt == null) {
       innerChain.insertAfter(toInsert, point_src);
+      elementsAdded(toInsert);
       return;
     }
 
@@ -110,6 +134,7 @@ public class UnitPatchingChain extends PatchingChain<Unit> {
         }
       }
       innerChain.insertAfter(toInsert, point_src);
+      elementsAdded(toInsert);
       return;
     }
 
@@ -133,6 +158,7 @@ public class UnitPatchingChain extends PatchingChain<Unit> {
 
           box.setUnit(toInsert.iterator().next());
           innerChain.insertAfter(toInsert, point_src);
+          elementsAdded(toInsert);
 
           Unit goto_unit = Jimple.v().newGotoStmt(point_tgt);
           if (toInsert instanceof List) {
@@ -141,6 +167,7 @@ public class UnitPatchingChain extends PatchingChain<Unit> {
           } else {
             innerChain.insertAfter(goto_unit, (Unit) toInsert.toArray()[toInsert.size() - 1]);
           }
+          elementAdded(goto_unit);
           return;
         }
 
@@ -151,6 +178,7 @@ public class UnitPatchingChain extends PatchingChain<Unit> {
     }
     if (validEdgeFound) {
       innerChain.insertBefore(toInsert, point_tgt);
+      elementsAdded(toInsert);
 
       if (originalPred != point_src) {
         if (originalPred instanceof GotoStmt) {
@@ -159,6 +187,7 @@ public class UnitPatchingChain extends PatchingChain<Unit> {
 
         Unit goto_unit = Jimple.v().newGotoStmt(point_tgt);
         innerChain.insertBefore(Arrays.asList(goto_unit), toInsert.iterator().next());
+        elementAdded(goto_unit);
       }
       return;
     }
@@ -174,6 +203,7 @@ public class UnitPatchingChain extends PatchingChain<Unit> {
 
         succ.redirectJumpsToThisTo(toInsert.iterator().next());
         innerChain.insertBefore(toInsert, succ);
+        elementsAdded(toInsert);
 
         return;
       }
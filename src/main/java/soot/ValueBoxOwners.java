@@ -0,0 +1,55 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The owners of the {@link ValueBox}es of the units of bodies that record their changes, see {@link BodyChangeLog}. Boxes
+ * do not know the unit they belong to, so a replaced value is attributed to its unit and log through this map.
+ */
+public class ValueBoxOwners {
+
+  private final Map<ValueBox, BodyChangeLog.Registration> owners
+      = new ConcurrentHashMap<ValueBox, BodyChangeLog.Registration>();
+
+  public ValueBoxOwners(Singletons.Global g) {
+  }
+
+  public static ValueBoxOwners v() {
+    return G.v().soot_ValueBoxOwners();
+  }
+
+  BodyChangeLog.Registration get(ValueBox box) {
+    return owners.get(box);
+  }
+
+  void put(ValueBox box, BodyChangeLog.Registration registration) {
+    owners.put(box, registration);
+  }
+
+  void remove(ValueBox box, BodyChangeLog.Registration registration) {
+    owners.remove(box, registration);
+  }
+}
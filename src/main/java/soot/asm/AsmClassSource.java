@@ -22,14 +22,21 @@ package soot.asm;
  * #L%
  */
 
+import com.google.common.io.ByteStreams;
+
 import java.io.IOException;
 import java.io.InputStream;
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
 import soot.ClassSource;
 import soot.FoundFile;
+import soot.MethodSource;
 import soot.SootClass;
+import soot.SootMethod;
 import soot.SootResolver;
 import soot.javaToJimple.IInitialResolver.Dependencies;
+import soot.jimple.JimpleBodyCache;
 
 /**
  * ASM class source implementation.
@@ -40,6 +47,15 @@ public class AsmClassSource extends ClassSource {
 
   protected FoundFile foundFile;
 
+  /** The parsed class, if it has been prefetched. */
+  private ClassNode classNode;
+
+  /** Whether the bodies of this class are cached, see {@link JimpleBodyCache}. */
+  private final boolean cacheBodies;
+
+  /** The hash of the class file, if the bodies of this class are cached. */
+  private String contentHash;
+
   /**
    * Constructs a new ASM class source.
    *
@@ -52,16 +68,64 @@ public class AsmClassSource extends ClassSource {
       throw new IllegalStateException("Error: The FoundFile must not be null.");
     }
     this.foundFile = foundFile;
+    this.cacheBodies = JimpleBodyCache.v().isEnabled();
   }
 
   @Override
-  public Dependencies resolve(SootClass sc) {
+  public void prefetch() {
     InputStream d = null;
     try {
       d = foundFile.inputStream();
-      ClassReader clsr = new ClassReader(d);
+      byte[] classFile = ByteStreams.toByteArray(d);
+      ClassNode node = new ClassNode(Opcodes.ASM8);
+      new ClassReader(classFile).accept(node, ClassReader.SKIP_FRAMES);
+      if (cacheBodies) {
+        contentHash = JimpleBodyCache.contentHash(classFile);
+      }
+      classNode = node;
+    } catch (IOException | RuntimeException e) {
+      // resolve reads the class again and reports the error
+      return;
+    } finally {
+      if (d != null) {
+        try {
+          d.close();
+        } catch (IOException e) {
+          // the stream is closed with the found file anyway
+        }
+      }
+    }
+    // the file is not needed anymore, release it instead of keeping it open until the class is resolved
+    close();
+  }
+
+  @Override
+  public Dependencies resolve(SootClass sc) {
+    InputStream d = null;
+    try {
       SootClassBuilder scb = new SootClassBuilder(sc);
-      clsr.accept(scb, ClassReader.SKIP_FRAMES);
+      if (classNode != null) {
+        classNode.accept(scb);
+        classNode = null;
+      } else {
+        d = foundFile.inputStream();
+        byte[] classFile = ByteStreams.toByteArray(d);
+        ClassReader clsr = new ClassReader(classFile);
+        clsr.accept(scb, ClassReader.SKIP_FRAMES);
+        if (cacheBodies) {
+          contentHash = JimpleBodyCache.contentHash(classFile);
+        }
+      }
+      if (contentHash != null) {
+        JimpleBodyCache cache = JimpleBodyCache.v();
+        JimpleBodyCache.CachedClass cached = cache.cachedClass(className, contentHash, scb.deps);
+        for (SootMethod m : sc.getMethods()) {
+          MethodSource source = m.getSource();
+          if (source instanceof AsmMethodSource && !((AsmMethodSource) source).hasSceneSideEffects()) {
+            m.setSource(cache.cachingSource(source, cached));
+          }
+        }
+      }
       Dependencies deps = new Dependencies();
       deps.typesToSignature.addAll(scb.deps);
       // add the outer class information, could not be called in the builder, since sc needs to be
@@ -341,6 +341,19 @@ final class AsmMethodSource implements MethodSource {
     this.module = module;
   }
 
+  /**
+   * Returns true if converting this method changes the Scene beyond its own body, as the classes that implement lambda
+   * expressions are generated while converting the invokedynamic instructions that create them.
+   */
+  boolean hasSceneSideEffects() {
+    for (Iterator<AbstractInsnNode> it = instructions.iterator(); it.hasNext();) {
+      if (it.next() instanceof InvokeDynamicInsnNode) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private StackFrame getFrame(AbstractInsnNode insn) {
     StackFrame frame = frames.get(insn);
     if (frame == null) {
@@ -153,4 +153,14 @@ class UnitContainer implements Unit {
   public int getJavaSourceStartColumnNumber() {
     throw new UnsupportedOperationException();
   }
+
+  @Override
+  public int getNumber() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void setNumber(int number) {
+    throw new UnsupportedOperationException();
+  }
 }
\ No newline at end of file
@@ -62,6 +62,7 @@ import soot.jbco.util.Rand;
 import soot.jimple.FieldRef;
 import soot.jimple.IntConstant;
 import soot.jimple.Jimple;
+import soot.jimple.StaticFieldRef;
 import soot.tagkit.SignatureTag;
 
 /**
@@ -267,7 +268,12 @@ public class FieldRenamer extends SceneTransformer implements IJbcoTransform {
 
               sootFieldRef = Scene.v().makeFieldRef(sootFieldRef.declaringClass(), newName, sootFieldRef.type(),
                   sootFieldRef.isStatic());
-              fieldRef.setFieldRef(sootFieldRef);
+              if (fieldRef instanceof StaticFieldRef) {
+                // static field refs may be shared by several units, see ValueInterner
+                box.setValue(Jimple.v().newStaticFieldRef(sootFieldRef));
+              } else {
+                fieldRef.setFieldRef(sootFieldRef);
+              }
               try {
                 sootFieldRef.resolve();
               } catch (Exception exception) {
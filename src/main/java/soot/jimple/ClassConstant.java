@@ -48,7 +48,7 @@ public class ClassConstant extends Constant {
     if (value.contains(".")) {
       throw new RuntimeException("ClassConstants must use class names separated by '/', not '.'!");
     }
-    return new ClassConstant(value);
+    return ValueInterner.v().intern(new ClassConstant(value));
   }
 
   public static ClassConstant fromType(Type tp) {
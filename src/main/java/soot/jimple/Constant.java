@@ -56,7 +56,7 @@ public abstract class Constant implements Value, ConvertToBaf, Immediate {
    * call equals().
    */
   public boolean equivTo(Object c) {
-    return equals(c);
+    return this == c || equals(c);
   }
 
   /**
@@ -38,7 +38,7 @@ public class DoubleConstant extends RealConstant {
   }
 
   public static DoubleConstant v(double value) {
-    return new DoubleConstant(value);
+    return ValueInterner.v().intern(new DoubleConstant(value));
   }
 
   @Override
@@ -38,7 +38,7 @@ public class FloatConstant extends RealConstant {
   }
 
   public static FloatConstant v(float value) {
-    return new FloatConstant(value);
+    return ValueInterner.v().intern(new FloatConstant(value));
   }
 
   public boolean equals(Object c) {
@@ -34,7 +34,7 @@ public class IntConstant extends ArithmeticConstant {
   }
 
   public static IntConstant v(int value) {
-    return new IntConstant(value);
+    return ValueInterner.v().intern(new IntConstant(value));
   }
 
   public boolean equals(Object c) {
@@ -656,7 +656,7 @@ public class Jimple {
    * Constructs a StaticFieldRef(SootFieldRef) grammar chunk.
    */
   public StaticFieldRef newStaticFieldRef(SootFieldRef f) {
-    return new StaticFieldRef(f);
+    return ValueInterner.v().staticFieldRef(f);
   }
 
   /**
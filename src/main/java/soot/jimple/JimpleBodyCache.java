@@ -0,0 +1,311 @@
+package soot.jimple;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.Body;
+import soot.G;
+import soot.MethodSource;
+import soot.Pack;
+import soot.PackManager;
+import soot.PhaseOptions;
+import soot.RefType;
+import soot.Scene;
+import soot.Singletons;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Transform;
+import soot.Type;
+import soot.options.Options;
+
+/**
+ * A persistent cache of the Jimple bodies that are created from class files, see {@link Options#body_cache_dir()}. Bodies
+ * are stored in the binary form of {@link JimpleBodyEncoding} after the jb pack has been applied to them, one file per
+ * method, and are read back instead of converting the bytecode again.
+ *
+ * <p>
+ * The bodies of a class are cached under a key that covers the contents of the class file, the options of the jb pack and
+ * the hierarchy of the classes that the class refers to, as the typing of a body depends on it. The hierarchy of a class
+ * is described by the contents of its class file and of the class files of its supertypes, so changing a class only
+ * invalidates the bodies of the classes that refer to it or to one of its subtypes. Bodies that refer to classes that are
+ * neither phantom classes nor have been read from class files are not cached. Class skeletons are still read from the class
+ * files, as the class file has to be read to compute its key anyway.
+ * </p>
+ */
+public class JimpleBodyCache {
+  private static final Logger logger = LoggerFactory.getLogger(JimpleBodyCache.class);
+
+  /** Identifies the layout of the cache, change it whenever bodies are stored differently. */
+  private static final String FORMAT_VERSION = "2";
+
+  /** Marks classes whose hierarchy is not known, the bodies that refer to them are not cached. */
+  private static final String UNKNOWN = "";
+
+  /** Stands for the hierarchy of a phantom class, which is not on the classpath. */
+  private static final String PHANTOM = "phantom";
+
+  private String settingsKey = null;
+
+  /** The hashes of the class files that classes have been read from. */
+  private final Map<String, String> contentHashes = new ConcurrentHashMap<String, String>();
+
+  /** The hashes of the hierarchies of resolved classes. */
+  private final Map<String, String> hierarchyHashes = new ConcurrentHashMap<String, String>();
+
+  public JimpleBodyCache(Singletons.Global g) {
+  }
+
+  public static JimpleBodyCache v() {
+    return G.v().soot_jimple_JimpleBodyCache();
+  }
+
+  /** Returns true if bodies are to be cached in this run. */
+  public boolean isEnabled() {
+    Options o = Options.v();
+    return !o.body_cache_dir().isEmpty() && !o.keep_line_number() && !o.keep_offset();
+  }
+
+  /** Returns a hash of the given class file. Does not access the Scene and may be called from any thread. */
+  public static String contentHash(byte[] classFile) {
+    return Hashing.sha256().hashBytes(classFile).toString();
+  }
+
+  /**
+   * Describes a class whose bodies are cached.
+   *
+   * @param className
+   *          the name of the class
+   * @param contentHash
+   *          the {@link #contentHash(byte[]) hash} of the class file that the class has been read from
+   * @param references
+   *          the types that the class refers to
+   */
+  public CachedClass cachedClass(String className, String contentHash, Collection<Type> references) {
+    contentHashes.put(className, contentHash);
+    TreeSet<String> referencedClasses = new TreeSet<String>();
+    for (Type t : references) {
+      if (t instanceof RefType) {
+        referencedClasses.add(((RefType) t).getClassName());
+      }
+    }
+    return new CachedClass(className, referencedClasses);
+  }
+
+  /**
+   * Returns a method source that looks bodies up in the cache before delegating to the given source, and that stores the
+   * bodies created by the given source in the cache.
+   */
+  public MethodSource cachingSource(MethodSource source, CachedClass cls) {
+    return new CachingMethodSource(source, cls);
+  }
+
+  /** A class whose bodies are cached, see {@link JimpleBodyCache#cachedClass(String, String, Collection)}. */
+  public final class CachedClass {
+    private final String className;
+    private final Collection<String> referencedClasses;
+    /** Computed when the first body is created, as it needs the hierarchy of the Scene. */
+    private volatile String key;
+
+    private CachedClass(String className, Collection<String> referencedClasses) {
+      this.className = className;
+      this.referencedClasses = referencedClasses;
+    }
+
+    /**
+     * Returns the key under which the bodies of the class are cached, or <code>null</code> if the hierarchy of a class it
+     * refers to is not known.
+     */
+    String getKey() {
+      String k = key;
+      if (k == null) {
+        k = classKey(className, referencedClasses);
+        key = k;
+      }
+      return k;
+    }
+  }
+
+  private String classKey(String className, Collection<String> referencedClasses) {
+    String ownHash = hierarchyHash(className);
+    if (ownHash == UNKNOWN) {
+      return null;
+    }
+    Hasher hasher = Hashing.sha256().newHasher().putString(FORMAT_VERSION, StandardCharsets.UTF_8)
+        .putString(getSettingsKey(), StandardCharsets.UTF_8).putString(className, StandardCharsets.UTF_8)
+        .putString(ownHash, StandardCharsets.UTF_8);
+    for (String referenced : referencedClasses) {
+      String hash = hierarchyHash(referenced);
+      if (hash == UNKNOWN) {
+        return null;
+      }
+      hasher.putString(referenced, StandardCharsets.UTF_8).putString(hash, StandardCharsets.UTF_8);
+    }
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Returns a hash of the class files of the given class and of its supertypes, or {@link #UNKNOWN} if one of them has not
+   * been read from a class file or has not been resolved to the hierarchy level yet.
+   */
+  private String hierarchyHash(String className) {
+    String hash = hierarchyHashes.get(className);
+    if (hash != null) {
+      return hash;
+    }
+    SootClass sc = Scene.v().getSootClassUnsafe(className, false);
+    if (sc != null && sc.isPhantom()) {
+      return PHANTOM;
+    }
+    String contentHash = contentHashes.get(className);
+    if (contentHash == null || sc == null || sc.resolvingLevel() < SootClass.HIERARCHY) {
+      return UNKNOWN;
+    }
+    List<SootClass> supertypes = new ArrayList<SootClass>(sc.getInterfaces());
+    if (sc.hasSuperclass()) {
+      supertypes.add(0, sc.getSuperclass());
+    }
+    Hasher hasher = Hashing.sha256().newHasher().putString(contentHash, StandardCharsets.UTF_8);
+    for (SootClass supertype : supertypes) {
+      String supertypeHash = hierarchyHash(supertype.getName());
+      if (supertypeHash == UNKNOWN) {
+        return UNKNOWN;
+      }
+      hasher.putString(supertypeHash, StandardCharsets.UTF_8);
+    }
+    hash = hasher.hash().toString();
+    hierarchyHashes.put(className, hash);
+    return hash;
+  }
+
+  private Body load(SootMethod m, String classKey) {
+    File file = fileOf(m, classKey);
+    if (!file.isFile()) {
+      return null;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      return JimpleBodyEncoding.read(m, in);
+    } catch (Exception e) {
+      logger.warn("Ignoring cached body of " + m.getSignature() + ": " + e.getMessage());
+      file.delete();
+      return null;
+    }
+  }
+
+  private void store(Body body, String classKey) {
+    File file = fileOf(body.getMethod(), classKey);
+    File temp = null;
+    try {
+      File dir = file.getParentFile();
+      dir.mkdirs();
+      // write to a temporary file first, so that concurrent runs never see a partial body
+      temp = File.createTempFile(file.getName(), ".tmp", dir);
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+        JimpleBodyEncoding.write(body, out);
+      }
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException | RuntimeException e) {
+      logger.debug("Failed to cache the body of " + body.getMethod().getSignature(), e);
+      if (temp != null) {
+        temp.delete();
+      }
+    }
+  }
+
+  private File fileOf(SootMethod m, String classKey) {
+    String methodKey = Hashing.sha256().hashString(m.getSubSignature(), StandardCharsets.UTF_8).toString();
+    File classDir = new File(new File(Options.v().body_cache_dir(), classKey.substring(0, 2)), classKey);
+    return new File(classDir, methodKey.substring(0, 32) + ".body");
+  }
+
+  private synchronized String getSettingsKey() {
+    if (settingsKey == null) {
+      Options o = Options.v();
+      StringBuilder sb = new StringBuilder();
+      sb.append("throw-analysis:").append(o.throw_analysis());
+      sb.append(" check-init-throw-analysis:").append(o.check_init_throw_analysis());
+      sb.append(" wrong-staticness:").append(o.wrong_staticness());
+      sb.append(" field-type-mismatches:").append(o.field_type_mismatches());
+      sb.append(" allow-phantom-refs:").append(o.allow_phantom_refs());
+      Pack jb = PackManager.v().getPack("jb");
+      sb.append('\n').append(new TreeMap<String, String>(PhaseOptions.v().getPhaseOptions(jb)));
+      for (Transform t : jb) {
+        sb.append('\n').append(t.getPhaseName()).append(new TreeMap<String, String>(PhaseOptions.v().getPhaseOptions(t)));
+      }
+      settingsKey = sb.toString();
+    }
+    return settingsKey;
+  }
+
+  private class CachingMethodSource implements MethodSource {
+    private final MethodSource source;
+    private final CachedClass cls;
+
+    CachingMethodSource(MethodSource source, CachedClass cls) {
+      this.source = source;
+      this.cls = cls;
+    }
+
+    @Override
+    public Body getBody(SootMethod m, String phaseName) {
+      if (!"jb".equals(phaseName) || !m.isConcrete()) {
+        return source.getBody(m, phaseName);
+      }
+      String classKey = cls.getKey();
+      if (classKey == null) {
+        return source.getBody(m, phaseName);
+      }
+      Body body = load(m, classKey);
+      if (body == null) {
+        body = source.getBody(m, phaseName);
+        if (body != null) {
+          store(body, classKey);
+        }
+      }
+      return body;
+    }
+  }
+}
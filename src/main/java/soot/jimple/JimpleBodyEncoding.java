@@ -0,0 +1,980 @@
+package soot.jimple;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import soot.ArrayType;
+import soot.Body;
+import soot.BooleanType;
+import soot.ByteType;
+import soot.CharType;
+import soot.DoubleType;
+import soot.FloatType;
+import soot.IntType;
+import soot.Local;
+import soot.LongType;
+import soot.NullType;
+import soot.RefType;
+import soot.Scene;
+import soot.ShortType;
+import soot.SootClass;
+import soot.SootFieldRef;
+import soot.SootMethod;
+import soot.SootMethodRef;
+import soot.SootResolver;
+import soot.Trap;
+import soot.Type;
+import soot.Unit;
+import soot.UnknownType;
+import soot.Value;
+import soot.VoidType;
+
+/**
+ * A compact binary encoding of Jimple bodies. It is read back without a parser: the locals, units and traps are written
+ * in their order, values as a tree of opcodes, and names, types and member references once and by index after that. A
+ * {@link Writer} can write several bodies that share these tables, as a scene snapshot does. Reading a body creates the same objects as the Jimple parser would, so a decoded body prints like the original.
+ * Tags are not part of the encoding.
+ */
+public final class JimpleBodyEncoding {
+
+  // statements
+  private static final int IDENTITY = 1;
+  private static final int ASSIGN = 2;
+  private static final int INVOKE = 3;
+  private static final int IF = 4;
+  private static final int GOTO = 5;
+  private static final int RETURN = 6;
+  private static final int RETURN_VOID = 7;
+  private static final int THROW = 8;
+  private static final int ENTER_MONITOR = 9;
+  private static final int EXIT_MONITOR = 10;
+  private static final int NOP = 11;
+  private static final int TABLE_SWITCH = 12;
+  private static final int LOOKUP_SWITCH = 13;
+  private static final int BREAKPOINT = 14;
+  private static final int RET = 15;
+
+  // values, the binary expressions come first so that their code is an index into BINOPS
+  private static final int ADD = 0;
+  private static final int AND = 1;
+  private static final int CMP = 2;
+  private static final int CMPG = 3;
+  private static final int CMPL = 4;
+  private static final int DIV = 5;
+  private static final int EQ = 6;
+  private static final int GE = 7;
+  private static final int GT = 8;
+  private static final int LE = 9;
+  private static final int LT = 10;
+  private static final int MUL = 11;
+  private static final int NE = 12;
+  private static final int OR = 13;
+  private static final int REM = 14;
+  private static final int SHL = 15;
+  private static final int SHR = 16;
+  private static final int SUB = 17;
+  private static final int USHR = 18;
+  private static final int XOR = 19;
+  private static final int LOCAL = 20;
+  private static final int INT_CONSTANT = 21;
+  private static final int LONG_CONSTANT = 22;
+  private static final int FLOAT_CONSTANT = 23;
+  private static final int DOUBLE_CONSTANT = 24;
+  private static final int STRING_CONSTANT = 25;
+  private static final int CLASS_CONSTANT = 26;
+  private static final int NULL_CONSTANT = 27;
+  private static final int METHOD_HANDLE = 28;
+  private static final int METHOD_TYPE = 29;
+  private static final int NEG = 30;
+  private static final int LENGTH = 31;
+  private static final int CAST = 32;
+  private static final int INSTANCE_OF = 33;
+  private static final int NEW = 34;
+  private static final int NEW_ARRAY = 35;
+  private static final int NEW_MULTI_ARRAY = 36;
+  private static final int STATIC_INVOKE = 37;
+  private static final int VIRTUAL_INVOKE = 38;
+  private static final int SPECIAL_INVOKE = 39;
+  private static final int INTERFACE_INVOKE = 40;
+  private static final int DYNAMIC_INVOKE = 41;
+  private static final int INSTANCE_FIELD_REF = 42;
+  private static final int STATIC_FIELD_REF = 43;
+  private static final int ARRAY_REF = 44;
+  private static final int THIS_REF = 45;
+  private static final int PARAMETER_REF = 46;
+  private static final int CAUGHT_EXCEPTION_REF = 47;
+
+  private static final Class<?>[] BINOPS = { AddExpr.class, AndExpr.class, CmpExpr.class, CmpgExpr.class, CmplExpr.class,
+      DivExpr.class, EqExpr.class, GeExpr.class, GtExpr.class, LeExpr.class, LtExpr.class, MulExpr.class, NeExpr.class,
+      OrExpr.class, RemExpr.class, ShlExpr.class, ShrExpr.class, SubExpr.class, UshrExpr.class, XorExpr.class };
+
+  // types that are not in the type table
+  private static final int BOOLEAN_TYPE = 1;
+  private static final int BYTE_TYPE = 2;
+  private static final int CHAR_TYPE = 3;
+  private static final int SHORT_TYPE = 4;
+  private static final int INT_TYPE = 5;
+  private static final int LONG_TYPE = 6;
+  private static final int FLOAT_TYPE = 7;
+  private static final int DOUBLE_TYPE = 8;
+  private static final int VOID_TYPE = 9;
+  private static final int NULL_TYPE = 10;
+  private static final int UNKNOWN_TYPE = 11;
+  private static final int REF_TYPE = 12;
+  private static final int ARRAY_TYPE = 13;
+
+  private JimpleBodyEncoding() {
+  }
+
+  /**
+   * Writes the given body.
+   *
+   * @throws IllegalArgumentException
+   *           if the body contains a unit or value that is not part of Jimple
+   */
+  public static void write(Body body, DataOutput out) throws IOException {
+    new Writer(out).writeBody(body);
+  }
+
+  /**
+   * Reads a body of the given method that has been written by {@link #write(Body, DataOutput)}. The classes that the body
+   * refers to are created in the Scene if they do not exist yet, as the Jimple parser does.
+   */
+  public static JimpleBody read(SootMethod m, DataInput in) throws IOException {
+    return new Reader(in).readBody(m);
+  }
+
+  /**
+   * Writes bodies and the names and types that are needed to declare their methods. The names, types and member references
+   * are shared by everything that is written by the same writer, so a {@link Reader} has to read it all in the same order.
+   */
+  public static final class Writer {
+    private final DataOutput out;
+    private final Map<String, Integer> strings = new HashMap<String, Integer>();
+    private final Map<Type, Integer> types = new HashMap<Type, Integer>();
+    private final Map<String, Integer> methodRefs = new HashMap<String, Integer>();
+    private final Map<String, Integer> fieldRefs = new HashMap<String, Integer>();
+    private final Map<Local, Integer> locals = new IdentityHashMap<Local, Integer>();
+    private final Map<Unit, Integer> units = new IdentityHashMap<Unit, Integer>();
+
+    public Writer(DataOutput out) {
+      this.out = out;
+    }
+
+    /**
+     * Writes the given body.
+     *
+     * @throws IllegalArgumentException
+     *           if the body contains a unit or value that is not part of Jimple
+     */
+    public void writeBody(Body body) throws IOException {
+      locals.clear();
+      units.clear();
+      writeInt(body.getLocalCount());
+      for (Local l : body.getLocals()) {
+        locals.put(l, locals.size());
+        writeString(l.getName());
+        writeType(l.getType());
+      }
+      for (Unit u : body.getUnits()) {
+        units.put(u, units.size());
+      }
+      writeInt(units.size());
+      for (Unit u : body.getUnits()) {
+        writeUnit(u);
+      }
+      writeInt(body.getTraps().size());
+      for (Trap t : body.getTraps()) {
+        writeString(t.getException().getName());
+        writeTarget(t.getBeginUnit());
+        writeTarget(t.getEndUnit());
+        writeTarget(t.getHandlerUnit());
+      }
+    }
+
+    private void writeUnit(Unit u) throws IOException {
+      if (u instanceof IdentityStmt) {
+        IdentityStmt s = (IdentityStmt) u;
+        out.writeByte(IDENTITY);
+        writeValue(s.getLeftOp());
+        writeValue(s.getRightOp());
+      } else if (u instanceof AssignStmt) {
+        AssignStmt s = (AssignStmt) u;
+        out.writeByte(ASSIGN);
+        writeValue(s.getLeftOp());
+        writeValue(s.getRightOp());
+      } else if (u instanceof InvokeStmt) {
+        out.writeByte(INVOKE);
+        writeValue(((InvokeStmt) u).getInvokeExpr());
+      } else if (u instanceof IfStmt) {
+        IfStmt s = (IfStmt) u;
+        out.writeByte(IF);
+        writeValue(s.getCondition());
+        writeTarget(s.getTarget());
+      } else if (u instanceof GotoStmt) {
+        out.writeByte(GOTO);
+        writeTarget(((GotoStmt) u).getTarget());
+      } else if (u instanceof ReturnStmt) {
+        out.writeByte(RETURN);
+        writeValue(((ReturnStmt) u).getOp());
+      } else if (u instanceof ReturnVoidStmt) {
+        out.writeByte(RETURN_VOID);
+      } else if (u instanceof ThrowStmt) {
+        out.writeByte(THROW);
+        writeValue(((ThrowStmt) u).getOp());
+      } else if (u instanceof EnterMonitorStmt) {
+        out.writeByte(ENTER_MONITOR);
+        writeValue(((EnterMonitorStmt) u).getOp());
+      } else if (u instanceof ExitMonitorStmt) {
+        out.writeByte(EXIT_MONITOR);
+        writeValue(((ExitMonitorStmt) u).getOp());
+      } else if (u instanceof NopStmt) {
+        out.writeByte(NOP);
+      } else if (u instanceof TableSwitchStmt) {
+        TableSwitchStmt s = (TableSwitchStmt) u;
+        out.writeByte(TABLE_SWITCH);
+        writeValue(s.getKey());
+        out.writeInt(s.getLowIndex());
+        out.writeInt(s.getHighIndex());
+        writeTargets(s.getTargets());
+        writeTarget(s.getDefaultTarget());
+      } else if (u instanceof LookupSwitchStmt) {
+        LookupSwitchStmt s = (LookupSwitchStmt) u;
+        out.writeByte(LOOKUP_SWITCH);
+        writeValue(s.getKey());
+        writeInt(s.getTargetCount());
+        for (int i = 0; i < s.getTargetCount(); i++) {
+          out.writeInt(s.getLookupValue(i));
+        }
+        writeTargets(s.getTargets());
+        writeTarget(s.getDefaultTarget());
+      } else if (u instanceof BreakpointStmt) {
+        out.writeByte(BREAKPOINT);
+      } else if (u instanceof RetStmt) {
+        out.writeByte(RET);
+        writeValue(((RetStmt) u).getStmtAddress());
+      } else {
+        throw new IllegalArgumentException("Cannot encode " + u.getClass().getName());
+      }
+    }
+
+    private void writeValue(Value v) throws IOException {
+      if (v instanceof Local) {
+        Integer index = locals.get(v);
+        if (index == null) {
+          throw new IllegalArgumentException("Local " + v + " is not declared in the body");
+        }
+        out.writeByte(LOCAL);
+        writeInt(index);
+      } else if (v instanceof IntConstant) {
+        out.writeByte(INT_CONSTANT);
+        out.writeInt(((IntConstant) v).value);
+      } else if (v instanceof LongConstant) {
+        out.writeByte(LONG_CONSTANT);
+        out.writeLong(((LongConstant) v).value);
+      } else if (v instanceof FloatConstant) {
+        out.writeByte(FLOAT_CONSTANT);
+        out.writeFloat(((FloatConstant) v).value);
+      } else if (v instanceof DoubleConstant) {
+        out.writeByte(DOUBLE_CONSTANT);
+        out.writeDouble(((DoubleConstant) v).value);
+      } else if (v instanceof StringConstant) {
+        out.writeByte(STRING_CONSTANT);
+        writeString(((StringConstant) v).value);
+      } else if (v instanceof ClassConstant) {
+        out.writeByte(CLASS_CONSTANT);
+        writeString(((ClassConstant) v).value);
+      } else if (v instanceof NullConstant) {
+        out.writeByte(NULL_CONSTANT);
+      } else if (v instanceof MethodHandle) {
+        MethodHandle h = (MethodHandle) v;
+        out.writeByte(METHOD_HANDLE);
+        writeInt(h.getKind());
+        if (h.isFieldRef()) {
+          writeFieldRef(h.getFieldRef());
+        } else {
+          writeMethodRef(h.getMethodRef());
+        }
+      } else if (v instanceof MethodType) {
+        MethodType t = (MethodType) v;
+        out.writeByte(METHOD_TYPE);
+        writeTypes(t.getParameterTypes());
+        writeType(t.getReturnType());
+      } else if (v instanceof BinopExpr) {
+        out.writeByte(binopCode(v));
+        writeValue(((BinopExpr) v).getOp1());
+        writeValue(((BinopExpr) v).getOp2());
+      } else if (v instanceof NegExpr) {
+        out.writeByte(NEG);
+        writeValue(((NegExpr) v).getOp());
+      } else if (v instanceof LengthExpr) {
+        out.writeByte(LENGTH);
+        writeValue(((LengthExpr) v).getOp());
+      } else if (v instanceof CastExpr) {
+        out.writeByte(CAST);
+        writeValue(((CastExpr) v).getOp());
+        writeType(((CastExpr) v).getCastType());
+      } else if (v instanceof InstanceOfExpr) {
+        out.writeByte(INSTANCE_OF);
+        writeValue(((InstanceOfExpr) v).getOp());
+        writeType(((InstanceOfExpr) v).getCheckType());
+      } else if (v instanceof NewExpr) {
+        out.writeByte(NEW);
+        writeType(((NewExpr) v).getBaseType());
+      } else if (v instanceof NewArrayExpr) {
+        out.writeByte(NEW_ARRAY);
+        writeType(((NewArrayExpr) v).getBaseType());
+        writeValue(((NewArrayExpr) v).getSize());
+      } else if (v instanceof NewMultiArrayExpr) {
+        NewMultiArrayExpr e = (NewMultiArrayExpr) v;
+        out.writeByte(NEW_MULTI_ARRAY);
+        writeType(e.getBaseType());
+        writeValues(e.getSizes());
+      } else if (v instanceof DynamicInvokeExpr) {
+        DynamicInvokeExpr e = (DynamicInvokeExpr) v;
+        out.writeByte(DYNAMIC_INVOKE);
+        writeMethodRef(e.getBootstrapMethodRef());
+        writeValues(e.getBootstrapArgs());
+        writeMethodRef(e.getMethodRef());
+        writeInt(e.getHandleTag());
+        writeValues(e.getArgs());
+      } else if (v instanceof InvokeExpr) {
+        InvokeExpr e = (InvokeExpr) v;
+        if (e instanceof StaticInvokeExpr) {
+          out.writeByte(STATIC_INVOKE);
+        } else if (e instanceof VirtualInvokeExpr) {
+          out.writeByte(VIRTUAL_INVOKE);
+        } else if (e instanceof SpecialInvokeExpr) {
+          out.writeByte(SPECIAL_INVOKE);
+        } else if (e instanceof InterfaceInvokeExpr) {
+          out.writeByte(INTERFACE_INVOKE);
+        } else {
+          throw new IllegalArgumentException("Cannot encode " + v.getClass().getName());
+        }
+        if (e instanceof InstanceInvokeExpr) {
+          writeValue(((InstanceInvokeExpr) e).getBase());
+        }
+        writeMethodRef(e.getMethodRef());
+        writeValues(e.getArgs());
+      } else if (v instanceof InstanceFieldRef) {
+        out.writeByte(INSTANCE_FIELD_REF);
+        writeValue(((InstanceFieldRef) v).getBase());
+        writeFieldRef(((InstanceFieldRef) v).getFieldRef());
+      } else if (v instanceof StaticFieldRef) {
+        out.writeByte(STATIC_FIELD_REF);
+        writeFieldRef(((StaticFieldRef) v).getFieldRef());
+      } else if (v instanceof ArrayRef) {
+        out.writeByte(ARRAY_REF);
+        writeValue(((ArrayRef) v).getBase());
+        writeValue(((ArrayRef) v).getIndex());
+      } else if (v instanceof ThisRef) {
+        out.writeByte(THIS_REF);
+        writeType(v.getType());
+      } else if (v instanceof ParameterRef) {
+        out.writeByte(PARAMETER_REF);
+        writeType(v.getType());
+        writeInt(((ParameterRef) v).getIndex());
+      } else if (v instanceof CaughtExceptionRef) {
+        out.writeByte(CAUGHT_EXCEPTION_REF);
+      } else {
+        throw new IllegalArgumentException("Cannot encode " + v.getClass().getName());
+      }
+    }
+
+    private int binopCode(Value v) {
+      for (int i = 0; i < BINOPS.length; i++) {
+        if (BINOPS[i].isInstance(v)) {
+          return i;
+        }
+      }
+      throw new IllegalArgumentException("Cannot encode " + v.getClass().getName());
+    }
+
+    private void writeValues(List<Value> values) throws IOException {
+      writeInt(values.size());
+      for (Value v : values) {
+        writeValue(v);
+      }
+    }
+
+    private void writeTarget(Unit target) throws IOException {
+      Integer index = units.get(target);
+      if (index == null) {
+        throw new IllegalArgumentException("Target " + target + " is not in the body");
+      }
+      writeInt(index);
+    }
+
+    private void writeTargets(List<Unit> targets) throws IOException {
+      writeInt(targets.size());
+      for (Unit target : targets) {
+        writeTarget(target);
+      }
+    }
+
+    private void writeMethodRef(SootMethodRef ref) throws IOException {
+      String key = (ref.isStatic() ? "static " : "") + ref.getSignature();
+      Integer index = methodRefs.get(key);
+      if (index != null) {
+        writeInt(index);
+        return;
+      }
+      writeInt(methodRefs.size());
+      methodRefs.put(key, methodRefs.size());
+      writeString(ref.getDeclaringClass().getName());
+      writeString(ref.getName());
+      writeTypes(ref.getParameterTypes());
+      writeType(ref.getReturnType());
+      out.writeBoolean(ref.isStatic());
+    }
+
+    private void writeFieldRef(SootFieldRef ref) throws IOException {
+      String key = (ref.isStatic() ? "static " : "") + ref.getSignature();
+      Integer index = fieldRefs.get(key);
+      if (index != null) {
+        writeInt(index);
+        return;
+      }
+      writeInt(fieldRefs.size());
+      fieldRefs.put(key, fieldRefs.size());
+      writeString(ref.declaringClass().getName());
+      writeString(ref.name());
+      writeType(ref.type());
+      out.writeBoolean(ref.isStatic());
+    }
+
+    public void writeTypes(List<Type> types) throws IOException {
+      writeInt(types.size());
+      for (Type t : types) {
+        writeType(t);
+      }
+    }
+
+    /** Writes a primitive type by its code, and other types by their index in the type table. */
+    public void writeType(Type t) throws IOException {
+      int code = primitiveCode(t);
+      if (code != 0) {
+        writeInt(code);
+        return;
+      }
+      Integer index = types.get(t);
+      if (index != null) {
+        writeInt(ARRAY_TYPE + 1 + index);
+        return;
+      }
+      if (t instanceof RefType) {
+        writeInt(REF_TYPE);
+        writeString(((RefType) t).getClassName());
+      } else if (t instanceof ArrayType) {
+        writeInt(ARRAY_TYPE);
+        writeType(((ArrayType) t).baseType);
+        writeInt(((ArrayType) t).numDimensions);
+      } else {
+        throw new IllegalArgumentException("Cannot encode type " + t);
+      }
+      types.put(t, types.size());
+    }
+
+    private static int primitiveCode(Type t) {
+      if (t instanceof IntType) {
+        return INT_TYPE;
+      } else if (t instanceof BooleanType) {
+        return BOOLEAN_TYPE;
+      } else if (t instanceof ByteType) {
+        return BYTE_TYPE;
+      } else if (t instanceof CharType) {
+        return CHAR_TYPE;
+      } else if (t instanceof ShortType) {
+        return SHORT_TYPE;
+      } else if (t instanceof LongType) {
+        return LONG_TYPE;
+      } else if (t instanceof FloatType) {
+        return FLOAT_TYPE;
+      } else if (t instanceof DoubleType) {
+        return DOUBLE_TYPE;
+      } else if (t instanceof VoidType) {
+        return VOID_TYPE;
+      } else if (t instanceof NullType) {
+        return NULL_TYPE;
+      } else if (t instanceof UnknownType) {
+        return UNKNOWN_TYPE;
+      }
+      return 0;
+    }
+
+    /** Writes a string once, and its index in the string table after that. */
+    public void writeString(String s) throws IOException {
+      Integer index = strings.get(s);
+      if (index != null) {
+        writeInt(index);
+        return;
+      }
+      writeInt(strings.size());
+      strings.put(s, strings.size());
+      // not writeUTF, which is limited to 64 KB
+      byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      writeInt(bytes.length);
+      out.write(bytes);
+    }
+
+    /** Writes a non-negative int in as few bytes as needed, seven bits at a time. */
+    public void writeInt(int value) throws IOException {
+      if (value < 0) {
+        throw new IllegalArgumentException("Negative value " + value);
+      }
+      while ((value & ~0x7F) != 0) {
+        out.writeByte((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      out.writeByte(value);
+    }
+  }
+
+  /** Reads what a {@link Writer} has written, in the same order. */
+  public static final class Reader {
+    private final DataInput in;
+    private final Jimple jimple = Jimple.v();
+    private final SootResolver resolver = SootResolver.v();
+    private final List<String> strings = new ArrayList<String>();
+    private final List<Type> types = new ArrayList<Type>();
+    private final List<SootMethodRef> methodRefs = new ArrayList<SootMethodRef>();
+    private final List<SootFieldRef> fieldRefs = new ArrayList<SootFieldRef>();
+    private Local[] locals;
+    private Unit[] units;
+    /** Branch targets point to this unit until all units have been read. */
+    private final Unit placeholder = Jimple.v().newNopStmt();
+
+    public Reader(DataInput in) {
+      this.in = in;
+    }
+
+    /**
+     * Reads a body of the given method. The classes that the body refers to are created in the Scene if they do not exist
+     * yet, as the Jimple parser does.
+     */
+    public JimpleBody readBody(SootMethod m) throws IOException {
+      JimpleBody body = jimple.newBody(m);
+      locals = new Local[readInt()];
+      for (int i = 0; i < locals.length; i++) {
+        String name = readString();
+        locals[i] = jimple.newLocal(name, readType());
+        body.getLocals().add(locals[i]);
+      }
+
+      units = new Unit[readInt()];
+      List<int[]> targets = new ArrayList<int[]>();
+      for (int i = 0; i < units.length; i++) {
+        units[i] = readUnit(i, targets);
+        body.getUnits().add(units[i]);
+      }
+      // the targets of unit i are at targets[k][1..], the default target of a switch last
+      for (int[] t : targets) {
+        Unit u = units[t[0]];
+        if (u instanceof IfStmt) {
+          ((IfStmt) u).setTarget(unit(t[1]));
+        } else if (u instanceof GotoStmt) {
+          ((GotoStmt) u).setTarget(unit(t[1]));
+        } else {
+          SwitchStmt s = (SwitchStmt) u;
+          for (int k = 1; k < t.length - 1; k++) {
+            s.setTarget(k - 1, unit(t[k]));
+          }
+          s.setDefaultTarget(unit(t[t.length - 1]));
+        }
+      }
+
+      for (int i = readInt(); i > 0; i--) {
+        SootClass exception = resolver.makeClassRef(readString());
+        Unit begin = unit(readInt());
+        Unit end = unit(readInt());
+        Unit handler = unit(readInt());
+        body.getTraps().add(jimple.newTrap(exception, begin, end, handler));
+      }
+      return body;
+    }
+
+    private Unit readUnit(int index, List<int[]> targets) throws IOException {
+      int code = in.readUnsignedByte();
+      switch (code) {
+        case IDENTITY: {
+          Value left = readValue();
+          return jimple.newIdentityStmt(left, readValue());
+        }
+        case ASSIGN: {
+          Value left = readValue();
+          return jimple.newAssignStmt(left, readValue());
+        }
+        case INVOKE:
+          return jimple.newInvokeStmt(readValue());
+        case IF: {
+          Value condition = readValue();
+          targets.add(new int[] { index, readInt() });
+          return jimple.newIfStmt(condition, placeholder);
+        }
+        case GOTO:
+          targets.add(new int[] { index, readInt() });
+          return jimple.newGotoStmt(placeholder);
+        case RETURN:
+          return jimple.newReturnStmt(readValue());
+        case RETURN_VOID:
+          return jimple.newReturnVoidStmt();
+        case THROW:
+          return jimple.newThrowStmt(readValue());
+        case ENTER_MONITOR:
+          return jimple.newEnterMonitorStmt(readValue());
+        case EXIT_MONITOR:
+          return jimple.newExitMonitorStmt(readValue());
+        case NOP:
+          return jimple.newNopStmt();
+        case TABLE_SWITCH: {
+          Value key = readValue();
+          int low = in.readInt();
+          int high = in.readInt();
+          int[] t = readTargets(index);
+          targets.add(t);
+          return jimple.newTableSwitchStmt(key, low, high, placeholders(t.length - 2), placeholder);
+        }
+        case LOOKUP_SWITCH: {
+          Value key = readValue();
+          List<IntConstant> values = new ArrayList<IntConstant>();
+          for (int i = readInt(); i > 0; i--) {
+            values.add(IntConstant.v(in.readInt()));
+          }
+          int[] t = readTargets(index);
+          targets.add(t);
+          return jimple.newLookupSwitchStmt(key, values, placeholders(t.length - 2), placeholder);
+        }
+        case BREAKPOINT:
+          return jimple.newBreakpointStmt();
+        case RET:
+          return jimple.newRetStmt(readValue());
+        default:
+          throw new IOException("Unknown statement " + code);
+      }
+    }
+
+    /** Reads the targets and the default target of a switch, preceded by the index of the switch. */
+    private int[] readTargets(int index) throws IOException {
+      int[] t = new int[readInt() + 2];
+      t[0] = index;
+      for (int i = 1; i < t.length; i++) {
+        t[i] = readInt();
+      }
+      return t;
+    }
+
+    private List<Unit> placeholders(int count) {
+      List<Unit> list = new ArrayList<Unit>(count);
+      for (int i = 0; i < count; i++) {
+        list.add(placeholder);
+      }
+      return list;
+    }
+
+    private Value readValue() throws IOException {
+      int code = in.readUnsignedByte();
+      if (code < BINOPS.length) {
+        Value op1 = readValue();
+        return binop(code, op1, readValue());
+      }
+      switch (code) {
+        case LOCAL:
+          return local(readInt());
+        case INT_CONSTANT:
+          return IntConstant.v(in.readInt());
+        case LONG_CONSTANT:
+          return LongConstant.v(in.readLong());
+        case FLOAT_CONSTANT:
+          return FloatConstant.v(in.readFloat());
+        case DOUBLE_CONSTANT:
+          return DoubleConstant.v(in.readDouble());
+        case STRING_CONSTANT:
+          return StringConstant.v(readString());
+        case CLASS_CONSTANT:
+          return ClassConstant.v(readString());
+        case NULL_CONSTANT:
+          return NullConstant.v();
+        case METHOD_HANDLE: {
+          int kind = readInt();
+          return MethodHandle.isFieldRef(kind) ? MethodHandle.v(readFieldRef(), kind) : MethodHandle.v(readMethodRef(), kind);
+        }
+        case METHOD_TYPE: {
+          List<Type> parameterTypes = readTypes();
+          return MethodType.v(parameterTypes, readType());
+        }
+        case NEG:
+          return jimple.newNegExpr(readValue());
+        case LENGTH:
+          return jimple.newLengthExpr(readValue());
+        case CAST: {
+          Value op = readValue();
+          return jimple.newCastExpr(op, readType());
+        }
+        case INSTANCE_OF: {
+          Value op = readValue();
+          return jimple.newInstanceOfExpr(op, readType());
+        }
+        case NEW:
+          return jimple.newNewExpr((RefType) readType());
+        case NEW_ARRAY: {
+          Type baseType = readType();
+          return jimple.newNewArrayExpr(baseType, readValue());
+        }
+        case NEW_MULTI_ARRAY: {
+          ArrayType type = (ArrayType) readType();
+          return jimple.newNewMultiArrayExpr(type, readValues());
+        }
+        case STATIC_INVOKE: {
+          SootMethodRef ref = readMethodRef();
+          return jimple.newStaticInvokeExpr(ref, readValues());
+        }
+        case VIRTUAL_INVOKE: {
+          Local base = (Local) readValue();
+          SootMethodRef ref = readMethodRef();
+          return jimple.newVirtualInvokeExpr(base, ref, readValues());
+        }
+        case SPECIAL_INVOKE: {
+          Local base = (Local) readValue();
+          SootMethodRef ref = readMethodRef();
+          return jimple.newSpecialInvokeExpr(base, ref, readValues());
+        }
+        case INTERFACE_INVOKE: {
+          Local base = (Local) readValue();
+          SootMethodRef ref = readMethodRef();
+          return jimple.newInterfaceInvokeExpr(base, ref, readValues());
+        }
+        case DYNAMIC_INVOKE: {
+          SootMethodRef bootstrap = readMethodRef();
+          List<Value> bootstrapArgs = readValues();
+          SootMethodRef ref = readMethodRef();
+          int tag = readInt();
+          return jimple.newDynamicInvokeExpr(bootstrap, bootstrapArgs, ref, tag, readValues());
+        }
+        case INSTANCE_FIELD_REF: {
+          Value base = readValue();
+          return jimple.newInstanceFieldRef(base, readFieldRef());
+        }
+        case STATIC_FIELD_REF:
+          return jimple.newStaticFieldRef(readFieldRef());
+        case ARRAY_REF: {
+          Value base = readValue();
+          return jimple.newArrayRef(base, readValue());
+        }
+        case THIS_REF:
+          return jimple.newThisRef((RefType) readType());
+        case PARAMETER_REF: {
+          Type type = readType();
+          return jimple.newParameterRef(type, readInt());
+        }
+        case CAUGHT_EXCEPTION_REF:
+          return jimple.newCaughtExceptionRef();
+        default:
+          throw new IOException("Unknown value " + code);
+      }
+    }
+
+    private Value binop(int code, Value op1, Value op2) {
+      switch (code) {
+        case ADD:
+          return jimple.newAddExpr(op1, op2);
+        case AND:
+          return jimple.newAndExpr(op1, op2);
+        case CMP:
+          return jimple.newCmpExpr(op1, op2);
+        case CMPG:
+          return jimple.newCmpgExpr(op1, op2);
+        case CMPL:
+          return jimple.newCmplExpr(op1, op2);
+        case DIV:
+          return jimple.newDivExpr(op1, op2);
+        case EQ:
+          return jimple.newEqExpr(op1, op2);
+        case GE:
+          return jimple.newGeExpr(op1, op2);
+        case GT:
+          return jimple.newGtExpr(op1, op2);
+        case LE:
+          return jimple.newLeExpr(op1, op2);
+        case LT:
+          return jimple.newLtExpr(op1, op2);
+        case MUL:
+          return jimple.newMulExpr(op1, op2);
+        case NE:
+          return jimple.newNeExpr(op1, op2);
+        case OR:
+          return jimple.newOrExpr(op1, op2);
+        case REM:
+          return jimple.newRemExpr(op1, op2);
+        case SHL:
+          return jimple.newShlExpr(op1, op2);
+        case SHR:
+          return jimple.newShrExpr(op1, op2);
+        case SUB:
+          return jimple.newSubExpr(op1, op2);
+        case USHR:
+          return jimple.newUshrExpr(op1, op2);
+        default:
+          return jimple.newXorExpr(op1, op2);
+      }
+    }
+
+    private List<Value> readValues() throws IOException {
+      int count = readInt();
+      List<Value> values = new ArrayList<Value>(count);
+      for (int i = 0; i < count; i++) {
+        values.add(readValue());
+      }
+      return values;
+    }
+
+    private Local local(int index) throws IOException {
+      if (index >= locals.length) {
+        throw new IOException("Unknown local " + index);
+      }
+      return locals[index];
+    }
+
+    private Unit unit(int index) throws IOException {
+      if (index >= units.length) {
+        throw new IOException("Unknown unit " + index);
+      }
+      return units[index];
+    }
+
+    private SootMethodRef readMethodRef() throws IOException {
+      int index = readInt();
+      if (index < methodRefs.size()) {
+        return methodRefs.get(index);
+      }
+      SootClass declaringClass = resolver.makeClassRef(readString());
+      String name = readString();
+      List<Type> parameterTypes = readTypes();
+      Type returnType = readType();
+      SootMethodRef ref = Scene.v().makeMethodRef(declaringClass, name, parameterTypes, returnType, in.readBoolean());
+      methodRefs.add(ref);
+      return ref;
+    }
+
+    private SootFieldRef readFieldRef() throws IOException {
+      int index = readInt();
+      if (index < fieldRefs.size()) {
+        return fieldRefs.get(index);
+      }
+      SootClass declaringClass = resolver.makeClassRef(readString());
+      String name = readString();
+      Type type = readType();
+      SootFieldRef ref = Scene.v().makeFieldRef(declaringClass, name, type, in.readBoolean());
+      fieldRefs.add(ref);
+      return ref;
+    }
+
+    public List<Type> readTypes() throws IOException {
+      int count = readInt();
+      List<Type> list = new ArrayList<Type>(count);
+      for (int i = 0; i < count; i++) {
+        list.add(readType());
+      }
+      return list;
+    }
+
+    public Type readType() throws IOException {
+      int code = readInt();
+      switch (code) {
+        case BOOLEAN_TYPE:
+          return BooleanType.v();
+        case BYTE_TYPE:
+          return ByteType.v();
+        case CHAR_TYPE:
+          return CharType.v();
+        case SHORT_TYPE:
+          return ShortType.v();
+        case INT_TYPE:
+          return IntType.v();
+        case LONG_TYPE:
+          return LongType.v();
+        case FLOAT_TYPE:
+          return FloatType.v();
+        case DOUBLE_TYPE:
+          return DoubleType.v();
+        case VOID_TYPE:
+          return VoidType.v();
+        case NULL_TYPE:
+          return NullType.v();
+        case UNKNOWN_TYPE:
+          return UnknownType.v();
+        case REF_TYPE: {
+          Type t = RefType.v(readString());
+          types.add(t);
+          return t;
+        }
+        case ARRAY_TYPE: {
+          Type baseType = readType();
+          Type t = ArrayType.v(baseType, readInt());
+          types.add(t);
+          return t;
+        }
+        default:
+          if (code - ARRAY_TYPE - 1 >= types.size()) {
+            throw new IOException("Unknown type " + code);
+          }
+          return types.get(code - ARRAY_TYPE - 1);
+      }
+    }
+
+    public String readString() throws IOException {
+      int index = readInt();
+      if (index < strings.size()) {
+        return strings.get(index);
+      }
+      if (index != strings.size()) {
+        throw new IOException("Unknown string " + index);
+      }
+      byte[] bytes = new byte[readInt()];
+      in.readFully(bytes);
+      String s = new String(bytes, StandardCharsets.UTF_8);
+      strings.add(s);
+      return s;
+    }
+
+    public int readInt() throws IOException {
+      int value = 0;
+      for (int shift = 0; shift < 35; shift += 7) {
+        int b = in.readUnsignedByte();
+        value |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IOException("Malformed number");
+    }
+  }
+}
@@ -34,7 +34,7 @@ public class LongConstant extends ArithmeticConstant {
   }
 
   public static LongConstant v(long value) {
-    return new LongConstant(value);
+    return ValueInterner.v().intern(new LongConstant(value));
   }
 
   public boolean equals(Object c) {
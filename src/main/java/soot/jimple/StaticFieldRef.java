@@ -84,6 +84,9 @@ public class StaticFieldRef implements FieldRef, ConvertToBaf {
   }
 
   public boolean equivTo(Object o) {
+    if (o == this) {
+      return true;
+    }
     if (o instanceof StaticFieldRef) {
       return ((StaticFieldRef) o).getField().equals(getField());
     }
@@ -38,7 +38,7 @@ public class StringConstant extends Constant {
   }
 
   public static StringConstant v(String value) {
-    return new StringConstant(value);
+    return ValueInterner.v().intern(new StringConstant(value));
   }
 
   // In this case, equals should be structural equality.
@@ -0,0 +1,92 @@
+package soot.jimple;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.MapMaker;
+
+import java.util.concurrent.ConcurrentMap;
+
+import soot.G;
+import soot.Singletons;
+import soot.SootFieldRef;
+import soot.options.Options;
+
+/**
+ * Shares equal immutable leaf values between all the bodies of the Scene if {@link Options#intern_values()} is set. The
+ * factories of {@link StringConstant}, {@link ClassConstant} and the numeric constants, as well as
+ * {@link Jimple#newStaticFieldRef(SootFieldRef)}, then return the same object for equal values instead of a new one.
+ * Values are held weakly, so values that no body uses anymore are collected.
+ *
+ * <p>
+ * Expressions are not interned: their operands sit in boxes that transformations replace in place, which would change the
+ * expression in every body that shares it. An interned value may occur in several places of the same body, so code that
+ * needs to find the place of a value has to compare boxes rather than values. Clones of interned values are not interned.
+ * </p>
+ */
+public class ValueInterner {
+
+  private final Interner<Constant> constants = Interners.newWeakInterner();
+  private final ConcurrentMap<String, StaticFieldRef> staticFieldRefs
+      = new MapMaker().weakValues().concurrencyLevel(4).makeMap();
+
+  public ValueInterner(Singletons.Global g) {
+  }
+
+  public static ValueInterner v() {
+    return G.v().soot_jimple_ValueInterner();
+  }
+
+  /** Returns true if values are interned in this run. */
+  public boolean isEnabled() {
+    return Options.v().intern_values();
+  }
+
+  /** Returns the interned constant equal to the given one, or the given constant itself if interning is disabled. */
+  public <T extends Constant> T intern(T c) {
+    if (!isEnabled()) {
+      return c;
+    }
+    @SuppressWarnings("unchecked")
+    T interned = (T) constants.intern(c);
+    return interned;
+  }
+
+  /** Returns the interned reference to the given static field, or a new one if interning is disabled. */
+  public StaticFieldRef staticFieldRef(SootFieldRef f) {
+    if (!isEnabled()) {
+      return new StaticFieldRef(f);
+    }
+    String signature = f.getSignature();
+    StaticFieldRef ref = staticFieldRefs.get(signature);
+    if (ref == null) {
+      StaticFieldRef fresh = new StaticFieldRef(f);
+      ref = staticFieldRefs.putIfAbsent(signature, fresh);
+      if (ref == null) {
+        ref = fresh;
+      }
+    }
+    return ref;
+  }
+}
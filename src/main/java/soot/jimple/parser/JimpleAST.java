@@ -91,10 +91,25 @@ public class JimpleAST {
    * @return the actual body for the given method.
    */
   public Body getBody(SootMethod m) {
+    return getBody(m, true);
+  }
+
+  /**
+   * Returns a body corresponding to the parsed jimple for m. The phantom refs setting of the Scene is global, if
+   * <code>enablePhantomRefs</code> is false it is left alone while the bodies are extracted, so that bodies can be parsed
+   * on several threads at the same time.
+   *
+   * @param m
+   *          the method we want to get a body for.
+   * @param enablePhantomRefs
+   *          whether phantom refs are switched on in the Scene while the bodies are extracted
+   * @return the actual body for the given method.
+   */
+  public Body getBody(SootMethod m, boolean enablePhantomRefs) {
     if (methodToParsedBodyMap == null) {
       synchronized (this) {
         if (methodToParsedBodyMap == null) {
-          stashBodiesForClass(m.getDeclaringClass());
+          stashBodiesForClass(m.getDeclaringClass(), enablePhantomRefs);
         }
       }
     }
@@ -120,16 +135,20 @@ public class JimpleAST {
    * Runs a Walker on the InputStream associated to this object. The SootClass which we want bodies for is passed as the
    * argument.
    */
-  private void stashBodiesForClass(SootClass sc) {
+  private void stashBodiesForClass(SootClass sc, boolean enablePhantomRefs) {
     HashMap<SootMethod, JimpleBody> methodToBodyMap = new HashMap<SootMethod, JimpleBody>();
 
     Walker w = new BodyExtractorWalker(sc, SootResolver.v(), methodToBodyMap);
 
-    boolean oldPhantomValue = Scene.v().getPhantomRefs();
+    if (enablePhantomRefs) {
+      boolean oldPhantomValue = Scene.v().getPhantomRefs();
 
-    Scene.v().setPhantomRefs(true);
-    mTree.apply(w);
-    Scene.v().setPhantomRefs(oldPhantomValue);
+      Scene.v().setPhantomRefs(true);
+      mTree.apply(w);
+      Scene.v().setPhantomRefs(oldPhantomValue);
+    } else {
+      mTree.apply(w);
+    }
 
     methodToParsedBodyMap = methodToBodyMap;
   }
@@ -30,6 +30,7 @@ import org.slf4j.LoggerFactory;
 
 import soot.G;
 import soot.Local;
+import soot.PhaseOptions;
 import soot.PointsToAnalysis;
 import soot.Scene;
 import soot.SceneTransformer;
@@ -64,6 +65,8 @@ import soot.jimple.spark.solver.PropWorklist;
 import soot.jimple.spark.solver.Propagator;
 import soot.jimple.spark.solver.SCCCollapser;
 import soot.jimple.toolkits.callgraph.CallGraphBuilder;
+import soot.jimple.toolkits.callgraph.VirtualCalls;
+import soot.options.CGOptions;
 import soot.options.SparkOptions;
 import soot.tagkit.Host;
 import soot.tagkit.StringTag;
@@ -93,6 +96,9 @@ public class SparkTransformer extends SceneTransformer {
     if (opts.pre_jimplify()) {
       b.preJimplify();
     }
+    if (new CGOptions(PhaseOptions.v().getPhaseOptions("cg")).precompute_vtables()) {
+      VirtualCalls.v().precomputeVtables();
+    }
     if (opts.force_gc()) {
       doGC();
     }
@@ -107,6 +113,7 @@ public class SparkTransformer extends SceneTransformer {
 
     // Build type masks
     Date startTM = new Date();
+    Scene.v().getOrMakeFastHierarchy().freeze();
     pag.getTypeManager().makeTypeMask();
     Date endTM = new Date();
     reportTime("Type masks", startTM, endTM);
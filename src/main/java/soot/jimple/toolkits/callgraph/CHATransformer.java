@@ -28,10 +28,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import soot.G;
+import soot.PhaseOptions;
 import soot.Scene;
 import soot.SceneTransformer;
 import soot.Singletons;
 import soot.jimple.toolkits.pointer.DumbPointerAnalysis;
+import soot.options.CGOptions;
 import soot.options.CHAOptions;
 
 /** Builds an invoke graph using Class Hierarchy Analysis. */
@@ -47,8 +49,17 @@ public class CHATransformer extends SceneTransformer {
 
   protected void internalTransform(String phaseName, Map<String, String> opts) {
     CHAOptions options = new CHAOptions(opts);
+    Scene.v().getOrMakeFastHierarchy().freeze();
+    if (new CGOptions(PhaseOptions.v().getPhaseOptions("cg")).precompute_vtables()) {
+      VirtualCalls.v().precomputeVtables();
+    }
     CallGraphBuilder cg = options.apponly() ? new CallGraphBuilder() : new CallGraphBuilder(DumbPointerAnalysis.v());
-    cg.build();
+    cg.setBodyLoadingThreads(options.threads());
+    try {
+      cg.build();
+    } finally {
+      cg.setBodyLoadingThreads(1);
+    }
     if (options.verbose()) {
       logger.debug("" + "Number of reachable methods: " + Scene.v().getReachableMethods().size());
     }
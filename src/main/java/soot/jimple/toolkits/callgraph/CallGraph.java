@@ -243,6 +243,14 @@ public class CallGraph implements Iterable<Edge> {
 
   /** Returns an iterator over all edges that have u as their source unit. */
   public Iterator<Edge> edgesOutOf(Unit u) {
+    if (u == null) {
+      throw new RuntimeException();
+    }
+    return edgesOutOfUnit(u);
+  }
+
+  /** Like {@link #edgesOutOf(Unit)}, but also returns the edges without a source unit if u is null. */
+  Iterator<Edge> edgesOutOfUnit(Unit u) {
     return new TargetsOfUnitIterator(u);
   }
 
@@ -252,9 +260,6 @@ public class CallGraph implements Iterable<Edge> {
 
     TargetsOfUnitIterator(Unit u) {
       this.u = u;
-      if (u == null) {
-        throw new RuntimeException();
-      }
       position = srcUnitToEdge.get(u);
       if (position == null) {
         position = dummy;
@@ -409,4 +414,23 @@ public class CallGraph implements Iterable<Edge> {
     return edges.iterator();
   }
 
+  /**
+   * Returns an immutable copy of this call graph that needs less memory and is faster to traverse. The edges are moved to
+   * the copy, this call graph must not be used afterwards.
+   */
+  public FrozenCallGraph freeze() {
+    return new FrozenCallGraph(this);
+  }
+
+  /** Removes all edges without unlinking them one by one, for when they are handed over to another graph. */
+  void clear() {
+    edges = new LinkedHashSet<Edge>();
+    stream = new ChunkedQueue<Edge>();
+    reader = stream.reader();
+    srcMethodToEdge = new LinkedHashMap<MethodOrMethodContext, Edge>();
+    srcUnitToEdge = new LinkedHashMap<Unit, Edge>();
+    tgtToEdge = new LinkedHashMap<MethodOrMethodContext, Edge>();
+    dummy = new Edge(null, null, null, Kind.INVALID);
+  }
+
 }
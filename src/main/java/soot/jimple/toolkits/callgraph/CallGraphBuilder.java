@@ -105,6 +105,14 @@ public class CallGraphBuilder {
     ofcgb = new OnFlyCallGraphBuilder(cm, reachables, true);
   }
 
+  /**
+   * Sets the number of threads that build the bodies of newly reachable methods during {@link #build()}, see
+   * {@link OnFlyCallGraphBuilder#setBodyLoadingThreads(int)}. The call graph does not depend on it.
+   */
+  public void setBodyLoadingThreads(int threads) {
+    ofcgb.setBodyLoadingThreads(threads);
+  }
+
   public void build() {
     QueueReader<MethodOrMethodContext> worklist = reachables.listener();
     while (true) {
@@ -67,5 +67,9 @@ public class CallGraphPack extends RadioScenePack {
         }
       }
     }
+
+    if (options.freeze() && Scene.v().hasCallGraph()) {
+      Scene.v().setCallGraph(Scene.v().getCallGraph().freeze());
+    }
   }
 }
@@ -276,6 +276,16 @@ public final class Edge implements Invalidable {
     prevByTgt.nextByTgt = nextByTgt;
   }
 
+  /** Takes the edge out of the lists of a call graph without updating its neighbours. */
+  void clearLinks() {
+    nextByUnit = this;
+    prevByUnit = this;
+    nextBySrc = this;
+    prevBySrc = this;
+    nextByTgt = this;
+    prevByTgt = this;
+  }
+
   Edge nextByUnit() {
     return nextByUnit;
   }
@@ -0,0 +1,331 @@
+package soot.jimple.toolkits.callgraph;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+import soot.MethodOrMethodContext;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.Stmt;
+import soot.util.queue.ChunkedQueue;
+import soot.util.queue.QueueReader;
+
+/**
+ * An immutable call graph, created by {@link CallGraph#freeze()} once a call graph is complete. The source methods, call
+ * sites and target methods are numbered, and the edges of each of them are kept in a contiguous range of an array, so the
+ * graph needs no hash set entry, map entry or queue slot per edge. The edges of a method or call site are returned in the
+ * same order as by the call graph the frozen graph was created from, so {@link #findEdge(Unit, SootMethod)} also returns
+ * the same edge.
+ *
+ * <p>
+ * All methods that would change the graph throw an {@link UnsupportedOperationException}.
+ * </p>
+ */
+public class FrozenCallGraph extends CallGraph {
+  private final MethodOrMethodContext[] sourceMethods;
+  private final Index<Unit> byUnit;
+  private final Index<MethodOrMethodContext> bySrc;
+  private final Index<MethodOrMethodContext> byTgt;
+
+  /**
+   * Creates a frozen copy of the given call graph. The edges are moved to the frozen graph, the given call graph must not be
+   * used afterwards.
+   */
+  public FrozenCallGraph(CallGraph cg) {
+    Edge[] edgesInOrder = new Edge[cg.size()];
+    int i = 0;
+    for (Edge e : cg) {
+      edgesInOrder[i++] = e;
+    }
+    List<MethodOrMethodContext> sources = new ArrayList<MethodOrMethodContext>();
+    for (Iterator<MethodOrMethodContext> it = cg.sourceMethods(); it.hasNext();) {
+      sources.add(it.next());
+    }
+    sourceMethods = sources.toArray(new MethodOrMethodContext[sources.size()]);
+    byUnit = new Index<Unit>(edgesInOrder, Edge::srcUnit, cg::edgesOutOfUnit);
+    bySrc = new Index<MethodOrMethodContext>(edgesInOrder, Edge::getSrc, cg::edgesOutOf);
+    byTgt = new Index<MethodOrMethodContext>(edgesInOrder, Edge::getTgt, cg::edgesInto);
+    // the edges are linked into the lists of the mutable call graph, which the frozen graph does not need
+    cg.clear();
+    for (Edge e : edgesInOrder) {
+      e.clearLinks();
+    }
+  }
+
+  @Override
+  public FrozenCallGraph freeze() {
+    return this;
+  }
+
+  @Override
+  public boolean addEdge(Edge e) {
+    throw new UnsupportedOperationException("The call graph is frozen");
+  }
+
+  @Override
+  public boolean removeAllEdgesOutOf(Unit u) {
+    throw new UnsupportedOperationException("The call graph is frozen");
+  }
+
+  @Override
+  public boolean swapEdgesOutOf(Stmt out, Stmt in) {
+    throw new UnsupportedOperationException("The call graph is frozen");
+  }
+
+  @Override
+  public boolean removeEdge(Edge e, boolean removeInEdgeList) {
+    throw new UnsupportedOperationException("The call graph is frozen");
+  }
+
+  @Override
+  public boolean removeEdges(Collection<Edge> edges) {
+    throw new UnsupportedOperationException("The call graph is frozen");
+  }
+
+  @Override
+  public boolean isEntryMethod(SootMethod method) {
+    return byTgt.idOf(method) < 0;
+  }
+
+  @Override
+  public Edge findEdge(Unit u, SootMethod callee) {
+    int id = byUnit.idOf(u);
+    if (id < 0) {
+      return null;
+    }
+    for (int i = byUnit.offsets[id]; i < byUnit.offsets[id + 1]; i++) {
+      if (byUnit.sorted[i].tgt() == callee) {
+        return byUnit.sorted[i];
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public Iterator<MethodOrMethodContext> sourceMethods() {
+    return Collections.unmodifiableList(Arrays.asList(sourceMethods)).iterator();
+  }
+
+  @Override
+  public Iterator<Edge> edgesOutOf(Unit u) {
+    if (u == null) {
+      throw new RuntimeException();
+    }
+    return byUnit.edgesOf(u);
+  }
+
+  @Override
+  Iterator<Edge> edgesOutOfUnit(Unit u) {
+    return byUnit.edgesOf(u);
+  }
+
+  @Override
+  public Iterator<Edge> edgesOutOf(MethodOrMethodContext m) {
+    if (m == null) {
+      throw new RuntimeException();
+    }
+    return bySrc.edgesOf(m);
+  }
+
+  @Override
+  public Iterator<Edge> edgesInto(MethodOrMethodContext m) {
+    if (m == null) {
+      throw new RuntimeException();
+    }
+    return byTgt.edgesOf(m);
+  }
+
+  /**
+   * Returns a QueueReader object containing all edges of the call graph. Since no edges are added to a frozen call graph, the
+   * queue is filled on every call instead of being kept.
+   */
+  @Override
+  public QueueReader<Edge> listener() {
+    ChunkedQueue<Edge> queue = new ChunkedQueue<Edge>();
+    QueueReader<Edge> ret = queue.reader();
+    for (Edge e : bySrc.sorted) {
+      queue.add(e);
+    }
+    return ret;
+  }
+
+  @Override
+  public QueueReader<Edge> newListener() {
+    return new ChunkedQueue<Edge>().reader();
+  }
+
+  @Override
+  public int size() {
+    return bySrc.sorted.length;
+  }
+
+  /** Returns the edges grouped by their source method. */
+  @Override
+  public Iterator<Edge> iterator() {
+    return new EdgeIterator(bySrc.sorted, 0, bySrc.sorted.length);
+  }
+
+  /**
+   * The edges sorted by one of their endpoints, in compressed sparse row form: the edges of the key numbered <code>id</code>
+   * are <code>sorted[offsets[id]]</code> up to but excluding <code>sorted[offsets[id + 1]]</code>, in the order in which the
+   * call graph returns them. Keys are numbered in the order in which they first occur, and an open-addressing table maps a
+   * key to its number.
+   */
+  private static final class Index<K> {
+    // stands for the key null in the table, since null marks a free slot
+    private static final Object NULL_KEY = new Object();
+
+    final int[] offsets;
+    final Edge[] sorted;
+    private final Object[] table;
+    private final int[] tableIds;
+    private final int mask;
+
+    Index(Edge[] edges, Function<Edge, K> keyOf, Function<K, Iterator<Edge>> edgesOf) {
+      // the hash map is only needed while the keys are numbered
+      Map<K, Integer> numbers = new HashMap<K, Integer>();
+      int[] edgeIds = new int[edges.length];
+      for (int i = 0; i < edges.length; i++) {
+        K key = keyOf.apply(edges[i]);
+        Integer id = numbers.get(key);
+        if (id == null) {
+          id = numbers.size();
+          numbers.put(key, id);
+        }
+        edgeIds[i] = id;
+      }
+
+      final int keyCount = numbers.size();
+      offsets = new int[keyCount + 1];
+      for (int id : edgeIds) {
+        offsets[id + 1]++;
+      }
+      for (int id = 0; id < keyCount; id++) {
+        offsets[id + 1] += offsets[id];
+      }
+      sorted = new Edge[edges.length];
+      for (Map.Entry<K, Integer> entry : numbers.entrySet()) {
+        int id = entry.getValue();
+        int position = offsets[id];
+        // the call graph does not keep the edges of a key in the order of addition, ask it for their order
+        for (Iterator<Edge> it = edgesOf.apply(entry.getKey()); it.hasNext();) {
+          if (position == offsets[id + 1]) {
+            throw new IllegalStateException("The call graph has more edges for " + entry.getKey() + " than it contains");
+          }
+          sorted[position++] = it.next();
+        }
+        if (position != offsets[id + 1]) {
+          throw new IllegalStateException("The call graph has fewer edges for " + entry.getKey() + " than it contains");
+        }
+      }
+
+      int capacity = 16;
+      while (capacity < keyCount * 2) {
+        capacity <<= 1;
+      }
+      table = new Object[capacity];
+      tableIds = new int[capacity];
+      mask = capacity - 1;
+      for (Map.Entry<K, Integer> entry : numbers.entrySet()) {
+        K key = entry.getKey();
+        int id = entry.getValue();
+        Object stored = key == null ? NULL_KEY : key;
+        int pos = hash(stored) & mask;
+        while (table[pos] != null) {
+          pos = (pos + 1) & mask;
+        }
+        table[pos] = stored;
+        tableIds[pos] = id;
+      }
+    }
+
+    /** Returns the number of the given key, or -1 if no edge has this key. */
+    int idOf(Object key) {
+      Object stored = key == null ? NULL_KEY : key;
+      int pos = hash(stored) & mask;
+      while (true) {
+        Object k = table[pos];
+        if (k == null) {
+          return -1;
+        }
+        if (k.equals(stored)) {
+          return tableIds[pos];
+        }
+        pos = (pos + 1) & mask;
+      }
+    }
+
+    Iterator<Edge> edgesOf(Object key) {
+      int id = idOf(key);
+      if (id < 0) {
+        return Collections.emptyIterator();
+      }
+      return new EdgeIterator(sorted, offsets[id], offsets[id + 1]);
+    }
+
+    private static int hash(Object key) {
+      int h = key.hashCode();
+      return h ^ (h >>> 16);
+    }
+  }
+
+  private static final class EdgeIterator implements Iterator<Edge> {
+    private final Edge[] edges;
+    private final int end;
+    private int position;
+
+    EdgeIterator(Edge[] edges, int start, int end) {
+      this.edges = edges;
+      this.position = start;
+      this.end = end;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return position < end;
+    }
+
+    @Override
+    public Edge next() {
+      if (position >= end) {
+        throw new NoSuchElementException();
+      }
+      return edges[position++];
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -35,6 +35,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import soot.AnySubType;
@@ -64,6 +66,7 @@ import soot.Scene;
 import soot.SceneTransformer;
 import soot.ShortType;
 import soot.SootClass;
+import soot.SootContext;
 import soot.SootMethod;
 import soot.SootMethodRef;
 import soot.Transform;
@@ -246,6 +249,8 @@ public class OnFlyCallGraphBuilder {
   protected ConstantArrayAnalysis arrayCache = null;
   protected SootMethod analysisKey = null;
   protected VirtualCalls virtualCalls = VirtualCalls.v();
+  /** builds the bodies of newly reachable methods in parallel, or null to build them on the calling thread */
+  protected ForkJoinPool bodyLoader = null;
 
   public OnFlyCallGraphBuilder(ContextManager cm, ReachableMethods rm) {
     this.cm = cm;
@@ -296,6 +301,25 @@ public class OnFlyCallGraphBuilder {
     return methodToStringConstants;
   }
 
+  /**
+   * Sets the number of threads that build the bodies of newly reachable methods, 0 meaning one per processor. With more
+   * than one thread, {@link #processReachables()} takes all methods that are reachable so far as a wave, builds their
+   * bodies in parallel, and then processes the wave in order on the calling thread. The edges are therefore added in the
+   * same order as with a single thread.
+   */
+  public void setBodyLoadingThreads(int threads) {
+    if (bodyLoader != null) {
+      bodyLoader.shutdown();
+      bodyLoader = null;
+    }
+    if (threads == 0) {
+      threads = Runtime.getRuntime().availableProcessors();
+    }
+    if (threads > 1) {
+      bodyLoader = new ForkJoinPool(threads);
+    }
+  }
+
   public void processReachables() {
     while (true) {
       if (!worklist.hasNext()) {
@@ -304,15 +328,59 @@ public class OnFlyCallGraphBuilder {
           break;
         }
       }
-      MethodOrMethodContext momc = worklist.next();
-      SootMethod m = momc.method();
-      if (appOnly && !m.getDeclaringClass().isApplicationClass()) {
-        continue;
+      if (bodyLoader != null) {
+        processWave();
+      } else {
+        processReachable(worklist.next());
       }
-      if (analyzedMethods.add(m)) {
-        processNewMethod(m);
+    }
+  }
+
+  private void processReachable(MethodOrMethodContext momc) {
+    SootMethod m = momc.method();
+    if (appOnly && !m.getDeclaringClass().isApplicationClass()) {
+      return;
+    }
+    if (analyzedMethods.add(m)) {
+      processNewMethod(m);
+    }
+    processNewMethodContext(momc);
+  }
+
+  /** Processes the methods that are in the worklist now, after building their bodies in parallel. */
+  private void processWave() {
+    List<MethodOrMethodContext> wave = new ArrayList<MethodOrMethodContext>();
+    while (worklist.hasNext()) {
+      wave.add(worklist.next());
+    }
+    List<Callable<Void>> loads = new ArrayList<Callable<Void>>();
+    final SootContext context = SootContext.current();
+    for (MethodOrMethodContext momc : wave) {
+      final SootMethod m = momc.method();
+      if (m.isConcrete() && !m.hasActiveBody() && !analyzedMethods.contains(m)
+          && !(appOnly && !m.getDeclaringClass().isApplicationClass())) {
+        loads.add(new Callable<Void>() {
+          @Override
+          public Void call() {
+            try {
+              if (context == null) {
+                m.retrieveActiveBody();
+              } else {
+                context.run(() -> m.retrieveActiveBody());
+              }
+            } catch (RuntimeException e) {
+              // processNewMethod builds the body again on the calling thread and reports the error there
+            }
+            return null;
+          }
+        });
       }
-      processNewMethodContext(momc);
+    }
+    if (loads.size() > 1) {
+      bodyLoader.invokeAll(loads);
+    }
+    for (MethodOrMethodContext momc : wave) {
+      processReachable(momc);
     }
   }
 
@@ -25,6 +25,7 @@ package soot.jimple.toolkits.callgraph;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -38,6 +39,7 @@ import soot.PhaseOptions;
 import soot.RefType;
 import soot.Scene;
 import soot.Singletons;
+import soot.SootContext;
 import soot.SootClass;
 import soot.SootMethod;
 import soot.Type;
@@ -45,11 +47,10 @@ import soot.jimple.SpecialInvokeExpr;
 import soot.options.CGOptions;
 import soot.toolkits.scalar.Pair;
 import soot.util.Chain;
-import soot.util.HashMultiMap;
-import soot.util.LargeNumberedMap;
+import soot.util.ConcurrentHashMultiMap;
+import soot.util.ConcurrentLongMap;
 import soot.util.MultiMap;
 import soot.util.NumberedString;
-import soot.util.SmallNumberedMap;
 import soot.util.queue.ChunkedQueue;
 
 /**
@@ -67,8 +68,14 @@ public class VirtualCalls {
     return G.v().soot_jimple_toolkits_callgraph_VirtualCalls();
   }
 
-  private final LargeNumberedMap<Type, SmallNumberedMap<SootMethod>> typeToVtbl
-      = new LargeNumberedMap<Type, SmallNumberedMap<SootMethod>>(Scene.v().getTypeNumberer());
+  /** Marks a dispatch that has no target in {@link #dispatchCache}, which cannot hold null values. */
+  private static final Object NO_TARGET = new Object();
+
+  /**
+   * Maps the numbers of a receiver type and of a subsignature, see {@link ConcurrentLongMap#key(int, int)}, to the target
+   * of the dispatch or {@link #NO_TARGET}. Several threads may resolve calls at the same time.
+   */
+  private final ConcurrentLongMap<Object> dispatchCache = new ConcurrentLongMap<Object>(1024);
 
   public SootMethod resolveSpecial(SpecialInvokeExpr iie, NumberedString subSig, SootMethod container) {
     return resolveSpecial(iie, subSig, container, false);
@@ -93,19 +100,17 @@ public class VirtualCalls {
   }
 
   public SootMethod resolveNonSpecial(RefType t, NumberedString subSig, boolean appOnly) {
-    SmallNumberedMap<SootMethod> vtbl = typeToVtbl.get(t);
-    if (vtbl == null) {
-      typeToVtbl.put(t, vtbl = new SmallNumberedMap<SootMethod>());
-    }
-    SootMethod ret = vtbl.get(subSig);
-    if (ret != null) {
-      return ret;
+    final long key = ConcurrentLongMap.key(t.getNumber(), subSig.getNumber());
+    Object cached = dispatchCache.get(key);
+    if (cached != null) {
+      return cached == NO_TARGET ? null : (SootMethod) cached;
     }
     SootClass cls = t.getSootClass();
     if (appOnly && cls.isLibraryClass()) {
       return null;
     }
 
+    SootMethod ret = null;
     SootMethod m = cls.getMethodUnsafe(subSig);
     if (m != null) {
       if (!m.isAbstract()) {
@@ -117,13 +122,52 @@ public class VirtualCalls {
         ret = resolveNonSpecial(c.getType(), subSig);
       }
     }
-    vtbl.put(subSig, ret);
+    dispatchCache.putIfAbsent(key, ret == null ? NO_TARGET : ret);
     return ret;
   }
 
-  protected MultiMap<Type, Type> baseToSubTypes = new HashMultiMap<Type, Type>();
-  protected MultiMap<Pair<Type, NumberedString>, Pair<Type, NumberedString>> baseToPossibleSubTypes
-      = new HashMultiMap<Pair<Type, NumberedString>, Pair<Type, NumberedString>>();
+  /**
+   * Resolves the dispatch of every non-static method that the concrete classes of the Scene declare or inherit, so that
+   * later calls to {@link #resolveNonSpecial(RefType, NumberedString)} only read the cache. The classes are processed in
+   * parallel.
+   */
+  public void precomputeVtables() {
+    final List<SootClass> concrete = new ArrayList<SootClass>();
+    for (SootClass cl : Scene.v().getClasses()) {
+      if (cl.resolvingLevel() >= SootClass.SIGNATURES && cl.isConcrete()) {
+        concrete.add(cl);
+      }
+    }
+    final SootContext context = SootContext.current();
+    concrete.parallelStream().forEach(cl -> {
+      if (context == null) {
+        precomputeVtable(cl);
+      } else {
+        context.run(() -> precomputeVtable(cl));
+      }
+    });
+  }
+
+  private void precomputeVtable(SootClass concrete) {
+    final RefType type = concrete.getType();
+    for (SootClass cl = concrete; cl != null && cl.resolvingLevel() >= SootClass.SIGNATURES;
+        cl = cl.getSuperclassUnsafe()) {
+      for (SootMethod m : cl.getMethods()) {
+        if (!m.isStatic() && !m.isConstructor()) {
+          resolveNonSpecial(type, m.getNumberedSubSignature());
+        }
+      }
+    }
+  }
+
+  protected MultiMap<Type, Type> baseToSubTypes = new ConcurrentHashMultiMap<Type, Type>();
+
+  /**
+   * Maps the numbers of a base type and of a subsignature, see {@link ConcurrentLongMap#key(int, int)}, to the types and
+   * subsignatures that {@link #resolveLibrarySignature} found for them.
+   */
+  protected ConcurrentLongMap<Set<Pair<Type, NumberedString>>> baseToPossibleSubTypes
+      = new ConcurrentLongMap<Set<Pair<Type, NumberedString>>>();
 
   public void resolve(Type t, Type declaredType, NumberedString subSig, SootMethod container,
       ChunkedQueue<SootMethod> targets) {
@@ -281,25 +325,28 @@ public class VirtualCalls {
     FastHierarchy fastHierachy = Scene.v().getOrMakeFastHierarchy();
 
     assert (declaredType instanceof RefType);
-    Pair<Type, NumberedString> pair = new Pair<Type, NumberedString>(base, subSig);
+    final long key = ConcurrentLongMap.key(base.getNumber(), subSig.getNumber());
     {
-      Set<Pair<Type, NumberedString>> types = baseToPossibleSubTypes.get(pair);
+      Set<Pair<Type, NumberedString>> types = baseToPossibleSubTypes.get(key);
       // if this type and method has been resolved earlier we can
       // just retrieve the previous result.
       if (types != null) {
+        // the subsignature of each type is the one that was resolved for it, which differs from the declared one for
+        // types that only match by signature
         for (Pair<Type, NumberedString> tuple : types) {
           Type st = tuple.getO1();
           if (!fastHierachy.canStoreType(st, declaredType)) {
-            resolve(st, st, sigType, subSig, container, targets, appOnly);
+            resolve(st, st, sigType, tuple.getO2(), container, targets, appOnly);
           } else {
-            resolve(st, declaredType, sigType, subSig, container, targets, appOnly);
+            resolve(st, declaredType, sigType, tuple.getO2(), container, targets, appOnly);
           }
         }
         return;
       }
     }
 
-    Set<Pair<Type, NumberedString>> types = new HashSet<Pair<Type, NumberedString>>();
+    // keeps the order of resolution, so a replay adds the targets in the same order
+    Set<Pair<Type, NumberedString>> types = new LinkedHashSet<Pair<Type, NumberedString>>();
 
     // get return type; method name; parameter types
     String[] split = subSig.getString().replaceAll("(.*) (.*)\\((.*)\\)", "$1;$2;$3").split(";");
@@ -363,7 +410,7 @@ public class VirtualCalls {
         }
       }
     }
-    baseToPossibleSubTypes.putAll(pair, types);
+    baseToPossibleSubTypes.putIfAbsent(key, types);
   }
 
   public final NumberedString sigClinit = Scene.v().getSubSigNumberer().findOrAdd("void <clinit>()");
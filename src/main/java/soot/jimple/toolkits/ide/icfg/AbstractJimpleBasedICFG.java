@@ -44,6 +44,7 @@ import soot.SootMethod;
 import soot.Unit;
 import soot.UnitBox;
 import soot.Value;
+import soot.jimple.IdentityStmt;
 import soot.jimple.Stmt;
 import soot.toolkits.graph.BriefUnitGraph;
 import soot.toolkits.graph.DirectedGraph;
@@ -53,7 +54,7 @@ public abstract class AbstractJimpleBasedICFG implements BiDiInterproceduralCFG<
 
   protected final boolean enableExceptions;
 
-  @DontSynchronize("written by single thread; read afterwards")
+  @DontSynchronize("written by single thread; read afterwards; updated by change notifications, see notifyUnitsChanged")
   private final Map<Unit, Body> unitToOwner = createUnitToOwnerMap();
 
   @SynchronizedBy("by use of synchronized LoadingCache class")
@@ -200,6 +201,72 @@ public abstract class AbstractJimpleBasedICFG implements BiDiInterproceduralCFG<
     return unitToOwner.put(u, b) == null;
   }
 
+  /**
+   * Notifies this ICFG that the given body has been edited in an arbitrary way. Everything derived from the body is
+   * invalidated and recomputed on demand, while the information about all other bodies stays cached. Finding the units
+   * that have been removed from the body takes a pass over all units known to this ICFG, so
+   * {@link #notifyUnitsChanged(Body, Collection)} should be preferred if the changed units are known.
+   */
+  public void notifyBodyChanged(Body body) {
+    Set<Unit> affected = new LinkedHashSet<Unit>(body.getUnits());
+    for (Map.Entry<Unit, Body> entry : unitToOwner.entrySet()) {
+      if (entry.getValue() == body) {
+        affected.add(entry.getKey());
+      }
+    }
+    notifyUnitsChanged(body, affected);
+  }
+
+  /**
+   * Notifies this ICFG that the given units of the given body have been changed in place, inserted into the body, or
+   * removed from it. This updates the owner of each unit and invalidates the unit graph of the body, and, only if affected,
+   * its parameter refs and call sites, as well as the per-call-site information of subclasses.
+   *
+   * <p>
+   * The call graph itself is not updated. If call sites have been added, removed or retargeted, the call graph has to be
+   * updated before calling this method. Like the initial construction, notifications must not run concurrently with
+   * queries.
+   * </p>
+   */
+  public void notifyUnitsChanged(Body body, Collection<Unit> units) {
+    SootMethod m = body.getMethod();
+    Set<Unit> cachedCalls = methodToCallsFromWithin.getIfPresent(m);
+    boolean parameterRefsChanged = false;
+    boolean callsChanged = false;
+    for (Unit u : units) {
+      if (body.getUnits().contains(u)) {
+        unitToOwner.put(u, body);
+      } else if (unitToOwner.get(u) == body) {
+        unitToOwner.remove(u);
+      }
+      parameterRefsChanged |= u instanceof IdentityStmt;
+      callsChanged |= isCallStmt(u) || (cachedCalls != null && cachedCalls.contains(u));
+      invalidateUnit(u);
+    }
+    bodyToUnitGraph.invalidate(body);
+    if (parameterRefsChanged) {
+      methodToParameterRefs.invalidate(m);
+    }
+    if (callsChanged) {
+      methodToCallsFromWithin.invalidate(m);
+    }
+    invalidateBody(body);
+  }
+
+  /**
+   * Invalidates the information that subclasses derive from a single unit, e.g. its callees. Called for every unit
+   * reported by {@link #notifyUnitsChanged(Body, Collection)}, including removed ones.
+   */
+  protected void invalidateUnit(Unit u) {
+  }
+
+  /**
+   * Invalidates the information that subclasses derive from a whole body. Called once per
+   * {@link #notifyUnitsChanged(Body, Collection)}, after the units have been processed.
+   */
+  protected void invalidateBody(Body body) {
+  }
+
   @Override
   public boolean isCallStmt(Unit u) {
     return ((Stmt) u).containsInvokeExpr();
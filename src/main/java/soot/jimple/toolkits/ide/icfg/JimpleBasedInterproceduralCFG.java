@@ -35,6 +35,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -111,6 +114,13 @@ public class JimpleBasedInterproceduralCFG extends AbstractJimpleBasedICFG {
   protected final LoadingCache<Unit, Collection<SootMethod>> unitToCallees
       = IDESolver.DEFAULT_CACHE_BUILDER.build(loaderUnitToCallees);
 
+  /**
+   * The methods whose callers have been loaded into {@link #methodToCallers}, by call site. Unlike the cache of callees, it
+   * is not subject to eviction, so that {@link #invalidateUnit(Unit)} finds every cached set of callers that contains a
+   * call site. Entries of sets that have been evicted in the meantime are harmless.
+   */
+  protected final Map<Unit, Set<SootMethod>> callSiteToCachedCallees = new ConcurrentHashMap<Unit, Set<SootMethod>>();
+
   protected CacheLoader<SootMethod, Collection<Unit>> loaderMethodToCallers
       = new CacheLoader<SootMethod, Collection<Unit>>() {
         @Override
@@ -121,7 +131,11 @@ public class JimpleBasedInterproceduralCFG extends AbstractJimpleBasedICFG {
           Iterator<Edge> edgeIter = new EdgeFilter().wrap(cg.edgesInto(m));
           while (edgeIter.hasNext()) {
             Edge edge = edgeIter.next();
-            res.add(edge.srcUnit());
+            Unit u = edge.srcUnit();
+            res.add(u);
+            if (u != null) {
+              callSiteToCachedCallees.computeIfAbsent(u, k -> ConcurrentHashMap.newKeySet()).add(m);
+            }
           }
           res.trimToSize();
           return res;
@@ -164,6 +178,19 @@ public class JimpleBasedInterproceduralCFG extends AbstractJimpleBasedICFG {
     return methodToCallers.getUnchecked(m);
   }
 
+  @Override
+  protected void invalidateUnit(Unit u) {
+    // the callers of both the previous and the current callees may have changed
+    unitToCallees.invalidate(u);
+    Set<SootMethod> previousCallees = callSiteToCachedCallees.remove(u);
+    if (previousCallees != null) {
+      methodToCallers.invalidateAll(previousCallees);
+    }
+    for (Iterator<Edge> edgeIter = cg.edgesOutOf(u); edgeIter.hasNext();) {
+      methodToCallers.invalidate(edgeIter.next().tgt());
+    }
+  }
+
   /**
    * Sets whether methods that operate on the callgraph shall also return phantom methods as potential callees
    *
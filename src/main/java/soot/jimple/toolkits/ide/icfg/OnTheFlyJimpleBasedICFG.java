@@ -207,6 +207,27 @@ public class OnTheFlyJimpleBasedICFG extends AbstractJimpleBasedICFG {
     // throw new UnsupportedOperationException("This class is not suited for unbalanced problems");
   }
 
+  @Override
+  protected void invalidateUnit(Unit u) {
+    Set<SootMethod> previousCallees = unitToCallees.getIfPresent(u);
+    if (previousCallees != null) {
+      synchronized (methodToCallers) {
+        for (SootMethod callee : previousCallees) {
+          Set<Unit> callers = methodToCallers.get(callee);
+          if (callers != null) {
+            callers.remove(u);
+          }
+        }
+      }
+      unitToCallees.invalidate(u);
+    }
+  }
+
+  @Override
+  protected void invalidateBody(Body body) {
+    bodyToLMNAA.invalidate(body);
+  }
+
   public static void loadAllClassesOnClassPathToSignatures() {
     for (String path : SourceLocator.explodeClassPath(Scene.v().getSootClassPath())) {
       for (String cl : SourceLocator.v().getClassesUnder(path)) {
@@ -30,6 +30,8 @@ package soot.tagkit;
  */
 
 public class BytecodeOffsetTag implements Tag {
+
+  public static final String IDENTIFIER = "BytecodeOffsetTag";
   /**
    * The index of the last byte-code instruction.
    */
@@ -46,7 +48,7 @@ public class BytecodeOffsetTag implements Tag {
    * Returns the name of this tag.
    */
   public String getName() {
-    return "BytecodeOffsetTag";
+    return IDENTIFIER;
   }
 
   /**
@@ -0,0 +1,239 @@
+package soot.tagkit;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link AbstractHost} that does not store a {@link LineNumberTag} or {@link BytecodeOffsetTag} that is added without other
+ * tags as an object, but packs it into an int field. Only units carry these tags in large numbers, so only they extend this
+ * class, and other hosts do not pay for the fields.
+ *
+ * <p>
+ * The tag objects are only created when they are handed out by {@link #getTags()} or {@link #getTag(String)}, after which
+ * the host stores them like any other tag. Changing a packed tag object after adding it therefore has no effect on the host.
+ * </p>
+ */
+public class PackedTagHost extends AbstractHost {
+
+  private static final byte PACKED_LINE = 1;
+  private static final byte PACKED_OFFSET = 2;
+  // set if the bytecode offset was added before the line number
+  private static final byte OFFSET_FIRST = 4;
+
+  // kinds of the tags written by writePositionTags
+  private static final byte LINE_TAG = 1;
+  private static final byte OFFSET_TAG = 2;
+
+  // line number and bytecode offset tags that precede the tags in mTagList, see PACKED_*
+  private byte packed;
+  private int packedLine;
+  private int packedOffset;
+
+  @Override
+  public List<Tag> getTags() {
+    if (packed != 0) {
+      unpackTags();
+    }
+    return super.getTags();
+  }
+
+  /** replaces the packed tags by tag objects at the front of the tag list */
+  private synchronized void unpackTags() {
+    if (packed == 0) {
+      return;
+    }
+    List<Tag> tags = new ArrayList<Tag>((mTagList == null ? 0 : mTagList.size()) + 2);
+    boolean offsetFirst = (packed & OFFSET_FIRST) != 0;
+    if ((packed & PACKED_OFFSET) != 0 && offsetFirst) {
+      tags.add(new BytecodeOffsetTag(packedOffset));
+    }
+    if ((packed & PACKED_LINE) != 0) {
+      tags.add(new LineNumberTag(packedLine));
+    }
+    if ((packed & PACKED_OFFSET) != 0 && !offsetFirst) {
+      tags.add(new BytecodeOffsetTag(packedOffset));
+    }
+    if (mTagList != null) {
+      tags.addAll(mTagList);
+    }
+    // publish the list before dropping the packed tags, so that readers never miss a tag
+    mTagList = tags;
+    packed = 0;
+  }
+
+  /** returns the packed flag for tags named <code>aName</code>, or 0 if there is none */
+  private static byte packedFlag(String aName) {
+    if (LineNumberTag.IDENTIFIER.equals(aName)) {
+      return PACKED_LINE;
+    }
+    if (BytecodeOffsetTag.IDENTIFIER.equals(aName)) {
+      return PACKED_OFFSET;
+    }
+    return 0;
+  }
+
+  @Override
+  public void removeTag(String aName) {
+    byte flag = packedFlag(aName);
+    if ((packed & flag) != 0) {
+      packed &= ~flag;
+      if ((packed & (PACKED_LINE | PACKED_OFFSET)) == 0) {
+        packed = 0;
+      }
+      return;
+    }
+    super.removeTag(aName);
+  }
+
+  @Override
+  public Tag getTag(String aName) {
+    if ((packed & packedFlag(aName)) != 0) {
+      unpackTags();
+    }
+    return super.getTag(aName);
+  }
+
+  @Override
+  public boolean hasTag(String aName) {
+    return (packed & packedFlag(aName)) != 0 || super.hasTag(aName);
+  }
+
+  @Override
+  public void addTag(Tag t) {
+    if (mTagList == null) {
+      if ((packed & PACKED_LINE) == 0 && t.getClass() == LineNumberTag.class) {
+        packedLine = ((LineNumberTag) t).getLineNumber();
+        packed |= ((packed & PACKED_OFFSET) != 0) ? PACKED_LINE | OFFSET_FIRST : PACKED_LINE;
+        return;
+      }
+      if ((packed & PACKED_OFFSET) == 0 && t.getClass() == BytecodeOffsetTag.class) {
+        packedOffset = ((BytecodeOffsetTag) t).getBytecodeOffset();
+        packed = (byte) (((packed & PACKED_LINE) != 0) ? PACKED_LINE | PACKED_OFFSET : PACKED_OFFSET | OFFSET_FIRST);
+        return;
+      }
+    }
+    super.addTag(t);
+  }
+
+  @Override
+  public void removeAllTags() {
+    super.removeAllTags();
+    packed = 0;
+  }
+
+  @Override
+  public void addAllTagsOf(Host h) {
+    if (h instanceof PackedTagHost && mTagList == null && packed == 0) {
+      // copy the packed tags as they are, without creating tag objects for them
+      PackedTagHost other = (PackedTagHost) h;
+      synchronized (other) {
+        packed = other.packed;
+        packedLine = other.packedLine;
+        packedOffset = other.packedOffset;
+        if (other.mTagList != null && !other.mTagList.isEmpty()) {
+          mTagList = new ArrayList<Tag>(other.mTagList);
+        }
+      }
+      return;
+    }
+    super.addAllTagsOf(h);
+  }
+
+  @Override
+  public int getJavaSourceStartLineNumber() {
+    // a source position takes precedence over the bytecode line number, as in AbstractHost
+    if (line <= 0 && (packed & PACKED_LINE) != 0 && !hasTag(SourceLnPosTag.IDENTIFIER)) {
+      line = packedLine;
+    }
+    return super.getJavaSourceStartLineNumber();
+  }
+
+  /**
+   * Returns true if this host has no tags besides {@link LineNumberTag}s and {@link BytecodeOffsetTag}s, which
+   * {@link #writePositionTags(DataOutput)} can write. Does not create tag objects for packed tags.
+   */
+  public synchronized boolean hasOnlyPositionTags() {
+    if (mTagList != null) {
+      for (Tag t : mTagList) {
+        if (t.getClass() != LineNumberTag.class && t.getClass() != BytecodeOffsetTag.class) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Writes the line number and bytecode offset tags of this host in their order, which
+   * {@link #readPositionTags(DataInput)} adds to another host. Must only be called if {@link #hasOnlyPositionTags()}.
+   */
+  public synchronized void writePositionTags(DataOutput out) throws IOException {
+    List<Tag> tags = mTagList == null ? new ArrayList<Tag>(0) : mTagList;
+    int packedCount = Integer.bitCount(packed & (PACKED_LINE | PACKED_OFFSET));
+    out.writeShort(packedCount + tags.size());
+    boolean offsetFirst = (packed & OFFSET_FIRST) != 0;
+    if ((packed & PACKED_OFFSET) != 0 && offsetFirst) {
+      out.writeByte(OFFSET_TAG);
+      out.writeInt(packedOffset);
+    }
+    if ((packed & PACKED_LINE) != 0) {
+      out.writeByte(LINE_TAG);
+      out.writeInt(packedLine);
+    }
+    if ((packed & PACKED_OFFSET) != 0 && !offsetFirst) {
+      out.writeByte(OFFSET_TAG);
+      out.writeInt(packedOffset);
+    }
+    for (Tag t : tags) {
+      if (t.getClass() == LineNumberTag.class) {
+        out.writeByte(LINE_TAG);
+        out.writeInt(((LineNumberTag) t).getLineNumber());
+      } else if (t.getClass() == BytecodeOffsetTag.class) {
+        out.writeByte(OFFSET_TAG);
+        out.writeInt(((BytecodeOffsetTag) t).getBytecodeOffset());
+      } else {
+        throw new IllegalStateException("Cannot write tag " + t.getName());
+      }
+    }
+  }
+
+  /** Adds the tags written by {@link #writePositionTags(DataOutput)} to this host. */
+  public void readPositionTags(DataInput in) throws IOException {
+    for (int count = in.readUnsignedShort(); count > 0; count--) {
+      byte kind = in.readByte();
+      int value = in.readInt();
+      if (kind == LINE_TAG) {
+        addTag(new LineNumberTag(value));
+      } else if (kind == OFFSET_TAG) {
+        addTag(new BytecodeOffsetTag(value));
+      } else {
+        throw new IOException("Unknown tag kind " + kind);
+      }
+    }
+  }
+}
@@ -72,11 +72,11 @@ public class ArrayNumberer<E extends Numberable> implements IterableNumberer<E>
     if (chosenNumber == -1) {
       chosenNumber = ++lastNumber;
     }
-    if (lastNumber >= numberToObj.length) {
+    if (chosenNumber >= numberToObj.length) {
       resize(numberToObj.length * 2);
     }
-    numberToObj[lastNumber] = o;
-    o.setNumber(lastNumber);
+    numberToObj[chosenNumber] = o;
+    o.setNumber(chosenNumber);
   }
 
   @Override
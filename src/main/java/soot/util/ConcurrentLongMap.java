@@ -0,0 +1,164 @@
+package soot.util;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A cache from non-negative long keys to non-null values that can be read and written by several threads without locking.
+ * The keys are stored in an open-addressing table of primitive longs, so looking up a key allocates nothing. Two numbers
+ * below 2^31, such as the numbers of a type and of a subsignature, can be combined into a key with {@link #key(int, int)}.
+ *
+ * <p>
+ * Entries are never removed. When the table grows, an entry that another thread adds while the table is copied may be lost,
+ * which is why this is a cache: callers must be able to compute a missing value again.
+ * </p>
+ */
+public final class ConcurrentLongMap<V> {
+
+  private static final float LOAD_FACTOR = 0.5f;
+
+  private static final class Table<V> {
+    // keys are stored incremented by one, so that 0 marks a free slot
+    final AtomicLongArray keys;
+    final AtomicReferenceArray<V> values;
+    final AtomicInteger size = new AtomicInteger();
+    final int mask;
+
+    Table(int capacity) {
+      keys = new AtomicLongArray(capacity);
+      values = new AtomicReferenceArray<V>(capacity);
+      mask = capacity - 1;
+    }
+  }
+
+  private volatile Table<V> table;
+
+  public ConcurrentLongMap() {
+    this(64);
+  }
+
+  public ConcurrentLongMap(int initialCapacity) {
+    int capacity = 16;
+    while (capacity * LOAD_FACTOR < initialCapacity) {
+      capacity <<= 1;
+    }
+    table = new Table<V>(capacity);
+  }
+
+  /** Combines two non-negative numbers into a key. */
+  public static long key(int high, int low) {
+    return ((long) high << 32) | (low & 0xFFFFFFFFL);
+  }
+
+  /** Returns the value for the given key, or <code>null</code> if there is none. */
+  public V get(long key) {
+    final Table<V> t = table;
+    final long stored = key + 1;
+    int pos = hash(stored) & t.mask;
+    while (true) {
+      long k = t.keys.get(pos);
+      if (k == stored) {
+        // the value may not be set yet, which is as good as a miss
+        return t.values.get(pos);
+      }
+      if (k == 0) {
+        return null;
+      }
+      pos = (pos + 1) & t.mask;
+    }
+  }
+
+  /**
+   * Associates the given value with the given key if the key has no value yet. Returns the value that is associated with the
+   * key afterwards.
+   */
+  public V putIfAbsent(long key, V value) {
+    if (key < 0 || value == null) {
+      throw new IllegalArgumentException("Keys must not be negative and values not null");
+    }
+    final Table<V> t = table;
+    final long stored = key + 1;
+    int pos = hash(stored) & t.mask;
+    while (true) {
+      long k = t.keys.get(pos);
+      if (k == 0) {
+        if (!t.keys.compareAndSet(pos, 0, stored)) {
+          // another thread took the slot, look at it again
+          continue;
+        }
+        // a thread that found the key before the value was set may have stored its own value already
+        V current = t.values.compareAndSet(pos, null, value) ? value : t.values.get(pos);
+        if (t.size.incrementAndGet() > t.keys.length() * LOAD_FACTOR) {
+          grow(t);
+        }
+        return current;
+      }
+      if (k == stored) {
+        if (t.values.compareAndSet(pos, null, value)) {
+          return value;
+        }
+        return t.values.get(pos);
+      }
+      pos = (pos + 1) & t.mask;
+    }
+  }
+
+  /** Returns the number of entries. */
+  public int size() {
+    return table.size.get();
+  }
+
+  private synchronized void grow(Table<V> full) {
+    if (table != full) {
+      return;
+    }
+    Table<V> bigger = new Table<V>(full.keys.length() * 2);
+    for (int i = 0; i < full.keys.length(); i++) {
+      long k = full.keys.get(i);
+      V v = full.values.get(i);
+      if (k != 0 && v != null) {
+        int pos = hash(k) & bigger.mask;
+        while (bigger.keys.get(pos) != 0) {
+          pos = (pos + 1) & bigger.mask;
+        }
+        bigger.keys.set(pos, k);
+        bigger.values.set(pos, v);
+        bigger.size.incrementAndGet();
+      }
+    }
+    table = bigger;
+  }
+
+  private static int hash(long key) {
+    // the finalizer of MurmurHash3, which spreads consecutive numbers over the table
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return (int) key;
+  }
+}
@@ -0,0 +1,106 @@
+package experiments;
+
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuples;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ColumnarTupleSetTest {
+
+    @Test
+    public void insertsEachRowOnce() {
+        final ColumnarTupleSet set = new ColumnarTupleSet(2);
+        assertTrue(set.isEmpty());
+        assertTrue(set.add(new int[]{1, 2}));
+        assertTrue(set.add(new int[]{2, 1}));
+        assertFalse(set.add(new int[]{1, 2}));
+        assertEquals(2, set.size());
+        assertTrue(set.contains(new int[]{2, 1}));
+        assertFalse(set.contains(new int[]{2, 2}));
+        assertArrayEquals(new int[]{1, 2}, set.row(0));
+        assertEquals(1, set.get(1, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsRowsOfAnotherArity() {
+        new ColumnarTupleSet(2).add(new int[]{1});
+    }
+
+    @Test
+    public void findsAllRowsAfterRemovals() {
+        // enough rows to grow the index several times and to have long probe sequences that removals must shift back
+        final ColumnarTupleSet set = new ColumnarTupleSet(2);
+        final Set<Integer> present = new HashSet<>();
+        final Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            set.add(new int[]{i, i % 7});
+            present.add(i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            final int value = random.nextInt(2000);
+            assertEquals(present.remove(value), set.remove(new int[]{value, value % 7}));
+        }
+        assertEquals(present.size(), set.size());
+        for (int i = 0; i < 2000; i++) {
+            assertEquals(present.contains(i), set.contains(new int[]{i, i % 7}));
+        }
+        // removed rows can be added again
+        for (int i = 0; i < 2000; i++) {
+            assertEquals(!present.contains(i), set.add(new int[]{i, i % 7}));
+        }
+        assertEquals(2000, set.size());
+    }
+
+    @Test
+    public void sortsRowsLexicographically() {
+        final ColumnarTupleSet set = new ColumnarTupleSet(2);
+        set.add(new int[]{3, 1});
+        set.add(new int[]{1, 5});
+        set.add(new int[]{-2, 0});
+        set.add(new int[]{1, -4});
+        set.sort();
+        assertArrayEquals(new int[]{-2, 0}, set.row(0));
+        assertArrayEquals(new int[]{1, -4}, set.row(1));
+        assertArrayEquals(new int[]{1, 5}, set.row(2));
+        assertArrayEquals(new int[]{3, 1}, set.row(3));
+        // the index points at the moved rows
+        assertTrue(set.contains(new int[]{1, 5}));
+        assertFalse(set.add(new int[]{3, 1}));
+        assertTrue(set.remove(new int[]{-2, 0}));
+        assertEquals(3, set.size());
+    }
+
+    @Test
+    public void diffsRelationsByMergingSortedRows() {
+        final Database.SymbolTable symbols = new Database.SymbolTable();
+        final Database left = new Database(symbols);
+        final Database right = new Database(symbols);
+        for (final int value : new int[]{5, 1, 3, 7}) {
+            insert(left, "values", value);
+        }
+        for (final int value : new int[]{3, 8, 1, 2}) {
+            insert(right, "values", value);
+        }
+        insert(left, "gone", 1);
+        insert(right, "new", 4);
+
+        final Map<String, Database.RelationDiff> diff = Database.computeDiff(left, right);
+        assertEquals("x:Integer\ts:String\n-5\tv5\n-7\tv7\n+2\tv2\n+8\tv8", diff.get("values").toString());
+        assertEquals("x:Integer\ts:String\n-1\tv1", diff.get("gone").toString());
+        assertEquals("x:Integer\ts:String\n+4\tv4", diff.get("new").toString());
+    }
+
+    private static void insert(final Database database, final String relationName, final int value) {
+        final Database.Relation relation = database.getRelation(relationName);
+        relation.setHeader(Database.RelationHeader.fromPairs("x", Integer.class, "s", String.class));
+        relation.insert(Tuples.flatTupleOf(value, "v" + value));
+    }
+}
@@ -0,0 +1,67 @@
+package experiments;
+
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuples;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FactFilesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void keepsTheTextFormatOfRelations() throws IOException {
+        final File output = new File(this.folder.getRoot(), "out");
+        final Map<String, Database.Relation> relations = new HashMap<>();
+        relations.put("values", relation(new Database.SymbolTable(), -5, 3));
+        Database.writeToFile(relations, output);
+
+        assertEquals("x:Integer\ts:String\n-5\tv-5\n3\tv3",
+                new String(Files.readAllBytes(new File(output, "values.facts").toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void readsBackRelationsAndDiffsInBothFormats() throws IOException {
+        for (final FactFiles.Format format : FactFiles.Format.values()) {
+            final Database.SymbolTable symbols = new Database.SymbolTable();
+            final Database.RelationDiff diff = new Database.RelationDiff(symbols);
+            diff.setHeader(Database.RelationHeader.fromPairs("x", Integer.class, "s", String.class));
+            diff.delete(Tuples.flatTupleOf(-1, "v-1"));
+            diff.insert(Tuples.flatTupleOf(-2, "v-2"));
+            final Map<String, Database.Relation> relations = new HashMap<>();
+            // a relation whose rows start with a sign, just like the rows of a diff
+            relations.put("negative", relation(symbols, -5, -3));
+            relations.put("changes", diff);
+            final File output = new File(this.folder.getRoot(), format.name());
+            Database.writeToFile(relations, output, format);
+
+            final Map<String, Database.Relation> read = Database.readFromFolder(output, symbols);
+            assertEquals(relations.keySet(), read.keySet());
+            assertFalse(read.get("negative") instanceof Database.RelationDiff);
+            assertEquals(relations.get("negative").toString(), read.get("negative").toString());
+            assertTrue(read.get("changes") instanceof Database.RelationDiff);
+            assertEquals(diff.toString(), read.get("changes").toString());
+        }
+    }
+
+    private static Database.Relation relation(final Database.SymbolTable symbols, final int... values) {
+        final Database.Relation relation = new Database.Relation(symbols);
+        relation.setHeader(Database.RelationHeader.fromPairs("x", Integer.class, "s", String.class));
+        for (final int value : values) {
+            relation.insert(Tuples.flatTupleOf(value, "v" + value));
+        }
+        return relation;
+    }
+}
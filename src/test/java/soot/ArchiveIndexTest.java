@@ -0,0 +1,158 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for reading archives through their index.
+ */
+public class ArchiveIndexTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void readsStoredAndDeflatedEntries() throws IOException {
+    byte[] stored = "stored entry".getBytes(StandardCharsets.UTF_8);
+    byte[] deflated = new byte[100000];
+    for (int i = 0; i < deflated.length; i++) {
+      deflated[i] = (byte) (i % 7 + i / 1000);
+    }
+    File jar = folder.newFile("test.jar");
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+      out.setComment("an archive comment");
+      out.putNextEntry(new ZipEntry("a/Deflated.class"));
+      out.write(deflated);
+      out.closeEntry();
+      ZipEntry entry = new ZipEntry("b/Stored.class");
+      entry.setMethod(ZipEntry.STORED);
+      entry.setSize(stored.length);
+      CRC32 crc = new CRC32();
+      crc.update(stored);
+      entry.setCrc(crc.getValue());
+      out.putNextEntry(entry);
+      out.write(stored);
+      out.closeEntry();
+      out.putNextEntry(new ZipEntry("c/Empty.class"));
+      out.closeEntry();
+    }
+
+    ArchiveIndex index = ArchiveIndex.open(jar);
+    assertEquals(Arrays.asList("a/Deflated.class", "b/Stored.class", "c/Empty.class"), index.getEntryNames());
+    assertTrue(index.contains("b/Stored.class"));
+    assertFalse(index.contains("b/Missing.class"));
+    assertArrayEquals(deflated, index.read("a/Deflated.class"));
+    assertArrayEquals(stored, index.read("b/Stored.class"));
+    assertEquals(0, index.read("c/Empty.class").length);
+    // inflaters are reused
+    assertArrayEquals(deflated, index.read("a/Deflated.class"));
+  }
+
+  @Test
+  public void closesReplacedAndClearedArchivesReadThroughZipFile() throws IOException {
+    assumeTrue(new File("/proc/self/fd").isDirectory());
+    File jar = folder.newFile("prefixed.jar");
+    writePrefixedArchive(jar, "a/A.class");
+    ArchiveIndex first = ArchiveIndex.forFile(jar);
+    assertEquals(0, openHandles(jar));
+    assertArrayEquals(new byte[] { 1 }, first.read("a/A.class"));
+    assertEquals(1, openHandles(jar));
+
+    writePrefixedArchive(jar, "a/A.class", "b/B.class");
+    assertTrue(jar.setLastModified(jar.lastModified() + 2000));
+    ArchiveIndex second = ArchiveIndex.forFile(jar);
+    assertTrue(second.contains("b/B.class"));
+    assertEquals(0, openHandles(jar));
+    assertArrayEquals(new byte[] { 1 }, second.read("b/B.class"));
+    assertEquals(1, openHandles(jar));
+
+    ArchiveIndex.clearSharedIndices();
+    assertEquals(0, openHandles(jar));
+    // an index that is still in use opens the archive again
+    assertArrayEquals(new byte[] { 1 }, first.read("a/A.class"));
+    first.close();
+    assertEquals(0, openHandles(jar));
+  }
+
+  @Test(expected = IOException.class)
+  public void failsOnMissingEntry() throws IOException {
+    File jar = folder.newFile("empty.jar");
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+      out.putNextEntry(new ZipEntry("A.class"));
+      out.closeEntry();
+    }
+    ArchiveIndex.open(jar).read("B.class");
+  }
+
+  /** Writes an archive with data in front of the first entry, which cannot be mapped. */
+  private static void writePrefixedArchive(File jar, String... entries) throws IOException {
+    try (OutputStream file = new FileOutputStream(jar)) {
+      file.write("prefix".getBytes(StandardCharsets.UTF_8));
+      ZipOutputStream out = new ZipOutputStream(file);
+      for (String entry : entries) {
+        out.putNextEntry(new ZipEntry(entry));
+        out.write(1);
+        out.closeEntry();
+      }
+      out.finish();
+    }
+  }
+
+  /** Returns the number of file descriptors of this process that refer to the given file. */
+  private static long openHandles(File file) throws IOException {
+    final Path path = file.toPath().toRealPath();
+    try (Stream<Path> fds = Files.list(Paths.get("/proc/self/fd"))) {
+      return fds.filter(fd -> {
+        try {
+          return Files.readSymbolicLink(fd).equals(path);
+        } catch (IOException e) {
+          // the descriptor has been closed in the meantime
+          return false;
+        }
+      }).count();
+    }
+  }
+}
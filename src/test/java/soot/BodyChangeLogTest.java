@@ -0,0 +1,177 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.jimple.AssignStmt;
+import soot.jimple.IntConstant;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.options.Options;
+
+/**
+ * Tests for the change log of bodies.
+ */
+public class BodyChangeLogTest {
+
+  private JimpleBody body;
+  private Local a;
+  private Local b;
+  private Unit identity;
+  private AssignStmt addition;
+  private Unit ret;
+
+  /**
+   * Initializes Soot and creates a small body.
+   */
+  @Before
+  public void initialize() {
+    G.reset();
+    Options.v().set_whole_program(true);
+    Scene.v().loadNecessaryClasses();
+
+    SootClass cl = new SootClass("TestClass", Modifier.PUBLIC);
+    SootMethod method
+        = new SootMethod("testMethod", Collections.<Type>singletonList(IntType.v()), IntType.v(), Modifier.PUBLIC);
+    cl.addMethod(method);
+    body = Jimple.v().newBody(method);
+    method.setActiveBody(body);
+
+    a = Jimple.v().newLocal("a", IntType.v());
+    body.getLocals().add(a);
+    b = Jimple.v().newLocal("b", IntType.v());
+    body.getLocals().add(b);
+
+    identity = Jimple.v().newIdentityStmt(a, Jimple.v().newParameterRef(IntType.v(), 0));
+    body.getUnits().add(identity);
+    addition = Jimple.v().newAssignStmt(b, Jimple.v().newAddExpr(a, IntConstant.v(1)));
+    body.getUnits().add(addition);
+    ret = Jimple.v().newReturnStmt(b);
+    body.getUnits().add(ret);
+  }
+
+  /**
+   * Tests that insertions and removals are recorded, and that units which were inserted and removed again are dropped.
+   */
+  @Test
+  public void unitInsertionsAndRemovals() {
+    BodyChangeLog log = body.enableChangeLog();
+    assertTrue(log.drain().isEmpty());
+
+    Unit nop = Jimple.v().newNopStmt();
+    body.getUnits().insertBefore(nop, ret);
+    Unit temporary = Jimple.v().newNopStmt();
+    body.getUnits().insertAfter(temporary, identity);
+    body.getUnits().remove(temporary);
+    body.getUnits().remove(addition);
+
+    BodyChangeLog.ChangeSet changes = log.drain();
+    assertEquals(Collections.singleton(nop), changes.getAddedUnits());
+    assertEquals(Collections.singleton(addition), changes.getRemovedUnits());
+    assertTrue(changes.getChangedUnits().isEmpty());
+    assertTrue(log.drain().isEmpty());
+  }
+
+  /**
+   * Tests that value replacements are recorded, including those in nested boxes and in values that were set before.
+   */
+  @Test
+  public void valueReplacements() {
+    BodyChangeLog log = body.enableChangeLog();
+
+    addition.setRightOp(Jimple.v().newMulExpr(a, IntConstant.v(2)));
+    ValueBox nested = addition.getRightOp().getUseBoxes().get(1);
+    nested.setValue(IntConstant.v(3));
+
+    BodyChangeLog.ChangeSet changes = log.drain();
+    assertEquals(Collections.singleton(addition), changes.getChangedUnits());
+    assertEquals(2, changes.getValueChanges().size());
+    assertSame(nested, changes.getValueChanges().get(1).getBox());
+    assertEquals(IntConstant.v(2), changes.getValueChanges().get(1).getOldValue());
+
+    // boxes of units that are not part of the body are not recorded
+    Unit unrelated = Jimple.v().newAssignStmt(b, IntConstant.v(0));
+    unrelated.getUseBoxes().get(0).setValue(IntConstant.v(1));
+    assertTrue(log.drain().isEmpty());
+  }
+
+  /**
+   * Tests that trap changes are recorded.
+   */
+  @Test
+  public void trapChanges() {
+    SootClass throwable = Scene.v().getSootClass("java.lang.Throwable");
+    Trap changed = Jimple.v().newTrap(throwable, identity, ret, ret);
+    Trap removed = Jimple.v().newTrap(throwable, addition, ret, ret);
+    body.getTraps().addAll(Arrays.asList(changed, removed));
+    BodyChangeLog log = body.enableChangeLog();
+
+    changed.setBeginUnit(addition);
+    body.getTraps().remove(removed);
+    Trap added = Jimple.v().newTrap(throwable, identity, addition, ret);
+    body.getTraps().add(added);
+
+    BodyChangeLog.ChangeSet changes = log.drain();
+    assertEquals(Collections.singletonList(added), changes.getAddedTraps());
+    assertEquals(Collections.singletonList(removed), changes.getRemovedTraps());
+    assertEquals(Collections.singletonList(changed), changes.getChangedTraps());
+  }
+
+  /**
+   * Tests that nothing is recorded after the log has been disabled.
+   */
+  @Test
+  public void disable() {
+    body.enableChangeLog();
+    body.disableChangeLog();
+    assertNull(body.getChangeLog());
+
+    addition.setRightOp(IntConstant.v(0));
+    body.getUnits().remove(identity);
+    assertTrue(body.enableChangeLog().drain().isEmpty());
+  }
+
+  /**
+   * Tests that the owners of the boxes belong to the globals of the body, so that they are dropped with the Scene.
+   */
+  @Test
+  public void boxOwnersAreDroppedWithTheScene() {
+    body.enableChangeLog();
+    ValueBox box = addition.getRightOpBox();
+    assertNotNull(ValueBoxOwners.v().get(box));
+
+    G.reset();
+    assertNull(ValueBoxOwners.v().get(box));
+  }
+}
@@ -0,0 +1,239 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.jimple.AssignStmt;
+import soot.jimple.IntConstant;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.jimple.toolkits.callgraph.CallGraph;
+import soot.jimple.toolkits.callgraph.Edge;
+import soot.jimple.toolkits.callgraph.ReachableMethods;
+import soot.options.Options;
+import soot.tagkit.BytecodeOffsetTag;
+import soot.tagkit.LineNumberTag;
+
+/**
+ * Tests for the eviction of bodies by the {@link BodyStore}.
+ */
+public class BodyStoreTest {
+
+  private SootClass cl;
+
+  @Before
+  public void setUp() {
+    G.reset();
+    Options.v().set_body_budget(10);
+    Scene.v().loadNecessaryClasses();
+    cl = new SootClass("TestClass", Modifier.PUBLIC);
+    cl.setSuperclass(Scene.v().getObjectType().getSootClass());
+    Scene.v().addClass(cl);
+    cl.setApplicationClass();
+    cl.setResolvingLevel(SootClass.BODIES);
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedBodiesAndReloadsThem() {
+    SootMethod first = newMethod("first", 8);
+    SootMethod second = newMethod("second", 8);
+    String expected = first.retrieveActiveBody().toString();
+    second.retrieveActiveBody();
+    // the first body has been used since it was loaded, it gets a second chance
+    assertNotNull(first.activeBody);
+    assertEquals(0, BodyStore.v().getEvictionCount());
+
+    newMethod("third", 8).retrieveActiveBody();
+    assertNull(first.activeBody);
+    assertTrue(first.hasActiveBody());
+    assertEquals(1, BodyStore.v().getEvictionCount());
+
+    Body reloaded = first.getActiveBody();
+    assertEquals(expected, reloaded.toString());
+    assertSame(first, reloaded.getMethod());
+    assertEquals(1, BodyStore.v().getReloadCount());
+    // loading the first body again pushed out the second one
+    assertNull(second.activeBody);
+  }
+
+  @Test
+  public void keepsModifiedAndPinnedBodies() {
+    SootMethod modified = newMethod("modified", 8);
+    Body body = modified.retrieveActiveBody();
+    body.getUnits().addFirst(Jimple.v().newNopStmt());
+    SootMethod pinned = newMethod("pinned", 8);
+    BodyStore.v().pin(pinned);
+    Body pinnedBody = pinned.retrieveActiveBody();
+
+    newMethod("other", 8).retrieveActiveBody();
+    newMethod("another", 8).retrieveActiveBody();
+
+    assertSame(body, modified.activeBody);
+    assertSame(pinnedBody, pinned.activeBody);
+  }
+
+  @Test
+  public void neverEvictsTheBodyThatIsBeingLoaded() {
+    SootMethod small = newMethod("small", 4);
+    small.retrieveActiveBody();
+    SootMethod large = newMethod("large", 20);
+    Body body = large.retrieveActiveBody();
+
+    assertSame(body, large.activeBody);
+    assertSame(body, large.getActiveBody());
+    assertEquals(0, BodyStore.v().getEvictionCount());
+
+    // the hand only passed the small body once, it goes on the next load
+    newMethod("next", 4).retrieveActiveBody();
+    assertNull(small.activeBody);
+    assertSame(body, large.activeBody);
+  }
+
+  @Test
+  public void keepsEditsToABodyAfterASiblingIsLoaded() {
+    SootMethod edited = newMethod("edited", 8);
+    Body body = edited.retrieveActiveBody();
+    newMethod("sibling", 8).retrieveActiveBody();
+
+    body.getUnits().addFirst(Jimple.v().newNopStmt());
+    newMethod("another", 8).retrieveActiveBody();
+
+    assertSame(body, edited.activeBody);
+    assertSame(body, edited.getActiveBody());
+    assertEquals(9, edited.getActiveBody().getUnits().size());
+  }
+
+  @Test
+  public void keepsBodiesWhoseValuesHaveBeenReplaced() {
+    SootMethod edited = newMethod("edited", 8);
+    Body body = edited.retrieveActiveBody();
+    ((AssignStmt) body.getUnits().getFirst()).setRightOp(IntConstant.v(42));
+    newMethod("other", 8).retrieveActiveBody();
+    newMethod("another", 8).retrieveActiveBody();
+
+    assertSame(body, edited.activeBody);
+  }
+
+  @Test
+  public void evictsBodiesWithLineNumbersAndKeepsThem() {
+    SootMethod first = newMethod("first", 8, true);
+    Body body = first.retrieveActiveBody();
+    body.getUnits().getFirst().addTag(new LineNumberTag(99));
+    // tags are not modifications
+    newMethod("second", 8).retrieveActiveBody();
+    newMethod("third", 8).retrieveActiveBody();
+    assertNull(first.activeBody);
+
+    int line = 0;
+    for (Unit u : first.getActiveBody().getUnits()) {
+      if (line == 0) {
+        assertEquals(3, u.getTags().size());
+      }
+      assertEquals(line + 1, u.getJavaSourceStartLineNumber());
+      assertEquals(line * 3, ((BytecodeOffsetTag) u.getTag(BytecodeOffsetTag.IDENTIFIER)).getBytecodeOffset());
+      line++;
+    }
+  }
+
+  @Test
+  public void evictsReachableBodiesAndKeepsWhatTheCallGraphRefersTo() {
+    SootMethod caller = newMethod("caller", 8);
+    SootMethod callee = newMethod("callee", 2);
+    Body body = caller.retrieveActiveBody();
+    String expected = body.toString();
+    Unit callSite = body.getUnits().getSuccOf(body.getUnits().getFirst());
+    Local local = body.getLocals().getFirst();
+    CallGraph cg = new CallGraph();
+    cg.addEdge(new Edge(caller, callSite, callee, Kind.STATIC));
+    Scene.v().setCallGraph(cg);
+    ReachableMethods reachable = new ReachableMethods(cg, Collections.<MethodOrMethodContext>singletonList(caller));
+    reachable.update();
+    Scene.v().setReachableMethods(reachable);
+    assertTrue(reachable.contains(caller));
+
+    newMethod("other", 8).retrieveActiveBody();
+    newMethod("another", 8).retrieveActiveBody();
+    assertNull(caller.activeBody);
+
+    Body reloaded = caller.getActiveBody();
+    assertFalse(reloaded == body);
+    assertEquals(expected, reloaded.toString());
+    assertSame(callSite, reloaded.getUnits().getSuccOf(reloaded.getUnits().getFirst()));
+    assertSame(local, reloaded.getLocals().getFirst());
+    assertSame(local, ((AssignStmt) reloaded.getUnits().getFirst()).getLeftOp());
+    assertTrue(cg.edgesOutOf(reloaded.getUnits().getSuccOf(reloaded.getUnits().getFirst())).hasNext());
+  }
+
+  @Test
+  public void keepsAllBodiesWithoutBudget() {
+    Options.v().set_body_budget(-1);
+    SootMethod first = newMethod("first", 8);
+    first.retrieveActiveBody();
+    newMethod("second", 8).retrieveActiveBody();
+
+    assertNotNull(first.activeBody);
+    assertEquals(0, BodyStore.v().getEvictionCount());
+  }
+
+  private SootMethod newMethod(String name, int size) {
+    return newMethod(name, size, false);
+  }
+
+  private SootMethod newMethod(String name, final int size, final boolean lineNumbers) {
+    SootMethod m = new SootMethod(name, Collections.<Type>emptyList(), IntType.v(), Modifier.STATIC);
+    cl.addMethod(m);
+    m.setSource(new MethodSource() {
+      @Override
+      public Body getBody(SootMethod m, String phaseName) {
+        JimpleBody body = Jimple.v().newBody(m);
+        Local l = Jimple.v().newLocal("l", IntType.v());
+        body.getLocals().add(l);
+        for (int i = 1; i < size; i++) {
+          body.getUnits().add(Jimple.v().newAssignStmt(l, IntConstant.v(i)));
+        }
+        body.getUnits().add(Jimple.v().newReturnStmt(l));
+        if (lineNumbers) {
+          int line = 1;
+          for (Unit u : body.getUnits()) {
+            u.addTag(new LineNumberTag(line));
+            u.addTag(new BytecodeOffsetTag((line - 1) * 3));
+            line++;
+          }
+        }
+        return body;
+      }
+    });
+    return m;
+  }
+}
@@ -24,10 +24,14 @@ package soot;
 
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -176,6 +180,90 @@ public class FastHierarchyTest {
     assertThat(fh.getAllImplementersOfInterface(interfaceD), containsInAnyOrder(scA, scB, scC1, scD));
   }
 
+  @Test
+  public void testFrozenCanStoreClass() {
+    G.reset();
+
+    Scene s = Scene.v();
+    s.loadNecessaryClasses();
+
+    SootClass interfaceA = generacteSceneClass("InterfaceA", Modifier.INTERFACE);
+    SootClass interfaceB = generacteSceneClass("InterfaceB", Modifier.INTERFACE);
+    SootClass interfaceC = generacteSceneClass("InterfaceC", Modifier.INTERFACE);
+
+    SootClass scA = generacteSceneClass("ClassA", 0);
+    SootClass scB = generacteSceneClass("ClassB", 0);
+    SootClass scC = generacteSceneClass("ClassC", 0);
+    SootClass scD = generacteSceneClass("ClassD", 0);
+
+    interfaceA.addInterface(interfaceB);
+    scA.addInterface(interfaceA);
+    scB.setSuperclass(scA);
+    scC.setSuperclass(scB);
+    scC.addInterface(interfaceC);
+
+    SootClass[] classes = { s.getObjectType().getSootClass(), interfaceA, interfaceB, interfaceC, scA, scB, scC, scD };
+    FastHierarchy fh = new FastHierarchy();
+    FastHierarchy frozen = new FastHierarchy();
+    frozen.freeze();
+    assertTrue(frozen.isFrozen());
+    for (SootClass child : classes) {
+      for (SootClass parent : classes) {
+        assertEquals(child + " in " + parent, fh.canStoreClass(child, parent), frozen.canStoreClass(child, parent));
+      }
+    }
+    assertTrue(frozen.canStoreClass(scC, interfaceB));
+    assertFalse(frozen.canStoreClass(scD, interfaceB));
+    assertThat(frozen.getAllImplementersOfInterface(interfaceB), containsInAnyOrder(scA));
+
+    // classes added after the freeze are answered from the inverse maps
+    SootClass scE = generacteSceneClass("ClassE", 0);
+    assertFalse(frozen.canStoreClass(scE, scA));
+  }
+
+  @Test
+  public void testParallelConstruction() {
+    G.reset();
+
+    Scene s = Scene.v();
+    s.loadNecessaryClasses();
+
+    List<SootClass> classes = new ArrayList<>();
+    classes.add(s.getObjectType().getSootClass());
+    for (int i = 0; i < 8; i++) {
+      classes.add(generacteSceneClass("Interface" + i, Modifier.INTERFACE));
+    }
+    for (int i = 0; i < 40; i++) {
+      SootClass sootClass = generacteSceneClass("Class" + i, 0);
+      if (i >= 4) {
+        sootClass.setSuperclass(classes.get(9 + (i * 7) % (i - 1)));
+      }
+      sootClass.addInterface(classes.get(1 + i % 8));
+      classes.add(sootClass);
+    }
+    for (int i = 1; i < 8; i++) {
+      classes.get(1 + i).addInterface(classes.get(i));
+    }
+
+    FastHierarchy sequential = new FastHierarchy(Integer.MAX_VALUE);
+    FastHierarchy parallel = new FastHierarchy(0);
+    parallel.freeze();
+
+    for (SootClass child : classes) {
+      assertEquals(new HashSet<>(sequential.getSubclassesOf(child)), new HashSet<>(parallel.getSubclassesOf(child)));
+      if (child.isInterface()) {
+        assertEquals(sequential.getAllImplementersOfInterface(child), parallel.getAllImplementersOfInterface(child));
+      }
+      for (SootClass parent : classes) {
+        assertEquals(child + " in " + parent, sequential.canStoreClass(child, parent), parallel.canStoreClass(child, parent));
+        if (!child.isInterface() && !parent.isInterface()) {
+          // the numbering may differ, as the subclasses are visited in another order, but not the relation
+          assertEquals(sequential.isSubclass(child, parent), parallel.isSubclass(child, parent));
+        }
+      }
+    }
+  }
+
   private static class FastHierarchyForUnittest extends FastHierarchy {
 
     @Override
@@ -0,0 +1,144 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import soot.jimple.IntConstant;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.jimple.NullConstant;
+import soot.jimple.Stmt;
+import soot.jimple.toolkits.callgraph.CallGraph;
+import soot.jimple.toolkits.callgraph.Edge;
+
+/**
+ * Tests for writing and restoring Scene snapshots.
+ */
+public class SceneSnapshotTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void restoresClassesBodiesAndCallGraph() throws Exception {
+    initialize();
+    SootClass cl = new SootClass("TestClass", Modifier.PUBLIC);
+    cl.setSuperclass(Scene.v().getObjectType().getSootClass());
+    Scene.v().addClass(cl);
+    cl.setApplicationClass();
+    cl.setResolvingLevel(SootClass.BODIES);
+
+    SootMethod callee = new SootMethod("callee", Collections.<Type>emptyList(), IntType.v(), Modifier.STATIC);
+    cl.addMethod(callee);
+    JimpleBody calleeBody = Jimple.v().newBody(callee);
+    calleeBody.getUnits().add(Jimple.v().newReturnStmt(IntConstant.v(42)));
+    callee.setActiveBody(calleeBody);
+
+    SootMethod caller = new SootMethod("caller", Collections.<Type>emptyList(), IntType.v(), Modifier.STATIC);
+    cl.addMethod(caller);
+    JimpleBody callerBody = Jimple.v().newBody(caller);
+    // the printer groups locals by type, the snapshot has to keep their order
+    Local z = Jimple.v().newLocal("z", IntType.v());
+    Local a = Jimple.v().newLocal("a", RefType.v("java.lang.Object"));
+    callerBody.getLocals().add(z);
+    callerBody.getLocals().add(a);
+    Stmt call = Jimple.v().newAssignStmt(z, Jimple.v().newStaticInvokeExpr(callee.makeRef()));
+    callerBody.getUnits().add(Jimple.v().newAssignStmt(a, NullConstant.v()));
+    callerBody.getUnits().add(call);
+    callerBody.getUnits().add(Jimple.v().newReturnStmt(z));
+    caller.setActiveBody(callerBody);
+
+    CallGraph cg = new CallGraph();
+    cg.addEdge(new Edge(caller, call, callee));
+    Scene.v().setCallGraph(cg);
+    Scene.v().setEntryPoints(Collections.singletonList(caller));
+    SootField field = new SootField("field", RefType.v("java.lang.Object"));
+    cl.addField(field);
+    Scene.v().getOrMakeFastHierarchy().freeze();
+
+    File snapshot = folder.newFile("scene.snapshot");
+    SceneSnapshot.write(snapshot, true);
+    List<String> expectedClasses = classNames();
+    String expectedCaller = callerBody.toString();
+    int callerNumber = caller.getNumber();
+    int calleeNumber = callee.getNumber();
+    int fieldNumber = field.getNumber();
+
+    G.reset();
+    SceneSnapshot.restore(snapshot);
+
+    assertEquals(expectedClasses, classNames());
+    SootClass restored = Scene.v().getSootClass("TestClass");
+    assertTrue(restored.isApplicationClass());
+    assertEquals(SootClass.BODIES, restored.resolvingLevel());
+    SootMethod restoredCaller = restored.getMethodByName("caller");
+    assertEquals(expectedCaller, restoredCaller.getActiveBody().toString());
+    assertEquals(callerNumber, restoredCaller.getNumber());
+    assertEquals(calleeNumber, restored.getMethodByName("callee").getNumber());
+    assertEquals(fieldNumber, restored.getFieldByName("field").getNumber());
+    assertTrue(Scene.v().hasFastHierarchy());
+    assertTrue(Scene.v().getFastHierarchy().isFrozen());
+    assertTrue(Scene.v().getFastHierarchy().isSubclass(restored, Scene.v().getObjectType().getSootClass()));
+    assertEquals(Collections.singletonList(restoredCaller), Scene.v().getEntryPoints());
+
+    Edge edge = Scene.v().getCallGraph().iterator().next();
+    assertEquals(1, Scene.v().getCallGraph().size());
+    assertEquals(restoredCaller, edge.src());
+    assertEquals(restored.getMethodByName("callee"), edge.tgt());
+    assertEquals(restoredCaller.getActiveBody().getUnits().getSuccOf(restoredCaller.getActiveBody().getUnits().getFirst()),
+        edge.srcUnit());
+    assertTrue(Scene.v().getReachableMethods().contains(restored.getMethodByName("callee")));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void refusesNonEmptyScene() throws Exception {
+    initialize();
+    File snapshot = folder.newFile("scene.snapshot");
+    SceneSnapshot.write(snapshot, false);
+    SceneSnapshot.restore(snapshot);
+  }
+
+  private static void initialize() {
+    G.reset();
+    Scene.v().loadNecessaryClasses();
+  }
+
+  private static List<String> classNames() {
+    List<String> names = new ArrayList<String>();
+    for (SootClass sc : Scene.v().getClasses()) {
+      names.add(sc.getName() + " " + sc.resolvingLevel() + " " + sc.isPhantom());
+    }
+    return names;
+  }
+}
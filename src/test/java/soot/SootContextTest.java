@@ -0,0 +1,202 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import soot.options.Options;
+
+/**
+ * Tests that {@link SootContext}s have independent globals.
+ */
+public class SootContextTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void isolatesConcurrentContexts() throws Exception {
+    G.reset();
+    final G unbound = G.v();
+    final CyclicBarrier barrier = new CyclicBarrier(2);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<Future<String>> results = new ArrayList<Future<String>>();
+      for (int i = 0; i < 2; i++) {
+        final String name = "Context" + i;
+        final SootContext context = SootContext.create();
+        results.add(executor.submit(new Callable<String>() {
+          @Override
+          public String call() throws Exception {
+            return context.call(new Callable<String>() {
+              @Override
+              public String call() throws Exception {
+                assertSame(context, SootContext.current());
+                assertNotSame(unbound, G.v());
+                Options.v().set_output_dir(name);
+                Scene.v().addClass(new SootClass(name));
+                // both contexts have set up their Scene before either looks at it
+                barrier.await();
+                assertEquals(name, Options.v().output_dir());
+                assertEquals(1, Scene.v().getClasses().size());
+                return Scene.v().getClasses().getFirst().getName();
+              }
+            });
+          }
+        }));
+      }
+      assertEquals("Context0", results.get(0).get());
+      assertEquals("Context1", results.get(1).get());
+    } finally {
+      executor.shutdown();
+    }
+    assertSame(unbound, G.v());
+    assertNull(SootContext.current());
+    assertFalse(Scene.v().containsClass("Context0"));
+  }
+
+  @Test
+  public void resetsOnlyTheBoundContext() throws Exception {
+    G.reset();
+    final G unbound = G.v();
+    final SootContext context = SootContext.create();
+    final G first = context.getG();
+    context.run(new Runnable() {
+      @Override
+      public void run() {
+        G.reset();
+      }
+    });
+    assertNotSame(first, context.getG());
+    assertSame(unbound, G.v());
+  }
+
+  @Test
+  public void wrapsTasksForForeignThreads() throws Exception {
+    final SootContext context = SootContext.create();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      // the pool thread is started outside of the context
+      executor.submit(new Runnable() {
+        @Override
+        public void run() {
+        }
+      }).get();
+      Callable<G> task = context.call(new Callable<Callable<G>>() {
+        @Override
+        public Callable<G> call() {
+          return SootContext.wrap(new Callable<G>() {
+            @Override
+            public G call() {
+              return G.v();
+            }
+          });
+        }
+      });
+      assertSame(context.getG(), executor.submit(task).get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void doesNotBindThreadsStartedInTheContext() throws Exception {
+    G.reset();
+    final G unbound = G.v();
+    final SootContext context = SootContext.create();
+    final List<G> seen = new ArrayList<G>();
+    context.call(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        Thread thread = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            seen.add(G.v());
+          }
+        });
+        thread.start();
+        thread.join();
+        thread = new Thread(SootContext.wrap(new Runnable() {
+          @Override
+          public void run() {
+            seen.add(G.v());
+          }
+        }));
+        thread.start();
+        thread.join();
+        return null;
+      }
+    });
+    assertSame(unbound, seen.get(0));
+    assertSame(context.getG(), seen.get(1));
+  }
+
+  @Test
+  public void sharesArchiveIndices() throws Exception {
+    final File jar = folder.newFile("shared.jar");
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+      out.putNextEntry(new ZipEntry("a/A.class"));
+      out.closeEntry();
+    }
+    Callable<ArchiveIndex> lookup = new Callable<ArchiveIndex>() {
+      @Override
+      public ArchiveIndex call() {
+        return SourceLocator.v().getArchiveIndex(jar.getPath());
+      }
+    };
+    ArchiveIndex first = SootContext.create().call(lookup);
+    assertSame(first, SootContext.create().call(lookup));
+
+    // a changed archive is read again
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+      out.putNextEntry(new ZipEntry("a/A.class"));
+      out.closeEntry();
+      out.putNextEntry(new ZipEntry("b/B.class"));
+      out.closeEntry();
+    }
+    ArchiveIndex changed = SootContext.create().call(lookup);
+    assertNotSame(first, changed);
+    assertTrue(changed.contains("b/B.class"));
+  }
+}
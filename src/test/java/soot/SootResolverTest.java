@@ -0,0 +1,66 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import soot.options.Options;
+
+/**
+ * Tests that prefetching class sources on several threads, see {@link Options#resolver_threads()}, resolves the same
+ * classes as the sequential resolver.
+ */
+public class SootResolverTest {
+
+  @Test
+  public void prefetchingResolvesTheSameClasses() {
+    Map<String, Integer> sequential = loadClasses(1);
+    Map<String, Integer> prefetched = loadClasses(4);
+    assertTrue(sequential.size() > 100);
+    assertEquals(sequential, prefetched);
+
+    // the pool has been shut down after the first resolution, further classes are prefetched by a new one
+    SootClass cl = Scene.v().forceResolve("java.util.concurrent.ConcurrentSkipListMap", SootClass.HIERARCHY);
+    assertEquals(SootClass.HIERARCHY, cl.resolvingLevel());
+    assertTrue(cl.getSuperclass().resolvingLevel() >= SootClass.HIERARCHY);
+  }
+
+  /** Returns the resolving level of every class in the Scene after loading the necessary classes. */
+  private static Map<String, Integer> loadClasses(int threads) {
+    G.reset();
+    Options.v().set_resolver_threads(threads);
+    Scene.v().loadNecessaryClasses();
+    Map<String, Integer> levels = new TreeMap<String, Integer>();
+    for (SootClass cl : Scene.v().getClasses()) {
+      levels.put(cl.getName(), cl.resolvingLevel());
+    }
+    return levels;
+  }
+}
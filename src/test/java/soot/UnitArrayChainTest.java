@@ -0,0 +1,166 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import soot.jimple.Jimple;
+import soot.util.Chain;
+import soot.util.HashChain;
+
+/**
+ * Tests that the {@link UnitArrayChain} behaves like a {@link HashChain}.
+ */
+public class UnitArrayChainTest {
+
+  @Test
+  public void behavesLikeHashChain() {
+    Random random = new Random(42);
+    Chain<Unit> expected = new HashChain<Unit>();
+    UnitArrayChain actual = new UnitArrayChain();
+    List<Unit> contained = new ArrayList<Unit>();
+    for (int step = 0; step < 5000; step++) {
+      Unit u = Jimple.v().newNopStmt();
+      int op = contained.isEmpty() ? 0 : random.nextInt(6);
+      Unit point = contained.isEmpty() ? null : contained.get(random.nextInt(contained.size()));
+      switch (op) {
+        case 0:
+          expected.addLast(u);
+          actual.addLast(u);
+          contained.add(u);
+          break;
+        case 1:
+          expected.addFirst(u);
+          actual.addFirst(u);
+          contained.add(u);
+          break;
+        case 2:
+          expected.insertBefore(u, point);
+          actual.insertBefore(u, point);
+          contained.add(u);
+          break;
+        case 3:
+          List<Unit> both = Arrays.asList(u, Jimple.v().newNopStmt());
+          expected.insertAfter(both, point);
+          actual.insertAfter(both, point);
+          contained.addAll(both);
+          break;
+        case 4:
+          assertTrue(expected.remove(point));
+          assertTrue(actual.remove(point));
+          assertFalse(actual.contains(point));
+          contained.remove(point);
+          break;
+        default:
+          Unit other = contained.get(random.nextInt(contained.size()));
+          assertEquals(expected.follows(other, point), actual.follows(other, point));
+          assertSame(expected.getSuccOf(point), actual.getSuccOf(point));
+          assertSame(expected.getPredOf(point), actual.getPredOf(point));
+          break;
+      }
+      assertEquals(expected.size(), actual.size());
+    }
+    assertEquals(new ArrayList<Unit>(expected), new ArrayList<Unit>(actual));
+    assertEquals(Arrays.asList(expected.toArray()), Arrays.asList(actual.toArray()));
+    assertSame(expected.getFirst(), actual.getFirst());
+    assertSame(expected.getLast(), actual.getLast());
+    for (int i = 0; i < actual.size(); i++) {
+      assertEquals(i, actual.indexOf(actual.get(i)));
+    }
+  }
+
+  @Test
+  public void iteratesRangesAndRemoves() {
+    List<Unit> units = new ArrayList<Unit>();
+    for (int i = 0; i < 6; i++) {
+      units.add(Jimple.v().newNopStmt());
+    }
+    UnitArrayChain chain = new UnitArrayChain(units);
+
+    List<Unit> range = new ArrayList<Unit>();
+    for (Iterator<Unit> it = chain.iterator(units.get(1), units.get(3)); it.hasNext();) {
+      range.add(it.next());
+    }
+    assertEquals(units.subList(1, 4), range);
+    assertFalse(chain.iterator(units.get(2), units.get(1)).hasNext());
+
+    for (Iterator<Unit> it = chain.iterator(units.get(2)); it.hasNext();) {
+      if (it.next() != units.get(4)) {
+        it.remove();
+      }
+    }
+    assertEquals(Arrays.asList(units.get(0), units.get(1), units.get(4)), new ArrayList<Unit>(chain));
+    assertNull(chain.getSuccOf(units.get(4)));
+    assertFalse(chain.contains(units.get(2)));
+  }
+
+  @Test
+  public void findsUnitsContainedInTwoChains() {
+    List<Unit> units = new ArrayList<Unit>();
+    for (int i = 0; i < 4; i++) {
+      units.add(Jimple.v().newNopStmt());
+    }
+    UnitArrayChain first = new UnitArrayChain(units);
+    UnitArrayChain second = new UnitArrayChain(units.subList(1, 4));
+    first.remove(units.get(0));
+
+    assertSame(units.get(2), first.getSuccOf(units.get(1)));
+    assertSame(units.get(2), second.getSuccOf(units.get(1)));
+    assertEquals(0, first.indexOf(units.get(1)));
+    assertEquals(0, second.indexOf(units.get(1)));
+  }
+
+  @Test
+  public void compactsBodiesWithoutChangingThem() {
+    G.reset();
+    Body body = Jimple.v().newBody();
+    Unit target = Jimple.v().newNopStmt();
+    Unit jump = Jimple.v().newGotoStmt(target);
+    body.getUnits().add(jump);
+    body.getUnits().add(target);
+    UnitPatchingChain units = body.getUnits();
+
+    body.compactUnits();
+    assertSame(units, body.getUnits());
+    assertTrue(units.getNonPatchingChain() instanceof UnitArrayChain);
+
+    // removing the target still patches the jump
+    Unit replacement = Jimple.v().newNopStmt();
+    units.insertAfter(replacement, target);
+    units.remove(target);
+    assertSame(replacement, jump.getUnitBoxes().get(0).getUnit());
+    assertEquals(Arrays.asList(jump, replacement), new ArrayList<Unit>(units));
+  }
+}
@@ -0,0 +1,161 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.jimple.Jimple;
+import soot.util.LargeNumberedMap;
+
+/**
+ * Tests for the numbering of units by the {@link UnitNumberer}.
+ */
+public class UnitNumbererTest {
+
+  @Before
+  public void setUp() {
+    G.reset();
+  }
+
+  @Test
+  public void numbersUnitsOnDemand() {
+    UnitNumberer numberer = Scene.v().getUnitNumberer();
+    Unit first = Jimple.v().newNopStmt();
+    Unit second = Jimple.v().newNopStmt();
+    assertEquals(0, numberer.size());
+
+    assertEquals(1, second.getNumber());
+    assertEquals(2, first.getNumber());
+    assertEquals(1, second.getNumber());
+    assertSame(first, numberer.get(2L));
+    assertEquals(2, numberer.get(first));
+
+    LargeNumberedMap<Unit, String> map = new LargeNumberedMap<Unit, String>(numberer);
+    map.put(first, "first");
+    assertEquals("first", map.get(first));
+    assertNull(map.get(second));
+  }
+
+  @Test
+  public void reusesRemovedNumbers() {
+    UnitNumberer numberer = Scene.v().getUnitNumberer();
+    List<Unit> units = new ArrayList<Unit>();
+    for (int i = 0; i < 4; i++) {
+      Unit u = Jimple.v().newNopStmt();
+      u.getNumber();
+      units.add(u);
+    }
+    assertTrue(numberer.remove(units.get(1)));
+    assertFalse(numberer.remove(units.get(1)));
+    assertNull(numberer.get(2L));
+
+    Unit fresh = Jimple.v().newNopStmt();
+    assertEquals(2, fresh.getNumber());
+    assertEquals(5, units.get(1).getNumber());
+    assertEquals(5, numberer.size());
+
+    List<Unit> iterated = new ArrayList<Unit>();
+    for (Iterator<Unit> it = numberer.iterator(); it.hasNext();) {
+      iterated.add(it.next());
+    }
+    assertEquals(5, iterated.size());
+    assertSame(fresh, iterated.get(1));
+  }
+
+  @Test
+  public void neverReusesRetiredNumbers() {
+    UnitNumberer numberer = Scene.v().getUnitNumberer();
+    Unit retired = Jimple.v().newNopStmt();
+    Unit kept = Jimple.v().newNopStmt();
+    assertEquals(1, retired.getNumber());
+    assertEquals(2, kept.getNumber());
+
+    assertTrue(numberer.retire(retired));
+    assertFalse(numberer.retire(retired));
+    assertNull(numberer.get(1L));
+    assertEquals(1, retired.getNumber());
+
+    BitSet set = new BitSet();
+    set.set(retired.getNumber());
+    Unit fresh = Jimple.v().newNopStmt();
+    assertEquals(3, fresh.getNumber());
+    assertFalse(set.get(fresh.getNumber()));
+
+    List<Unit> iterated = new ArrayList<Unit>();
+    for (Iterator<Unit> it = numberer.iterator(); it.hasNext();) {
+      iterated.add(it.next());
+    }
+    assertEquals(2, iterated.size());
+    assertSame(kept, iterated.get(0));
+  }
+
+  @Test
+  public void numbersConcurrentlyWithoutDuplicates() throws Exception {
+    final List<Unit> units = new ArrayList<Unit>();
+    for (int i = 0; i < 20000; i++) {
+      units.add(Jimple.v().newNopStmt());
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<Future<?>>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(executor.submit(new Runnable() {
+          @Override
+          public void run() {
+            for (Unit u : units) {
+              u.getNumber();
+            }
+          }
+        }));
+      }
+      for (Future<?> f : futures) {
+        f.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    BitSet seen = new BitSet();
+    for (Unit u : units) {
+      assertFalse(seen.get(u.getNumber()));
+      seen.set(u.getNumber());
+      assertSame(u, Scene.v().getUnitNumberer().get((long) u.getNumber()));
+    }
+    assertEquals(units.size(), seen.cardinality());
+    assertEquals(units.size(), Scene.v().getUnitNumberer().size());
+  }
+}
@@ -0,0 +1,195 @@
+package soot.jimple;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import soot.Body;
+import soot.G;
+import soot.Scene;
+import soot.SootClass;
+import soot.Unit;
+import soot.options.Options;
+
+/**
+ * Tests that the {@link JimpleBodyCache} reads bodies back, and that it ignores bodies that were stored with other settings,
+ * for other supertypes or that cannot be read.
+ */
+public class JimpleBodyCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File classes;
+  private File cache;
+
+  @Before
+  public void setUp() throws IOException {
+    classes = folder.newFolder("classes");
+    cache = folder.newFolder("cache");
+    Files.write(new File(classes, "Cached.class").toPath(), classFile());
+    Files.write(new File(classes, "Base.class").toPath(), baseClassFile(false));
+  }
+
+  @Test
+  public void storesBodiesOnAMissAndReadsThemOnAHit() throws IOException {
+    assertTrue(hasAdd(load()));
+    List<Path> stored = cachedBodies();
+    assertEquals(1, stored.size());
+
+    // a hit returns the stored body, not the one converted from the class file
+    replaceAddByMul(stored.get(0));
+    assertFalse(hasAdd(load()));
+    assertEquals(stored, cachedBodies());
+  }
+
+  @Test
+  public void missesWhenTheOptionsChange() throws IOException {
+    load();
+    replaceAddByMul(cachedBodies().get(0));
+    assertTrue(hasAdd(load("jb", "use-original-names:true")));
+    assertEquals(2, cachedBodies().size());
+  }
+
+  @Test
+  public void missesWhenASupertypeChanges() throws IOException {
+    load();
+    replaceAddByMul(cachedBodies().get(0));
+    Files.write(new File(classes, "Base.class").toPath(), baseClassFile(true));
+    assertTrue(hasAdd(load()));
+    assertEquals(2, cachedBodies().size());
+  }
+
+  @Test
+  public void hitsWhenUnrelatedClassesChange() throws IOException {
+    load();
+    replaceAddByMul(cachedBodies().get(0));
+    Files.write(new File(classes, "Other.class").toPath(), new byte[] { 1, 2, 3 });
+    assertFalse(hasAdd(load()));
+    assertEquals(1, cachedBodies().size());
+  }
+
+  @Test
+  public void fallsBackOnACorruptBody() throws IOException {
+    load();
+    Path stored = cachedBodies().get(0);
+    Files.write(stored, "not a body".getBytes(StandardCharsets.UTF_8));
+    assertTrue(hasAdd(load()));
+    // the corrupt body has been replaced by the converted one
+    assertNotEquals("not a body", new String(Files.readAllBytes(stored), StandardCharsets.UTF_8));
+    assertTrue(hasAdd(load()));
+  }
+
+  private Body load(String... phaseOption) {
+    G.reset();
+    Options.v().set_prepend_classpath(true);
+    Options.v().set_soot_classpath(classes.getPath());
+    Options.v().set_body_cache_dir(cache.getPath());
+    if (phaseOption.length == 2) {
+      Options.v().setPhaseOption(phaseOption[0], phaseOption[1]);
+    }
+    Scene.v().addBasicClass("Cached", SootClass.BODIES);
+    Scene.v().loadNecessaryClasses();
+    return Scene.v().getMethod("<Cached: int twice(int)>").retrieveActiveBody();
+  }
+
+  private List<Path> cachedBodies() throws IOException {
+    try (Stream<Path> paths = Files.walk(cache.toPath())) {
+      return paths.filter(p -> p.toString().endsWith(".body")).sorted().collect(Collectors.toList());
+    }
+  }
+
+  /** Replaces the encoded <code>x + x</code> of the given body by <code>x * x</code>. */
+  private static void replaceAddByMul(Path body) throws IOException {
+    byte[] bytes = Files.readAllBytes(body);
+    // the opcodes of AddExpr, Local 0, Local 0 and MulExpr
+    byte[] add = { 0, 20, 0, 20, 0 };
+    int found = -1;
+    for (int i = 0; i + add.length <= bytes.length; i++) {
+      if (Arrays.equals(add, Arrays.copyOfRange(bytes, i, i + add.length))) {
+        assertEquals(-1, found);
+        found = i;
+      }
+    }
+    assertNotEquals(-1, found);
+    bytes[found] = 11;
+    Files.write(body, bytes);
+  }
+
+  private static boolean hasAdd(Body body) {
+    for (Unit u : body.getUnits()) {
+      if (u instanceof AssignStmt && ((AssignStmt) u).getRightOp() instanceof AddExpr) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns a subclass of <code>Base</code> with the method <code>static int twice(int x) { return x + x; }</code>. */
+  private static byte[] classFile() {
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, "Cached", null, "Base", null);
+    MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "twice", "(I)I", null, null);
+    mv.visitCode();
+    mv.visitVarInsn(Opcodes.ILOAD, 0);
+    mv.visitVarInsn(Opcodes.ILOAD, 0);
+    mv.visitInsn(Opcodes.IADD);
+    mv.visitInsn(Opcodes.IRETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+
+  /** Returns an empty class <code>Base</code>, with a field if asked to. */
+  private static byte[] baseClassFile(boolean withField) {
+    ClassWriter cw = new ClassWriter(0);
+    cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, "Base", null, "java/lang/Object", null);
+    if (withField) {
+      cw.visitField(Opcodes.ACC_PUBLIC, "field", "I", null, null).visitEnd();
+    }
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+}
@@ -0,0 +1,128 @@
+package soot.jimple;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+
+import soot.Body;
+import soot.G;
+import soot.Printer;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.options.Options;
+
+/**
+ * Tests that the {@link JimpleBodyEncoding} reads back the bodies it has written.
+ */
+public class JimpleBodyEncodingTest {
+
+  @Test
+  public void readsBackTheBodiesOfAClass() throws IOException {
+    G.reset();
+    Options.v().set_prepend_classpath(true);
+    Options.v().set_allow_phantom_refs(true);
+    Options.v().set_soot_classpath(System.getProperty("java.class.path"));
+    Scene.v().addBasicClass(Sample.class.getName(), SootClass.BODIES);
+    Scene.v().loadNecessaryClasses();
+    SootClass sample = Scene.v().getSootClass(Sample.class.getName());
+    assertFalse(sample.getMethods().isEmpty());
+    for (SootMethod m : sample.getMethods()) {
+      Body body = m.retrieveActiveBody();
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      JimpleBodyEncoding.write(body, new DataOutputStream(bytes));
+      Body read = JimpleBodyEncoding.read(m, new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+      assertEquals(print(body), print(read));
+    }
+  }
+
+  private static String print(Body body) {
+    StringWriter text = new StringWriter();
+    PrintWriter out = new PrintWriter(text);
+    Printer.v().printTo(body, out);
+    out.flush();
+    return text.toString();
+  }
+
+  /** Has bodies with switches, traps, monitors, arrays and invokedynamic. */
+  @SuppressWarnings("unused")
+  private static class Sample {
+    private long total;
+    private static final Object LOCK = new Object();
+
+    int branch(int x, String s) {
+      switch (x) {
+        case 1:
+          return s.length();
+        case 2:
+          return -x;
+        default:
+          break;
+      }
+      switch (s) {
+        case "a":
+          return 10 >>> x;
+        case "b":
+          return x % 3;
+        default:
+          return x << 2;
+      }
+    }
+
+    double compute(long a, float b, double c) {
+      total += a ^ 5L;
+      return a < 0 ? b / c : (double) (b * a) - c;
+    }
+
+    synchronized Object arrays(Object o) {
+      int[][] grid = new int[3][4];
+      grid[1][2] = grid.length;
+      Object[] objects = new Object[] { o, "text", Sample.class, null };
+      return o instanceof String ? objects : (Object) (String[]) null;
+    }
+
+    Callable<String> lambda(String prefix) throws Exception {
+      synchronized (LOCK) {
+        try {
+          return () -> prefix + total;
+        } catch (IllegalStateException | IllegalArgumentException e) {
+          throw new RuntimeException(e);
+        } finally {
+          total = 0;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package soot.jimple;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.EquivalentValue;
+import soot.G;
+import soot.IntType;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootFieldRef;
+import soot.options.Options;
+
+/**
+ * Tests for the interning of values by the {@link ValueInterner}.
+ */
+public class ValueInternerTest {
+
+  private SootClass holder;
+
+  @Before
+  public void setUp() {
+    G.reset();
+    holder = new SootClass("Holder");
+    Scene.v().addClass(holder);
+  }
+
+  @Test
+  public void createsFreshValuesByDefault() {
+    assertNotSame(IntConstant.v(42), IntConstant.v(42));
+    assertNotSame(StringConstant.v("a"), StringConstant.v("a"));
+    assertNotSame(newStaticFieldRef("f"), newStaticFieldRef("f"));
+  }
+
+  @Test
+  public void sharesEqualValues() {
+    Options.v().set_intern_values(true);
+    assertSame(IntConstant.v(42), IntConstant.v(42));
+    assertSame(LongConstant.v(42L), LongConstant.v(42L));
+    assertSame(FloatConstant.v(1.5f), FloatConstant.v(1.5f));
+    assertSame(DoubleConstant.v(1.5), DoubleConstant.v(1.5));
+    assertSame(StringConstant.v("a"), StringConstant.v("a"));
+    assertSame(ClassConstant.v("Ljava/lang/Object;"), ClassConstant.v("Ljava/lang/Object;"));
+    assertSame(newStaticFieldRef("f"), newStaticFieldRef("f"));
+
+    // values that are equal but of different kinds stay apart
+    assertNotSame(DoubleConstant.v(0.0), DoubleConstant.v(-0.0));
+    assertNotSame(StringConstant.v("Ljava/lang/Object;"), ClassConstant.v("Ljava/lang/Object;"));
+    assertNotSame(newStaticFieldRef("f"), newStaticFieldRef("g"));
+    assertEquals(42, IntConstant.v(42).value);
+  }
+
+  @Test
+  public void keepsStructuralEquivalence() {
+    StaticFieldRef fresh = newStaticFieldRef("f");
+    Options.v().set_intern_values(true);
+    StaticFieldRef interned = newStaticFieldRef("f");
+    assertTrue(interned.equivTo(interned));
+    assertTrue(new EquivalentValue(interned).equals(new EquivalentValue(newStaticFieldRef("f"))));
+    assertTrue(IntConstant.v(7).equivTo(IntConstant.v(7)));
+    assertEquals(fresh.getFieldRef().getSignature(), interned.getFieldRef().getSignature());
+  }
+
+  private StaticFieldRef newStaticFieldRef(String name) {
+    SootFieldRef ref = Scene.v().makeFieldRef(holder, name, IntType.v(), true);
+    return Jimple.v().newStaticFieldRef(ref);
+  }
+}
@@ -0,0 +1,171 @@
+package soot.jimple.toolkits.callgraph;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.G;
+import soot.Kind;
+import soot.MethodOrMethodContext;
+import soot.SootMethod;
+import soot.Type;
+import soot.Unit;
+import soot.VoidType;
+import soot.jimple.Jimple;
+import soot.util.queue.QueueReader;
+
+/**
+ * Tests that a frozen call graph answers the same queries as the call graph it was created from.
+ */
+public class FrozenCallGraphTest {
+
+  private final List<SootMethod> methods = new ArrayList<SootMethod>();
+  private final List<Unit> units = new ArrayList<Unit>();
+  private CallGraph cg;
+
+  @Before
+  public void setUp() {
+    G.reset();
+    for (int i = 0; i < 20; i++) {
+      methods.add(new SootMethod("m" + i, Collections.<Type>emptyList(), VoidType.v()));
+      units.add(Jimple.v().newNopStmt());
+    }
+    cg = new CallGraph();
+    for (int i = 0; i < 200; i++) {
+      int src = (i * 7) % 20;
+      int unit = (i * 3) % 20;
+      int tgt = (i * 11 + 5) % 19;
+      cg.addEdge(new Edge(methods.get(src), units.get(unit), methods.get(tgt), Kind.VIRTUAL));
+    }
+    cg.addEdge(new Edge(methods.get(0), null, methods.get(1), Kind.CLINIT));
+  }
+
+  @Test
+  public void answersTheSameQueries() {
+    assertFreezingKeepsTheAnswers();
+  }
+
+  @Test
+  public void keepsTheOrderOfTheCallGraphAfterRemovals() {
+    // removing the first edge of a key makes the next one its first edge, later edges still go right after it
+    for (Edge e : toList(cg.edgesOutOf(methods.get(3)))) {
+      if (e.tgt() == methods.get(5) || e.tgt() == methods.get(9)) {
+        cg.removeEdge(e);
+      }
+    }
+    cg.removeEdge(cg.edgesOutOf(units.get(4)).next());
+    cg.removeEdge(cg.edgesInto(methods.get(7)).next());
+    cg.addEdge(new Edge(methods.get(3), units.get(4), methods.get(7), Kind.VIRTUAL));
+    assertFreezingKeepsTheAnswers();
+  }
+
+  @Test
+  public void movesTheEdgesOutOfTheCallGraph() {
+    cg.freeze();
+    assertEquals(0, cg.size());
+    assertFalse(cg.edgesOutOf(methods.get(0)).hasNext());
+    assertFalse(cg.edgesOutOf(units.get(0)).hasNext());
+    assertFalse(cg.edgesInto(methods.get(1)).hasNext());
+  }
+
+  /** Freezes the call graph and checks that the frozen graph answers all queries as the call graph did before. */
+  private void assertFreezingKeepsTheAnswers() {
+    int size = cg.size();
+    // the frozen graph returns the edges grouped by their source method
+    Set<MethodOrMethodContext> sources = new LinkedHashSet<MethodOrMethodContext>();
+    for (Edge e : cg) {
+      sources.add(e.getSrc());
+    }
+    List<Edge> grouped = new ArrayList<Edge>();
+    for (MethodOrMethodContext m : sources) {
+      grouped.addAll(toList(cg.edgesOutOf(m)));
+    }
+    List<Object> expected = answers(cg);
+
+    FrozenCallGraph frozen = cg.freeze();
+    assertEquals(size, frozen.size());
+    assertTrue(grouped.equals(toList(frozen.iterator())));
+    // the edges are not printed on a mismatch, as the methods have no declaring class
+    assertTrue(expected.equals(answers(frozen)));
+    assertTrue(frozen.isEntryMethod(methods.get(19)));
+    assertFalse(frozen.edgesInto(methods.get(19)).hasNext());
+  }
+
+  private List<Object> answers(CallGraph g) {
+    List<Object> answers = new ArrayList<Object>();
+    answers.add(toList(g.sourceMethods()));
+    for (SootMethod m : methods) {
+      answers.add(toList(g.edgesOutOf(m)));
+      answers.add(toList(g.edgesInto(m)));
+      answers.add(g.isEntryMethod(m));
+    }
+    for (Unit u : units) {
+      answers.add(toList(g.edgesOutOf(u)));
+      for (SootMethod m : methods) {
+        // several edges may go from a call site to the same method, both graphs return the same one
+        answers.add(g.findEdge(u, m));
+      }
+    }
+    return answers;
+  }
+
+  @Test
+  public void listenerReturnsAllEdges() {
+    FrozenCallGraph frozen = cg.freeze();
+    assertSame(frozen, frozen.freeze());
+    List<Edge> listened = new ArrayList<Edge>();
+    for (QueueReader<Edge> reader = frozen.listener(); reader.hasNext();) {
+      listened.add(reader.next());
+    }
+    assertEquals(toList(frozen.iterator()), listened);
+    assertFalse(frozen.newListener().hasNext());
+    assertNull(frozen.findEdge(Jimple.v().newNopStmt(), methods.get(0)));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void rejectsNewEdges() {
+    cg.freeze().addEdge(new Edge(methods.get(0), units.get(0), methods.get(19), Kind.VIRTUAL));
+  }
+
+  private static <T> List<T> toList(Iterator<T> it) {
+    List<T> ret = new ArrayList<T>();
+    while (it.hasNext()) {
+      ret.add(it.next());
+    }
+    return ret;
+  }
+}
@@ -0,0 +1,198 @@
+package soot.jimple.toolkits.callgraph;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import soot.Body;
+import soot.G;
+import soot.IntType;
+import soot.Local;
+import soot.MethodSource;
+import soot.Modifier;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+import soot.VoidType;
+import soot.jimple.IntConstant;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.jimple.toolkits.pointer.DumbPointerAnalysis;
+
+/**
+ * Tests building the bodies of reachable methods on several threads, see
+ * {@link OnFlyCallGraphBuilder#setBodyLoadingThreads(int)}.
+ */
+public class OnFlyCallGraphBuilderTest {
+
+  private static final int NODES = 40;
+
+  @Test
+  public void addsTheSameEdgesInTheSameOrderWithSeveralThreads() {
+    List<String> sequential = buildCallGraph(1);
+    List<String> parallel = buildCallGraph(4);
+    assertTrue(sequential.size() > NODES);
+    assertEquals(sequential, parallel);
+  }
+
+  @Test
+  public void reportsErrorsOfParallelBodyConstructionOnTheCallingThread() {
+    G.reset();
+    Scene.v().loadNecessaryClasses();
+    final SootClass cl = newClass("Program", Scene.v().getObjectType().getSootClass());
+    final SootMethod good = newMethod(cl, "good", (m, phase) -> callingBody(m));
+    final AtomicBoolean failedOnPool = new AtomicBoolean();
+    final SootMethod bad = newMethod(cl, "bad", (m, phase) -> {
+      if (Thread.currentThread() instanceof ForkJoinWorkerThread) {
+        failedOnPool.set(true);
+      }
+      throw new IllegalStateException("No body for " + m.getName());
+    });
+    final SootMethod main = newMethod(cl, "main", (m, phase) -> callingBody(m, good, bad));
+    Scene.v().setEntryPoints(Collections.singletonList(main));
+
+    CallGraphBuilder builder = new CallGraphBuilder(DumbPointerAnalysis.v());
+    builder.setBodyLoadingThreads(4);
+    try {
+      builder.build();
+      fail("The body of bad cannot be built");
+    } catch (IllegalStateException e) {
+      assertEquals("No body for bad", e.getMessage());
+    } finally {
+      builder.setBodyLoadingThreads(1);
+    }
+    assertTrue(failedOnPool.get());
+    assertTrue(good.hasActiveBody());
+    assertFalse(bad.hasActiveBody());
+  }
+
+  /**
+   * Builds the call graph of a program in which the static methods of a binary tree of classes call their children and
+   * make a virtual call. Every virtual call has a single target, since CHA adds the targets of a call with several ones in
+   * the hash order of the subclasses, which differs between runs.
+   */
+  private static List<String> buildCallGraph(int threads) {
+    G.reset();
+    Scene.v().loadNecessaryClasses();
+    final SootClass object = Scene.v().getObjectType().getSootClass();
+    final List<SootClass> shapes = new ArrayList<SootClass>();
+    final List<SootClass> concreteShapes = new ArrayList<SootClass>();
+    for (String name : new String[] { "Circle", "Square", "Triangle" }) {
+      SootClass shape = newClass("Abstract" + name, object);
+      shape.setModifiers(Modifier.PUBLIC | Modifier.ABSTRACT);
+      shape.addMethod(
+          new SootMethod("area", Collections.<Type>emptyList(), IntType.v(), Modifier.PUBLIC | Modifier.ABSTRACT));
+      SootClass cl = newClass(name, shape);
+      newMethod(cl, "area", IntType.v(), 0, (m, phase) -> returningBody(m));
+      shapes.add(shape);
+      concreteShapes.add(cl);
+    }
+
+    final List<SootMethod> nodes = new ArrayList<SootMethod>();
+    for (int i = 0; i < NODES; i++) {
+      nodes.add(newMethod(newClass("Node" + i, object), "run", null));
+    }
+    for (int i = 0; i < NODES; i++) {
+      final List<SootMethod> callees = new ArrayList<SootMethod>();
+      for (int child = 2 * i + 1; child <= 2 * i + 2 && child < NODES; child++) {
+        callees.add(nodes.get(child));
+      }
+      final SootClass shape = shapes.get(i % shapes.size());
+      final SootClass created = concreteShapes.get(i % shapes.size());
+      nodes.get(i).setSource((m, phase) -> {
+        JimpleBody body = callingBody(m, callees.toArray(new SootMethod[0]));
+        Local s = Jimple.v().newLocal("s", shape.getType());
+        body.getLocals().add(s);
+        body.getUnits().insertBefore(Jimple.v().newAssignStmt(s, Jimple.v().newNewExpr(created.getType())),
+            body.getUnits().getLast());
+        body.getUnits().insertBefore(
+            Jimple.v().newInvokeStmt(Jimple.v().newVirtualInvokeExpr(s, shape.getMethodByName("area").makeRef())),
+            body.getUnits().getLast());
+        return body;
+      });
+    }
+    Scene.v().releaseFastHierarchy();
+    Scene.v().setEntryPoints(Collections.singletonList(nodes.get(0)));
+
+    CallGraphBuilder builder = new CallGraphBuilder(DumbPointerAnalysis.v());
+    builder.setBodyLoadingThreads(threads);
+    try {
+      builder.build();
+    } finally {
+      builder.setBodyLoadingThreads(1);
+    }
+    List<String> edges = new ArrayList<String>();
+    for (Edge e : builder.getCallGraph()) {
+      edges.add(e.toString());
+    }
+    return edges;
+  }
+
+  private static SootClass newClass(String name, SootClass superclass) {
+    SootClass cl = new SootClass(name, Modifier.PUBLIC);
+    cl.setSuperclass(superclass);
+    Scene.v().addClass(cl);
+    cl.setApplicationClass();
+    cl.setResolvingLevel(SootClass.BODIES);
+    return cl;
+  }
+
+  private static SootMethod newMethod(SootClass cl, String name, MethodSource source) {
+    return newMethod(cl, name, VoidType.v(), Modifier.STATIC, source);
+  }
+
+  private static SootMethod newMethod(SootClass cl, String name, Type returnType, int modifiers, MethodSource source) {
+    SootMethod m = new SootMethod(name, Collections.<Type>emptyList(), returnType, Modifier.PUBLIC | modifiers);
+    cl.addMethod(m);
+    m.setSource(source);
+    return m;
+  }
+
+  /** Returns a body that calls the given static methods in order. */
+  private static JimpleBody callingBody(SootMethod m, SootMethod... callees) {
+    JimpleBody body = Jimple.v().newBody(m);
+    for (SootMethod callee : callees) {
+      body.getUnits().add(Jimple.v().newInvokeStmt(Jimple.v().newStaticInvokeExpr(callee.makeRef())));
+    }
+    body.getUnits().add(Jimple.v().newReturnVoidStmt());
+    return body;
+  }
+
+  private static Body returningBody(SootMethod m) {
+    JimpleBody body = Jimple.v().newBody(m);
+    body.getUnits().add(Jimple.v().newReturnStmt(IntConstant.v(m.getDeclaringClass().getName().length())));
+    return body;
+  }
+}
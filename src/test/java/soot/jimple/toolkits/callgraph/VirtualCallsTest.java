@@ -0,0 +1,121 @@
+package soot.jimple.toolkits.callgraph;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.AnySubType;
+import soot.G;
+import soot.Modifier;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+import soot.VoidType;
+import soot.options.Options;
+import soot.util.NumberedString;
+import soot.util.queue.ChunkedQueue;
+import soot.util.queue.QueueReader;
+
+/**
+ * Tests the resolution of calls on interfaces by signature, see {@link VirtualCalls#resolveLibrarySignature}.
+ */
+public class VirtualCallsTest {
+
+  private SootClass provider;
+  private SootMethod implementation;
+  private SootMethod bySignature;
+  private SootMethod container;
+
+  @Before
+  public void setUp() {
+    G.reset();
+    Options.v().set_whole_program(true);
+    Options.v().setPhaseOption("cg", "library:signature-resolution");
+    Scene.v().loadNecessaryClasses();
+    SootClass object = Scene.v().getObjectType().getSootClass();
+
+    provider = new SootClass("Provider", Modifier.PUBLIC | Modifier.INTERFACE | Modifier.ABSTRACT);
+    provider.setSuperclass(object);
+    provider.addMethod(new SootMethod("get", Collections.<Type>emptyList(), object.getType(),
+        Modifier.PUBLIC | Modifier.ABSTRACT));
+
+    // implements the interface
+    SootClass impl = new SootClass("ProviderImpl", Modifier.PUBLIC);
+    impl.setSuperclass(object);
+    impl.addInterface(provider);
+    implementation = new SootMethod("get", Collections.<Type>emptyList(), object.getType(), Modifier.PUBLIC);
+    impl.addMethod(implementation);
+
+    // only matches the signature, with a covariant return type
+    SootClass lookalike = new SootClass("Lookalike", Modifier.PUBLIC);
+    lookalike.setSuperclass(object);
+    bySignature = new SootMethod("get", Collections.<Type>emptyList(), RefType.v("java.lang.String"), Modifier.PUBLIC);
+    lookalike.addMethod(bySignature);
+
+    SootClass caller = new SootClass("Caller", Modifier.PUBLIC);
+    caller.setSuperclass(object);
+    container = new SootMethod("call", Collections.<Type>emptyList(), VoidType.v(), Modifier.PUBLIC | Modifier.STATIC);
+    caller.addMethod(container);
+
+    for (SootClass cl : new SootClass[] { provider, impl, lookalike, caller }) {
+      Scene.v().addClass(cl);
+      cl.setApplicationClass();
+      cl.setResolvingLevel(SootClass.BODIES);
+    }
+    Scene.v().releaseFastHierarchy();
+  }
+
+  @Test
+  public void replaysTheResolvedSubsignatures() {
+    NumberedString subSig = Scene.v().getSubSigNumberer().findOrAdd("java.lang.Object get()");
+    List<SootMethod> first = resolve(subSig);
+    assertTrue(first.contains(implementation));
+    assertTrue(first.contains(bySignature));
+
+    // the second call is answered from the results of the first one
+    List<SootMethod> replayed = resolve(subSig);
+    assertEquals(first, replayed);
+  }
+
+  private List<SootMethod> resolve(NumberedString subSig) {
+    ChunkedQueue<SootMethod> targets = new ChunkedQueue<SootMethod>();
+    QueueReader<SootMethod> reader = targets.reader();
+    RefType type = provider.getType();
+    VirtualCalls.v().resolve(AnySubType.v(type), type, subSig, container, targets);
+    List<SootMethod> ret = new ArrayList<SootMethod>();
+    while (reader.hasNext()) {
+      ret.add(reader.next());
+    }
+    return ret;
+  }
+}
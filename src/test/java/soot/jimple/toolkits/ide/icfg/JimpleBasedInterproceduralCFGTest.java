@@ -0,0 +1,183 @@
+package soot.jimple.toolkits.ide.icfg;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.Body;
+import soot.G;
+import soot.Modifier;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+import soot.Unit;
+import soot.VoidType;
+import soot.jimple.InvokeStmt;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.jimple.toolkits.callgraph.CallGraph;
+import soot.jimple.toolkits.callgraph.Edge;
+
+/**
+ * Tests that the change notifications of {@link AbstractJimpleBasedICFG} refresh the cached information of an edited body.
+ */
+public class JimpleBasedInterproceduralCFGTest {
+
+  private SootMethod main;
+  private SootMethod a;
+  private SootMethod b;
+  private JimpleBody body;
+  private InvokeStmt call;
+  private Unit ret;
+  private CallGraph cg;
+  private JimpleBasedInterproceduralCFG icfg;
+  private Map<Unit, Body> owners;
+
+  /**
+   * Creates a method that calls <code>a</code>, and an ICFG for it.
+   */
+  @Before
+  public void setUp() {
+    G.reset();
+    Scene.v().loadNecessaryClasses();
+    SootClass cl = new SootClass("Program", Modifier.PUBLIC);
+    cl.setSuperclass(Scene.v().getObjectType().getSootClass());
+    Scene.v().addClass(cl);
+    cl.setApplicationClass();
+    main = newMethod(cl, "main");
+    a = newMethod(cl, "a");
+    b = newMethod(cl, "b");
+
+    body = (JimpleBody) main.getActiveBody();
+    ret = body.getUnits().getLast();
+    call = Jimple.v().newInvokeStmt(Jimple.v().newStaticInvokeExpr(a.makeRef()));
+    body.getUnits().insertBefore(call, ret);
+
+    cg = new CallGraph();
+    cg.addEdge(new Edge(main, call, a));
+    Scene.v().setCallGraph(cg);
+    Scene.v().setEntryPoints(Collections.singletonList(main));
+
+    icfg = new JimpleBasedInterproceduralCFG(false) {
+      @Override
+      protected Map<Unit, Body> createUnitToOwnerMap() {
+        owners = super.createUnitToOwnerMap();
+        return owners;
+      }
+    };
+  }
+
+  /** Makes the ICFG cache everything it knows about the call. */
+  private void queryEverything() {
+    assertEquals(Collections.singletonList(ret), icfg.getSuccsOf(call));
+    assertEquals(Collections.singletonList(a), icfg.getCalleesOfCallAt(call));
+    assertEquals(Collections.singletonList(call), icfg.getCallersOf(a));
+    assertEquals(Collections.singleton(call), icfg.getCallsFromWithin(main));
+    assertSame(main, icfg.getMethodOf(call));
+  }
+
+  @Test
+  public void notifyUnitsChangedRefreshesInsertedAndRemovedUnits() {
+    queryEverything();
+    Unit replacement = replaceCallOfAByCallOfB();
+    icfg.notifyUnitsChanged(body, Arrays.asList(call, replacement));
+    assertRefreshed(replacement);
+  }
+
+  @Test
+  public void notifyBodyChangedRefreshesInsertedAndRemovedUnits() {
+    queryEverything();
+    Unit replacement = replaceCallOfAByCallOfB();
+    icfg.notifyBodyChanged(body);
+    assertRefreshed(replacement);
+  }
+
+  @Test
+  public void notifyUnitsChangedRefreshesCallersWithoutCachedCallees() {
+    // only the callers of a are cached, the callees of the call are not
+    assertEquals(Collections.singletonList(call), icfg.getCallersOf(a));
+    Unit replacement = replaceCallOfAByCallOfB();
+    icfg.notifyUnitsChanged(body, Arrays.asList(call, replacement));
+    assertTrue(icfg.getCallersOf(a).isEmpty());
+    assertEquals(Collections.singletonList(replacement), icfg.getCallersOf(b));
+  }
+
+  @Test
+  public void notifyBodyChangedRefreshesUnitsChangedInPlace() {
+    queryEverything();
+    Unit nop = Jimple.v().newNopStmt();
+    body.getUnits().insertAfter(nop, call);
+    call.setInvokeExpr(Jimple.v().newStaticInvokeExpr(b.makeRef()));
+    cg.removeAllEdgesOutOf(call);
+    cg.addEdge(new Edge(main, call, b));
+    icfg.notifyBodyChanged(body);
+
+    assertEquals(Collections.singletonList(nop), icfg.getSuccsOf(call));
+    assertEquals(Collections.singletonList(ret), icfg.getSuccsOf(nop));
+    assertSame(main, icfg.getMethodOf(nop));
+    assertEquals(Collections.singletonList(b), icfg.getCalleesOfCallAt(call));
+    assertTrue(icfg.getCallersOf(a).isEmpty());
+    assertEquals(Collections.singletonList(call), icfg.getCallersOf(b));
+  }
+
+  /** Replaces the call of <code>a</code> by a new call of <code>b</code>, in the body and in the call graph. */
+  private InvokeStmt replaceCallOfAByCallOfB() {
+    InvokeStmt replacement = Jimple.v().newInvokeStmt(Jimple.v().newStaticInvokeExpr(b.makeRef()));
+    body.getUnits().insertAfter(replacement, call);
+    body.getUnits().remove(call);
+    cg.removeAllEdgesOutOf(call);
+    cg.addEdge(new Edge(main, replacement, b));
+    return replacement;
+  }
+
+  private void assertRefreshed(Unit replacement) {
+    assertFalse(owners.containsKey(call));
+    assertSame(main, icfg.getMethodOf(replacement));
+    assertEquals(Collections.singletonList(ret), icfg.getSuccsOf(replacement));
+    assertEquals(Collections.singletonList(b), icfg.getCalleesOfCallAt(replacement));
+    assertTrue(icfg.getCallersOf(a).isEmpty());
+    assertEquals(Collections.singletonList(replacement), icfg.getCallersOf(b));
+    assertEquals(Collections.singleton(replacement), icfg.getCallsFromWithin(main));
+  }
+
+  private static SootMethod newMethod(SootClass cl, String name) {
+    SootMethod m = new SootMethod(name, Collections.<Type>emptyList(), VoidType.v(), Modifier.PUBLIC | Modifier.STATIC);
+    cl.addMethod(m);
+    JimpleBody body = Jimple.v().newBody(m);
+    body.getUnits().add(Jimple.v().newReturnVoidStmt());
+    m.setActiveBody(body);
+    return m;
+  }
+}
@@ -0,0 +1,91 @@
+package soot.tagkit;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for the packed line number and bytecode offset tags of {@link PackedTagHost}.
+ */
+public class PackedTagHostTest {
+
+  @Test
+  public void answersQueriesOnPackedTags() {
+    PackedTagHost host = new PackedTagHost();
+    host.addTag(new LineNumberTag(12));
+    host.addTag(new BytecodeOffsetTag(34));
+
+    assertTrue(host.hasTag(LineNumberTag.IDENTIFIER));
+    assertTrue(host.hasTag(BytecodeOffsetTag.IDENTIFIER));
+    assertFalse(host.hasTag(SourceLnPosTag.IDENTIFIER));
+    assertEquals(12, host.getJavaSourceStartLineNumber());
+    assertEquals(12, ((LineNumberTag) host.getTag(LineNumberTag.IDENTIFIER)).getLineNumber());
+    assertEquals(34, ((BytecodeOffsetTag) host.getTag(BytecodeOffsetTag.IDENTIFIER)).getBytecodeOffset());
+  }
+
+  @Test
+  public void keepsTheOrderOfTags() {
+    PackedTagHost host = new PackedTagHost();
+    Tag other = new StringTag("x");
+    host.addTag(new BytecodeOffsetTag(34));
+    host.addTag(new LineNumberTag(12));
+    host.addTag(other);
+    host.addTag(new LineNumberTag(13));
+
+    List<Tag> tags = host.getTags();
+    assertEquals(4, tags.size());
+    assertEquals(34, ((BytecodeOffsetTag) tags.get(0)).getBytecodeOffset());
+    assertEquals(12, ((LineNumberTag) tags.get(1)).getLineNumber());
+    assertSame(other, tags.get(2));
+    assertEquals(13, ((LineNumberTag) tags.get(3)).getLineNumber());
+
+    // tags handed out once stay the ones of the host
+    assertSame(tags.get(1), host.getTag(LineNumberTag.IDENTIFIER));
+  }
+
+  @Test
+  public void removesAndCopiesPackedTags() {
+    PackedTagHost host = new PackedTagHost();
+    host.addTag(new LineNumberTag(12));
+    host.addTag(new BytecodeOffsetTag(34));
+
+    PackedTagHost copy = new PackedTagHost();
+    copy.addAllTagsOf(host);
+    assertEquals(2, copy.getTags().size());
+
+    host.removeTag(LineNumberTag.IDENTIFIER);
+    assertNull(host.getTag(LineNumberTag.IDENTIFIER));
+    assertEquals(1, host.getTags().size());
+    host.removeAllTags();
+    assertTrue(host.getTags().isEmpty());
+    assertEquals(2, copy.getTags().size());
+  }
+}
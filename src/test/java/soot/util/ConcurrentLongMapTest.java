@@ -0,0 +1,113 @@
+package soot.util;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2020 Raja Vallee-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ConcurrentLongMapTest {
+
+  @Test
+  public void keepsTheFirstValue() {
+    ConcurrentLongMap<String> map = new ConcurrentLongMap<String>();
+    long key = ConcurrentLongMap.key(3, 7);
+    assertNull(map.get(key));
+    assertEquals("a", map.putIfAbsent(key, "a"));
+    assertEquals("a", map.putIfAbsent(key, "b"));
+    assertEquals("a", map.get(key));
+    assertNull(map.get(ConcurrentLongMap.key(7, 3)));
+    assertEquals("zero", map.putIfAbsent(0L, "zero"));
+    assertEquals("zero", map.get(0L));
+  }
+
+  @Test
+  public void growsWithoutLosingEntries() {
+    ConcurrentLongMap<Integer> map = new ConcurrentLongMap<Integer>(4);
+    for (int i = 0; i < 10000; i++) {
+      map.putIfAbsent(ConcurrentLongMap.key(i, i % 17), i);
+    }
+    assertEquals(10000, map.size());
+    for (int i = 0; i < 10000; i++) {
+      assertEquals(Integer.valueOf(i), map.get(ConcurrentLongMap.key(i, i % 17)));
+    }
+  }
+
+  @Test
+  public void agreesOnValuesAcrossThreads() throws Exception {
+    final ConcurrentLongMap<Integer> map = new ConcurrentLongMap<Integer>();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    for (int t = 0; t < 4; t++) {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 5000; i++) {
+            Integer value = map.putIfAbsent(i, i);
+            assertEquals(Integer.valueOf(i), value);
+          }
+        }
+      });
+    }
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.MINUTES);
+    // entries added while the table grows may be lost, but never changed
+    for (int i = 0; i < 5000; i++) {
+      Integer value = map.get(i);
+      if (value != null) {
+        assertEquals(Integer.valueOf(i), value);
+      }
+    }
+  }
+
+  @Test
+  public void returnsTheStoredValueToEveryThread() throws Exception {
+    // large enough to never grow, so that no entry is lost
+    final ConcurrentLongMap<Integer> map = new ConcurrentLongMap<Integer>(20000);
+    final int[][] returned = new int[4][5000];
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    for (int t = 0; t < 4; t++) {
+      final int thread = t;
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 5000; i++) {
+            returned[thread][i] = map.putIfAbsent(i, thread * 5000 + i);
+          }
+        }
+      });
+    }
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.MINUTES);
+    for (int i = 0; i < 5000; i++) {
+      int value = map.get(i);
+      for (int t = 0; t < 4; t++) {
+        assertEquals(value, returned[t][i]);
+      }
+    }
+  }
+}